@@ -0,0 +1,116 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пропускная способность записи файлов при {@value #PRODUCERS} одновременных производителях: асинхронная
+ * запись {@code AsyncFileWriter} против прежнего синхронного вызова {@link Files#writeString} на каждую запись.
+ * <p>
+ * Каждый поток пишет записи размером {@code recordBytes} в один из {@value #FILES} файлов, как анализ
+ * нескольких документов пишет промежуточные файлы. Очередь {@code AsyncFileWriter} ограничена, поэтому в
+ * установившемся режиме скорость постановки в очередь равна скорости записи. Параметр {@code flushPolicy}
+ * относится только к {@code asyncAppend}. Файлы удаляются после каждой итерации.
+ * <p>
+ * Запуск: {@code gradle jmh -PjmhArgs="AsyncFileWriterBenchmark"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(AsyncFileWriterBenchmark.PRODUCERS)
+@State(Scope.Benchmark)
+public class AsyncFileWriterBenchmark {
+
+    static final int PRODUCERS = 16;
+    static final int FILES = 4;
+
+    @Param({"256", "4096"})
+    public int recordBytes;
+
+    @Param({"NONE", "BATCH"})
+    public String flushPolicy;
+
+    private Path directory;
+    private Path[] files;
+    private String record;
+    private AutoCloseable writer;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    /**
+     * Номер файла, в который пишет поток.
+     */
+    @State(Scope.Thread)
+    public static class Producer {
+        int file;
+
+        @Setup
+        public void setUp(AsyncFileWriterBenchmark benchmark) {
+            file = benchmark.threads.getAndIncrement() % FILES;
+        }
+    }
+
+    @Setup
+    public void setUp() throws Throwable {
+        directory = Files.createTempDirectory("async-writer-bench");
+        files = new Path[FILES];
+        for (int i = 0; i < FILES; i++) {
+            files[i] = directory.resolve("artifact-" + i + ".txt");
+        }
+        StringBuilder sb = new StringBuilder(recordBytes);
+        while (sb.length() < recordBytes - 1) {
+            sb.append((char) ('a' + sb.length() % 26));
+        }
+        record = sb.append('\n').toString();
+        writer = DefaultPackage.newAsyncFileWriter(1024, flushPolicy, 1_000);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteFiles() throws Throwable {
+        DefaultPackage.flushAsync(writer).join();
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        writer.close();
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Object asyncAppend(Producer producer) throws Throwable {
+        return DefaultPackage.appendAsync(writer, files[producer.file], record);
+    }
+
+    @Benchmark
+    public Path filesWriteString(Producer producer) throws IOException {
+        return Files.writeString(files[producer.file], record, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение параметров задачи: {@code FileHandler.readSpecificProperties} из общей конфигурации
+ * {@code TaskConfig.shared()}, которая перечитывает {@code properties.cfg} только при его изменении, против
+ * разбора файла при каждом вызове, как читались параметры раньше.
+ * <p>
+ * Параметры читаются на каждый анализируемый документ, поэтому размер документа на стоимость чтения не
+ * влияет и бенчмарк не параметризуется размером.
+ * <p>
+ * Запуск: {@code gradle jmh -PjmhArgs="ConfigReadBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConfigReadBenchmark {
+
+    private static final String[] KEYS = {"object", "additions", "targets"};
+
+    private final Path file = Paths.get("properties.cfg");
+
+    @Benchmark
+    public Map<String, String> sharedConfig() throws Throwable {
+        return DefaultPackage.readSpecificProperties(KEYS);
+    }
+
+    @Benchmark
+    public Map<String, String> parsePerCall() throws Throwable {
+        return DefaultPackage.loadProperties(file);
+    }
+}
@@ -0,0 +1,199 @@
+package benchmarks;
+
+import com.google.genai.Client;
+
+import java.io.Reader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Доступ к классам приложения из пакета по умолчанию.
+ * <p>
+ * JMH не принимает бенчмарки в пакете по умолчанию, а из именованного пакета классы пакета по умолчанию
+ * нельзя импортировать, поэтому публичные методы приложения вызываются через {@link MethodHandle},
+ * хранящиеся в статических финальных полях: JIT встраивает такие вызовы так же, как прямые.
+ */
+final class DefaultPackage {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private static final MethodHandle TERM_MATCHER_COMPILE = findStatic("TermMatcher", "compile",
+            MethodType.methodType(type("TermMatcher"), Map.class));
+    private static final MethodHandle TERM_MATCHER_FIND_ALL = findVirtual("TermMatcher", "findAll",
+            MethodType.methodType(List.class, CharSequence.class));
+    private static final MethodHandle SENTENCE_SPLITTER_SPLIT = findStatic("SentenceSplitter", "split",
+            MethodType.methodType(List.class, String.class));
+    private static final MethodHandle PROMPT_TEMPLATE_NEW = findConstructor("PromptTemplate",
+            MethodType.methodType(void.class, String.class));
+    private static final MethodHandle PROMPT_TEMPLATE_RENDER = findVirtual("PromptTemplate", "render",
+            MethodType.methodType(type("Prompt"), Map.class));
+    private static final MethodHandle PROMPT_TEMPLATE_RENDER_TO = findVirtual("PromptTemplate", "renderTo",
+            MethodType.methodType(long.class, Map.class, Appendable.class));
+    private static final MethodHandle PROMPT_GET_TEXT = findVirtual("Prompt", "getText",
+            MethodType.methodType(String.class));
+    private static final MethodHandle ASYNC_FILE_WRITER_NEW = findConstructor("AsyncFileWriter",
+            MethodType.methodType(void.class, int.class, type("AsyncFileWriter$FlushPolicy"), long.class));
+    private static final MethodHandle ASYNC_FILE_WRITER_APPEND = findVirtual("AsyncFileWriter", "append",
+            MethodType.methodType(CompletableFuture.class, Path.class, String.class));
+    private static final MethodHandle ASYNC_FILE_WRITER_FLUSH = findVirtual("AsyncFileWriter", "flush",
+            MethodType.methodType(CompletableFuture.class));
+    private static final MethodHandle HTML_CLEANER_CLEAN = findStatic("HtmlCleaner", "clean",
+            MethodType.methodType(String.class, String.class));
+    private static final MethodHandle HTML_CLEANER_CLEAN_TO = findStatic("HtmlCleaner", "clean",
+            MethodType.methodType(void.class, Reader.class, Appendable.class));
+    private static final MethodHandle EXTRACTION_RESULT_PARSE = findStatic("ExtractionResult", "parse",
+            MethodType.methodType(type("ExtractionResult"), String.class, List.class));
+    private static final MethodHandle JSON_EXTRACTION_PARSER_PARSE = findStatic("JsonExtractionParser", "parse",
+            MethodType.methodType(type("ExtractionResult"), String.class, List.class));
+    private static final MethodHandle FILE_HANDLER_READ_SPECIFIC_PROPERTIES = findStatic("FileHandler",
+            "readSpecificProperties", MethodType.methodType(Map.class, String[].class));
+    private static final MethodHandle TASK_CONFIG_NEW = findConstructor("TaskConfig",
+            MethodType.methodType(void.class, Path.class, Set.class));
+    private static final MethodHandle TASK_CONFIG_GET_PROPERTIES = findVirtual("TaskConfig", "getProperties",
+            MethodType.methodType(Map.class));
+    private static final MethodHandle GEMINI_CLIENT_HOLDER_CONFIGURE = findStatic("GeminiClientHolder", "configure",
+            MethodType.methodType(void.class, Supplier.class));
+    private static final MethodHandle GEMINI_CLIENT_HOLDER_GET_CLIENT = findStatic("GeminiClientHolder",
+            "getClient", MethodType.methodType(Client.class));
+    private static final MethodHandle GEMINI_CLIENT_HOLDER_SHUTDOWN = findStatic("GeminiClientHolder", "shutdown",
+            MethodType.methodType(void.class));
+    private static final MethodHandle RUSSIAN_STEMMER_STEM = findStatic("RussianStemmer", "stem",
+            MethodType.methodType(String.class, String.class));
+
+    private DefaultPackage() {
+    }
+
+    static Object compileTermMatcher(Map<String, String> groups) throws Throwable {
+        return TERM_MATCHER_COMPILE.invoke(groups);
+    }
+
+    static List<?> findAll(Object termMatcher, CharSequence text) throws Throwable {
+        return (List<?>) TERM_MATCHER_FIND_ALL.invoke(termMatcher, text);
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<String> splitSentences(String text) throws Throwable {
+        return (List<String>) SENTENCE_SPLITTER_SPLIT.invoke(text);
+    }
+
+    static String stem(String word) throws Throwable {
+        return (String) RUSSIAN_STEMMER_STEM.invoke(word);
+    }
+
+    static Object compilePromptTemplate(String template) throws Throwable {
+        return PROMPT_TEMPLATE_NEW.invoke(template);
+    }
+
+    static String renderPrompt(Object promptTemplate, Map<String, String> values) throws Throwable {
+        return (String) PROMPT_GET_TEXT.invoke(PROMPT_TEMPLATE_RENDER.invoke(promptTemplate, values));
+    }
+
+    static long renderPromptTo(Object promptTemplate, Map<String, String> values, Appendable out)
+            throws Throwable {
+        return (long) PROMPT_TEMPLATE_RENDER_TO.invoke(promptTemplate, values, out);
+    }
+
+    /**
+     * @param flushPolicy имя константы {@code AsyncFileWriter.FlushPolicy}.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static AutoCloseable newAsyncFileWriter(int queueCapacity, String flushPolicy, long flushMillis)
+            throws Throwable {
+        Object policy = Enum.valueOf((Class) type("AsyncFileWriter$FlushPolicy"), flushPolicy);
+        return (AutoCloseable) ASYNC_FILE_WRITER_NEW.invoke(queueCapacity, policy, flushMillis);
+    }
+
+    static CompletableFuture<?> appendAsync(Object asyncFileWriter, Path path, String content) throws Throwable {
+        return (CompletableFuture<?>) ASYNC_FILE_WRITER_APPEND.invoke(asyncFileWriter, path, content);
+    }
+
+    static CompletableFuture<?> flushAsync(Object asyncFileWriter) throws Throwable {
+        return (CompletableFuture<?>) ASYNC_FILE_WRITER_FLUSH.invoke(asyncFileWriter);
+    }
+
+    static String cleanHtml(String html) throws Throwable {
+        return (String) HTML_CLEANER_CLEAN.invoke(html);
+    }
+
+    static void cleanHtml(Reader html, Appendable sink) throws Throwable {
+        HTML_CLEANER_CLEAN_TO.invoke(html, sink);
+    }
+
+    /**
+     * @return {@code ExtractionResult} текстового ответа.
+     */
+    static Object parseTextResponse(String response, List<String> targets) throws Throwable {
+        return EXTRACTION_RESULT_PARSE.invoke(response, targets);
+    }
+
+    /**
+     * @return {@code ExtractionResult} структурированного ответа.
+     */
+    static Object parseJsonResponse(String json, List<String> targets) throws Throwable {
+        return JSON_EXTRACTION_PARSER_PARSE.invoke(json, targets);
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, String> readSpecificProperties(String... keys) throws Throwable {
+        return (Map<String, String>) FILE_HANDLER_READ_SPECIFIC_PROPERTIES.invoke(keys);
+    }
+
+    /**
+     * Разбирает файл конфигурации заново, без общего кэша {@code TaskConfig.shared()}.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, String> loadProperties(Path file) throws Throwable {
+        return (Map<String, String>) TASK_CONFIG_GET_PROPERTIES.invoke(TASK_CONFIG_NEW.invoke(file, Set.of()));
+    }
+
+    static void configureGeminiClient(Supplier<Client> factory) throws Throwable {
+        GEMINI_CLIENT_HOLDER_CONFIGURE.invoke(factory);
+    }
+
+    static Client geminiClient() throws Throwable {
+        return (Client) GEMINI_CLIENT_HOLDER_GET_CLIENT.invoke();
+    }
+
+    static void shutdownGeminiClient() throws Throwable {
+        GEMINI_CLIENT_HOLDER_SHUTDOWN.invoke();
+    }
+
+    private static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Класс приложения не найден: " + name, e);
+        }
+    }
+
+    private static MethodHandle findStatic(String owner, String name, MethodType type) {
+        try {
+            return LOOKUP.findStatic(type(owner), name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Метод не найден: " + owner + "." + name, e);
+        }
+    }
+
+    private static MethodHandle findConstructor(String owner, MethodType type) {
+        try {
+            return LOOKUP.findConstructor(type(owner), type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Конструктор не найден: " + owner, e);
+        }
+    }
+
+    private static MethodHandle findVirtual(String owner, String name, MethodType type) {
+        try {
+            return LOOKUP.findVirtual(type(owner), name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Метод не найден: " + owner + "." + name, e);
+        }
+    }
+}
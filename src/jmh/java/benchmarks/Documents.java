@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Входные данные бенчмарков заданного размера.
+ * <p>
+ * Размер задаётся строкой вида {@code 10KB}, {@code 1MB} или {@code 50MB} (в символах, 1KB = 2^10,
+ * 1MB = 2^20), чтобы все бенчмарки документов использовали одну шкалу {@link #SIZES}.
+ */
+final class Documents {
+
+    /**
+     * Размеры документов, общие для бенчмарков: от фрагмента страницы до очень большой выгрузки.
+     */
+    static final String SIZES = "10KB, 1MB, 10MB, 50MB";
+
+    private Documents() {
+    }
+
+    /**
+     * @param size размер вида {@code 10KB} или {@code 50MB}.
+     * @return размер в символах.
+     */
+    static int chars(String size) {
+        String value = size.strip().toUpperCase(Locale.ROOT);
+        if (value.endsWith("KB")) {
+            return Integer.parseInt(value.substring(0, value.length() - 2)) << 10;
+        }
+        if (value.endsWith("MB")) {
+            return Integer.parseInt(value.substring(0, value.length() - 2)) << 20;
+        }
+        throw new IllegalArgumentException("Размер должен быть в KB или MB: " + size);
+    }
+
+    /**
+     * Повторяет содержимое файла рабочего каталога до размера {@code size}.
+     *
+     * @param file имя файла, например {@code rawHtml.txt}.
+     * @param size размер вида {@code 10KB} или {@code 50MB}.
+     * @return текст ровно из {@link #chars(String)} символов.
+     */
+    static String repeat(String file, String size) throws IOException {
+        String corpus = Files.readString(Paths.get(file), StandardCharsets.UTF_8);
+        int chars = chars(size);
+        StringBuilder sb = new StringBuilder(chars + corpus.length());
+        while (sb.length() < chars) {
+            sb.append(corpus).append('\n');
+        }
+        sb.setLength(chars);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package benchmarks;
+
+import com.google.genai.Client;
+import com.google.genai.types.GenerateContentConfig;
+import com.google.genai.types.HttpOptions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вызов {@code generateContent} с созданием клиента Gemini API на каждый вызов (как было раньше) против
+ * общего клиента {@code GeminiClientHolder} с пулом соединений.
+ * <p>
+ * Запросы обслуживает локальная заглушка на {@link HttpServer}, отвечающая сразу, поэтому измеряются только
+ * накладные расходы клиента: построение HTTP-клиента и установка соединения.
+ * <p>
+ * Запуск: {@code gradle jmh -PjmhArgs="GeminiClientBenchmark"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@State(Scope.Benchmark)
+public class GeminiClientBenchmark {
+
+    private static final String MODEL = "gemini-2.5-flash-preview-05-20";
+    private static final byte[] RESPONSE = ("{\"candidates\":[{\"content\":{\"role\":\"model\",\"parts\":"
+            + "[{\"text\":\"ok\"}]},\"finishReason\":\"STOP\"}]}").getBytes(StandardCharsets.UTF_8);
+
+    private final GenerateContentConfig config = GenerateContentConfig.builder().build();
+    private HttpServer server;
+    private ExecutorService executor;
+    private String baseUrl;
+
+    @Setup
+    public void setUp() throws Throwable {
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", GeminiClientBenchmark::respond);
+        server.setExecutor(executor);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        DefaultPackage.configureGeminiClient(this::newClient);
+    }
+
+    @TearDown
+    public void tearDown() throws Throwable {
+        DefaultPackage.shutdownGeminiClient();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Object perCallClient() {
+        try (Client client = newClient()) {
+            return client.models.generateContent(MODEL, "prompt", config);
+        }
+    }
+
+    @Benchmark
+    public Object sharedClient() throws Throwable {
+        return DefaultPackage.geminiClient().models.generateContent(MODEL, "prompt", config);
+    }
+
+    private Client newClient() {
+        return Client.builder()
+                .apiKey("benchmark-key")
+                .httpOptions(HttpOptions.builder().baseUrl(baseUrl).build())
+                .build();
+    }
+
+    private static void respond(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, RESPONSE.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(RESPONSE);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очистка HTML в {@code StringAnalyzer}: однопроходный {@code HtmlCleaner} против прежней очистки через
+ * дерево Jsoup ({@code select(...).remove()} и {@code text()}).
+ * <p>
+ * Страница собирается повторением {@code rawHtml.txt} до заданного размера ({@link Documents}). Вариант
+ * {@code htmlCleanerStreaming} читает страницу из {@link java.io.Reader} и пишет текст в поток,
+ * отбрасывающий данные, — так очищается страница, которая не читается в память целиком.
+ * <p>
+ * Запуск: {@code gradle jmh -PjmhArgs="HtmlCleaningBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class HtmlCleaningBenchmark {
+
+    @Param({Documents.SIZES})
+    public String size;
+
+    private String html;
+
+    @Setup
+    public void setUp() throws Exception {
+        html = Documents.repeat("rawHtml.txt", size);
+    }
+
+    @Benchmark
+    public int htmlCleaner() throws Throwable {
+        return DefaultPackage.cleanHtml(html).length();
+    }
+
+    @Benchmark
+    public void htmlCleanerStreaming() throws Throwable {
+        DefaultPackage.cleanHtml(new StringReader(html), Writer.nullWriter());
+    }
+
+    @Benchmark
+    public int jsoup() {
+        Document doc = Jsoup.parse(html);
+        doc.select("noscript, script, style, iframe, link[rel=stylesheet], meta, head title").remove();
+        return doc.text().length();
+    }
+}
@@ -0,0 +1,85 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение подстановки в шаблон запроса {@code PromptTemplate} с прежней подстановкой тремя
+ * последовательными вызовами {@link String#replace}, каждый из которых копирует запрос целиком.
+ * <p>
+ * Шаблон — {@code baseGeminiPrompt.txt}, документ собирается повторением {@code cleanedHtml.txt} до заданного
+ * размера ({@link Documents}). Вариант {@code renderToWriter} кодирует запрос в UTF-8 и пишет его
+ * в поток, отбрасывающий данные, — так запрос записывается в файл или сокет без сборки строки.
+ * <p>
+ * Запуск: {@code gradle jmh -PjmhArgs="PromptTemplateBenchmark -prof gc"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PromptTemplateBenchmark {
+
+    private static final String SOURCE_TEXT = "{{ИСХОДНЫЙ_ТЕКСТ}}";
+    private static final String OBJECT_VALUES = "{{OBJECT_VALUES}}";
+    private static final String TARGETS_VALUES = "{{TARGETS_VALUES}}";
+
+    @Param({Documents.SIZES})
+    public String size;
+
+    private String templateText;
+    private Object template;
+    private Map<String, String> values;
+    private Writer sink;
+
+    @Setup
+    public void setUp() throws Throwable {
+        templateText = Files.readString(Paths.get("baseGeminiPrompt.txt"), StandardCharsets.UTF_8);
+        template = DefaultPackage.compilePromptTemplate(templateText);
+        values = new HashMap<>();
+        values.put("ИСХОДНЫЙ_ТЕКСТ", Documents.repeat("cleanedHtml.txt", size));
+        values.put("OBJECT_VALUES", "’князь Болконский’, ‘Андрей’");
+        values.put("TARGETS_VALUES", "биография, смерть, внешность, характер, служба");
+        sink = new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int compiledRender() throws Throwable {
+        return DefaultPackage.renderPrompt(template, values).length();
+    }
+
+    @Benchmark
+    public long renderToWriter() throws Throwable {
+        long length = DefaultPackage.renderPromptTo(template, values, sink);
+        sink.flush();
+        return length;
+    }
+
+    @Benchmark
+    public int chainedReplace() {
+        return templateText.replace(OBJECT_VALUES, values.get("OBJECT_VALUES"))
+                .replace(TARGETS_VALUES, values.get("TARGETS_VALUES"))
+                .replace(SOURCE_TEXT, values.get("ИСХОДНЫЙ_ТЕКСТ"))
+                .length();
+    }
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор ответа LLM в {@code ExtractionResult}: текстовый ответ с заголовками групп
+ * ({@code ExtractionResult.parse}) и структурированный JSON-ответ ({@code JsonExtractionParser.parse}).
+ * <p>
+ * Оба ответа содержат одни и те же предложения: строки {@code result.txt}, пронумерованные, чтобы они не
+ * совпадали, и распределённые по элементам {@code targets} по кругу до заданного размера текстового
+ * ответа ({@link Documents}).
+ * <p>
+ * Запуск: {@code gradle jmh -PjmhArgs="ResultParsingBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ResultParsingBenchmark {
+
+    private static final List<String> TARGETS = List.of("биография", "смерть", "внешность", "характер", "служба");
+
+    @Param({Documents.SIZES})
+    public String size;
+
+    private String text;
+    private String json;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<String> corpus = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get("result.txt"), StandardCharsets.UTF_8)) {
+            if (!line.isBlank() && !line.strip().endsWith(":")) {
+                corpus.add(line.strip());
+            }
+        }
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        for (String target : TARGETS) {
+            groups.put(target, new ArrayList<>());
+        }
+        int chars = Documents.chars(size);
+        int length = 0;
+        for (int i = 0; length < chars; i++) {
+            String sentence = corpus.get(i % corpus.size()) + " (" + i + ")";
+            groups.get(TARGETS.get(i % TARGETS.size())).add(sentence);
+            length += sentence.length() + 1;
+        }
+        StringBuilder sb = new StringBuilder(length + 64);
+        groups.forEach((target, sentences) -> {
+            sb.append(target).append(":\n");
+            sentences.forEach(sentence -> sb.append(sentence).append('\n'));
+        });
+        text = sb.toString();
+        json = new ObjectMapper().writeValueAsString(groups);
+    }
+
+    @Benchmark
+    public Object textResponse() throws Throwable {
+        return DefaultPackage.parseTextResponse(text, TARGETS);
+    }
+
+    @Benchmark
+    public Object jsonResponse() throws Throwable {
+        return DefaultPackage.parseJsonResponse(json, TARGETS);
+    }
+}
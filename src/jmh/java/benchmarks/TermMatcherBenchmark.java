@@ -0,0 +1,103 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение поиска критериев {@code TermMatcher} с наивным поиском {@link String#contains} по каждому
+ * предложению и каждому слову варианта.
+ * <p>
+ * Текст собирается повторением {@code cleanedHtml.txt} до заданного размера в мегабайтах (символах × 2^20).
+ * Наивный вариант проверяет только вхождение основ слов без учёта порядка и границ слов, то есть делает
+ * меньше работы, чем {@code TermMatcher}, и потому даёт нижнюю оценку времени прежнего подхода.
+ * <p>
+ * Запуск: {@code gradle jmh -PjmhArgs="TermMatcherBenchmark -prof gc"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TermMatcherBenchmark {
+
+    private static final String OBJECT = "’князь Болконский’, ‘Андрей’";
+    private static final String ADDITIONS = "«Война и мир», ‘Лев Толстой’, ‘один из главных героев романа’";
+    private static final String TARGETS = "биография, смерть, внешность, характер, служба";
+
+    @Param({"1", "4", "16"})
+    public int megabytes;
+
+    private String text;
+    private Object matcher;
+    private List<String[]> naiveVariants;
+
+    @Setup
+    public void setUp() throws Throwable {
+        String corpus = Files.readString(Paths.get("cleanedHtml.txt"), StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder(megabytes << 20);
+        while (sb.length() < megabytes << 20) {
+            sb.append(corpus).append(' ');
+        }
+        text = sb.substring(0, megabytes << 20);
+
+        Map<String, String> groups = new LinkedHashMap<>();
+        groups.put("object", OBJECT);
+        groups.put("additions", ADDITIONS);
+        groups.put("targets", TARGETS);
+        matcher = DefaultPackage.compileTermMatcher(groups);
+
+        naiveVariants = new ArrayList<>();
+        for (String group : groups.values()) {
+            for (String variant : group.split(",")) {
+                String[] words = variant.replaceAll("[«»’‘]", "").strip().split("\\s+");
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = DefaultPackage.stem(words[i]);
+                }
+                naiveVariants.add(words);
+            }
+        }
+    }
+
+    @Benchmark
+    public int termMatcher() throws Throwable {
+        return DefaultPackage.findAll(matcher, text).size();
+    }
+
+    @Benchmark
+    public int naiveContains() throws Throwable {
+        int hits = 0;
+        for (String sentence : DefaultPackage.splitSentences(text)) {
+            String lower = sentence.toLowerCase(Locale.ROOT).replace('ё', 'е');
+            for (String[] words : naiveVariants) {
+                boolean all = true;
+                for (int i = 0; i < words.length && all; i++) {
+                    all = lower.contains(words[i]);
+                }
+                if (all) {
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Адаптивное ограничение числа одновременных запросов по схеме AIMD
+ * (additive increase / multiplicative decrease).
+ * <p>
+ * Каждый успешный запрос увеличивает предел примерно на единицу за «окно» из текущего предела
+ * запросов, а отказ из-за превышения квоты (HTTP 429 или 503) уменьшает предел вдвое. Отказы запросов,
+ * начатых до последнего уменьшения, предел повторно не уменьшают: они вызваны той же перегрузкой.
+ * <p>
+ * Класс потокобезопасен.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double DECREASE_FACTOR = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private long epoch;
+
+    /**
+     * @param initialLimit начальный предел числа одновременных запросов.
+     * @param minLimit     минимальный предел.
+     * @param maxLimit     максимальный предел.
+     * @throws IllegalArgumentException если пределы заданы некорректно.
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Некорректные пределы: initial=" + initialLimit
+                    + ", min=" + minLimit + ", max=" + maxLimit);
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Ожидает свободного места в пределах текущего ограничения и занимает его.
+     *
+     * @return метка запроса, которую необходимо передать в {@link #release(long, boolean)}.
+     * @throws InterruptedException если ожидание было прервано.
+     */
+    public long acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                slotFreed.await();
+            }
+            inFlight++;
+            return epoch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Освобождает место, занятое методом {@link #acquire()}, и корректирует предел.
+     *
+     * @param ticket    метка, полученная от {@link #acquire()}.
+     * @param throttled {@code true}, если сервер отклонил запрос из-за перегрузки или превышения квоты.
+     */
+    public void release(long ticket, boolean throttled) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (throttled) {
+                if (ticket == epoch) {
+                    limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+                    epoch++;
+                }
+            } else {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Освобождает место без изменения предела, например, если запрос завершился ошибкой,
+     * не связанной с нагрузкой.
+     */
+    public void releaseUnchanged() {
+        lock.lock();
+        try {
+            inFlight--;
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return текущий предел числа одновременных запросов.
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
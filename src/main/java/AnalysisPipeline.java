@@ -0,0 +1,221 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Конвейер параллельного анализа множества источников.
+ * <p>
+ * Каждый источник анализируется в отдельном виртуальном потоке (см. {@link TaskExecutors}): очистка
+ * HTML и запрос к Gemini API выполняются одновременно для нескольких источников, а число
+ * одновременно обрабатываемых источников ограничено параметром {@value #MAX_IN_FLIGHT_KEY}.
+ * Результаты передаются в {@link Reporter} по мере готовности, поэтому реализация
+ * {@link Reporter#add(Data)} должна быть потокобезопасной.
+ * <p>
+ * Если задан журнал {@link JobJournal}, стадия и ответ каждого источника записываются в него, и повторный
+ * запуск после аварийного завершения (исчерпание квоты, перезапуск контейнера) не анализирует источники,
+ * ответы для которых уже сохранены: они передаются в {@link Reporter} из журнала. Источники
+ * идентифицируются в журнале описанием ({@link Source#getTitle()}) вместе с отпечатком параметров
+ * анализатора ({@link Analyzer#fingerprint()}), поэтому после изменения критериев поиска или шаблона prompt
+ * ответы, сохранённые прежним запуском, не используются.
+ */
+public class AnalysisPipeline implements AutoCloseable {
+
+    static final String MAX_IN_FLIGHT_KEY = "pipeline.maxInFlight";
+    private static final int DEFAULT_MAX_IN_FLIGHT = 16;
+
+    private final Analyzer<String> analyzer;
+    private final Reporter<String> reporter;
+    private final Semaphore inFlight;
+    private final JobJournal journal;
+    private final boolean ownsJournal;
+    private final String scope;
+    private final ExecutorService executor = TaskExecutors.newPerTaskExecutor("analysis");
+
+    /**
+     * Создаёт конвейер с ограничением числа одновременно обрабатываемых источников и журналом заданий
+     * ({@link JobJournal#fromConfig()}) из {@code properties.cfg}. Журнал закрывается вместе с конвейером.
+     *
+     * @param analyzer анализатор источников.
+     * @param reporter получатель результатов анализа.
+     */
+    public AnalysisPipeline(Analyzer<String> analyzer, Reporter<String> reporter) {
+        this(analyzer, reporter, TaskConfig.shared().getInt(MAX_IN_FLIGHT_KEY, DEFAULT_MAX_IN_FLIGHT),
+                JobJournal.fromConfig(), true);
+    }
+
+    /**
+     * Создаёт конвейер без журнала заданий.
+     *
+     * @param analyzer    анализатор источников.
+     * @param reporter    получатель результатов анализа.
+     * @param maxInFlight максимальное число одновременно обрабатываемых источников.
+     * @throws IllegalArgumentException если {@code maxInFlight < 1}.
+     */
+    public AnalysisPipeline(Analyzer<String> analyzer, Reporter<String> reporter, int maxInFlight) {
+        this(analyzer, reporter, maxInFlight, null, false);
+    }
+
+    /**
+     * @param analyzer    анализатор источников.
+     * @param reporter    получатель результатов анализа.
+     * @param maxInFlight максимальное число одновременно обрабатываемых источников.
+     * @param journal     журнал заданий или {@code null}; закрывать журнал должен вызывающий код.
+     * @throws IllegalArgumentException если {@code maxInFlight < 1}.
+     */
+    public AnalysisPipeline(Analyzer<String> analyzer, Reporter<String> reporter, int maxInFlight,
+                            JobJournal journal) {
+        this(analyzer, reporter, maxInFlight, journal, false);
+    }
+
+    private AnalysisPipeline(Analyzer<String> analyzer, Reporter<String> reporter, int maxInFlight,
+                             JobJournal journal, boolean ownsJournal) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Число одновременно обрабатываемых источников должно быть "
+                    + "положительным: " + maxInFlight);
+        }
+        this.analyzer = analyzer;
+        this.reporter = reporter;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.journal = journal;
+        this.ownsJournal = ownsJournal;
+        String fingerprint = journal == null ? null : analyzer.fingerprint();
+        this.scope = fingerprint == null || fingerprint.isEmpty() ? "" : "\n" + fingerprint;
+    }
+
+    /**
+     * Анализирует все источники и передаёт результаты в {@link Reporter}. Метод возвращает управление
+     * после завершения обработки всех источников. Ошибка анализа одного источника не прерывает
+     * обработку остальных. Источники, завершённые в журнале заданий, не анализируются повторно.
+     *
+     * @param sources источники для анализа.
+     * @return число источников, результаты анализа которых приняты {@link Reporter}.
+     * @throws IntegratorException выбрасывается, если ожидание результатов было прервано.
+     */
+    public int process(List<? extends Source<String>> sources) throws IntegratorException {
+        AtomicInteger accepted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(sources.size());
+        try {
+            for (Source<String> source : sources) {
+                if (reportFromJournal(source)) {
+                    accepted.incrementAndGet();
+                    continue;
+                }
+                inFlight.acquire();
+                try {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            if (analyzeAndReport(source)) {
+                                accepted.incrementAndGet();
+                            }
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            if (journal != null) {
+                journal.sync();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new IntegratorException("Анализ источников прерван", e);
+        } catch (ExecutionException e) {
+            throw new IntegratorException("Ошибка при анализе источников", e.getCause());
+        }
+        return accepted.get();
+    }
+
+    private boolean analyzeAndReport(Source<String> source) {
+        Data<String> result;
+        try {
+            record(source, JobJournal.State.STARTED, null);
+            result = analyzer.analyze(source);
+            if (result != null) {
+                record(source, JobJournal.State.DONE, result.getContent());
+            }
+        } catch (IntegratorException | RuntimeException e) {
+            System.err.println("Ошибка анализа источника '" + source.getTitle() + "': " + e.getMessage());
+            record(source, JobJournal.State.FAILED, e.getMessage());
+            return false;
+        }
+        try {
+            return result != null && reporter.add(result);
+        } catch (IntegratorException | RuntimeException e) {
+            System.err.println("Ошибка передачи результата источника '" + source.getTitle() + "': " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Передаёт в {@link Reporter} ответ, сохранённый в журнале заданий.
+     *
+     * @return {@code true}, если источник уже обработан и повторный анализ не нужен.
+     */
+    private boolean reportFromJournal(Source<String> source) {
+        String result = journal == null ? null : journal.resultOf(journalKey(source));
+        if (result == null) {
+            return false;
+        }
+        try {
+            if (!reporter.add(new TextData(source.getTitle(), result))) {
+                System.err.println("Сохранённый результат источника '" + source.getTitle() + "' не принят");
+            }
+        } catch (IntegratorException | RuntimeException e) {
+            System.err.println("Ошибка передачи результата источника '" + source.getTitle() + "': " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Записывает стадию источника в журнал заданий. Ошибка записи не прерывает анализ: в худшем случае
+     * источник будет проанализирован повторно при следующем запуске.
+     */
+    private void record(Source<String> source, JobJournal.State state, String value) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            switch (state) {
+                case STARTED -> journal.started(journalKey(source));
+                case DONE -> journal.done(journalKey(source), value);
+                case FAILED -> journal.failed(journalKey(source), value);
+            }
+        } catch (IntegratorException e) {
+            System.err.println("Не удалось обновить журнал заданий: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return ключ источника в журнале заданий: описание источника и отпечаток параметров анализатора.
+     */
+    private String journalKey(Source<String> source) {
+        return source.getTitle() + scope;
+    }
+
+    /**
+     * Останавливает потоки конвейера и закрывает журнал заданий, открытый конвейером.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        if (ownsJournal && journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Не удалось закрыть журнал заданий: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,472 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Долгоживущий режим приложения: встроенный HTTP-сервер JDK принимает задания на анализ и выполняет их
+ * в ограниченном пуле потоков. Клиент Gemini API, кэши ответов и стадий и конфигурация создаются один раз
+ * и остаются «тёплыми» между заданиями, поэтому задание не платит за запуск JVM и настройку клиента.
+ * <p>
+ * Программный интерфейс (тела запросов и ответов — JSON в UTF-8):
+ * <ul>
+ * <li>{@code POST /jobs} — поставить задание в очередь. Тело: {@code html} (текст страницы) или {@code url}
+ * (адрес страницы, загружается {@link WebCrawler}, если это разрешено), необязательные {@code title} и
+ * критерии поиска {@code object}, {@code additions}, {@code targets} (незаданные берутся из
+ * {@code properties.cfg}). Ответ {@code 202} с идентификатором задания; {@code 503}, если очередь
+ * заполнена.</li>
+ * <li>{@code GET /jobs/{id}} — состояние задания: {@code QUEUED}, {@code RUNNING}, {@code DONE} или
+ * {@code FAILED}.</li>
+ * <li>{@code GET /jobs/{id}/report} — отчёт {@link TargetReporter} в текстовом формате ответа LLM;
+ * {@code 409}, пока задание не завершено успешно.</li>
+ * <li>{@code GET /health} — число заданий в очереди и в работе.</li>
+ * </ul>
+ * Очередь ограничена параметром {@value #QUEUE_CAPACITY_KEY}, число одновременно выполняемых заданий —
+ * {@value #WORKERS_KEY}. Сервер хранит сведения о последних {@value #RETAINED_JOBS_KEY} заданиях.
+ * <p>
+ * Сервер не проверяет подлинность клиентов, поэтому по умолчанию принимает запросы только с локального
+ * адреса ({@value #HOST_KEY}). Задания с {@code url} заставляют сервер загружать страницы и расходуют квоту
+ * Gemini API, поэтому они принимаются, только если включён параметр {@value #ALLOW_URL_KEY}, и только для
+ * адресов http(s), все адреса хоста которых публичные: не локальные, не частные и не служебные
+ * ({@link #requirePublicUrl(String)}). Перенаправления при загрузке таких страниц не выполняются.
+ * <p>
+ * Класс потокобезопасен.
+ */
+public class AnalysisServer implements AutoCloseable {
+
+    static final String HOST_KEY = "server.host";
+    static final String PORT_KEY = "server.port";
+    static final String ALLOW_URL_KEY = "server.allowUrlJobs";
+    static final String WORKERS_KEY = "server.workers";
+    static final String QUEUE_CAPACITY_KEY = "server.queueCapacity";
+    static final String RETAINED_JOBS_KEY = "server.retainedJobs";
+    static final String MAX_BODY_KEY = "server.maxBodyMegabytes";
+
+    private static final String DEFAULT_HOST = "127.0.0.1";
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_WORKERS = 4;
+    private static final int DEFAULT_QUEUE_CAPACITY = 100;
+    private static final int DEFAULT_RETAINED_JOBS = 1000;
+    private static final int DEFAULT_MAX_BODY_MEGABYTES = 16;
+    private static final int RETRY_AFTER_SECONDS = 5;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Function<Map<String, String>, Analyzer<String>> analyzers;
+    private final WebCrawler crawler;
+    private final String host;
+    private final int port;
+    private final long maxBodyBytes;
+    private final ThreadPoolExecutor workers;
+    private final Map<String, Job> jobs;
+    private final ExecutorService httpExecutor = TaskExecutors.newPerTaskExecutor("http");
+    private HttpServer server;
+
+    /**
+     * Состояние задания.
+     */
+    enum Status {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    /**
+     * Задание на анализ одного источника.
+     */
+    static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final String title;
+        final Map<String, String> criteria;
+        final Instant submittedAt = Instant.now();
+        volatile Status status = Status.QUEUED;
+        volatile Instant finishedAt;
+        volatile String report;
+        volatile String error;
+
+        Job(String title, Map<String, String> criteria) {
+            this.title = title;
+            this.criteria = criteria;
+        }
+    }
+
+    /**
+     * Создаёт сервер, принимающий запросы только с локального адреса {@value #DEFAULT_HOST}.
+     *
+     * @param port          порт HTTP-сервера; 0 — любой свободный.
+     * @param workers       число одновременно выполняемых заданий.
+     * @param queueCapacity число заданий, ожидающих выполнения.
+     * @param retainedJobs  число последних заданий, сведения о которых хранятся.
+     * @param maxBodyBytes  наибольший размер тела запроса.
+     * @param analyzers     создаёт анализатор для критериев поиска задания.
+     * @param crawler       загружает страницы заданий с {@code url} или {@code null}, если такие задания
+     *                      не принимаются.
+     */
+    public AnalysisServer(int port, int workers, int queueCapacity, int retainedJobs, long maxBodyBytes,
+                          Function<Map<String, String>, Analyzer<String>> analyzers, WebCrawler crawler) {
+        this(DEFAULT_HOST, port, workers, queueCapacity, retainedJobs, maxBodyBytes, analyzers, crawler);
+    }
+
+    /**
+     * @param host          адрес, на котором сервер принимает запросы, например {@code 127.0.0.1}
+     *                      или {@code 0.0.0.0} для всех сетевых интерфейсов.
+     * @param port          порт HTTP-сервера; 0 — любой свободный.
+     * @param workers       число одновременно выполняемых заданий.
+     * @param queueCapacity число заданий, ожидающих выполнения.
+     * @param retainedJobs  число последних заданий, сведения о которых хранятся.
+     * @param maxBodyBytes  наибольший размер тела запроса.
+     * @param analyzers     создаёт анализатор для критериев поиска задания.
+     * @param crawler       загружает страницы заданий с {@code url} или {@code null}, если такие задания
+     *                      не принимаются.
+     */
+    public AnalysisServer(String host, int port, int workers, int queueCapacity, int retainedJobs,
+                          long maxBodyBytes, Function<Map<String, String>, Analyzer<String>> analyzers,
+                          WebCrawler crawler) {
+        this.host = host;
+        this.port = port;
+        this.maxBodyBytes = maxBodyBytes;
+        this.analyzers = analyzers;
+        this.crawler = crawler;
+        this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), TaskExecutors.newDaemonThreadFactory("analysis-job"));
+        this.jobs = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+                return size() > retainedJobs;
+            }
+        };
+    }
+
+    /**
+     * Создаёт сервер с параметрами из {@code properties.cfg}. Все задания используют общий кэш стадий
+     * ({@link StagePipeline#sharedCache()}) и, если задания с {@code url} разрешены ({@value #ALLOW_URL_KEY}),
+     * общий {@link WebCrawler}, не выполняющий перенаправления.
+     *
+     * @return сервер; чтобы принимать запросы, вызовите {@link #start()}.
+     */
+    public static AnalysisServer fromConfig() {
+        ResponseCache stageCache = StagePipeline.sharedCache();
+        TaskConfig config = TaskConfig.shared();
+        return new AnalysisServer(
+                config.getString(HOST_KEY, DEFAULT_HOST),
+                config.getInt(PORT_KEY, DEFAULT_PORT),
+                Math.max(1, config.getInt(WORKERS_KEY, DEFAULT_WORKERS)),
+                Math.max(1, config.getInt(QUEUE_CAPACITY_KEY, DEFAULT_QUEUE_CAPACITY)),
+                Math.max(1, config.getInt(RETAINED_JOBS_KEY, DEFAULT_RETAINED_JOBS)),
+                Math.max(1, config.getInt(MAX_BODY_KEY, DEFAULT_MAX_BODY_MEGABYTES)) * 1024L * 1024L,
+                criteria -> new StringAnalyzer(stageCache, criteria),
+                config.getBoolean(ALLOW_URL_KEY, false) ? WebCrawler.fromConfig(false) : null);
+    }
+
+    /**
+     * Запускает HTTP-сервер.
+     *
+     * @return адрес, на котором сервер принимает запросы.
+     * @throws IntegratorException если сервер не удалось запустить.
+     */
+    public synchronized InetSocketAddress start() throws IntegratorException {
+        try {
+            server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IntegratorException("Не удалось запустить HTTP-сервер на " + host + ":" + port, e);
+        }
+        server.createContext("/jobs", this::handleJobs);
+        server.createContext("/health", this::handleHealth);
+        server.setExecutor(httpExecutor);
+        server.start();
+        System.out.println("Сервер анализа принимает задания на " + host + ":" + server.getAddress().getPort());
+        return server.getAddress();
+    }
+
+    /**
+     * Останавливает приём запросов и ожидает завершения выполняемых заданий не дольше 30 секунд.
+     */
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        httpExecutor.shutdownNow();
+        if (crawler != null) {
+            crawler.close();
+        }
+    }
+
+    /**
+     * Ставит задание в очередь.
+     *
+     * @param title    описание источника.
+     * @param source   источник для анализа.
+     * @param criteria критерии поиска задания.
+     * @return задание.
+     * @throws RejectedExecutionException если очередь заполнена.
+     */
+    Job submit(String title, Source<String> source, Map<String, String> criteria) {
+        Job job = new Job(title, criteria);
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+        }
+        try {
+            workers.execute(() -> run(job, source));
+        } catch (RejectedExecutionException e) {
+            synchronized (jobs) {
+                jobs.remove(job.id);
+            }
+            throw e;
+        }
+        return job;
+    }
+
+    Job getJob(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    private void run(Job job, Source<String> source) {
+        job.status = Status.RUNNING;
+        try {
+            Analyzer<String> analyzer = analyzers.apply(job.criteria);
+            Data<String> result = analyzer.analyze(source);
+            String targets = job.criteria.containsKey("targets") ? job.criteria.get("targets")
+                    : FileHandler.readSpecificProperties("targets").get("targets");
+            TargetReporter reporter = new TargetReporter(ExtractionResult.parseTargets(targets));
+            reporter.add(result);
+            job.report = reporter.getReport().getContent();
+            job.status = Status.DONE;
+        } catch (IntegratorException | RuntimeException e) {
+            System.err.println("Задание " + job.id + " завершилось ошибкой: " + e.getMessage());
+            job.error = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+            job.status = Status.FAILED;
+        } finally {
+            job.finishedAt = Instant.now();
+        }
+    }
+
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            String[] parts = path.substring("/jobs".length()).split("/");
+            if (parts.length <= 1) {
+                if (!"POST".equals(method)) {
+                    sendError(exchange, 405, "Метод не поддерживается: " + method);
+                    return;
+                }
+                handleSubmit(exchange);
+                return;
+            }
+            if (!"GET".equals(method)) {
+                sendError(exchange, 405, "Метод не поддерживается: " + method);
+                return;
+            }
+            Job job = getJob(parts[1]);
+            if (job == null || parts.length > 3 || (parts.length == 3 && !"report".equals(parts[2]))) {
+                sendError(exchange, 404, "Задание не найдено: " + path);
+            } else if (parts.length == 2) {
+                sendJson(exchange, 200, describe(job));
+            } else if (job.status == Status.DONE) {
+                send(exchange, 200, "text/plain; charset=UTF-8", job.report);
+            } else {
+                sendJson(exchange, 409, describe(job));
+            }
+        }
+    }
+
+    private void handleSubmit(HttpExchange exchange) throws IOException {
+        JsonNode request;
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxBodyBytes + 1));
+            if (body.length > maxBodyBytes) {
+                sendError(exchange, 413, "Тело запроса больше " + maxBodyBytes + " байт");
+                return;
+            }
+            request = MAPPER.readTree(body);
+        } catch (IOException e) {
+            sendError(exchange, 400, "Некорректный JSON: " + e.getMessage());
+            return;
+        }
+        if (request == null || !request.isObject()) {
+            sendError(exchange, 400, "Тело запроса должно быть JSON-объектом");
+            return;
+        }
+        String html = text(request, "html");
+        String url = text(request, "url");
+        if ((html == null) == (url == null)) {
+            sendError(exchange, 400, "Нужно задать ровно одно из полей html и url");
+            return;
+        }
+        if (url != null && crawler == null) {
+            sendError(exchange, 400, "Загрузка страниц по url отключена (" + ALLOW_URL_KEY + ")");
+            return;
+        }
+        if (url != null) {
+            try {
+                requirePublicUrl(url);
+            } catch (IntegratorException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+        }
+        Map<String, String> criteria = new HashMap<>();
+        for (String key : StringAnalyzer.CRITERIA_KEYS) {
+            String value = text(request, key);
+            if (value != null) {
+                criteria.put(key, value);
+            }
+        }
+        String title = text(request, "title");
+        if (title == null) {
+            title = url != null ? url : "html";
+        }
+        Source<String> source = url != null ? crawler.source(url) : TextSource.of(title, html);
+        try {
+            Job job = submit(title, source, Map.copyOf(criteria));
+            exchange.getResponseHeaders().set("Location", "/jobs/" + job.id);
+            sendJson(exchange, 202, describe(job));
+        } catch (RejectedExecutionException e) {
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+            sendError(exchange, 503, "Очередь заданий заполнена");
+        }
+    }
+
+    /**
+     * Проверяет, что адрес задания можно загрузить: схема http или https, и все адреса хоста публичные —
+     * не локальные, не частные (RFC 1918, RFC 4193, RFC 6598), не link-local и не групповые. Так задание не
+     * может заставить сервер обратиться к внутренним службам сети, в которой он работает.
+     *
+     * @param url адрес страницы.
+     * @throws IntegratorException если адрес некорректен, хост не найден или не является публичным.
+     */
+    static void requirePublicUrl(String url) throws IntegratorException {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            throw new IntegratorException("Некорректный url: " + url, e);
+        }
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            throw new IntegratorException("Поддерживаются только адреса http и https: " + url);
+        }
+        if (uri.getHost() == null) {
+            throw new IntegratorException("В url не задан хост: " + url);
+        }
+        InetAddress[] addresses;
+        try {
+            addresses = InetAddress.getAllByName(uri.getHost());
+        } catch (UnknownHostException e) {
+            throw new IntegratorException("Хост не найден: " + uri.getHost(), e);
+        }
+        for (InetAddress address : addresses) {
+            if (!isPublic(address)) {
+                throw new IntegratorException("Адрес " + uri.getHost() + " не является публичным");
+            }
+        }
+    }
+
+    private static boolean isPublic(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            // 100.64.0.0/10 — общее адресное пространство операторов (RFC 6598)
+            return !((bytes[0] & 0xff) == 100 && (bytes[1] & 0xc0) == 64);
+        }
+        // fc00::/7 — уникальные локальные адреса IPv6 (RFC 4193)
+        return (bytes[0] & 0xfe) != 0xfc;
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            ObjectNode health = MAPPER.createObjectNode()
+                    .put("status", "ok")
+                    .put("queued", workers.getQueue().size())
+                    .put("running", workers.getActiveCount());
+            sendJson(exchange, 200, health);
+        }
+    }
+
+    private static ObjectNode describe(Job job) {
+        ObjectNode node = MAPPER.createObjectNode()
+                .put("id", job.id)
+                .put("title", job.title)
+                .put("status", job.status.name())
+                .put("submittedAt", job.submittedAt.toString());
+        Instant finishedAt = job.finishedAt;
+        if (finishedAt != null) {
+            node.put("finishedAt", finishedAt.toString());
+        }
+        if (job.error != null) {
+            node.put("error", job.error);
+        }
+        return node;
+    }
+
+    private static String text(JsonNode request, String field) {
+        JsonNode value = request.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, MAPPER.createObjectNode().put("error", message));
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        send(exchange, status, "application/json; charset=UTF-8", MAPPER.writeValueAsString(body));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Запускает сервер с параметрами из {@code properties.cfg} и останавливает его при завершении JVM.
+     *
+     * @param args не используются.
+     * @throws IntegratorException если сервер не удалось запустить.
+     */
+    public static void main(String[] args) throws IntegratorException {
+        AnalysisServer analysisServer = fromConfig();
+        Runtime.getRuntime().addShutdownHook(new Thread(analysisServer::close, "analysis-server-shutdown"));
+        analysisServer.start();
+    }
+}
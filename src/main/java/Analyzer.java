@@ -53,4 +53,16 @@ public interface Analyzer<T> {
      */
     public <U> Data<U> analyze(Data<T> data, Converter<T, U> converter) throws IntegratorException;
 
+    /**
+     * Метод возвращает отпечаток параметров анализа: критериев поиска, шаблона запроса и т.п. Результаты
+     * анализа одного источника анализаторами с одинаковым отпечатком взаимозаменяемы, поэтому отпечаток
+     * используется, например, чтобы не переносить результаты между запусками с разными параметрами
+     * (см. {@link AnalysisPipeline}).
+     *
+     * @return отпечаток параметров анализа; по умолчанию пустая строка, то есть параметры не различаются.
+     */
+    public default String fingerprint() {
+        return "";
+    }
+
 }
@@ -1,44 +1,637 @@
 import com.google.genai.Client;
+import com.google.genai.ResponseStream;
 import com.google.genai.errors.ClientException;
+import com.google.genai.errors.ServerException;
 import com.google.genai.types.GenerateContentConfig;
 import com.google.genai.types.GenerateContentResponse;
+import com.google.genai.types.Schema;
+import com.google.genai.types.Type;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
 /**
  * Утилитный класс для выполнения запросов к LLM Gemini через API-клиент {@link Client}.
  * <p>
- * Предоставляет статический метод для генерации контента на основе объединения
- * переданного шаблона prompt и подготовленного HTML.
+ * Предоставляет статический метод для генерации контента по готовому запросу {@link Prompt},
+ * собранному с помощью {@link PromptTemplate}. Все вызовы используют общий
+ * долгоживущий клиент из {@link GeminiClientHolder} и проходят через общий
+ * регулятор {@link RequestThrottle}, соблюдающий квоты модели. Временные ошибки повторяются
+ * согласно {@link RetryPolicy}. Успешные ответы сохраняются в {@link ResponseCache}, и повторный
+ * такой же запрос обслуживается из кэша без обращения к API.
+ * <p>
+ * Для длинных ответов предусмотрен потоковый режим ({@link #streamApiCall(Prompt)}): фрагменты ответа
+ * передаются получателю по мере генерации, и ответ целиком в памяти не собирается.
+ * <p>
+ * В структурированном режиме ({@link #makeStructuredApiCall(Prompt, List)},
+ * {@link #streamStructuredApiCall(Prompt, List)}) модель возвращает JSON по схеме
+ * {@code {"target": ["предложение", ...]}}, который разбирается {@link JsonExtractionParser}
+ * сразу в {@link ExtractionResult}.
+ * <p>
+ * Статический префикс запроса ({@link Prompt#getPrefix()}) регистрируется в API один раз с помощью
+ * {@link PromptPrefixCache}, и в вызовах передаётся только остаток запроса со ссылкой на префикс. Если API
+ * отклоняет ссылку, она забывается, а запрос повторяется целиком.
  */
 public class ApiCaller {
+
+    static final String MODEL_NAME = "gemini-2.5-flash-preview-05-20";
+    static final String STRUCTURED_OUTPUT_KEY = "gemini.structuredOutput";
+
+    static final GenerateContentConfig GENERATION_CONFIG = GenerateContentConfig.builder()
+            .temperature(0.05f)
+            .topP(0.95f)
+            .build();
+    private static final String GENERATION_CONFIG_JSON = GENERATION_CONFIG.toJson();
+    private static final String JSON_MIME_TYPE = "application/json";
+
+    /**
+     * Минимальное число измерений времени ответа, после которого порог хеджирования
+     * вычисляется по 95-му процентилю.
+     */
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    private static final LatencyTracker latencies = new LatencyTracker(256);
+    private static final ExecutorService hedgeExecutor = TaskExecutors.newPerTaskExecutor("gemini-hedge");
+    private static final ExecutorService callExecutor = TaskExecutors.newPerTaskExecutor("gemini-call");
+    private static final ExecutorService streamExecutor = TaskExecutors.newPerTaskExecutor("gemini-stream");
+
+    private static volatile PayloadListener payloadListener;
+    private static volatile RequestThrottle throttle;
+    private static volatile RetryPolicy retryPolicy;
+    private static volatile ResponseCache responseCache;
+    private static volatile boolean responseCacheConfigured;
+    private static boolean responseCacheOwned;
+    private static volatile PromptPrefixCache prefixCache;
+    private static volatile boolean prefixCacheConfigured;
+
+    static {
+        GeminiClientHolder.addShutdownAction(client -> {
+            PromptPrefixCache current = prefixCache;
+            if (current != null) {
+                current.release(client);
+            }
+        });
+        GeminiClientHolder.addShutdownAction(client -> closeOwnedResponseCache());
+    }
+
+    /**
+     * Устанавливает обработчик, который вызывается перед отправкой каждого запроса.
+     *
+     * @param listener обработчик или {@code null}, чтобы отключить учёт запросов.
+     */
+    public static void setPayloadListener(PayloadListener listener) {
+        payloadListener = listener;
+    }
+
+    /**
+     * Заменяет регулятор запросов, по умолчанию создаваемый из параметров {@code properties.cfg}.
+     *
+     * @param requestThrottle новый регулятор запросов; не может быть {@code null}.
+     */
+    public static void setThrottle(RequestThrottle requestThrottle) {
+        if (requestThrottle == null) {
+            throw new NullPointerException("Регулятор запросов не может быть null");
+        }
+        throttle = requestThrottle;
+    }
+
+    static RequestThrottle getThrottle() {
+        RequestThrottle current = throttle;
+        if (current == null) {
+            synchronized (ApiCaller.class) {
+                if (throttle == null) {
+                    throttle = RequestThrottle.fromConfig();
+                }
+                current = throttle;
+            }
+        }
+        return current;
+    }
+
     /**
-     * @param processedHtml предварительно обработанный HTML-контент; не может быть {@code null}
-     * @param prompt        полный промпт для LLM; не может быть {@code null}
+     * Заменяет политику повторных запросов, по умолчанию создаваемую из параметров {@code properties.cfg}.
+     *
+     * @param policy новая политика повторных запросов; не может быть {@code null}.
+     */
+    public static void setRetryPolicy(RetryPolicy policy) {
+        if (policy == null) {
+            throw new NullPointerException("Политика повторных запросов не может быть null");
+        }
+        retryPolicy = policy;
+    }
+
+    static RetryPolicy getRetryPolicy() {
+        RetryPolicy current = retryPolicy;
+        if (current == null) {
+            synchronized (ApiCaller.class) {
+                if (retryPolicy == null) {
+                    retryPolicy = RetryPolicy.fromConfig();
+                }
+                current = retryPolicy;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Заменяет кэш ответов, по умолчанию создаваемый из параметров {@code properties.cfg}.
+     *
+     * @param cache новый кэш ответов или {@code null}, чтобы отключить кэширование.
+     */
+    public static synchronized void setResponseCache(ResponseCache cache) {
+        closeOwnedResponseCache();
+        responseCache = cache;
+        responseCacheConfigured = true;
+    }
+
+    /**
+     * Возвращает кэш ответов к параметрам {@code properties.cfg}: он будет открыт при следующем обращении.
+     */
+    static synchronized void resetResponseCache() {
+        closeOwnedResponseCache();
+        responseCache = null;
+        responseCacheConfigured = false;
+    }
+
+    static ResponseCache getResponseCache() {
+        if (!responseCacheConfigured) {
+            synchronized (ApiCaller.class) {
+                if (!responseCacheConfigured) {
+                    responseCache = ResponseCache.fromConfig();
+                    responseCacheOwned = responseCache != null;
+                    responseCacheConfigured = true;
+                }
+            }
+        }
+        return responseCache;
+    }
+
+    /**
+     * Закрывает кэш ответов, созданный из параметров {@code properties.cfg}, вместе с клиентом Gemini API;
+     * следующий вызов откроет его заново. Кэш, заданный через {@link #setResponseCache(ResponseCache)},
+     * закрывает тот, кто его создал.
+     */
+    private static synchronized void closeOwnedResponseCache() {
+        if (!responseCacheOwned) {
+            return;
+        }
+        ResponseCache current = responseCache;
+        responseCache = null;
+        responseCacheConfigured = false;
+        responseCacheOwned = false;
+        try {
+            current.close();
+        } catch (IOException e) {
+            System.err.println("Ошибка при закрытии кэша ответов: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Заменяет кэш префиксов запросов, по умолчанию создаваемый из параметров {@code properties.cfg}.
+     *
+     * @param cache новый кэш префиксов или {@code null}, чтобы всегда отправлять запросы целиком.
+     */
+    public static synchronized void setPrefixCache(PromptPrefixCache cache) {
+        prefixCache = cache;
+        prefixCacheConfigured = true;
+    }
+
+    static PromptPrefixCache getPrefixCache() {
+        if (!prefixCacheConfigured) {
+            synchronized (ApiCaller.class) {
+                if (!prefixCacheConfigured) {
+                    prefixCache = PromptPrefixCache.fromConfig(MODEL_NAME);
+                    prefixCacheConfigured = true;
+                }
+            }
+        }
+        return prefixCache;
+    }
+
+    /**
+     * @param prompt полный текст запроса для LLM; не может быть {@code null}
      * @return текстовое содержимое ответа LLM, или {@code null} в случае ошибки API-клиента или иной проблемы
-     * @throws IllegalArgumentException если {@code processedHtml == null} или {@code prompt == null}
-     */
-    public static String makeApiCall(String processedHtml, String prompt) {
-
-        if (processedHtml == null || prompt == null) {
-            System.err.println("Ошибка: processedHtml или prompt не могут быть null.");
-            throw new IllegalArgumentException("Ошибка: processedHtml или prompt не могут быть null.");
-        }
-
-        final String modelName = "gemini-2.5-flash-preview-05-20";
-        GenerateContentResponse response;
-        String responseText = null;
-        try (Client client = new Client()){
-            String fullPrompt = prompt + processedHtml;
-            response = client.models.generateContent(modelName, fullPrompt,
-                    GenerateContentConfig.builder()
-                            .temperature(0.05f)
-                            .topP(0.95f)
-                            .build());
-            responseText = response.text();
+     * @throws IllegalArgumentException если {@code prompt == null}
+     */
+    public static String makeApiCall(String prompt) {
+        return makeApiCall(prompt == null ? null : new Prompt(prompt));
+    }
+
+    /**
+     * Отправляет запрос в LLM. Текст запроса передаётся без изменений, поэтому исходный документ,
+     * подставленный в него шаблоном, отправляется ровно один раз.
+     *
+     * @param prompt запрос для LLM; не может быть {@code null}
+     * @return текстовое содержимое ответа LLM, или {@code null} в случае ошибки API-клиента или иной проблемы
+     * @throws IllegalArgumentException если {@code prompt == null}
+     */
+    public static String makeApiCall(Prompt prompt) {
+        requirePrompt(prompt);
+
+        ResponseCache cache = getResponseCache();
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = ResponseCache.key(MODEL_NAME, GENERATION_CONFIG_JSON, prompt.getText());
+            String cached = cache.get(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        try {
+            String responseText = callWithRetry(prompt, GENERATION_CONFIG);
+            if (cache != null) {
+                cache.put(cacheKey, responseText);
+            }
+            return responseText;
         } catch (ClientException e) {
             System.err.println("Ошибка клиента API: " + e.getMessage());
+        } catch (ServerException e) {
+            System.err.println("Ошибка сервера API: " + e.getMessage());
+        } catch (TimeoutException e) {
+            System.err.println(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Вызов API прерван.");
         } catch (Exception e) {
             System.err.println("Неожиданная ошибка при вызове API или обработке ответа: " + e.getMessage());
         }
-        return responseText;
+        return null;
+    }
+
+    /**
+     * Отправляет запрос в LLM в потоковом режиме. Запрос отправляется при подписке на возвращаемый
+     * издатель; получатель получает фрагменты текста ответа в порядке их генерации. Временные ошибки
+     * повторяются согласно {@link RetryPolicy}, пока получателю не передан первый фрагмент; ошибка,
+     * возникшая позже, завершает поток с ошибкой {@link IntegratorException}.
+     * <p>
+     * Потоковые ответы не сохраняются в {@link ResponseCache}, поскольку для этого пришлось бы
+     * собирать ответ в памяти целиком.
+     *
+     * @param prompt запрос для LLM; не может быть {@code null}
+     * @return издатель фрагментов ответа, допускающий одного подписчика.
+     * @throws IllegalArgumentException если {@code prompt == null}
+     */
+    public static Flow.Publisher<String> streamApiCall(Prompt prompt) {
+        requirePrompt(prompt);
+        return new ResponsePublisher(prompt, streamExecutor);
+    }
+
+    /**
+     * Отправляет запрос в LLM в потоковом режиме и передаёт фрагменты ответа обработчику в вызывающем потоке.
+     *
+     * @param prompt  запрос для LLM; не может быть {@code null}
+     * @param onChunk обработчик фрагментов текста ответа.
+     * @return суммарная длина полученного текста в символах.
+     * @throws IntegratorException выбрасывается, если ответ не удалось получить.
+     * @throws IllegalArgumentException если {@code prompt == null}
+     */
+    public static long streamApiCall(Prompt prompt, Consumer<String> onChunk) throws IntegratorException {
+        requirePrompt(prompt);
+        AtomicBoolean delivered = new AtomicBoolean();
+        try {
+            return withRetry(() -> streamOnce(prompt, GENERATION_CONFIG, onChunk, delivered), () -> !delivered.get(),
+                    false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IntegratorException("Потоковый вызов API прерван", e);
+        } catch (Exception e) {
+            throw new IntegratorException("Ошибка потокового вызова API: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Отправляет запрос в LLM, требуя ответ в формате JSON по схеме {@code {"target": ["предложение", ...]}}
+     * ({@link #structuredConfig(List)}), и разбирает ответ в {@link ExtractionResult}. Ответы, как и в
+     * {@link #makeApiCall(Prompt)}, повторяются при временных ошибках и сохраняются в {@link ResponseCache}.
+     *
+     * @param prompt  запрос для LLM; не может быть {@code null}
+     * @param targets элементы {@code targets}, для которых извлекается информация.
+     * @return результат извлечения.
+     * @throws IntegratorException выбрасывается, если ответ не удалось получить или он не соответствует схеме.
+     * @throws IllegalArgumentException если {@code prompt == null}
+     */
+    public static ExtractionResult makeStructuredApiCall(Prompt prompt, List<String> targets)
+            throws IntegratorException {
+        requirePrompt(prompt);
+        GenerateContentConfig config = structuredConfig(targets);
+        ResponseCache cache = getResponseCache();
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = ResponseCache.key(MODEL_NAME, config.toJson(), prompt.getText());
+            String cached = cache.get(cacheKey);
+            if (cached != null) {
+                return JsonExtractionParser.parse(cached, targets);
+            }
+        }
+        String responseText;
+        try {
+            responseText = callWithRetry(prompt, config);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IntegratorException("Вызов API прерван", e);
+        } catch (Exception e) {
+            throw new IntegratorException("Ошибка вызова API: " + e.getMessage(), e);
+        }
+        if (responseText == null) {
+            throw new IntegratorException("Gemini API не вернул ответ");
+        }
+        ExtractionResult result = JsonExtractionParser.parse(responseText, targets);
+        if (cache != null) {
+            cache.put(cacheKey, responseText);
+        }
+        return result;
+    }
+
+    /**
+     * Отправляет запрос в LLM в потоковом структурированном режиме: фрагменты JSON-ответа разбираются
+     * {@link JsonExtractionParser} по мере получения, и ответ в одну строку не собирается. Такие ответы
+     * не сохраняются в {@link ResponseCache}.
+     *
+     * @param prompt  запрос для LLM; не может быть {@code null}
+     * @param targets элементы {@code targets}, для которых извлекается информация.
+     * @return результат извлечения.
+     * @throws IntegratorException выбрасывается, если ответ не удалось получить или он не соответствует схеме.
+     * @throws IllegalArgumentException если {@code prompt == null}
+     */
+    public static ExtractionResult streamStructuredApiCall(Prompt prompt, List<String> targets)
+            throws IntegratorException {
+        requirePrompt(prompt);
+        GenerateContentConfig config = structuredConfig(targets);
+        JsonExtractionParser parser = new JsonExtractionParser(targets);
+        AtomicBoolean delivered = new AtomicBoolean();
+        try {
+            withRetry(() -> streamOnce(prompt, config, chunk -> {
+                try {
+                    parser.feed(chunk);
+                } catch (IntegratorException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }, delivered), () -> !delivered.get(), false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IntegratorException("Потоковый вызов API прерван", e);
+        } catch (IllegalStateException e) {
+            throw e.getCause() instanceof IntegratorException ? (IntegratorException) e.getCause()
+                    : new IntegratorException("Ошибка потокового вызова API: " + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new IntegratorException("Ошибка потокового вызова API: " + e.getMessage(), e);
+        }
+        return parser.finish();
+    }
+
+    /**
+     * Параметры генерации структурированного ответа: JSON-объект, в котором каждому элементу {@code targets}
+     * соответствует массив найденных предложений.
+     *
+     * @param targets элементы {@code targets}.
+     * @return параметры генерации.
+     */
+    static GenerateContentConfig structuredConfig(List<String> targets) {
+        Schema sentences = Schema.builder()
+                .type(Type.Known.ARRAY)
+                .items(Schema.builder().type(Type.Known.STRING).build())
+                .build();
+        Map<String, Schema> properties = new LinkedHashMap<>();
+        for (String target : targets) {
+            properties.put(target, sentences);
+        }
+        return GENERATION_CONFIG.toBuilder()
+                .responseMimeType(JSON_MIME_TYPE)
+                .responseSchema(Schema.builder()
+                        .type(Type.Known.OBJECT)
+                        .properties(properties)
+                        .propertyOrdering(new ArrayList<>(properties.keySet()))
+                        .required(new ArrayList<>(properties.keySet()))
+                        .build())
+                .build();
+    }
+
+    /**
+     * Выполняет запрос, повторяя его при временных ошибках, пока не исчерпаны попытки или время.
+     */
+    private static String callWithRetry(Prompt prompt, GenerateContentConfig config) throws Exception {
+        RetryPolicy policy = getRetryPolicy();
+        return withRetry(() -> policy.isHedgeEnabled() ? callHedged(prompt, config, policy) : callOnce(prompt, config),
+                () -> true, true);
+    }
+
+    /**
+     * Выполняет попытки вызова, пока вызов не завершится успешно, ошибка не окажется постоянной или
+     * не будут исчерпаны попытки и время, отведённые политикой {@link RetryPolicy}.
+     * <p>
+     * Ограниченная попытка выполняется в отдельном потоке и прерывается, когда истекает оставшееся время;
+     * тогда выбрасывается {@link TimeoutException}. Потоковые попытки передают фрагменты ответа в вызывающем
+     * потоке и не ограничиваются: зависшее чтение прерывается таймаутом соединения
+     * ({@link GeminiClientHolder#SOCKET_TIMEOUT_KEY}).
+     *
+     * @param attempt      одна попытка вызова.
+     * @param retryAllowed проверяет, допустим ли повтор после неудачной попытки.
+     * @param bounded      ограничить каждую попытку временем, оставшимся до истечения {@code retry.deadlineMs}.
+     */
+    private static <T> T withRetry(Callable<T> attempt, BooleanSupplier retryAllowed, boolean bounded)
+            throws Exception {
+        RetryPolicy policy = getRetryPolicy();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(policy.getDeadlineMillis());
+        for (int number = 1; ; number++) {
+            try {
+                return bounded ? callBefore(attempt, deadline, policy) : attempt.call();
+            } catch (Exception e) {
+                if (number >= policy.getMaxAttempts() || !policy.isRetryable(e) || !retryAllowed.getAsBoolean()) {
+                    throw e;
+                }
+                long delay = policy.backoffMillis(number);
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (delay >= remaining) {
+                    throw e;
+                }
+                System.err.println("Временная ошибка API (попытка " + number + " из " + policy.getMaxAttempts()
+                        + "): " + e.getMessage() + ". Повтор через " + delay + " мс.");
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Выполняет попытку в потоке {@link #callExecutor}, ожидая её не дольше {@code deadline}.
+     */
+    private static <T> T callBefore(Callable<T> attempt, long deadline, RetryPolicy policy) throws Exception {
+        Future<T> call = callExecutor.submit(attempt);
+        try {
+            return call.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (TimeoutException e) {
+            throw new TimeoutException("Вызов API не завершился за " + policy.getDeadlineMillis() + " мс ("
+                    + RetryPolicy.DEADLINE_KEY + ")");
+        } finally {
+            call.cancel(true);
+        }
+    }
+
+    /**
+     * Отправляет запрос и, если ответ не получен за время порога хеджирования, отправляет второй такой же
+     * запрос. Возвращается первый успешный ответ; ошибка выбрасывается, только если отказали оба запроса.
+     */
+    private static String callHedged(Prompt prompt, GenerateContentConfig config, RetryPolicy policy)
+            throws Exception {
+        long hedgeDelay = policy.getHedgeDelayMillis();
+        if (hedgeDelay == 0) {
+            hedgeDelay = latencies.size() >= MIN_HEDGE_SAMPLES ? latencies.percentile(95) : -1;
+        }
+        if (hedgeDelay < 0) {
+            return callOnce(prompt, config);
+        }
+        CompletionService<String> completion = new ExecutorCompletionService<>(hedgeExecutor);
+        List<Future<String>> calls = new ArrayList<>(2);
+        try {
+            calls.add(completion.submit(() -> callOnce(prompt, config)));
+            Future<String> done = completion.poll(hedgeDelay, TimeUnit.MILLISECONDS);
+            if (done == null) {
+                calls.add(completion.submit(() -> callOnce(prompt, config)));
+                done = completion.take();
+            }
+            try {
+                return done.get();
+            } catch (ExecutionException e) {
+                if (calls.size() < 2) {
+                    throw unwrap(e);
+                }
+                try {
+                    return completion.take().get();
+                } catch (ExecutionException second) {
+                    throw unwrap(second);
+                }
+            }
+        } finally {
+            calls.forEach(call -> call.cancel(true));
+        }
+    }
+
+    /**
+     * Выполняет одну попытку запроса с учётом регулятора запросов.
+     */
+    private static String callOnce(Prompt prompt, GenerateContentConfig config) throws InterruptedException {
+        RequestThrottle requestThrottle = getThrottle();
+        long ticket = requestThrottle.acquire(prompt.getEstimatedTokens());
+        Throwable failure = null;
+        try {
+            PayloadListener listener = payloadListener;
+            if (listener != null) {
+                listener.onPayload(MODEL_NAME, prompt);
+            }
+            long start = System.nanoTime();
+            Client client = GeminiClientHolder.getClient();
+            GenerateContentResponse response = withPrefixCache(client, prompt, config,
+                    (text, cachedConfig) -> client.models.generateContent(MODEL_NAME, text, cachedConfig));
+            String responseText = response.text();
+            latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return responseText;
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            requestThrottle.release(ticket, failure);
+        }
+    }
+
+    /**
+     * Выполняет одну попытку потокового запроса с учётом регулятора запросов. Время ответа учитывается
+     * до получения первого фрагмента. Итератор {@link ResponseStream} читает одно событие наперёд,
+     * поэтому каждый фрагмент передаётся обработчику с приходом следующего.
+     */
+    private static long streamOnce(Prompt prompt, GenerateContentConfig config, Consumer<String> onChunk,
+                                   AtomicBoolean delivered)
+            throws InterruptedException {
+        RequestThrottle requestThrottle = getThrottle();
+        long ticket = requestThrottle.acquire(prompt.getEstimatedTokens());
+        Throwable failure = null;
+        try {
+            PayloadListener listener = payloadListener;
+            if (listener != null) {
+                listener.onPayload(MODEL_NAME, prompt);
+            }
+            long start = System.nanoTime();
+            long length = 0;
+            Client client = GeminiClientHolder.getClient();
+            try (ResponseStream<GenerateContentResponse> stream = withPrefixCache(client, prompt, config,
+                    (text, cachedConfig) -> client.models.generateContentStream(MODEL_NAME, text, cachedConfig))) {
+                for (GenerateContentResponse response : stream) {
+                    String chunk = response.text();
+                    if (chunk == null || chunk.isEmpty()) {
+                        continue;
+                    }
+                    if (!delivered.getAndSet(true)) {
+                        latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    }
+                    length += chunk.length();
+                    onChunk.accept(chunk);
+                }
+            }
+            return length;
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            requestThrottle.release(ticket, failure);
+        }
+    }
+
+    /**
+     * Выполняет запрос, заменяя статический префикс ссылкой из {@link PromptPrefixCache}, если она есть.
+     * Если API отклоняет ссылку ошибкой клиента, кроме превышения квоты (например, ссылка истекла или
+     * удалена), ссылка забывается, и запрос выполняется повторно с полным текстом.
+     *
+     * @param request вызов API, получающий текст запроса и параметры генерации.
+     */
+    private static <T> T withPrefixCache(Client client, Prompt prompt, GenerateContentConfig config,
+                                         BiFunction<String, GenerateContentConfig, T> request) {
+        PromptPrefixCache cache = getPrefixCache();
+        String handle = cache == null ? null : cache.handleFor(client, prompt);
+        if (handle == null) {
+            return request.apply(prompt.getText(), config);
+        }
+        try {
+            return request.apply(prompt.getSuffix(), config.toBuilder().cachedContent(handle).build());
+        } catch (ClientException e) {
+            if (e.code() == 429) {
+                throw e;
+            }
+            System.err.println("Кэшированный префикс запроса отклонён (" + e.getMessage()
+                    + "), запрос отправляется целиком.");
+            cache.invalidate(prompt);
+            return request.apply(prompt.getText(), config);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException если {@code prompt == null}
+     */
+    private static void requirePrompt(Prompt prompt) {
+        if (prompt == null) {
+            System.err.println("Ошибка: prompt не может быть null.");
+            throw new IllegalArgumentException("Ошибка: prompt не может быть null.");
+        }
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof Exception ? (Exception) cause : e;
     }
 
 }
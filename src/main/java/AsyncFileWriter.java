@@ -0,0 +1,409 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Асинхронная запись текстовых файлов одним фоновым потоком.
+ * <p>
+ * Вызовы {@link #write(Path, String)} и {@link #append(Path, String)} кодируют текст в UTF-8 и ставят его
+ * в очередь, не дожидаясь записи, поэтому поток анализа не блокируется на файловом вводе-выводе. Фоновый
+ * поток забирает из очереди всё накопившееся, группирует записи по файлам и записывает каждую группу
+ * одним вызовом {@link FileChannel#write(ByteBuffer[])}; если в группе есть перезапись файла, более
+ * ранние записи этого файла не выполняются вовсе. Каналы открытых файлов переиспользуются (не больше
+ * {@value #MAX_OPEN_FILES}). Очередь ограничена: при её заполнении вызывающий поток ждёт.
+ * <p>
+ * Когда данные сбрасываются на диск ({@link FileChannel#force(boolean)}), определяет {@link FlushPolicy};
+ * {@link #flush()} и {@link #close()} дожидаются записи всех ранее поставленных в очередь данных. Ошибки
+ * записи выводятся в {@code System.err} и завершают исключением {@link CompletableFuture} соответствующих
+ * вызовов.
+ * <p>
+ * Класс потокобезопасен; порядок записей одного файла совпадает с порядком вызовов.
+ */
+public class AsyncFileWriter implements AutoCloseable {
+
+    static final String QUEUE_CAPACITY_KEY = "output.queueCapacity";
+    static final String FLUSH_POLICY_KEY = "output.flushPolicy";
+    static final String FLUSH_MILLIS_KEY = "output.flushMillis";
+    static final String DEBUG_ARTIFACTS_KEY = "output.debugArtifacts";
+
+    static final int MAX_OPEN_FILES = 64;
+    private static final int MAX_BATCH = 1024;
+
+    private static AsyncFileWriter shared;
+
+    /**
+     * Политика сброса записанных данных на диск.
+     */
+    public enum FlushPolicy {
+        /**
+         * Данные передаются операционной системе, на диск они сбрасываются только при {@link #close()}.
+         */
+        NONE,
+        /**
+         * Изменённые файлы сбрасываются на диск после каждой пачки записей.
+         */
+        BATCH,
+        /**
+         * Изменённые файлы сбрасываются на диск не чаще одного раза в {@code flushMillis} миллисекунд.
+         */
+        INTERVAL
+    }
+
+    /**
+     * Операция очереди: запись в файл или, если {@code path == null}, ожидание записи предыдущих операций.
+     */
+    private static final class Operation {
+        final Path path;
+        final ByteBuffer data;
+        final boolean replace;
+        final boolean close;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Operation(Path path, ByteBuffer data, boolean replace, boolean close) {
+            this.path = path;
+            this.data = data;
+            this.replace = replace;
+            this.close = close;
+        }
+    }
+
+    private final BlockingQueue<Operation> queue;
+    private final FlushPolicy flushPolicy;
+    private final long flushNanos;
+    private final Map<Path, FileChannel> channels = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Path> dirty = new HashSet<>();
+    private final Thread worker;
+    private volatile boolean closed;
+    private long lastFlushNanos = System.nanoTime();
+
+    /**
+     * @param queueCapacity наибольшее число записей в очереди.
+     * @param flushPolicy   политика сброса данных на диск.
+     * @param flushMillis   интервал сброса для {@link FlushPolicy#INTERVAL} в миллисекундах.
+     */
+    public AsyncFileWriter(int queueCapacity, FlushPolicy flushPolicy, long flushMillis) {
+        if (queueCapacity < 1 || flushMillis < 0) {
+            throw new IllegalArgumentException("Некорректные параметры записи файлов");
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flushPolicy = flushPolicy;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.worker = TaskExecutors.newDaemonThreadFactory("output-writer").newThread(this::run);
+        worker.start();
+    }
+
+    /**
+     * Создаёт объект записи с параметрами из {@code properties.cfg}.
+     *
+     * @return объект записи файлов.
+     */
+    public static AsyncFileWriter fromConfig() {
+        TaskConfig config = TaskConfig.shared();
+        String policy = config.getString(FLUSH_POLICY_KEY, null);
+        FlushPolicy flushPolicy = FlushPolicy.NONE;
+        if (policy != null) {
+            try {
+                flushPolicy = FlushPolicy.valueOf(policy.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Некорректное значение параметра '" + FLUSH_POLICY_KEY + "': '" + policy
+                        + "', используется " + flushPolicy);
+            }
+        }
+        return new AsyncFileWriter(Math.max(1, config.getInt(QUEUE_CAPACITY_KEY, 1024)),
+                flushPolicy, Math.max(0, config.getInt(FLUSH_MILLIS_KEY, 1_000)));
+    }
+
+    /**
+     * Возвращает общий объект записи файлов приложения, создавая его по параметрам из {@code properties.cfg}
+     * при первом обращении. Он закрывается при завершении JVM, и поставленные в очередь данные записываются.
+     *
+     * @return общий объект записи файлов.
+     */
+    public static synchronized AsyncFileWriter shared() {
+        if (shared == null) {
+            AsyncFileWriter writer = fromConfig();
+            Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "output-writer-shutdown"));
+            shared = writer;
+        }
+        return shared;
+    }
+
+    /**
+     * Проверяет, нужно ли записывать промежуточные файлы для отладки (очищенный текст, итоговый prompt).
+     * По умолчанию они записываются.
+     *
+     * @return значение параметра {@value #DEBUG_ARTIFACTS_KEY}.
+     */
+    public static boolean isDebugArtifactsEnabled() {
+        return TaskConfig.shared().getBoolean(DEBUG_ARTIFACTS_KEY, true);
+    }
+
+    /**
+     * Ставит в очередь перезапись файла: файл создаётся при необходимости, прежнее содержимое удаляется.
+     *
+     * @param path    файл.
+     * @param content новое содержимое файла.
+     * @return завершается после записи или исключением, если файл не удалось записать.
+     * @throws IllegalStateException если объект записи закрыт.
+     */
+    public CompletableFuture<Void> write(Path path, String content) {
+        return enqueue(new Operation(normalize(path), encode(content), true, false));
+    }
+
+    /**
+     * Ставит в очередь дописывание текста в конец файла; файл создаётся при необходимости.
+     *
+     * @param path    файл.
+     * @param content дописываемый текст.
+     * @return завершается после записи или исключением, если файл не удалось записать.
+     * @throws IllegalStateException если объект записи закрыт.
+     */
+    public CompletableFuture<Void> append(Path path, String content) {
+        return enqueue(new Operation(normalize(path), encode(content), false, false));
+    }
+
+    /**
+     * Ставит в очередь отметку, которая обрабатывается после всех ранее поставленных записей. Изменённые
+     * файлы при этом сбрасываются на диск, если политика сброса не {@link FlushPolicy#NONE}.
+     *
+     * @return завершается, когда все ранее поставленные записи выполнены.
+     * @throws IllegalStateException если объект записи закрыт.
+     */
+    public CompletableFuture<Void> flush() {
+        return enqueue(new Operation(null, null, false, false));
+    }
+
+    /**
+     * Записывает все поставленные в очередь данные, сбрасывает файлы на диск и закрывает их. Повторный вызов
+     * ничего не делает.
+     */
+    @Override
+    public void close() {
+        Operation stop;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            stop = new Operation(null, null, false, true);
+        }
+        try {
+            queue.put(stop);
+            stop.done.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            worker.interrupt();
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(Operation operation) {
+        if (closed) {
+            throw new IllegalStateException("Запись файлов завершена");
+        }
+        try {
+            queue.put(operation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            operation.done.completeExceptionally(e);
+        }
+        return operation.done;
+    }
+
+    private void run() {
+        List<Operation> batch = new ArrayList<>();
+        boolean stopping = false;
+        try {
+            while (!stopping) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                stopping = process(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            forceDirty(true);
+            for (FileChannel channel : channels.values()) {
+                closeQuietly(channel);
+            }
+            channels.clear();
+            batch.addAll(queue);
+            queue.clear();
+            for (Operation operation : batch) {
+                operation.done.completeExceptionally(new IllegalStateException("Запись файлов завершена"));
+            }
+        }
+    }
+
+    /**
+     * Выполняет пачку операций.
+     *
+     * @return {@code true}, если в пачке была операция закрытия.
+     */
+    private boolean process(List<Operation> batch) {
+        Map<Path, List<Operation>> byPath = new LinkedHashMap<>();
+        List<Operation> barriers = new ArrayList<>();
+        for (Operation operation : batch) {
+            if (operation.path == null) {
+                barriers.add(operation);
+            } else {
+                byPath.computeIfAbsent(operation.path, p -> new ArrayList<>()).add(operation);
+            }
+        }
+        List<Operation> written = new ArrayList<>(batch.size());
+        for (Map.Entry<Path, List<Operation>> group : byPath.entrySet()) {
+            if (writeGroup(group.getKey(), group.getValue())) {
+                written.addAll(group.getValue());
+            }
+        }
+        boolean stopping = false;
+        for (Operation barrier : barriers) {
+            stopping |= barrier.close;
+        }
+        if (!barriers.isEmpty() || flushPolicy == FlushPolicy.BATCH
+                || flushPolicy == FlushPolicy.INTERVAL && System.nanoTime() - lastFlushNanos >= flushNanos) {
+            forceDirty(stopping);
+        }
+        for (Operation operation : written) {
+            operation.done.complete(null);
+        }
+        for (Operation barrier : barriers) {
+            if (!barrier.close) {
+                barrier.done.complete(null);
+            }
+        }
+        if (stopping) {
+            for (FileChannel channel : channels.values()) {
+                closeQuietly(channel);
+            }
+            channels.clear();
+            for (Operation barrier : barriers) {
+                barrier.done.complete(null);
+            }
+        }
+        return stopping;
+    }
+
+    /**
+     * Записывает операции одного файла одним вызовом: если среди них есть перезапись, записываются
+     * только последняя перезапись и следующие за ней дописывания.
+     *
+     * @return {@code true}, если запись выполнена; иначе операции завершены исключением.
+     */
+    private boolean writeGroup(Path path, List<Operation> operations) {
+        int first = 0;
+        for (int i = operations.size() - 1; i >= 0; i--) {
+            if (operations.get(i).replace) {
+                first = i;
+                break;
+            }
+        }
+        ByteBuffer[] buffers = new ByteBuffer[operations.size() - first];
+        long remaining = 0;
+        for (int i = first; i < operations.size(); i++) {
+            buffers[i - first] = operations.get(i).data;
+            remaining += operations.get(i).data.remaining();
+        }
+        try {
+            FileChannel channel = channel(path);
+            if (operations.get(first).replace) {
+                channel.truncate(0);
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+            dirty.add(path);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Ошибка: Не удалось записать в файл '" + path + "': " + e.getMessage());
+            FileChannel channel = channels.remove(path);
+            if (channel != null) {
+                closeQuietly(channel);
+            }
+            dirty.remove(path);
+            for (Operation operation : operations) {
+                operation.done.completeExceptionally(e);
+            }
+            return false;
+        }
+    }
+
+    private FileChannel channel(Path path) throws IOException {
+        FileChannel channel = channels.get(path);
+        if (channel != null) {
+            return channel;
+        }
+        if (channels.size() >= MAX_OPEN_FILES) {
+            Map.Entry<Path, FileChannel> eldest = channels.entrySet().iterator().next();
+            channels.remove(eldest.getKey());
+            if (dirty.remove(eldest.getKey()) && flushPolicy != FlushPolicy.NONE) {
+                force(eldest.getKey(), eldest.getValue());
+            }
+            closeQuietly(eldest.getValue());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        channels.put(path, channel);
+        return channel;
+    }
+
+    /**
+     * Сбрасывает изменённые файлы на диск, если этого требует политика сброса или {@code always}.
+     */
+    private void forceDirty(boolean always) {
+        if (always || flushPolicy != FlushPolicy.NONE) {
+            for (Path path : dirty) {
+                FileChannel channel = channels.get(path);
+                if (channel != null) {
+                    force(path, channel);
+                }
+            }
+            dirty.clear();
+        }
+        lastFlushNanos = System.nanoTime();
+    }
+
+    private static void force(Path path, FileChannel channel) {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("Ошибка: Не удалось сохранить файл '" + path + "' на диск: " + e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Ошибка при закрытии файла: " + e.getMessage());
+        }
+    }
+
+    private static Path normalize(Path path) {
+        if (path == null) {
+            throw new NullPointerException("Путь к файлу не может быть null");
+        }
+        return path.toAbsolutePath().normalize();
+    }
+
+    private static ByteBuffer encode(String content) {
+        if (content == null) {
+            throw new NullPointerException("Содержимое для записи не может быть null");
+        }
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,317 @@
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.genai.types.GenerateContentConfig;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Пакетный режим Gemini API (Batch API) для больших заданий, не требующих быстрого ответа.
+ * <p>
+ * Запросы записываются в файл JSONL (одна строка {@code {"key": ..., "request": ...}} на запрос), файл
+ * загружается через Files API, после чего создаётся пакетное задание
+ * {@code models/{model}:batchGenerateContent}. Состояние задания опрашивается с интервалом
+ * {@value #POLL_SECONDS_KEY}, а по завершении файл результатов скачивается и разбирается построчно:
+ * ответ каждой строки сопоставляется с запросом по ключу. SDK {@code google-genai} версии 1.0.0 пакетных
+ * заданий не поддерживает, поэтому используется REST API через {@link HttpClient}.
+ * <p>
+ * Параметры читаются из {@code properties.cfg}:
+ * <ul>
+ * <li>{@value #BASE_URL_KEY} — адрес API (например, локальной заглушки для тестов);</li>
+ * <li>{@value #POLL_SECONDS_KEY} — интервал опроса состояния задания;</li>
+ * <li>{@value #TIMEOUT_HOURS_KEY} — максимальное время ожидания задания.</li>
+ * </ul>
+ * Ключ API берётся из переменной окружения {@code GOOGLE_API_KEY} (или {@code GEMINI_API_KEY}).
+ */
+public class BatchCaller {
+
+    static final String BASE_URL_KEY = "gemini.batch.baseUrl";
+    static final String POLL_SECONDS_KEY = "gemini.batch.pollSeconds";
+    static final String TIMEOUT_HOURS_KEY = "gemini.batch.timeoutHours";
+
+    private static final String DEFAULT_BASE_URL = "https://generativelanguage.googleapis.com";
+    private static final String API_VERSION = "v1beta";
+    private static final String JSONL_MIME_TYPE = "application/jsonl";
+    private static final Set<String> SUCCEEDED = Set.of("BATCH_STATE_SUCCEEDED", "JOB_STATE_SUCCEEDED");
+    private static final Set<String> FAILED = Set.of("BATCH_STATE_FAILED", "BATCH_STATE_CANCELLED",
+            "BATCH_STATE_EXPIRED", "JOB_STATE_FAILED", "JOB_STATE_CANCELLED", "JOB_STATE_EXPIRED");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+    private final String baseUrl;
+    private final String apiKey;
+    private final Duration pollInterval;
+    private final Duration timeout;
+
+    /**
+     * @param baseUrl      адрес API без завершающей косой черты.
+     * @param apiKey       ключ API.
+     * @param pollInterval интервал опроса состояния задания.
+     * @param timeout      максимальное время ожидания задания.
+     */
+    public BatchCaller(String baseUrl, String apiKey, Duration pollInterval, Duration timeout) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.apiKey = apiKey;
+        this.pollInterval = pollInterval;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Создаёт экземпляр с параметрами из {@code properties.cfg} и ключом API из окружения.
+     *
+     * @return новый экземпляр.
+     * @throws IntegratorException если ключ API не задан.
+     */
+    public static BatchCaller fromConfig() throws IntegratorException {
+        String apiKey = System.getenv("GOOGLE_API_KEY");
+        if (apiKey == null || apiKey.isBlank()) {
+            apiKey = System.getenv("GEMINI_API_KEY");
+        }
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new IntegratorException("Не задан ключ API: переменная окружения GOOGLE_API_KEY");
+        }
+        TaskConfig config = TaskConfig.shared();
+        return new BatchCaller(config.getString(BASE_URL_KEY, DEFAULT_BASE_URL), apiKey,
+                Duration.ofSeconds(Math.max(1, config.getInt(POLL_SECONDS_KEY, 30))),
+                Duration.ofHours(Math.max(1, config.getInt(TIMEOUT_HOURS_KEY, 24))));
+    }
+
+    /**
+     * Выполняет запросы одним пакетным заданием с параметрами генерации {@link ApiCaller#GENERATION_CONFIG}
+     * и ожидает его завершения.
+     *
+     * @param prompts запросы по ключам; ключи должны быть уникальны в пределах задания.
+     * @return тексты ответов по ключам запросов в исходном порядке; для запросов, завершившихся ошибкой,
+     *         значение равно {@code null}.
+     * @throws IntegratorException если задание не удалось создать, оно завершилось неудачно или не успело
+     *                             завершиться за отведённое время.
+     */
+    public Map<String, String> run(Map<String, Prompt> prompts) throws IntegratorException {
+        return run(prompts, ApiCaller.GENERATION_CONFIG);
+    }
+
+    /**
+     * Выполняет запросы одним пакетным заданием и ожидает его завершения.
+     *
+     * @param prompts запросы по ключам; ключи должны быть уникальны в пределах задания.
+     * @param config  параметры генерации, например схема структурированного ответа
+     *                ({@link ApiCaller#structuredConfig(List)}).
+     * @return тексты ответов по ключам запросов в исходном порядке; для запросов, завершившихся ошибкой,
+     *         значение равно {@code null}.
+     * @throws IntegratorException если задание не удалось создать, оно завершилось неудачно или не успело
+     *                             завершиться за отведённое время.
+     */
+    public Map<String, String> run(Map<String, Prompt> prompts, GenerateContentConfig config)
+            throws IntegratorException {
+        Map<String, String> responses = new LinkedHashMap<>();
+        prompts.keySet().forEach(key -> responses.put(key, null));
+        if (prompts.isEmpty()) {
+            return responses;
+        }
+        Path input = null;
+        try {
+            input = Files.createTempFile("gemini-batch-", ".jsonl");
+            writeRequests(prompts, config, input);
+            String inputFile = upload(input);
+            String batch = create(inputFile);
+            System.out.println("Создано пакетное задание " + batch + " (" + prompts.size() + " запросов)");
+            String responsesFile = await(batch);
+            download(responsesFile, responses);
+            return responses;
+        } catch (IOException e) {
+            throw new IntegratorException("Ошибка пакетного задания: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IntegratorException("Ожидание пакетного задания прервано", e);
+        } finally {
+            if (input != null) {
+                try {
+                    Files.deleteIfExists(input);
+                } catch (IOException e) {
+                    System.err.println("Не удалось удалить файл " + input + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Записывает запросы в файл JSONL потоковым генератором, не собирая файл в памяти.
+     */
+    static void writeRequests(Map<String, Prompt> prompts, GenerateContentConfig config, Path file)
+            throws IOException {
+        String generationConfig = config.toJson();
+        try (OutputStream out = Files.newOutputStream(file);
+             JsonGenerator json = MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.setRootValueSeparator(null);
+            for (Map.Entry<String, Prompt> entry : prompts.entrySet()) {
+                json.writeStartObject();
+                json.writeStringField("key", entry.getKey());
+                json.writeObjectFieldStart("request");
+                json.writeArrayFieldStart("contents");
+                json.writeStartObject();
+                json.writeStringField("role", "user");
+                json.writeArrayFieldStart("parts");
+                json.writeStartObject();
+                json.writeStringField("text", entry.getValue().getText());
+                json.writeEndObject();
+                json.writeEndArray();
+                json.writeEndObject();
+                json.writeEndArray();
+                json.writeFieldName("generationConfig");
+                json.writeRawValue(generationConfig);
+                json.writeEndObject();
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+        }
+    }
+
+    /**
+     * Загружает файл запросов по протоколу resumable upload Files API.
+     *
+     * @return имя загруженного файла, например {@code files/abc}.
+     */
+    private String upload(Path input) throws IOException, InterruptedException {
+        HttpResponse<String> start = send(request("/upload/" + API_VERSION + "/files")
+                .header("X-Goog-Upload-Protocol", "resumable")
+                .header("X-Goog-Upload-Command", "start")
+                .header("X-Goog-Upload-Header-Content-Length", Long.toString(Files.size(input)))
+                .header("X-Goog-Upload-Header-Content-Type", JSONL_MIME_TYPE)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"file\":{\"displayName\":\"integrator-batch\"}}"))
+                .build());
+        String uploadUrl = start.headers().firstValue("X-Goog-Upload-URL")
+                .orElseThrow(() -> new IOException("сервер не вернул адрес загрузки файла"));
+        HttpResponse<String> finish = send(HttpRequest.newBuilder(URI.create(uploadUrl))
+                .header("x-goog-api-key", apiKey)
+                .header("X-Goog-Upload-Command", "upload, finalize")
+                .header("X-Goog-Upload-Offset", "0")
+                .POST(HttpRequest.BodyPublishers.ofFile(input))
+                .build());
+        return requireText(MAPPER.readTree(finish.body()).path("file").path("name"), "имя загруженного файла");
+    }
+
+    /**
+     * @return имя пакетного задания, например {@code batches/123}.
+     */
+    private String create(String inputFile) throws IOException, InterruptedException {
+        String body = MAPPER.createObjectNode().set("batch", MAPPER.createObjectNode()
+                .put("displayName", "integrator-batch")
+                .set("inputConfig", MAPPER.createObjectNode().put("fileName", inputFile))).toString();
+        HttpResponse<String> response = send(request("/" + API_VERSION + "/models/" + ApiCaller.MODEL_NAME
+                + ":batchGenerateContent")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build());
+        return requireText(MAPPER.readTree(response.body()).path("name"), "имя пакетного задания");
+    }
+
+    /**
+     * Опрашивает состояние задания до его завершения.
+     *
+     * @return имя файла с результатами.
+     */
+    private String await(String batch) throws IOException, InterruptedException, IntegratorException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            JsonNode status = MAPPER.readTree(send(request("/" + API_VERSION + "/" + batch).GET().build()).body());
+            JsonNode metadata = status.path("metadata");
+            String state = metadata.path("state").asText(status.path("state").asText(""));
+            if (SUCCEEDED.contains(state)) {
+                JsonNode file = status.path("response").path("responsesFile");
+                if (file.isMissingNode()) {
+                    file = metadata.path("output").path("responsesFile");
+                }
+                return requireText(file, "файл результатов пакетного задания");
+            }
+            if (FAILED.contains(state) || status.has("error")) {
+                throw new IntegratorException("Пакетное задание " + batch + " завершилось неудачно: "
+                        + (status.has("error") ? status.path("error").path("message").asText() : state));
+            }
+            if (System.nanoTime() + pollInterval.toNanos() > deadline) {
+                throw new IntegratorException("Пакетное задание " + batch + " не завершилось за " + timeout);
+            }
+            Thread.sleep(pollInterval.toMillis());
+        }
+    }
+
+    /**
+     * Скачивает файл результатов и разбирает его построчно; строки с неизвестными ключами пропускаются.
+     */
+    private void download(String responsesFile, Map<String, String> responses)
+            throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = http.send(request("/download/" + API_VERSION + "/" + responsesFile
+                + ":download?alt=media").GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            if (response.statusCode() / 100 != 2) {
+                throw new IOException("сервер вернул код " + response.statusCode() + " при загрузке результатов");
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode result = MAPPER.readTree(line);
+                String key = result.path("key").asText(null);
+                if (key == null || !responses.containsKey(key)) {
+                    System.err.println("Результат пакетного задания с неизвестным ключом пропущен: " + key);
+                } else if (result.has("error")) {
+                    System.err.println("Запрос " + key + " пакетного задания завершился ошибкой: "
+                            + result.path("error").path("message").asText());
+                } else {
+                    responses.put(key, responseText(result.path("response")));
+                }
+            }
+        }
+    }
+
+    private static String responseText(JsonNode response) {
+        StringBuilder text = new StringBuilder();
+        for (JsonNode part : response.path("candidates").path(0).path("content").path("parts")) {
+            if (!part.path("thought").asBoolean(false)) {
+                text.append(part.path("text").asText(""));
+            }
+        }
+        return text.toString();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofMinutes(5))
+                .header("x-goog-api-key", apiKey);
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("сервер вернул код " + response.statusCode() + " на запрос "
+                    + request.method() + " " + request.uri().getPath() + ": " + response.body());
+        }
+        return response;
+    }
+
+    private static String requireText(JsonNode node, String what) throws IOException {
+        if (!node.isTextual() || node.asText().isEmpty()) {
+            throw new IOException("в ответе сервера нет поля: " + what);
+        }
+        return node.asText();
+    }
+}
@@ -0,0 +1,172 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Извлечение информации из документа, не помещающегося в один запрос, по схеме map-reduce.
+ * <p>
+ * Документ делится {@link DocumentChunker} на перекрывающиеся фрагменты; для каждого фрагмента
+ * строится отдельный запрос, и запросы выполняются параллельно в виртуальных потоках (частоту
+ * и число одновременных запросов ограничивает {@link RequestThrottle}). Ответы разбираются
+ * в {@link ExtractionResult} и объединяются в порядке фрагментов, поэтому предложения из перекрытий
+ * не повторяются, а порядок предложений соответствует порядку в документе.
+ */
+public class ChunkedExtractor {
+
+    static final String MAX_TOKENS_KEY = "chunking.maxTokens";
+    static final String OVERLAP_TOKENS_KEY = "chunking.overlapTokens";
+
+    private static final ExecutorService executor = TaskExecutors.newPerTaskExecutor("chunk");
+
+    private final DocumentChunker chunker;
+    private final Function<String, Prompt> promptBuilder;
+    private final List<String> targets;
+    private final boolean structured;
+
+    /**
+     * @param chunker       разбиение документа на фрагменты.
+     * @param promptBuilder строит запрос для фрагмента документа.
+     * @param targets       элементы {@code targets} в порядке вывода.
+     */
+    public ChunkedExtractor(DocumentChunker chunker, Function<String, Prompt> promptBuilder, List<String> targets) {
+        this(chunker, promptBuilder, targets, false);
+    }
+
+    /**
+     * @param chunker       разбиение документа на фрагменты.
+     * @param promptBuilder строит запрос для фрагмента документа.
+     * @param targets       элементы {@code targets} в порядке вывода.
+     * @param structured    запрашивать ответы в формате JSON ({@link ApiCaller#makeStructuredApiCall(Prompt, List)}).
+     */
+    public ChunkedExtractor(DocumentChunker chunker, Function<String, Prompt> promptBuilder, List<String> targets,
+                            boolean structured) {
+        this.chunker = chunker;
+        this.promptBuilder = promptBuilder;
+        this.targets = targets;
+        this.structured = structured;
+    }
+
+    /**
+     * Создаёт экземпляр с параметрами разбиения и списком {@code targets} из {@code properties.cfg}.
+     *
+     * @param promptBuilder строит запрос для фрагмента документа.
+     * @return экземпляр или {@code null}, если разбиение документов отключено ({@value #MAX_TOKENS_KEY} не больше 0).
+     */
+    public static ChunkedExtractor fromConfig(Function<String, Prompt> promptBuilder) {
+        if (TaskConfig.shared().getInt(MAX_TOKENS_KEY, 0) <= 0) {
+            return null;
+        }
+        return fromConfig(promptBuilder,
+                ExtractionResult.parseTargets(FileHandler.readSpecificProperties("targets").get("targets")));
+    }
+
+    /**
+     * Создаёт экземпляр с параметрами разбиения из {@code properties.cfg} и заданным списком {@code targets}.
+     *
+     * @param promptBuilder строит запрос для фрагмента документа.
+     * @param targets       элементы {@code targets} в порядке вывода.
+     * @return экземпляр или {@code null}, если разбиение документов отключено ({@value #MAX_TOKENS_KEY} не больше 0).
+     */
+    public static ChunkedExtractor fromConfig(Function<String, Prompt> promptBuilder, List<String> targets) {
+        int maxTokens = TaskConfig.shared().getInt(MAX_TOKENS_KEY, 0);
+        if (maxTokens <= 0) {
+            return null;
+        }
+        int overlapTokens = Math.max(0, Math.min(maxTokens - 1, TaskConfig.shared().getInt(OVERLAP_TOKENS_KEY, 0)));
+        boolean structured = TaskConfig.shared().getBoolean(ApiCaller.STRUCTURED_OUTPUT_KEY, false);
+        return new ChunkedExtractor(new DocumentChunker(maxTokens, overlapTokens), promptBuilder, targets, structured);
+    }
+
+    /**
+     * @param text очищенный текст документа.
+     * @return {@code true}, если текст не помещается в один фрагмент.
+     */
+    public boolean needsChunking(String text) {
+        return !chunker.fits(text);
+    }
+
+    /**
+     * Строит запросы для фрагментов документа, например, чтобы отправить их пакетным заданием
+     * ({@link BatchCaller}) вместо {@link #extract(String)}.
+     *
+     * @param text очищенный текст документа.
+     * @return запросы в порядке фрагментов.
+     */
+    public List<Prompt> prompts(String text) {
+        List<Prompt> prompts = new ArrayList<>();
+        for (String chunk : chunker.split(text)) {
+            prompts.add(promptBuilder.apply(chunk));
+        }
+        return prompts;
+    }
+
+    /**
+     * Объединяет ответы на запросы {@link #prompts(String)} так же, как {@link #extract(String)}.
+     *
+     * @param responses ответы LLM в порядке фрагментов: JSON, если запрошены структурированные ответы.
+     * @return объединённый ответ в формате {@code target:} / предложения.
+     * @throws IntegratorException если какой-либо ответ отсутствует или не соответствует схеме.
+     */
+    public String merge(List<String> responses) throws IntegratorException {
+        ExtractionResult merged = new ExtractionResult(targets);
+        for (int i = 0; i < responses.size(); i++) {
+            String response = responses.get(i);
+            if (response == null) {
+                throw new IntegratorException("Gemini API не вернул ответ для фрагмента "
+                        + (i + 1) + " из " + responses.size());
+            }
+            merged.merge(structured ? JsonExtractionParser.parse(response, targets)
+                    : ExtractionResult.parse(response, targets));
+        }
+        return merged.toString();
+    }
+
+    /**
+     * Извлекает информацию из документа.
+     *
+     * @param text очищенный текст документа.
+     * @return объединённый ответ в формате {@code target:} / предложения.
+     * @throws IntegratorException выбрасывается, если для какого-либо фрагмента не получен ответ LLM.
+     */
+    public String extract(String text) throws IntegratorException {
+        List<String> chunks = chunker.split(text);
+        List<Future<ExtractionResult>> futures = new ArrayList<>(chunks.size());
+        for (String chunk : chunks) {
+            futures.add(executor.submit(() -> extractChunk(chunk)));
+        }
+        ExtractionResult merged = new ExtractionResult(targets);
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                ExtractionResult result = futures.get(i).get();
+                if (result == null) {
+                    throw new IntegratorException("Gemini API не вернул ответ для фрагмента "
+                            + (i + 1) + " из " + futures.size());
+                }
+                merged.merge(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IntegratorException("Извлечение информации из фрагментов прервано", e);
+        } catch (ExecutionException e) {
+            throw new IntegratorException("Ошибка при обработке фрагмента документа", e.getCause());
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
+        return merged.toString();
+    }
+
+    /**
+     * @return результат извлечения для фрагмента или {@code null}, если ответ LLM не получен.
+     */
+    private ExtractionResult extractChunk(String chunk) throws IntegratorException {
+        Prompt prompt = promptBuilder.apply(chunk);
+        if (structured) {
+            return ApiCaller.makeStructuredApiCall(prompt, targets);
+        }
+        String response = ApiCaller.makeApiCall(prompt);
+        return response == null ? null : ExtractionResult.parse(response, targets);
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Разбивает очищенный текст документа на перекрывающиеся фрагменты для раздельной обработки LLM.
+ * <p>
+ * Текст делится по границам предложений ({@link SentenceSplitter}), поэтому каждое предложение целиком попадает хотя бы в один
+ * фрагмент. Размер фрагмента ограничен оценкой числа токенов ({@link Prompt#estimateTokens(CharSequence)}).
+ * Последние предложения фрагмента общим объёмом не более {@code overlapTokens} повторяются в начале
+ * следующего, чтобы не терялся контекст на стыке. Предложение длиннее бюджета делится по пробелам.
+ */
+public class DocumentChunker {
+
+    private final int maxTokens;
+    private final int overlapTokens;
+
+    /**
+     * @param maxTokens     максимальная оценка числа токенов во фрагменте.
+     * @param overlapTokens максимальная оценка числа токенов в перекрытии соседних фрагментов.
+     * @throws IllegalArgumentException если {@code maxTokens < 1} или перекрытие не меньше размера фрагмента.
+     */
+    public DocumentChunker(int maxTokens, int overlapTokens) {
+        if (maxTokens < 1 || overlapTokens < 0 || overlapTokens >= maxTokens) {
+            throw new IllegalArgumentException("Некорректные параметры разбиения: maxTokens=" + maxTokens
+                    + ", overlapTokens=" + overlapTokens);
+        }
+        this.maxTokens = maxTokens;
+        this.overlapTokens = overlapTokens;
+    }
+
+    /**
+     * @param text очищенный текст документа.
+     * @return {@code true}, если текст помещается в один фрагмент.
+     */
+    public boolean fits(String text) {
+        return Prompt.estimateTokens(text) <= maxTokens;
+    }
+
+    /**
+     * Разбивает текст на фрагменты.
+     *
+     * @param text очищенный текст документа.
+     * @return фрагменты в порядке следования в тексте; текст, укладывающийся в бюджет, возвращается целиком.
+     */
+    public List<String> split(String text) {
+        List<String> chunks = new ArrayList<>();
+        if (text.isBlank()) {
+            return chunks;
+        }
+        if (fits(text)) {
+            chunks.add(text.strip());
+            return chunks;
+        }
+        Deque<String> window = new ArrayDeque<>();
+        int windowTokens = 0;
+        boolean windowHasNewText = false;
+        for (String sentence : sentences(text)) {
+            int tokens = Prompt.estimateTokens(sentence) + 1;
+            if (windowHasNewText && windowTokens + tokens > maxTokens) {
+                chunks.add(String.join(" ", window));
+                windowTokens = keepOverlap(window, windowTokens, tokens);
+                windowHasNewText = false;
+            }
+            window.addLast(sentence);
+            windowTokens += tokens;
+            windowHasNewText = true;
+        }
+        if (windowHasNewText) {
+            chunks.add(String.join(" ", window));
+        }
+        return chunks;
+    }
+
+    /**
+     * Оставляет в окне последние предложения, укладывающиеся в перекрытие и оставляющие место
+     * для следующего предложения.
+     *
+     * @return оценка числа токенов в оставшемся окне.
+     */
+    private int keepOverlap(Deque<String> window, int windowTokens, int nextTokens) {
+        int budget = Math.min(overlapTokens, maxTokens - nextTokens);
+        while (!window.isEmpty() && windowTokens > budget) {
+            windowTokens -= Prompt.estimateTokens(window.removeFirst()) + 1;
+        }
+        return windowTokens;
+    }
+
+    /**
+     * Делит текст на предложения; предложения длиннее бюджета делятся на части по пробелам.
+     */
+    List<String> sentences(String text) {
+        List<String> sentences = new ArrayList<>();
+        for (String sentence : SentenceSplitter.split(text)) {
+            if (Prompt.estimateTokens(sentence) + 1 <= maxTokens) {
+                sentences.add(sentence);
+            } else {
+                splitLongSentence(sentence, sentences);
+            }
+        }
+        return sentences;
+    }
+
+    private void splitLongSentence(String sentence, List<String> out) {
+        StringBuilder part = new StringBuilder();
+        for (String word : sentence.split("\\s+")) {
+            if (part.length() > 0 && Prompt.estimateTokens(part) + Prompt.estimateTokens(word) + 2 > maxTokens) {
+                out.add(part.toString());
+                part.setLength(0);
+            }
+            if (part.length() > 0) {
+                part.append(' ');
+            }
+            part.append(word);
+        }
+        if (part.length() > 0) {
+            out.add(part.toString());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Результат извлечения: предложения, сгруппированные по элементам {@code targets}.
+ * <p>
+ * Текстовое представление совпадает с форматом ответа LLM (см. {@code result.txt}): строка
+ * {@code target:}, за которой следуют найденные предложения по одному в строке, либо {@code Not Found}.
+ * Предложения внутри группы не повторяются и хранятся в порядке первого появления.
+ */
+public class ExtractionResult {
+
+    static final String NOT_FOUND = "Not Found";
+
+    private final Map<String, String> names = new LinkedHashMap<>();
+    private final Map<String, Set<String>> sentences = new LinkedHashMap<>();
+
+    /**
+     * @param targets элементы {@code targets} в порядке вывода.
+     */
+    public ExtractionResult(List<String> targets) {
+        for (String target : targets) {
+            names.putIfAbsent(normalize(target), target.strip());
+            sentences.putIfAbsent(normalize(target), new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * Разбирает ответ LLM. Заголовком группы считается строка вида {@code target:} или {@code [target]:},
+     * где {@code target} — один из ожидаемых элементов; строки до первого заголовка и строки {@code Not Found}
+     * пропускаются.
+     *
+     * @param response ответ LLM.
+     * @param targets  ожидаемые элементы {@code targets}.
+     * @return результат извлечения.
+     */
+    public static ExtractionResult parse(String response, List<String> targets) {
+        ExtractionResult result = new ExtractionResult(targets);
+        Set<String> current = null;
+        for (String line : response.split("\\R")) {
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("```")) {
+                continue;
+            }
+            Set<String> group = trimmed.endsWith(":") ? result.sentences.get(headerTarget(trimmed)) : null;
+            if (group != null) {
+                current = group;
+            } else if (current != null && !trimmed.equalsIgnoreCase(NOT_FOUND)) {
+                current.add(trimmed);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Добавляет найденное предложение, если его ещё нет в группе.
+     *
+     * @param target   элемент {@code targets}.
+     * @param sentence найденное предложение; пустые строки и {@code Not Found} пропускаются.
+     * @return {@code true}, если {@code target} — один из ожидаемых элементов.
+     */
+    public boolean add(String target, String sentence) {
+        Set<String> group = sentences.get(normalize(target));
+        if (group == null) {
+            return false;
+        }
+        String trimmed = sentence.strip();
+        if (!trimmed.isEmpty() && !trimmed.equalsIgnoreCase(NOT_FOUND)) {
+            group.add(trimmed);
+        }
+        return true;
+    }
+
+    /**
+     * @return элементы {@code targets} в порядке вывода.
+     */
+    public List<String> getTargets() {
+        return new ArrayList<>(names.values());
+    }
+
+    /**
+     * Разбирает список значений параметра, перечисленных через запятую.
+     *
+     * @param value значение параметра, например {@code биография, смерть, внешность}.
+     * @return непустые элементы списка.
+     */
+    public static List<String> parseTargets(String value) {
+        List<String> targets = new ArrayList<>();
+        if (value == null) {
+            return targets;
+        }
+        for (String target : value.split(",")) {
+            if (!target.isBlank()) {
+                targets.add(target.strip());
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Добавляет к результату предложения другого результата, пропуская уже имеющиеся.
+     *
+     * @param other результат извлечения из следующего фрагмента документа.
+     */
+    public void merge(ExtractionResult other) {
+        other.sentences.forEach((target, found) -> {
+            names.putIfAbsent(target, other.names.get(target));
+            sentences.computeIfAbsent(target, t -> new LinkedHashSet<>()).addAll(found);
+        });
+    }
+
+    /**
+     * @param target элемент {@code targets}.
+     * @return найденные предложения в порядке первого появления.
+     */
+    public List<String> getSentences(String target) {
+        Set<String> found = sentences.get(normalize(target));
+        return found == null ? Collections.emptyList() : new ArrayList<>(found);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sentences.forEach((target, found) -> {
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(names.get(target)).append(':');
+            if (found.isEmpty()) {
+                sb.append('\n').append(NOT_FOUND);
+            }
+            for (String sentence : found) {
+                sb.append('\n').append(sentence);
+            }
+        });
+        return sb.toString();
+    }
+
+    /**
+     * @param line строка ответа, оканчивающаяся двоеточием.
+     * @return нормализованное имя элемента {@code targets} из заголовка группы.
+     */
+    static String headerTarget(String line) {
+        String header = line.substring(0, line.length() - 1).strip();
+        if (header.startsWith("[") && header.endsWith("]")) {
+            header = header.substring(1, header.length() - 1);
+        }
+        return normalize(header);
+    }
+
+    /**
+     * @return имя элемента {@code targets} без учёта регистра и пробелов по краям.
+     */
+    static String normalize(String target) {
+        return target.strip().toLowerCase(Locale.ROOT);
+    }
+}
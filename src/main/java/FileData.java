@@ -0,0 +1,208 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Текстовый набор данных, хранящийся в файле. Содержимое не держится в памяти: при каждом обращении файл
+ * отображается в память ({@link FileChannel#map}) окнами по {@value #WINDOW_BYTES} байт и декодируется
+ * фрагментами по {@value #CHUNK_CHARS} символов, поэтому:
+ * <ul>
+ * <li>{@link #getContent(int)} читает только начало файла, достаточное для {@code limit} символов;</li>
+ * <li>{@link #convert(Converter, long, Appendable)} применяет {@link Converter} к файлу по частям и пишет
+ * результат в приёмник, не собирая исходный текст в одну строку.</li>
+ * </ul>
+ * Некорректные для кодировки байты заменяются символом U+FFFD.
+ */
+public class FileData implements Data<String> {
+
+    static final int WINDOW_BYTES = 4 * 1024 * 1024;
+    static final int CHUNK_CHARS = 64 * 1024;
+
+    private final String title;
+    private final Path path;
+    private final Charset charset;
+
+    /**
+     * Создаёт набор данных для файла в кодировке UTF-8; описанием служит путь к файлу.
+     *
+     * @param path путь к файлу.
+     */
+    public FileData(Path path) {
+        this(path.toString(), path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param title   описание источника данных.
+     * @param path    путь к файлу.
+     * @param charset кодировка файла.
+     */
+    public FileData(String title, Path path, Charset charset) {
+        this.title = title;
+        this.path = path;
+        this.charset = charset;
+    }
+
+    /**
+     * @return описание источника данных.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return путь к файлу.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Читает файл целиком.
+     */
+    @Override
+    public String getContent() throws IntegratorException {
+        return getContent(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Возвращает первые {@code limit} символов файла, не читая остальную часть.
+     */
+    @Override
+    public String getContent(int limit) throws IntegratorException {
+        long maxChars = requireLimit(limit);
+        StringBuilder text = new StringBuilder((int) Math.min(maxChars, CHUNK_CHARS));
+        decode(maxChars, (chars, length) -> text.append(chars, 0, length));
+        return text.toString();
+    }
+
+    /**
+     * Возвращает строковое представление файла, преобразованного по частям
+     * (см. {@link #convert(Converter, long, Appendable)}).
+     */
+    @Override
+    public <U> String getContent(Converter<String, U> converter) throws IntegratorException {
+        return getContent(converter, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Возвращает строковое представление первых {@code limit} символов файла, преобразованных по частям
+     * (см. {@link #convert(Converter, long, Appendable)}).
+     */
+    @Override
+    public <U> String getContent(Converter<String, U> converter, int limit) throws IntegratorException {
+        StringBuilder result = new StringBuilder();
+        convert(converter, requireLimit(limit), result);
+        return result.toString();
+    }
+
+    /**
+     * Применяет преобразование к первым {@code limit} символам файла по частям: текст делится на фрагменты
+     * примерно по {@value #CHUNK_CHARS} символов, заканчивающиеся переводом строки, и строковое представление
+     * результата для каждого фрагмента сразу пишется в {@code out}. Поэтому преобразование должно давать
+     * одинаковый результат для текста и для последовательности его строк — например, отбор или замена строк.
+     * В памяти одновременно находится один фрагмент; строка длиннее фрагмента обрабатывается целиком.
+     *
+     * @param converter преобразование фрагмента текста.
+     * @param limit     число символов файла, подлежащих преобразованию.
+     * @param out       приёмник преобразованного текста, например {@link java.io.Writer} другого файла.
+     * @return число преобразованных символов файла.
+     * @throws IntegratorException если файл не удалось прочитать, в приёмник не удалось записать или
+     *                             преобразование завершилось ошибкой.
+     */
+    public <U> long convert(Converter<String, U> converter, long limit, Appendable out) throws IntegratorException {
+        StringBuilder pending = new StringBuilder();
+        long converted = decode(limit, (chars, length) -> {
+            pending.append(chars, 0, length);
+            if (pending.length() >= CHUNK_CHARS) {
+                int end = pending.lastIndexOf("\n") + 1;
+                if (end > 0) {
+                    out.append(String.valueOf(converter.convert(pending.substring(0, end))));
+                    pending.delete(0, end);
+                }
+            }
+        });
+        if (pending.length() > 0 || converted == 0) {
+            try {
+                out.append(String.valueOf(converter.convert(pending.toString())));
+            } catch (IOException e) {
+                throw new IntegratorException("Не удалось записать преобразованные данные: " + title, e);
+            }
+        }
+        return converted;
+    }
+
+    /**
+     * Приёмник декодированных фрагментов файла.
+     */
+    @FunctionalInterface
+    private interface ChunkSink {
+        void accept(char[] chars, int length) throws IOException, IntegratorException;
+    }
+
+    /**
+     * Декодирует не больше {@code maxChars} первых символов файла и передаёт их в приёмник фрагментами.
+     *
+     * @return число переданных символов.
+     */
+    private long decode(long maxChars, ChunkSink sink) throws IntegratorException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate((int) Math.max(1, Math.min(maxChars, CHUNK_CHARS)));
+        long produced = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (produced < maxChars) {
+                long windowBytes = Math.min(WINDOW_BYTES, size - position);
+                boolean last = position + windowBytes >= size;
+                ByteBuffer window = windowBytes == 0 ? ByteBuffer.allocate(0)
+                        : channel.map(FileChannel.MapMode.READ_ONLY, position, windowBytes);
+                CoderResult result = decoder.decode(window, chars, last);
+                while (result.isOverflow() && produced < maxChars) {
+                    produced += emit(chars, maxChars - produced, sink);
+                    result = decoder.decode(window, chars, last);
+                }
+                if (last) {
+                    while (decoder.flush(chars).isOverflow() && produced < maxChars) {
+                        produced += emit(chars, maxChars - produced, sink);
+                    }
+                    if (produced < maxChars) {
+                        produced += emit(chars, maxChars - produced, sink);
+                    }
+                    break;
+                }
+                // неполный символ в конце окна будет декодирован в начале следующего
+                position += window.position();
+            }
+        } catch (IOException e) {
+            throw new IntegratorException("Не удалось прочитать файл: " + path, e);
+        }
+        return produced;
+    }
+
+    private static int emit(CharBuffer chars, long quota, ChunkSink sink) throws IOException, IntegratorException {
+        chars.flip();
+        int length = (int) Math.min(chars.remaining(), quota);
+        if (length > 0) {
+            sink.accept(chars.array(), length);
+        }
+        chars.clear();
+        return length;
+    }
+
+    private static long requireLimit(int limit) throws IntegratorException {
+        if (limit < 0) {
+            throw new IntegratorException("Ограничение не может быть отрицательным: " + limit);
+        }
+        return limit;
+    }
+}
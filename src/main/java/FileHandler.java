@@ -1,11 +1,9 @@
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
 
 /**
  * Утилитный класс для выполнения операций с файлами,
@@ -13,61 +11,36 @@ import java.util.Map;
  */
 public class FileHandler {
 
-    /**
-     * Путь к файлу конфигурации по умолчанию.
-     */
-    private static final String filePath = "properties.cfg";
-
-
     /**
      * Читает указанные ключи и их значения из файла конфигурации {@code properties.cfg}.
      * Файл должен иметь формат "ключ=значение". Строки, начинающиеся с '#',
      * и пустые строки игнорируются.
+     * <p>
+     * Значения берутся из общего снимка {@link TaskConfig#shared()}: файл разбирается один раз и
+     * перечитывается только при его изменении, поэтому вызов не обращается к диску. Метод предназначен для
+     * строковых критериев поиска; числовые и логические параметры читаются типизированными методами
+     * {@link TaskConfig}.
      *
      * @param keysToRead переменное число строк, представляющих ключи, значения которых необходимо прочитать.
      * @return Карта (Map), где ключами являются запрошенные {@code keysToRead},
-     *         а значениями — соответствующие им строки из файла. Если ключ не найден
+     *         а значениями — соответствующие им строки из файла. Если ключ не найден, значение пусто
      *         или произошла ошибка чтения, значение для этого ключа будет {@code null}.
      */
     public static Map<String, String> readSpecificProperties(String... keysToRead) {
+        TaskConfig config = TaskConfig.shared();
         Map<String, String> properties = new HashMap<>();
         for (String key : keysToRead) {
-            properties.put(key, null);
-        }
-
-        Path path = Paths.get(filePath);
-
-        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty() || line.startsWith("#")) {
-                    continue;
-                }
-
-                int separatorIndex = line.indexOf('=');
-                if (separatorIndex > 0) {
-                    String key = line.substring(0, separatorIndex).trim();
-                    String value = line.substring(separatorIndex + 1).trim();
-
-                    if (properties.containsKey(key)) {
-                        properties.put(key, value);
-                    }
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Ошибка при чтении файла конфигурации '" + filePath + "': " + e.getMessage());
-            for (String key : keysToRead) {
-                properties.put(key, null);
-            }
-            return properties;
+            properties.put(key, config.getString(key, null));
         }
         return properties;
     }
 
     /**
      * Записывает указанное строковое содержимое в файл по заданному пути.
-     * Выводит сообщение об успехе или ошибке в стандартные потоки вывода/ошибок.
+     * <p>
+     * Запись выполняется асинхронно общим объектом {@link AsyncFileWriter#shared()}: метод ставит содержимое
+     * в очередь и сразу возвращает управление, а ошибка записи выводится в стандартный поток ошибок.
+     * Чтобы прочитать записанный файл, нужно сначала вызвать {@link #awaitWrites()}.
      *
      * @param outputFilePath Путь к файлу, в который будет записано содержимое. Не может быть {@code null}.
      * @param content Строковое содержимое для записи. Не может быть {@code null}.
@@ -80,13 +53,17 @@ public class FileHandler {
         if (content == null) {
             throw new NullPointerException("Содержимое для записи не может быть null");
         }
+        AsyncFileWriter.shared().write(Paths.get(outputFilePath), content);
+    }
+
+    /**
+     * Ожидает завершения всех записей, начатых {@link #writeToFile(String, String)}.
+     */
+    public static void awaitWrites() {
         try {
-            Files.writeString(Paths.get(outputFilePath), content);
-            System.out.println("Успешно записал в файл: " + outputFilePath);
-        } catch (IOException e) {
-            System.err.println("Ошибка: Не удалось записать  в файл '" + outputFilePath + "': " + e.getMessage());
-        } catch (Exception e) {
-            System.err.println("Exception: " + e.getMessage());
+            AsyncFileWriter.shared().flush().join();
+        } catch (CompletionException e) {
+            System.err.println("Ошибка при ожидании записи файлов: " + e.getCause().getMessage());
         }
     }
 
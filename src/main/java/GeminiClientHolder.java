@@ -0,0 +1,226 @@
+import com.google.genai.Client;
+import com.google.genai.types.HttpOptions;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Держатель единственного, долгоживущего экземпляра {@link Client}, разделяемого всеми вызывающими.
+ * <p>
+ * Клиент создаётся лениво при первом обращении и переиспользуется между запросами, поэтому поиск
+ * учётных данных, построение HTTP-клиента и TLS-рукопожатие выполняются один раз, а не на каждый вызов.
+ * Внутренний HTTP-клиент SDK заменяется на клиент с пулом соединений и keep-alive, размеры которого
+ * задаются параметрами {@value #MAX_CONNECTIONS_KEY} и {@value #KEEP_ALIVE_KEY} в {@code properties.cfg}.
+ * Время установки соединения, ожидания ответа и свободного соединения пула ограничено параметрами
+ * {@value #CONNECT_TIMEOUT_KEY}, {@value #SOCKET_TIMEOUT_KEY} и {@value #CONNECTION_REQUEST_TIMEOUT_KEY}, чтобы
+ * недоступный хост, зависшее чтение или исчерпанный пул не блокировали вызов бесконечно.
+ * <p>
+ * У SDK нет публичного способа задать HTTP-клиент, поэтому пул устанавливается через закрытые поля клиента
+ * версии {@value #SUPPORTED_SDK_VERSION}. Если в другой версии SDK они устроены иначе, клиент работает с
+ * HTTP-клиентом SDK, а в журнал один раз выводится сообщение с версией SDK.
+ * При завершении JVM клиент закрывается shutdown hook'ом.
+ * <p>
+ * Класс потокобезопасен.
+ */
+public final class GeminiClientHolder {
+
+    static final String MAX_CONNECTIONS_KEY = "gemini.pool.maxConnections";
+    static final String KEEP_ALIVE_KEY = "gemini.pool.keepAliveSeconds";
+    static final String SOCKET_TIMEOUT_KEY = "gemini.pool.socketTimeoutSeconds";
+    static final String CONNECTION_REQUEST_TIMEOUT_KEY = "gemini.pool.connectionRequestTimeoutSeconds";
+    static final String CONNECT_TIMEOUT_KEY = "gemini.pool.connectTimeoutSeconds";
+    static final String SUPPORTED_SDK_VERSION = "1.0.0";
+
+    private static final int DEFAULT_MAX_CONNECTIONS = 64;
+    private static final int DEFAULT_KEEP_ALIVE_SECONDS = 60;
+    private static final int DEFAULT_SOCKET_TIMEOUT_SECONDS = 300;
+    private static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT_SECONDS = 30;
+    private static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 5;
+
+    private static volatile Client client;
+    private static Supplier<Client> factory = Client::new;
+    private static boolean shutdownHookRegistered;
+    private static volatile boolean installFailureReported;
+    private static final List<Consumer<Client>> shutdownActions = new CopyOnWriteArrayList<>();
+
+    private GeminiClientHolder() {
+    }
+
+    /**
+     * Возвращает общий экземпляр клиента, создавая его при первом обращении.
+     *
+     * @return общий клиент Gemini API; никогда не {@code null}.
+     */
+    public static Client getClient() {
+        Client current = client;
+        if (current != null) {
+            return current;
+        }
+        synchronized (GeminiClientHolder.class) {
+            if (client == null) {
+                Client created = factory.get();
+                installPooledHttpClient(created);
+                registerShutdownHook();
+                client = created;
+            }
+            return client;
+        }
+    }
+
+    /**
+     * Задаёт способ создания клиента, например, с другим адресом API или ключом.
+     * Текущий клиент, если он был создан, закрывается; новый будет создан при следующем обращении.
+     *
+     * @param clientFactory фабрика клиентов; не может быть {@code null}.
+     * @throws NullPointerException если {@code clientFactory == null}.
+     */
+    public static synchronized void configure(Supplier<Client> clientFactory) {
+        if (clientFactory == null) {
+            throw new NullPointerException("Фабрика клиентов не может быть null");
+        }
+        shutdown();
+        factory = clientFactory;
+    }
+
+    /**
+     * Регистрирует действие, выполняемое перед закрытием клиента, например, освобождение ресурсов,
+     * созданных на стороне API.
+     *
+     * @param action действие, получающее закрываемый клиент.
+     */
+    public static void addShutdownAction(Consumer<Client> action) {
+        shutdownActions.add(action);
+    }
+
+    /**
+     * Закрывает общий клиент и освобождает соединения пула. Повторный вызов {@link #getClient()}
+     * создаст новый клиент.
+     */
+    public static synchronized void shutdown() {
+        Client current = client;
+        client = null;
+        if (current != null) {
+            for (Consumer<Client> action : shutdownActions) {
+                try {
+                    action.accept(current);
+                } catch (RuntimeException e) {
+                    System.err.println("Ошибка при освобождении ресурсов Gemini API: " + e.getMessage());
+                }
+            }
+            try {
+                current.close();
+            } catch (Exception e) {
+                System.err.println("Ошибка при закрытии клиента Gemini API: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void registerShutdownHook() {
+        if (!shutdownHookRegistered) {
+            Runtime.getRuntime().addShutdownHook(new Thread(GeminiClientHolder::shutdown, "gemini-client-shutdown"));
+            shutdownHookRegistered = true;
+        }
+    }
+
+    /**
+     * @return версия SDK google-genai из манифеста или {@code "unknown"}, если она не указана.
+     */
+    static String sdkVersion() {
+        String version = Client.class.getPackage().getImplementationVersion();
+        return version != null ? version : "unknown";
+    }
+
+    /**
+     * Заменяет HTTP-клиент SDK (по умолчанию не более двух соединений на хост) на клиент с пулом
+     * соединений нужного размера. Если внутреннее устройство SDK не совпадает с ожидаемым, клиент
+     * остаётся без изменений, а в журнал один раз выводится сообщение с версией SDK.
+     *
+     * @return {@code true}, если пул соединений установлен.
+     */
+    static boolean installPooledHttpClient(Client sdkClient) {
+        try {
+            Field apiClientField = Client.class.getDeclaredField("apiClient");
+            apiClientField.setAccessible(true);
+            Object apiClient = apiClientField.get(sdkClient);
+            if (apiClient == null) {
+                throw new IllegalStateException("поле apiClient не заполнено");
+            }
+            Field httpClientField = apiClient.getClass().getSuperclass().getDeclaredField("httpClient");
+            httpClientField.setAccessible(true);
+            CloseableHttpClient previous = (CloseableHttpClient) httpClientField.get(apiClient);
+            httpClientField.set(apiClient, createPooledHttpClient(readTimeout(apiClient)));
+            if (previous != null) {
+                previous.close();
+            }
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException | IOException e) {
+            if (!installFailureReported) {
+                installFailureReported = true;
+                System.err.println("Не удалось настроить пул соединений Gemini API для google-genai " + sdkVersion()
+                        + " (поддерживается " + SUPPORTED_SDK_VERSION + "), используется HTTP-клиент SDK: " + e);
+            }
+            return false;
+        }
+    }
+
+    private static Integer readTimeout(Object apiClient) throws ReflectiveOperationException {
+        Field optionsField = apiClient.getClass().getSuperclass().getDeclaredField("httpOptions");
+        optionsField.setAccessible(true);
+        Object options = optionsField.get(apiClient);
+        if (options instanceof HttpOptions) {
+            return ((HttpOptions) options).timeout().orElse(null);
+        }
+        return null;
+    }
+
+    private static CloseableHttpClient createPooledHttpClient(Integer timeoutMillis) {
+        TaskConfig config = TaskConfig.shared();
+        int maxConnections = config.getInt(MAX_CONNECTIONS_KEY, DEFAULT_MAX_CONNECTIONS);
+        int keepAliveSeconds = config.getInt(KEEP_ALIVE_KEY, DEFAULT_KEEP_ALIVE_SECONDS);
+
+        PoolingHttpClientConnectionManager pool =
+                new PoolingHttpClientConnectionManager(keepAliveSeconds, TimeUnit.SECONDS);
+        pool.setMaxTotal(maxConnections);
+        pool.setDefaultMaxPerRoute(maxConnections);
+        pool.setValidateAfterInactivity(2_000);
+
+        // таймаут из HttpOptions клиента, если он задан, иначе из properties.cfg
+        int socketTimeoutMillis = timeoutMillis != null ? timeoutMillis
+                : (int) TimeUnit.SECONDS.toMillis(
+                        config.getInt(SOCKET_TIMEOUT_KEY, DEFAULT_SOCKET_TIMEOUT_SECONDS));
+        int connectionRequestTimeoutMillis = (int) TimeUnit.SECONDS.toMillis(
+                config.getInt(CONNECTION_REQUEST_TIMEOUT_KEY, DEFAULT_CONNECTION_REQUEST_TIMEOUT_SECONDS));
+        // установка соединения не ждёт дольше ответа: недоступный хост обнаруживается за секунды
+        int connectTimeoutMillis = (int) TimeUnit.SECONDS.toMillis(
+                Math.max(1, config.getInt(CONNECT_TIMEOUT_KEY, DEFAULT_CONNECT_TIMEOUT_SECONDS)));
+        if (socketTimeoutMillis > 0) {
+            connectTimeoutMillis = Math.min(connectTimeoutMillis, socketTimeoutMillis);
+        }
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setSocketTimeout(socketTimeoutMillis)
+                .setConnectionRequestTimeout(connectionRequestTimeoutMillis)
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+                            .getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? serverKeepAlive : TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+}
@@ -0,0 +1,808 @@
+import org.jsoup.nodes.Entities;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Потоковая очистка HTML: извлекает видимый текст страницы без построения DOM.
+ * <p>
+ * Результат совпадает с прежним способом очистки
+ * <pre>
+ * Document doc = Jsoup.parse(rawHtml);
+ * doc.select("noscript, script, style, iframe, link[rel=stylesheet], meta, head title").remove();
+ * doc.text();
+ * </pre>
+ * Разметка разбирается токенизатором по правилам jsoup (теги, атрибуты, комментарии, CDATA, ссылки на
+ * символы), а пробелы расставляются по правилам {@code Element.text()}: пробельные символы схлопываются,
+ * блочные элементы и {@code <br>} отделяются пробелом, содержимое {@code <pre>} и {@code <textarea>}
+ * сохраняется как есть, начальные и конечные пробелы отбрасываются. Удаляемые элементы пропускаются
+ * вместе с содержимым. Текст выдаётся в приёмник по мере чтения, поэтому память, кроме приёмника,
+ * ограничена буфером чтения и стеком открытых элементов.
+ * <p>
+ * Построитель дерева jsoup не воспроизводится полностью: перенос текста из таблиц (foster parenting) и
+ * переупорядочивание форматирующих элементов не выполняются, поэтому на некорректной разметке таблиц
+ * порядок слов может отличаться от {@code doc.text()}.
+ */
+public final class HtmlCleaner {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_ENTITY_NAME = 64;
+    private static final int MAX_PRESERVE_DEPTH = 6;
+    private static final char REPLACEMENT_CHAR = '\uFFFD';
+
+    /**
+     * Блочные элементы jsoup ({@code Tag.isBlock()}).
+     */
+    private static final Set<String> BLOCK_TAGS = Set.of(
+            "html", "head", "body", "frameset", "script", "noscript", "style", "meta", "link", "title", "frame",
+            "noframes", "section", "nav", "aside", "hgroup", "header", "footer", "p", "h1", "h2", "h3", "h4", "h5",
+            "h6", "ul", "ol", "pre", "div", "blockquote", "hr", "address", "figure", "figcaption", "form",
+            "fieldset", "ins", "del", "dl", "dt", "dd", "li", "table", "caption", "thead", "tfoot", "tbody",
+            "colgroup", "col", "tr", "th", "td", "video", "audio", "canvas", "details", "menu", "plaintext",
+            "template", "article", "main", "svg", "math", "center", "dir", "applet", "marquee", "listing");
+
+    /**
+     * Элементы, для которых {@code Tag.formatAsBlock()} ложно: строчные элементы и блочные элементы,
+     * форматируемые как строчные. Неизвестные элементы форматируются как блочные.
+     */
+    private static final Set<String> INLINE_FORMAT_TAGS = Set.of(
+            "object", "base", "font", "tt", "i", "b", "u", "big", "small", "em", "strong", "dfn", "code", "samp",
+            "kbd", "var", "cite", "abbr", "time", "acronym", "mark", "ruby", "rt", "rp", "rtc", "a", "img", "br",
+            "wbr", "map", "q", "sub", "sup", "bdo", "iframe", "embed", "span", "input", "select", "textarea",
+            "label", "button", "optgroup", "option", "legend", "datalist", "keygen", "output", "progress",
+            "meter", "area", "param", "source", "track", "summary", "command", "device", "basefont", "bgsound",
+            "menuitem", "data", "bdi", "s", "strike", "nobr", "rb", "text", "mi", "mo", "msup", "mn", "mtext",
+            "title", "p", "h1", "h2", "h3", "h4", "h5", "h6", "pre", "address", "li", "th", "td", "script",
+            "style", "ins", "del");
+
+    private static final Set<String> VOID_TAGS = Set.of(
+            "meta", "link", "base", "frame", "img", "br", "wbr", "embed", "hr", "input", "keygen", "col",
+            "command", "device", "area", "basefont", "bgsound", "menuitem", "param", "source", "track");
+
+    /**
+     * Элементы, внутри которых jsoup не нормализует пробелы.
+     */
+    private static final Set<String> PRESERVE_TAGS = Set.of("pre", "plaintext", "title", "textarea");
+
+    /**
+     * Элементы, удаляемые вместе с содержимым; их содержимое пропускается до закрывающего тега.
+     */
+    private static final Set<String> REMOVED_TAGS = Set.of("script", "style", "iframe", "noscript");
+
+    /**
+     * Элементы, содержимое которых jsoup читает как текст без разбора разметки и ссылок на символы.
+     */
+    private static final Set<String> RAW_TEXT_TAGS = Set.of("xmp", "noembed", "noframes");
+
+    /**
+     * Элементы, допустимые в {@code <head>}: остальные начинают тело документа.
+     */
+    private static final Set<String> HEAD_TAGS = Set.of(
+            "html", "head", "base", "basefont", "bgsound", "command", "link", "meta", "noframes", "script",
+            "style", "title", "noscript", "template");
+
+    /**
+     * Элементы, которые неявно закрываются следующим одноимённым элементом.
+     */
+    private static final Set<String> SELF_CLOSING_SIBLINGS = Set.of(
+            "p", "li", "dd", "dt", "option", "optgroup", "tr", "td", "th", "rb", "rp", "rt", "rtc");
+
+    private static final int[] WIN1252_EXTENSIONS = {
+            0x20AC, 0x0081, 0x201A, 0x0192, 0x201E, 0x2026, 0x2020, 0x2021,
+            0x02C6, 0x2030, 0x0160, 0x2039, 0x0152, 0x008D, 0x017D, 0x008F,
+            0x0090, 0x2018, 0x2019, 0x201C, 0x201D, 0x2022, 0x2013, 0x2014,
+            0x02DC, 0x2122, 0x0161, 0x203A, 0x0153, 0x009D, 0x017E, 0x0178};
+
+    private HtmlCleaner() {
+    }
+
+    /**
+     * Возвращает видимый текст HTML-страницы.
+     *
+     * @param html исходный HTML.
+     * @return очищенный текст.
+     */
+    public static String clean(String html) {
+        StringBuilder text = new StringBuilder(Math.max(16, html.length() / 4));
+        try {
+            clean(new StringReader(html), text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Читает HTML из {@code reader} и дописывает видимый текст в {@code sink} по мере разбора.
+     *
+     * @param reader источник HTML; не закрывается.
+     * @param sink   приёмник текста.
+     * @throws IOException при ошибке чтения или записи.
+     */
+    public static void clean(Reader reader, Appendable sink) throws IOException {
+        new Parser(reader, sink).run();
+    }
+
+    private enum TagEnd { NORMAL, SELF_CLOSING, EOF }
+
+    private static boolean isAsciiAlpha(int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    /**
+     * @return значение цифры ASCII в десятичной или шестнадцатеричной записи или -1.
+     */
+    private static int digit(int c, boolean hex) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (hex && (c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F')) {
+            return Character.toLowerCase(c) - 'a' + 10;
+        }
+        return -1;
+    }
+
+    private static boolean isHtmlWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    /**
+     * Пробельные символы в смысле {@code StringUtil.isActuallyWhitespace}: включают неразрывный пробел.
+     */
+    private static boolean isActuallyWhitespace(int c) {
+        return isHtmlWhitespace(c) || c == '\u00A0';
+    }
+
+    private static boolean isInvisible(int c) {
+        return c == '\u200B' || c == '\u00AD';
+    }
+
+    /**
+     * Однократный разбор документа.
+     */
+    private static final class Parser {
+        private final Reader reader;
+        private final Appendable sink;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private boolean endOfInput;
+
+        private final char[] out = new char[BUFFER_SIZE];
+        private int outLength;
+        private final StringBuilder whitespace = new StringBuilder();
+        private boolean written;
+        private boolean started;
+        private char last;
+
+        private final List<String> openElements = new ArrayList<>();
+        private final StringBuilder scratch = new StringBuilder();
+        private final int[] codepoints = new int[2];
+        private boolean bodyStarted;
+        private boolean pendingBlockEnd;
+        private boolean preserving;
+        private boolean plaintext;
+        private String relValue;
+
+        Parser(Reader reader, Appendable sink) {
+            this.reader = reader;
+            this.sink = sink;
+        }
+
+        void run() throws IOException {
+            int c;
+            while ((c = peek(0)) >= 0) {
+                if (plaintext) {
+                    text(c);
+                    position++;
+                } else if (c == '<') {
+                    markup();
+                } else if (c == '&') {
+                    characterReference();
+                } else {
+                    text(c);
+                    position++;
+                }
+            }
+            flush();
+        }
+
+        // ---------------------------------------------------------------- чтение
+
+        /**
+         * @return символ со смещением {@code offset} от текущей позиции или -1 в конце ввода.
+         */
+        private int peek(int offset) throws IOException {
+            if (position + offset >= limit && !fill(offset + 1)) {
+                return -1;
+            }
+            return buffer[position + offset];
+        }
+
+        private boolean fill(int required) throws IOException {
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+            }
+            while (limit < required && !endOfInput) {
+                int read = reader.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    endOfInput = true;
+                } else {
+                    limit += read;
+                }
+            }
+            return limit >= required;
+        }
+
+        private int next() throws IOException {
+            int c = peek(0);
+            if (c >= 0) {
+                position++;
+            }
+            return c;
+        }
+
+        private boolean matches(int offset, String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                if (peek(offset + i) != s.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matchesIgnoreCase(int offset, String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                int c = peek(offset + i);
+                if (c < 0 || Character.toLowerCase((char) c) != s.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // ---------------------------------------------------------------- разметка
+
+        private void markup() throws IOException {
+            int c1 = peek(1);
+            if (c1 == '!') {
+                position += 2;
+                markupDeclaration();
+            } else if (c1 == '/') {
+                int c2 = peek(2);
+                if (c2 < 0) {
+                    position += 2;
+                    text('<');
+                    text('/');
+                } else if (isAsciiAlpha(c2)) {
+                    position += 2;
+                    String name = tagName();
+                    if (skipAttributes() != TagEnd.EOF) {
+                        endTag(name);
+                    }
+                } else if (c2 == '>') {
+                    position += 3;
+                } else {
+                    position += 2;
+                    bogusComment();
+                }
+            } else if (c1 == '?') {
+                position += 1;
+                bogusComment();
+            } else if (c1 >= 0 && isAsciiAlpha(c1)) {
+                position++;
+                String name = tagName();
+                TagEnd end = skipAttributes();
+                if (end != TagEnd.EOF) {
+                    startTag(name, end == TagEnd.SELF_CLOSING);
+                }
+            } else {
+                position++;
+                text('<');
+            }
+        }
+
+        private void markupDeclaration() throws IOException {
+            if (peek(0) == '-' && peek(1) == '-') {
+                position += 2;
+                comment();
+            } else if (matchesIgnoreCase(0, "doctype")) {
+                skipTo('>');
+            } else if (matches(0, "[CDATA[")) {
+                position += 7;
+                cdata();
+            } else {
+                bogusComment();
+            }
+        }
+
+        private void comment() throws IOException {
+            pendingBlockEnd = false;
+            if (peek(0) == '>') {
+                position++;
+                return;
+            }
+            if (peek(0) == '-' && peek(1) == '>') {
+                position += 2;
+                return;
+            }
+            int c;
+            while ((c = next()) >= 0) {
+                if (c == '-' && peek(0) == '-') {
+                    if (peek(1) == '>') {
+                        position += 2;
+                        return;
+                    }
+                    if (peek(1) == '!' && peek(2) == '>') {
+                        position += 3;
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void bogusComment() throws IOException {
+            pendingBlockEnd = false;
+            skipTo('>');
+        }
+
+        private void skipTo(char terminator) throws IOException {
+            int c;
+            while ((c = next()) >= 0 && c != terminator) {
+                // пропуск
+            }
+        }
+
+        private void cdata() throws IOException {
+            beforeText();
+            int c;
+            while ((c = next()) >= 0) {
+                if (c == ']' && peek(0) == ']' && peek(1) == '>') {
+                    position += 2;
+                    return;
+                }
+                emit((char) c);
+            }
+        }
+
+        private String tagName() throws IOException {
+            scratch.setLength(0);
+            int c;
+            while ((c = peek(0)) >= 0 && !isHtmlWhitespace(c) && c != '/' && c != '>' && c != '<') {
+                scratch.append(Character.toLowerCase((char) c));
+                position++;
+            }
+            return scratch.toString();
+        }
+
+        /**
+         * Пропускает атрибуты тега до {@code >} включительно, запоминая значение атрибута {@code rel}.
+         */
+        private TagEnd skipAttributes() throws IOException {
+            relValue = null;
+            while (true) {
+                int c = next();
+                if (c < 0) {
+                    return TagEnd.EOF;
+                }
+                if (isHtmlWhitespace(c)) {
+                    continue;
+                }
+                if (c == '/') {
+                    if (peek(0) == '>') {
+                        position++;
+                        return TagEnd.SELF_CLOSING;
+                    }
+                    continue;
+                }
+                if (c == '>') {
+                    return TagEnd.NORMAL;
+                }
+                if (c == '<') {
+                    position--;
+                    return TagEnd.NORMAL;
+                }
+                if (attribute(c) == TagEnd.EOF) {
+                    return TagEnd.EOF;
+                }
+            }
+        }
+
+        /**
+         * Читает атрибут, начинающийся с символа {@code first}, оставляя позицию перед следующим атрибутом
+         * или концом тега.
+         */
+        private TagEnd attribute(int first) throws IOException {
+            boolean rel = (first == 'r' || first == 'R') && matchesIgnoreCase(0, "el");
+            int length = 1;
+            int c;
+            while ((c = peek(0)) >= 0 && !isHtmlWhitespace(c) && c != '/' && c != '=' && c != '>') {
+                position++;
+                length++;
+            }
+            rel = rel && length == 3;
+            while ((c = peek(0)) >= 0 && isHtmlWhitespace(c)) {
+                position++;
+            }
+            if (c < 0) {
+                return TagEnd.EOF;
+            }
+            if (c != '=') {
+                return TagEnd.NORMAL;
+            }
+            position++;
+            while ((c = peek(0)) >= 0 && isHtmlWhitespace(c)) {
+                position++;
+            }
+            if (c < 0) {
+                return TagEnd.EOF;
+            }
+            if (c == '>') {
+                return TagEnd.NORMAL;
+            }
+            scratch.setLength(0);
+            if (c == '"' || c == '\'') {
+                position++;
+                int quote = c;
+                while ((c = next()) != quote) {
+                    if (c < 0) {
+                        return TagEnd.EOF;
+                    }
+                    scratch.append((char) c);
+                }
+            } else {
+                while ((c = peek(0)) >= 0 && !isHtmlWhitespace(c) && c != '>') {
+                    scratch.append((char) c);
+                    position++;
+                }
+                if (c < 0) {
+                    return TagEnd.EOF;
+                }
+            }
+            if (rel) {
+                relValue = scratch.toString();
+            }
+            return TagEnd.NORMAL;
+        }
+
+        private void startTag(String name, boolean selfClosing) throws IOException {
+            if (!HEAD_TAGS.contains(name)) {
+                bodyStarted = true;
+            }
+            if (name.equals("html") || name.equals("head") || name.equals("body")) {
+                return;
+            }
+            if (REMOVED_TAGS.contains(name)) {
+                if (!selfClosing) {
+                    skipContent(name, false);
+                }
+                return;
+            }
+            if (name.equals("meta") || name.equals("link") && relValue != null
+                    && relValue.strip().equalsIgnoreCase("stylesheet")) {
+                return;
+            }
+            if (name.equals("title") && !bodyStarted) {
+                if (!selfClosing) {
+                    skipContent(name, false);
+                }
+                return;
+            }
+            beforeElement(name);
+            if (VOID_TAGS.contains(name) || selfClosing) {
+                pendingBlockEnd = BLOCK_TAGS.contains(name);
+                return;
+            }
+            closeImplied(name);
+            push(name);
+            switch (name) {
+                case "pre":
+                case "listing":
+                    if (peek(0) == '\n') {
+                        position++;
+                    }
+                    break;
+                case "title":
+                case "textarea":
+                    skipContent(name, true);
+                    break;
+                case "plaintext":
+                    plaintext = true;
+                    break;
+                default:
+                    if (RAW_TEXT_TAGS.contains(name)) {
+                        rawText(name);
+                    }
+            }
+        }
+
+        private void endTag(String name) throws IOException {
+            if (name.equals("html") || name.equals("head") || name.equals("body")) {
+                return;
+            }
+            if (name.equals("br")) {
+                beforeElement(name);
+                pendingBlockEnd = false;
+                return;
+            }
+            boolean block = BLOCK_TAGS.contains(name);
+            for (int i = openElements.size() - 1; i >= 0; i--) {
+                String open = openElements.get(i);
+                if (open.equals(name)) {
+                    while (openElements.size() > i) {
+                        openElements.remove(openElements.size() - 1);
+                    }
+                    updatePreserving();
+                    pendingBlockEnd = block;
+                    return;
+                }
+                if (!block && BLOCK_TAGS.contains(open)) {
+                    break;
+                }
+            }
+            if (name.equals("p")) {
+                // jsoup вставляет пустой элемент <p> на месте непарного </p>
+                beforeElement(name);
+                pendingBlockEnd = true;
+            }
+        }
+
+        /**
+         * Правила {@code TextAccumulator.head()} и {@code tail()} для начала элемента.
+         */
+        private void beforeElement(String name) throws IOException {
+            if (pendingBlockEnd) {
+                pendingBlockEnd = false;
+                if (INLINE_FORMAT_TAGS.contains(name) && last != ' ') {
+                    emit(' ');
+                }
+            }
+            if (started && last != ' ' && (BLOCK_TAGS.contains(name) || name.equals("br"))) {
+                emit(' ');
+            }
+        }
+
+        /**
+         * Закрывает элементы, которые парсер закрыл бы неявно, чтобы стек не рос на разметке без
+         * закрывающих тегов {@code </p>} и {@code </li>}.
+         */
+        private void closeImplied(String name) {
+            if (openElements.isEmpty()) {
+                return;
+            }
+            String current = openElements.get(openElements.size() - 1);
+            if (current.equals(name) && SELF_CLOSING_SIBLINGS.contains(name)
+                    || current.equals("p") && BLOCK_TAGS.contains(name)) {
+                openElements.remove(openElements.size() - 1);
+                updatePreserving();
+            }
+        }
+
+        private void push(String name) {
+            openElements.add(name);
+            updatePreserving();
+        }
+
+        private void updatePreserving() {
+            preserving = false;
+            int from = Math.max(0, openElements.size() - MAX_PRESERVE_DEPTH);
+            for (int i = openElements.size() - 1; i >= from && !preserving; i--) {
+                preserving = PRESERVE_TAGS.contains(openElements.get(i));
+            }
+        }
+
+        /**
+         * Пропускает или выводит содержимое элемента до его закрывающего тега.
+         *
+         * @param name   имя элемента.
+         * @param output {@code true} — вывести содержимое как текст с разбором ссылок на символы (RCDATA),
+         *               {@code false} — пропустить.
+         */
+        private void skipContent(String name, boolean output) throws IOException {
+            int c;
+            while ((c = peek(0)) >= 0) {
+                if (c == '<' && isEndTagOf(name)) {
+                    position += 2 + name.length();
+                    if (skipAttributes() != TagEnd.EOF && output) {
+                        endTag(name);
+                    }
+                    return;
+                }
+                if (output && c == '&') {
+                    characterReference();
+                } else {
+                    if (output) {
+                        text(c == 0 ? REPLACEMENT_CHAR : c);
+                    }
+                    position++;
+                }
+            }
+        }
+
+        private void rawText(String name) throws IOException {
+            int c;
+            while ((c = peek(0)) >= 0) {
+                if (c == '<' && isEndTagOf(name)) {
+                    position += 2 + name.length();
+                    if (skipAttributes() != TagEnd.EOF) {
+                        endTag(name);
+                    }
+                    return;
+                }
+                text(c);
+                position++;
+            }
+        }
+
+        private boolean isEndTagOf(String name) throws IOException {
+            if (peek(1) != '/' || !matchesIgnoreCase(2, name)) {
+                return false;
+            }
+            int after = peek(2 + name.length());
+            return isHtmlWhitespace(after) || after == '/' || after == '>';
+        }
+
+        // ---------------------------------------------------------------- текст
+
+        /**
+         * Разбирает ссылку на символ по правилам {@code Tokeniser.consumeCharacterReference}; если ссылка
+         * не распознана, выводит {@code &} как обычный символ.
+         */
+        private void characterReference() throws IOException {
+            int c1 = peek(1);
+            if (c1 < 0 || isHtmlWhitespace(c1) || c1 == '<' || c1 == '&') {
+                literalAmpersand();
+            } else if (c1 == '#') {
+                numericReference();
+            } else {
+                namedReference();
+            }
+        }
+
+        private void literalAmpersand() throws IOException {
+            text('&');
+            position++;
+        }
+
+        private void numericReference() throws IOException {
+            int c2 = peek(2);
+            boolean hex = c2 == 'x' || c2 == 'X';
+            int offset = hex ? 3 : 2;
+            int radix = hex ? 16 : 10;
+            if (digit(peek(offset), hex) < 0) {
+                literalAmpersand();
+                return;
+            }
+            position += offset;
+            long value = 0;
+            int c;
+            while ((c = peek(0)) >= 0 && digit(c, hex) >= 0) {
+                if (value <= Character.MAX_CODE_POINT) {
+                    value = value * radix + digit(c, hex);
+                }
+                position++;
+            }
+            if (c == ';') {
+                position++;
+            }
+            int codepoint;
+            if (value > Character.MAX_CODE_POINT) {
+                codepoint = REPLACEMENT_CHAR;
+            } else if (value >= 0x80 && value < 0x80 + WIN1252_EXTENSIONS.length) {
+                codepoint = WIN1252_EXTENSIONS[(int) value - 0x80];
+            } else {
+                codepoint = (int) value;
+            }
+            textCodepoint(codepoint);
+        }
+
+        private void namedReference() throws IOException {
+            int length = 0;
+            int c;
+            while (length <= MAX_ENTITY_NAME && (c = peek(1 + length)) >= 0
+                    && (isAsciiAlpha(c) || Character.isLetter((char) c))) {
+                length++;
+            }
+            while (length <= MAX_ENTITY_NAME && (c = peek(1 + length)) >= '0' && c <= '9') {
+                length++;
+            }
+            if (length == 0 || length > MAX_ENTITY_NAME) {
+                literalAmpersand();
+                return;
+            }
+            String name = new String(buffer, position + 1, length);
+            boolean semicolon = peek(1 + length) == ';';
+            if (!Entities.isBaseNamedEntity(name) && !(semicolon && Entities.isNamedEntity(name))) {
+                literalAmpersand();
+                return;
+            }
+            position += 1 + length + (semicolon ? 1 : 0);
+            int count = Entities.codepointsForName(name, codepoints);
+            for (int i = 0; i < count; i++) {
+                textCodepoint(codepoints[i]);
+            }
+        }
+
+        private void textCodepoint(int codepoint) throws IOException {
+            if (Character.isBmpCodePoint(codepoint)) {
+                text(codepoint);
+            } else {
+                text(Character.highSurrogate(codepoint));
+                text(Character.lowSurrogate(codepoint));
+            }
+        }
+
+        /**
+         * Выводит символ текстового узла по правилам {@code appendNormalisedText}.
+         */
+        private void text(int c) throws IOException {
+            if (!bodyStarted && !isHtmlWhitespace(c)) {
+                bodyStarted = true;
+            }
+            beforeText();
+            if (preserving) {
+                emit((char) c);
+            } else if (isActuallyWhitespace(c)) {
+                if (last != ' ') {
+                    emit(' ');
+                }
+            } else if (!isInvisible(c)) {
+                emit((char) c);
+            }
+        }
+
+        private void beforeText() throws IOException {
+            if (pendingBlockEnd) {
+                pendingBlockEnd = false;
+                if (last != ' ') {
+                    emit(' ');
+                }
+            }
+        }
+
+        /**
+         * Дописывает символ результата. Пробельные символы придерживаются до следующего непробельного,
+         * что соответствует {@code String.trim()} итогового текста.
+         */
+        private void emit(char c) throws IOException {
+            started = true;
+            last = c;
+            if (c <= ' ') {
+                whitespace.append(c);
+                return;
+            }
+            if (whitespace.length() > 0) {
+                if (written) {
+                    for (int i = 0; i < whitespace.length(); i++) {
+                        put(whitespace.charAt(i));
+                    }
+                }
+                whitespace.setLength(0);
+            }
+            written = true;
+            put(c);
+        }
+
+        private void put(char c) throws IOException {
+            if (outLength == out.length) {
+                flush();
+            }
+            out[outLength++] = c;
+        }
+
+        private void flush() throws IOException {
+            if (outLength > 0) {
+                sink.append(CharBuffer.wrap(out, 0, outLength));
+                outLength = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,390 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал заданий пакетного анализа на диске, позволяющий продолжить прерванный запуск.
+ * <p>
+ * Для каждого источника журнал хранит последнюю стадию обработки ({@link State}) и, для завершённых
+ * источников, ответ LLM. Журнал — файл, в который записи только дописываются; каждая запись содержит
+ * длину и контрольную сумму CRC32, поэтому запись, оборванная аварийным завершением процесса, при
+ * открытии журнала распознаётся и отбрасывается вместе с остатком файла. При открытии журнал читается
+ * целиком, и если в нём больше устаревших записей, чем актуальных, файл переписывается.
+ * <p>
+ * Запись сразу передаётся операционной системе и переживает аварийное завершение процесса, а на диск
+ * ({@link FileChannel#force(boolean)}) сбрасывается пакетами: после {@code syncEvery} записей или если
+ * с предыдущего сброса прошло не меньше {@code syncMillis} миллисекунд, а также при {@link #sync()} и
+ * {@link #close()}. Поэтому при отключении питания теряются только записи последнего пакета, и их
+ * источники будут обработаны повторно.
+ * <p>
+ * Источник идентифицируется ключом, например, описанием источника. Класс потокобезопасен.
+ */
+public class JobJournal implements AutoCloseable {
+
+    static final String ENABLED_KEY = "journal.enabled";
+    static final String FILE_KEY = "journal.file";
+    static final String SYNC_EVERY_KEY = "journal.syncEvery";
+    static final String SYNC_MILLIS_KEY = "journal.syncMillis";
+
+    /**
+     * Заголовок записи: длина тела записи и его контрольная сумма.
+     */
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+    /**
+     * Тело записи: стадия, длина ключа в байтах, ключ и значение.
+     */
+    private static final int BODY_HEADER_BYTES = 1 + Integer.BYTES;
+    private static final int MAX_RECORD_BYTES = Integer.MAX_VALUE - RECORD_HEADER_BYTES;
+    private static final int COMPACT_MIN_RECORDS = 1024;
+
+    /**
+     * Стадия обработки источника.
+     */
+    public enum State {
+        /**
+         * Анализ источника начат, но не завершён; при возобновлении источник обрабатывается заново.
+         */
+        STARTED,
+        /**
+         * Анализ завершён, ответ сохранён в журнале.
+         */
+        DONE,
+        /**
+         * Анализ завершился ошибкой; значением служит сообщение об ошибке.
+         */
+        FAILED
+    }
+
+    private static final class Entry {
+        final State state;
+        final String value;
+
+        Entry(State state, String value) {
+            this.state = state;
+            this.value = value;
+        }
+    }
+
+    private final Path file;
+    private final int syncEvery;
+    private final long syncNanos;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private FileChannel channel;
+    private int unsynced;
+    private long lastSyncNanos;
+    private long syncCount;
+
+    /**
+     * Открывает журнал, восстанавливая стадии источников из файла; файл и каталог создаются при необходимости.
+     *
+     * @param file       файл журнала.
+     * @param syncEvery  число записей, после которого журнал сбрасывается на диск.
+     * @param syncMillis наибольший интервал между сбросами на диск в миллисекундах.
+     * @throws IntegratorException если журнал не удалось открыть или прочитать.
+     */
+    public JobJournal(Path file, int syncEvery, long syncMillis) throws IntegratorException {
+        if (syncEvery < 1 || syncMillis < 0) {
+            throw new IllegalArgumentException("Некорректные параметры журнала заданий");
+        }
+        this.file = file;
+        this.syncEvery = syncEvery;
+        this.syncNanos = syncMillis * 1_000_000L;
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            int records = replay();
+            if (records >= COMPACT_MIN_RECORDS && records > 2 * entries.size()) {
+                compact();
+            }
+        } catch (IOException e) {
+            closeQuietly();
+            throw new IntegratorException("Не удалось открыть журнал заданий " + file, e);
+        }
+        lastSyncNanos = System.nanoTime();
+    }
+
+    /**
+     * Открывает журнал с параметрами из {@code properties.cfg}.
+     *
+     * @return журнал или {@code null}, если журнал отключён или его не удалось открыть.
+     */
+    public static JobJournal fromConfig() {
+        TaskConfig config = TaskConfig.shared();
+        if (!config.getBoolean(ENABLED_KEY, false)) {
+            return null;
+        }
+        String file = config.getString(FILE_KEY, ".gemini-cache/jobs.journal");
+        try {
+            return new JobJournal(Paths.get(file),
+                    Math.max(1, config.getInt(SYNC_EVERY_KEY, 32)),
+                    Math.max(0, config.getInt(SYNC_MILLIS_KEY, 1_000)));
+        } catch (IntegratorException e) {
+            System.err.println(e.getMessage() + ": " + e.getCause().getMessage() + ". Журнал заданий отключён.");
+            return null;
+        }
+    }
+
+    /**
+     * @param key ключ источника.
+     * @return последняя записанная стадия источника или {@code null}, если источник в журнале не упоминается.
+     */
+    public synchronized State stateOf(String key) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.state;
+    }
+
+    /**
+     * @param key ключ источника.
+     * @return сохранённый ответ для источника в стадии {@link State#DONE} или {@code null}.
+     */
+    public synchronized String resultOf(String key) {
+        Entry entry = entries.get(key);
+        return entry == null || entry.state != State.DONE ? null : entry.value;
+    }
+
+    /**
+     * Отмечает начало анализа источника.
+     *
+     * @param key ключ источника.
+     * @throws IntegratorException если запись не удалось добавить в журнал.
+     */
+    public void started(String key) throws IntegratorException {
+        append(key, State.STARTED, "");
+    }
+
+    /**
+     * Сохраняет ответ для источника, анализ которого завершён.
+     *
+     * @param key    ключ источника.
+     * @param result ответ LLM.
+     * @throws IntegratorException если запись не удалось добавить в журнал.
+     */
+    public void done(String key, String result) throws IntegratorException {
+        append(key, State.DONE, result);
+    }
+
+    /**
+     * Отмечает ошибку анализа источника. При возобновлении такой источник обрабатывается заново.
+     *
+     * @param key     ключ источника.
+     * @param message сообщение об ошибке.
+     * @throws IntegratorException если запись не удалось добавить в журнал.
+     */
+    public void failed(String key, String message) throws IntegratorException {
+        append(key, State.FAILED, message == null ? "" : message);
+    }
+
+    /**
+     * Сбрасывает на диск все добавленные записи.
+     *
+     * @throws IntegratorException если журнал не удалось сбросить на диск.
+     */
+    public synchronized void sync() throws IntegratorException {
+        try {
+            force();
+        } catch (IOException e) {
+            throw new IntegratorException("Не удалось сохранить журнал заданий " + file, e);
+        }
+    }
+
+    /**
+     * @return число источников в каждой стадии.
+     */
+    public synchronized Map<State, Integer> counts() {
+        Map<State, Integer> counts = new EnumMap<>(State.class);
+        for (Entry entry : entries.values()) {
+            counts.merge(entry.state, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * @return число сбросов журнала на диск с момента открытия.
+     */
+    synchronized long getSyncCount() {
+        return syncCount;
+    }
+
+    @Override
+    public String toString() {
+        return "JobJournal[" + file + ", " + counts() + "]";
+    }
+
+    /**
+     * Сбрасывает журнал на диск и закрывает файл.
+     *
+     * @throws IOException если журнал не удалось сбросить на диск или закрыть.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            force();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private synchronized void append(String key, State state, String value) throws IntegratorException {
+        if (channel == null) {
+            throw new IntegratorException("Журнал заданий закрыт: " + file);
+        }
+        try {
+            write(channel, encode(key, state, value), channel.size());
+            entries.remove(key);
+            entries.put(key, new Entry(state, value));
+            unsynced++;
+            if (unsynced >= syncEvery || System.nanoTime() - lastSyncNanos >= syncNanos) {
+                force();
+            }
+        } catch (IOException e) {
+            throw new IntegratorException("Не удалось записать в журнал заданий " + file, e);
+        }
+    }
+
+    private void force() throws IOException {
+        if (unsynced > 0 && channel != null) {
+            channel.force(false);
+            syncCount++;
+        }
+        unsynced = 0;
+        lastSyncNanos = System.nanoTime();
+    }
+
+    /**
+     * Читает журнал последовательно и восстанавливает стадии источников. Файл обрезается после последней
+     * целой записи.
+     *
+     * @return число прочитанных записей.
+     */
+    private int replay() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        int records = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length < BODY_HEADER_BYTES || position + RECORD_HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, position + RECORD_HEADER_BYTES);
+            crc.reset();
+            crc.update(body.array());
+            if ((int) crc.getValue() != checksum || !decode(body)) {
+                break;
+            }
+            position += RECORD_HEADER_BYTES + length;
+            records++;
+        }
+        if (position < size) {
+            System.err.println("Журнал заданий " + file + " обрезан после последней целой записи: отброшено "
+                    + (size - position) + " байт");
+            channel.truncate(position);
+            channel.force(false);
+        }
+        return records;
+    }
+
+    private boolean decode(ByteBuffer body) {
+        body.flip();
+        int stateIndex = body.get();
+        int keyLength = body.getInt();
+        if (stateIndex < 0 || stateIndex >= State.values().length || keyLength < 0
+                || keyLength > body.remaining()) {
+            return false;
+        }
+        byte[] array = body.array();
+        String key = new String(array, BODY_HEADER_BYTES, keyLength, StandardCharsets.UTF_8);
+        String value = new String(array, BODY_HEADER_BYTES + keyLength,
+                array.length - BODY_HEADER_BYTES - keyLength, StandardCharsets.UTF_8);
+        entries.remove(key);
+        entries.put(key, new Entry(State.values()[stateIndex], value));
+        return true;
+    }
+
+    /**
+     * Переписывает журнал, оставляя по одной записи на источник.
+     */
+    private void compact() throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = 0;
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                ByteBuffer record = encode(e.getKey(), e.getValue().state, e.getValue().value);
+                int length = record.remaining();
+                write(target, record, position);
+                position += length;
+            }
+            target.force(true);
+        }
+        channel.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static ByteBuffer encode(String key, State state, String value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        long length = (long) BODY_HEADER_BYTES + keyBytes.length + valueBytes.length;
+        if (length > MAX_RECORD_BYTES) {
+            throw new IOException("Запись журнала слишком велика: " + length + " байт");
+        }
+        ByteBuffer body = ByteBuffer.allocate((int) length);
+        body.put((byte) state.ordinal()).putInt(keyBytes.length).put(keyBytes).put(valueBytes);
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + body.capacity());
+        record.putInt(body.capacity()).putInt((int) crc.getValue()).put(body.array()).flip();
+        return record;
+    }
+
+    private static void write(FileChannel target, ByteBuffer record, long offset) throws IOException {
+        while (record.hasRemaining()) {
+            target.write(record, offset + record.position());
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец журнала заданий " + file);
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // исходная ошибка важнее
+            }
+            channel = null;
+        }
+    }
+}
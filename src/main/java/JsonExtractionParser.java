@@ -0,0 +1,182 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Разбор структурированного ответа LLM вида {@code {"target": ["предложение", ...], ...}}
+ * (см. {@link ApiCaller#makeStructuredApiCall(Prompt, List)}) в {@link ExtractionResult}.
+ * <p>
+ * Ответ читается потоковым парсером Jackson по лексемам, без построения дерева JSON: в памяти создаются
+ * только строки найденных предложений. Экземпляр класса разбирает ответ по частям по мере их получения
+ * ({@link #feed(String)}), поэтому потоковый ответ не нужно собирать в одну строку. Значение элемента
+ * может быть массивом строк или строкой; неизвестные элементы и вложенные структуры пропускаются.
+ */
+public final class JsonExtractionParser {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+    private final ExtractionResult result;
+    private int depth;
+    private String target;
+    private boolean started;
+    private String pendingSurrogate = "";
+
+    /**
+     * Создаёт парсер для разбора ответа по частям.
+     *
+     * @param targets ожидаемые элементы {@code targets}.
+     * @throws IntegratorException если не удалось создать парсер.
+     */
+    public JsonExtractionParser(List<String> targets) throws IntegratorException {
+        this(createNonBlocking(), targets);
+    }
+
+    private JsonExtractionParser(JsonParser parser, List<String> targets) {
+        this.parser = parser;
+        this.result = new ExtractionResult(targets);
+    }
+
+    /**
+     * Разбирает ответ целиком.
+     *
+     * @param json    ответ LLM.
+     * @param targets ожидаемые элементы {@code targets}.
+     * @return результат извлечения.
+     * @throws IntegratorException если ответ не является корректным JSON-объектом.
+     */
+    public static ExtractionResult parse(String json, List<String> targets) throws IntegratorException {
+        try {
+            return parse(FACTORY.createParser(json), targets);
+        } catch (IOException e) {
+            throw new IntegratorException("Некорректный JSON-ответ: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Разбирает ответ, читая его из потока символов.
+     *
+     * @param reader  поток с ответом LLM.
+     * @param targets ожидаемые элементы {@code targets}.
+     * @return результат извлечения.
+     * @throws IntegratorException если ответ не удалось прочитать или он не является корректным JSON-объектом.
+     */
+    public static ExtractionResult parse(Reader reader, List<String> targets) throws IntegratorException {
+        try {
+            return parse(FACTORY.createParser(reader), targets);
+        } catch (IOException e) {
+            throw new IntegratorException("Некорректный JSON-ответ: " + e.getMessage(), e);
+        }
+    }
+
+    private static ExtractionResult parse(JsonParser parser, List<String> targets) throws IntegratorException {
+        JsonExtractionParser extraction = new JsonExtractionParser(parser, targets);
+        try (parser) {
+            extraction.drain();
+        } catch (IOException e) {
+            throw new IntegratorException("Некорректный JSON-ответ: " + e.getMessage(), e);
+        }
+        return extraction.complete();
+    }
+
+    /**
+     * Разбирает очередную часть ответа.
+     *
+     * @param chunk фрагмент текста ответа; может обрываться в любом месте.
+     * @throws IntegratorException если ответ не является корректным JSON-объектом.
+     */
+    public void feed(String chunk) throws IntegratorException {
+        String text = pendingSurrogate + chunk;
+        // суррогатная пара, разорванная между фрагментами, кодируется целиком со следующим фрагментом
+        int end = !text.isEmpty() && Character.isHighSurrogate(text.charAt(text.length() - 1))
+                ? text.length() - 1 : text.length();
+        pendingSurrogate = text.substring(end);
+        byte[] bytes = text.substring(0, end).getBytes(StandardCharsets.UTF_8);
+        try {
+            ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(bytes, 0, bytes.length);
+            drain();
+        } catch (IOException e) {
+            throw new IntegratorException("Некорректный JSON-ответ: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Завершает разбор ответа, переданного по частям.
+     *
+     * @return результат извлечения.
+     * @throws IntegratorException если ответ оборван или не является корректным JSON-объектом.
+     */
+    public ExtractionResult finish() throws IntegratorException {
+        try (parser) {
+            parser.getNonBlockingInputFeeder().endOfInput();
+            drain();
+        } catch (IOException e) {
+            throw new IntegratorException("Некорректный JSON-ответ: " + e.getMessage(), e);
+        }
+        return complete();
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_OBJECT:
+                case START_ARRAY:
+                    if (depth == 0 && token != JsonToken.START_OBJECT) {
+                        throw new IOException("ожидался объект, получено " + token);
+                    }
+                    started = true;
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    if (depth == 1) {
+                        target = null;
+                    }
+                    break;
+                case FIELD_NAME:
+                    if (depth == 1) {
+                        target = parser.currentName();
+                    }
+                    break;
+                case VALUE_STRING:
+                    if (target != null && (depth == 1 || depth == 2 && parser.getParsingContext().inArray())) {
+                        result.add(target, parser.getText());
+                    }
+                    if (depth == 1) {
+                        target = null;
+                    }
+                    break;
+                default:
+                    if (depth == 0) {
+                        throw new IOException("ожидался объект, получено " + token);
+                    }
+                    if (depth == 1) {
+                        target = null;
+                    }
+            }
+        }
+    }
+
+    private ExtractionResult complete() throws IntegratorException {
+        if (!started || depth != 0) {
+            throw new IntegratorException("Некорректный JSON-ответ: ответ оборван");
+        }
+        return result;
+    }
+
+    private static JsonParser createNonBlocking() throws IntegratorException {
+        try {
+            return FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IntegratorException("Не удалось создать парсер JSON", e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.Arrays;
+
+/**
+ * Скользящее окно последних значений времени ответа, по которому оцениваются процентили.
+ * <p>
+ * Класс потокобезопасен.
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    /**
+     * @param capacity число последних значений, по которым оцениваются процентили.
+     */
+    public LatencyTracker(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Размер окна должен быть положительным: " + capacity);
+        }
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * Добавляет значение времени ответа.
+     *
+     * @param millis время ответа в миллисекундах.
+     */
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+    }
+
+    /**
+     * @return число значений в окне.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Возвращает процентиль времени ответа по значениям в окне.
+     *
+     * @param percentile процентиль в диапазоне (0, 100].
+     * @return значение процентиля в миллисекундах или -1, если значений нет.
+     */
+    public long percentile(double percentile) {
+        long[] copy;
+        synchronized (this) {
+            if (size == 0) {
+                return -1;
+            }
+            copy = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(percentile / 100.0 * copy.length) - 1;
+        return copy[Math.max(0, Math.min(copy.length - 1, index))];
+    }
+}
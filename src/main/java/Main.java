@@ -1,22 +1,30 @@
 
 
-import com.google.genai.Client;
-import com.google.genai.errors.ClientException;
-import com.google.genai.types.GenerateContentConfig;
-import com.google.genai.types.GenerateContentResponse;
-
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class Main {
 
     //Реализация Main, использованная для тестирования за неимением полного кода программы.
-    public static void main(String[] args) {
+    //С аргументом "serve" приложение работает как долгоживущий HTTP-сервис (см. AnalysisServer).
+    //С аргументами "batch <файл|url>..." страницы анализируются одним пакетным заданием (см. runBatch).
+    public static void main(String[] args) throws IntegratorException {
+        if (args.length > 0 && "serve".equals(args[0])) {
+            AnalysisServer.main(args);
+            return;
+        }
+        if (args.length > 0 && "batch".equals(args[0])) {
+            runBatch(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         // The client gets the API key from the environment variable `GOOGLE_API_KEY`.
         final String rawInputPath = "rawHtml.txt";
         final String htmlCleanedOutputPath = "cleanedHtml.txt";
@@ -24,45 +32,82 @@ public class Main {
         final String geminiApiOutputPath = "result.txt";
         final String geminiPromptOutputPath = "geminiPromptOutput.txt";
 
-        String rawHtml = readFromFile(rawInputPath);
-        Document doc = Jsoup.parse(rawHtml);
-        doc.select("noscript, script, style, iframe, link[rel=stylesheet], meta, head title")
-                .remove();
-
-        String processedHtml = doc.text();
-        writeToFile(htmlCleanedOutputPath, processedHtml);
+        boolean debugArtifacts = AsyncFileWriter.isDebugArtifactsEnabled();
+        String processedHtml = cleanFile(rawInputPath);
+        if (debugArtifacts) {
+            writeToFile(htmlCleanedOutputPath, processedHtml);
+        }
 
         Map<String, String> configValues =
-                FileHandler.readSpecificProperties("object", "additions", "targets");
+                TaskConfig.requireCriteria(FileHandler.readSpecificProperties("object", "additions", "targets"));
         String objectValue = configValues.get("object");
         String targetsValue = configValues.get("targets");
 
-        String promptTemplate = readFromFile(geminiBasePromptInputPath);
-        String finalGeminiPrompt = promptTemplate
-                .replace("{{ИСХОДНЫЙ_ТЕКСТ}}", processedHtml)
-                .replace("{{OBJECT_VALUES}}", objectValue)
-                .replace("{{TARGETS_VALUES}}", targetsValue);
-        writeToFile(geminiPromptOutputPath,finalGeminiPrompt);
+        PromptTemplate promptTemplate = new PromptTemplate(readFromFile(geminiBasePromptInputPath));
+        Map<String, String> promptValues = new HashMap<>();
+        promptValues.put(PromptTemplate.SOURCE_TEXT, processedHtml);
+        promptValues.put(PromptTemplate.OBJECT_VALUES, objectValue);
+        promptValues.put(PromptTemplate.TARGETS_VALUES, targetsValue);
+        Prompt finalGeminiPrompt = promptTemplate.render(promptValues);
+        if (debugArtifacts) {
+            writeToFile(geminiPromptOutputPath, finalGeminiPrompt.getText());
+        }
 
-        String geminiOutput = makeApiCall(processedHtml, finalGeminiPrompt);
+        String geminiOutput = ApiCaller.makeApiCall(finalGeminiPrompt);
+        if (geminiOutput == null) {
+            FileHandler.awaitWrites();
+            throw new IntegratorException("Gemini API не вернул ответ, файл " + geminiApiOutputPath + " не записан");
+        }
         writeToFile(geminiApiOutputPath, geminiOutput);
-
+        FileHandler.awaitWrites();
     }
 
-    public static void writeToFile(String outputFilePath, String content) {
-        if (outputFilePath == null) {
-            throw new NullPointerException("Путь к файлу не может быть null");
+    /**
+     * Пакетный режим для больших ночных заданий: анализирует страницы одним заданием Gemini Batch API
+     * ({@link StringAnalyzer#analyzeBatch(List, BatchCaller)}) и записывает общий отчёт по {@code targets}
+     * ({@link TargetReporter}) в {@code result.txt}.
+     *
+     * @param pages пути к файлам HTML или адреса страниц {@code http(s)://}, загружаемых {@link WebCrawler}.
+     * @throws IntegratorException если страницы не заданы или пакетное задание не удалось выполнить.
+     */
+    public static void runBatch(String[] pages) throws IntegratorException {
+        if (pages.length == 0) {
+            throw new IntegratorException("Не заданы страницы для пакетного анализа: batch <файл|url>...");
         }
-        if (content == null) {
-            throw new NullPointerException("Содержимое для записи не может быть null");
+        try (WebCrawler crawler = WebCrawler.fromConfig()) {
+            List<Source<String>> sources = new ArrayList<>();
+            for (String page : pages) {
+                sources.add(page.startsWith("http://") || page.startsWith("https://") ? crawler.source(page)
+                        : TextSource.fromFile(page));
+            }
+            TargetReporter reporter = TargetReporter.fromConfig();
+            for (Data<String> result : new StringAnalyzer().analyzeBatch(sources, BatchCaller.fromConfig())) {
+                reporter.add(result);
+            }
+            writeToFile("result.txt", reporter.getReport().getContent());
+            FileHandler.awaitWrites();
         }
-        try {
-            Files.writeString(Paths.get(outputFilePath), content);
-            System.out.println("Успешно записал в файл: " + outputFilePath);
+    }
+
+    /**
+     * Асинхронно записывает содержимое в файл (см. {@link FileHandler#writeToFile(String, String)}).
+     */
+    public static void writeToFile(String outputFilePath, String content) {
+        FileHandler.writeToFile(outputFilePath, content);
+    }
+
+    /**
+     * Читает HTML из файла и потоково очищает его {@link HtmlCleaner}, не загружая исходный HTML в память целиком.
+     */
+    public static String cleanFile(String inputFilePath) {
+        StringBuilder text = new StringBuilder();
+        try (Reader reader = Files.newBufferedReader(Paths.get(inputFilePath), StandardCharsets.UTF_8)) {
+            HtmlCleaner.clean(reader, text);
+            return text.toString();
         } catch (IOException e) {
-            System.err.println("Ошибка: Не удалось записать  в файл '" + outputFilePath + "': " + e.getMessage());
-        } catch (Exception e) {
-            System.err.println("Exception: " + e.getMessage());
+            System.err.println("Критическая ошибка: Не удалось прочитать файл "
+                    + inputFilePath + "': " + e.getMessage());
+            throw new RuntimeException("Ошибка чтения файла: " + inputFilePath, e);
         }
     }
 
@@ -76,32 +121,6 @@ public class Main {
         }
     }
 
-    public static String makeApiCall(String processedHtml, String prompt) {
-        if (processedHtml == null || prompt == null) {
-            System.err.println("Ошибка: processedHtml или prompt не могут быть null.");
-            throw new IllegalArgumentException("Ошибка: processedHtml или prompt не могут быть null.");
-        }
-
-        final String modelName = "gemini-2.5-flash-preview-05-20";
-        GenerateContentResponse response;
-        String responseText = null;
-        try (Client client = new Client()){
-            String fullPrompt = prompt + processedHtml;
-            response = client.models.generateContent(modelName, fullPrompt,
-                    GenerateContentConfig.builder()
-                            .temperature(0.01f)
-                            .topP(0.95f)
-                            .build());
-            responseText = response.text();
-        } catch (ClientException e) {
-            System.err.println("Ошибка клиента API: " + e.getMessage());
-        } catch (Exception e) {
-            System.err.println("Неожиданная ошибка при вызове API или обработке ответа: " + e.getMessage());
-        }
-        return responseText;
-    }
-
-
 
 }
 
@@ -0,0 +1,114 @@
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Локальный фильтр предложений по значению параметра {@code object}.
+ * <p>
+ * Фильтр повторяет правила интерпретации критериев из {@code baseGeminiPrompt.txt}: предложение
+ * подходит, если содержит хотя бы один вариант {@code object}, причём
+ * <ul>
+ * <li>значение в двойных кавычках («», "", “”) должно встречаться в точно такой же форме, слова идут
+ * подряд и не разделяются знаками препинания;</li>
+ * <li>значение в одинарных кавычках (‘’, '') должно встречаться как фраза из идущих подряд слов, формы
+ * слов могут отличаться;</li>
+ * <li>все слова значения без кавычек должны встречаться в предложении в любом порядке и в любой форме.</li>
+ * </ul>
+ * Сопоставление выполняет {@link TermMatcher}: формы слов сравниваются по основам {@link RussianStemmer},
+ * регистр и различие «е»/«ё» не учитываются.
+ * <p>
+ * Фильтр не заменяет проверку, выполняемую LLM, а лишь отбрасывает заведомо неподходящие предложения,
+ * поэтому при сомнении он скорее пропускает предложение, чем отбрасывает его.
+ */
+public class ObjectFilter {
+
+    static final String ENABLED_KEY = "prefilter.enabled";
+    static final String CONTEXT_KEY = "prefilter.contextSentences";
+
+    private final TermMatcher matcher;
+    private final int contextSentences;
+
+    /**
+     * @param objectValue      значение параметра {@code object}: варианты через запятую.
+     * @param contextSentences число соседних предложений, добавляемых с каждой стороны подходящего предложения.
+     * @throws IllegalArgumentException если значение не содержит ни одного варианта или {@code contextSentences < 0}.
+     */
+    public ObjectFilter(String objectValue, int contextSentences) {
+        if (contextSentences < 0) {
+            throw new IllegalArgumentException("Число предложений контекста не может быть отрицательным: "
+                    + contextSentences);
+        }
+        this.matcher = TermMatcher.compile(Map.of("object", objectValue == null ? "" : objectValue));
+        if (matcher.getTerms().isEmpty()) {
+            throw new IllegalArgumentException("Не задано ни одного варианта object: " + objectValue);
+        }
+        this.contextSentences = contextSentences;
+    }
+
+    /**
+     * Создаёт фильтр с параметрами из {@code properties.cfg}.
+     *
+     * @return фильтр или {@code null}, если фильтрация отключена или параметр {@code object} не задан.
+     */
+    public static ObjectFilter fromConfig() {
+        return fromConfig(FileHandler.readSpecificProperties("object").get("object"));
+    }
+
+    /**
+     * Создаёт фильтр для заданного {@code object} с остальными параметрами из {@code properties.cfg}.
+     *
+     * @param objectValue значение параметра {@code object}.
+     * @return фильтр или {@code null}, если фильтрация отключена или {@code object} пуст.
+     */
+    public static ObjectFilter fromConfig(String objectValue) {
+        if (!TaskConfig.shared().getBoolean(ENABLED_KEY, false)) {
+            return null;
+        }
+        try {
+            int contextSentences = Math.max(0, TaskConfig.shared().getInt(CONTEXT_KEY, 1));
+            return new ObjectFilter(objectValue, contextSentences);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Локальная фильтрация предложений отключена: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Оставляет в тексте только предложения, содержащие {@code object}, и соседние с ними предложения.
+     * Идущие подряд предложения разделяются пробелом, несмежные группы — переводом строки.
+     *
+     * @param text очищенный текст документа.
+     * @return отобранные предложения или пустая строка, если подходящих предложений нет.
+     */
+    public String filter(String text) {
+        List<String> sentences = SentenceSplitter.split(text);
+        boolean[] selected = new boolean[sentences.size()];
+        for (int i = 0; i < sentences.size(); i++) {
+            if (matches(sentences.get(i))) {
+                int from = Math.max(0, i - contextSentences);
+                int to = Math.min(sentences.size() - 1, i + contextSentences);
+                for (int j = from; j <= to; j++) {
+                    selected[j] = true;
+                }
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < selected.length; i++) {
+            if (!selected[i]) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(selected[i - 1] ? ' ' : '\n');
+            }
+            sb.append(sentences.get(i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param sentence предложение.
+     * @return {@code true}, если предложение содержит хотя бы один вариант {@code object}.
+     */
+    public boolean matches(String sentence) {
+        return matcher.matches(sentence, null);
+    }
+}
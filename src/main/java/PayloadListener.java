@@ -0,0 +1,14 @@
+/**
+ * Интерфейс учёта запросов, отправляемых в Gemini API. Позволяет, например, подсчитывать
+ * объём переданных байт и токенов или проверять в тестах размер каждого запроса.
+ */
+@FunctionalInterface
+public interface PayloadListener {
+    /**
+     * Метод вызывается перед отправкой каждого запроса.
+     *
+     * @param modelName имя модели, которой адресован запрос.
+     * @param prompt    отправляемый запрос.
+     */
+    void onPayload(String modelName, Prompt prompt);
+}
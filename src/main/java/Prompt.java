@@ -0,0 +1,152 @@
+import java.util.Objects;
+
+/**
+ * Итоговый текст запроса к LLM, который отправляется в Gemini API ровно в одном экземпляре.
+ * <p>
+ * Помимо самого текста предоставляет сведения о размере запроса: число символов, число байт
+ * в кодировке UTF-8 и приблизительное число токенов.
+ * <p>
+ * Запрос, собранный по шаблону {@link PromptTemplate}, помнит длину статического префикса — общей для всех
+ * документов части шаблона (см. {@link PromptTemplate#getStaticPrefix()}). Префикс может быть зарегистрирован
+ * в Gemini API один раз ({@link PromptPrefixCache}), и тогда в каждом вызове передаётся только
+ * {@linkplain #getSuffix() остаток запроса}.
+ */
+public final class Prompt {
+
+    /**
+     * Среднее число байт UTF-8 на один токен, используемое для грубой оценки размера запроса.
+     */
+    private static final int BYTES_PER_TOKEN = 4;
+
+    private final String text;
+    private final int prefixLength;
+    private int byteCount = -1;
+
+    /**
+     * @param text полный текст запроса; не может быть {@code null}.
+     * @throws IllegalArgumentException если {@code text == null}.
+     */
+    public Prompt(String text) {
+        this(text, 0);
+    }
+
+    /**
+     * @param text         полный текст запроса; не может быть {@code null}.
+     * @param prefixLength длина статического префикса запроса в символах.
+     * @throws IllegalArgumentException если {@code text == null} или длина префикса выходит за пределы текста.
+     */
+    public Prompt(String text, int prefixLength) {
+        if (text == null) {
+            throw new IllegalArgumentException("Текст запроса не может быть null.");
+        }
+        if (prefixLength < 0 || prefixLength > text.length()) {
+            throw new IllegalArgumentException("Недопустимая длина префикса запроса: " + prefixLength);
+        }
+        this.text = text;
+        this.prefixLength = prefixLength;
+    }
+
+    /**
+     * @return полный текст запроса.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return статический префикс запроса, общий для всех документов; пустая строка, если префикса нет.
+     */
+    public String getPrefix() {
+        return text.substring(0, prefixLength);
+    }
+
+    /**
+     * @return часть запроса после статического префикса.
+     */
+    public String getSuffix() {
+        return text.substring(prefixLength);
+    }
+
+    /**
+     * @return {@code true}, если запрос содержит непустой статический префикс.
+     */
+    public boolean hasPrefix() {
+        return prefixLength > 0;
+    }
+
+    /**
+     * @return число символов в запросе.
+     */
+    public int getCharCount() {
+        return text.length();
+    }
+
+    /**
+     * @return размер запроса в байтах в кодировке UTF-8.
+     */
+    public int getByteCount() {
+        if (byteCount < 0) {
+            byteCount = utf8Length(text);
+        }
+        return byteCount;
+    }
+
+    /**
+     * @return приблизительное число токенов в запросе.
+     */
+    public int getEstimatedTokens() {
+        return estimateTokens(text);
+    }
+
+    /**
+     * Грубо оценивает число токенов в тексте по его размеру в байтах UTF-8.
+     *
+     * @param text оцениваемый текст.
+     * @return приблизительное число токенов.
+     */
+    public static int estimateTokens(CharSequence text) {
+        return (utf8Length(text) + BYTES_PER_TOKEN - 1) / BYTES_PER_TOKEN;
+    }
+
+    /**
+     * Вычисляет размер текста в кодировке UTF-8 без создания массива байт.
+     */
+    static int utf8Length(CharSequence text) {
+        int length = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Prompt)) {
+            return false;
+        }
+        return text.equals(((Prompt) o).text);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(text);
+    }
+
+    @Override
+    public String toString() {
+        return "Prompt[" + getCharCount() + " символов, " + getByteCount() + " байт]";
+    }
+}
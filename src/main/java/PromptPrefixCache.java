@@ -0,0 +1,208 @@
+import com.google.genai.Client;
+import com.google.genai.types.CachedContent;
+import com.google.genai.types.Content;
+import com.google.genai.types.CreateCachedContentConfig;
+import com.google.genai.types.Part;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш статических префиксов запросов на стороне Gemini API (context caching).
+ * <p>
+ * Общие инструкции шаблона ({@link PromptTemplate#getStaticPrefix()}) одинаковы во всех запросах пакета.
+ * Префикс регистрируется в API один раз как {@link CachedContent}, и последующие вызовы передают только
+ * ссылку на него и {@linkplain Prompt#getSuffix() остаток запроса}, что сокращает объём входных данных
+ * и время ответа. Жизненным циклом ссылок управляет этот класс:
+ * <ul>
+ * <li>ссылка создаётся при первом запросе с данным префиксом и живёт {@code ttl};</li>
+ * <li>когда до истечения срока остаётся меньше пятой части {@code ttl}, создаётся новая ссылка, а старая
+ * удаляется (версия SDK не поддерживает продление срока существующей ссылки); если новую ссылку создать не
+ * удалось, до истечения срока используется старая;</li>
+ * <li>при закрытии клиента ({@link #release(Client)}) все созданные ссылки удаляются.</li>
+ * </ul>
+ * Префиксы короче {@code minTokens} не кэшируются: API не принимает их, а выигрыш от них невелик. Если
+ * зарегистрировать префикс не удалось, запросы отправляются целиком, а новая попытка делается не раньше,
+ * чем через пятую часть {@code ttl}.
+ * <p>
+ * Класс потокобезопасен.
+ */
+public class PromptPrefixCache {
+
+    static final String ENABLED_KEY = "gemini.contextCache.enabled";
+    static final String TTL_MINUTES_KEY = "gemini.contextCache.ttlMinutes";
+    static final String MIN_TOKENS_KEY = "gemini.contextCache.minTokens";
+
+    private static final int DEFAULT_TTL_MINUTES = 60;
+    private static final int DEFAULT_MIN_TOKENS = 1024;
+    private static final int REFRESH_FRACTION = 5;
+
+    private final String modelName;
+    private final Duration ttl;
+    private final Duration refreshMargin;
+    private final int minTokens;
+    private final Clock clock;
+    private final Map<String, Handle> handles = new ConcurrentHashMap<>();
+
+    /**
+     * Ссылка на зарегистрированный префикс или отметка о неудачной попытке регистрации.
+     */
+    private static final class Handle {
+        final String name;
+        final Instant validUntil;
+        final Instant refreshAt;
+
+        /**
+         * @param name       имя ссылки или {@code null}, если запрос следует отправлять целиком.
+         * @param validUntil момент истечения ссылки.
+         * @param refreshAt  момент, начиная с которого префикс регистрируется заново.
+         */
+        Handle(String name, Instant validUntil, Instant refreshAt) {
+            this.name = name;
+            this.validUntil = validUntil;
+            this.refreshAt = refreshAt;
+        }
+    }
+
+    /**
+     * @param modelName имя модели, для которой регистрируются префиксы.
+     * @param ttl       срок жизни ссылки на префикс.
+     * @param minTokens минимальный размер кэшируемого префикса в токенах.
+     */
+    public PromptPrefixCache(String modelName, Duration ttl, int minTokens) {
+        this(modelName, ttl, minTokens, Clock.systemUTC());
+    }
+
+    PromptPrefixCache(String modelName, Duration ttl, int minTokens, Clock clock) {
+        this.modelName = modelName;
+        this.ttl = ttl;
+        this.refreshMargin = ttl.dividedBy(REFRESH_FRACTION);
+        this.minTokens = minTokens;
+        this.clock = clock;
+    }
+
+    /**
+     * Создаёт кэш префиксов по параметрам из {@code properties.cfg}.
+     *
+     * @param modelName имя модели.
+     * @return кэш префиксов или {@code null}, если кэширование отключено.
+     */
+    public static PromptPrefixCache fromConfig(String modelName) {
+        TaskConfig config = TaskConfig.shared();
+        if (!config.getBoolean(ENABLED_KEY, false)) {
+            return null;
+        }
+        return new PromptPrefixCache(modelName,
+                Duration.ofMinutes(Math.max(1, config.getInt(TTL_MINUTES_KEY, DEFAULT_TTL_MINUTES))),
+                Math.max(0, config.getInt(MIN_TOKENS_KEY, DEFAULT_MIN_TOKENS)));
+    }
+
+    /**
+     * Возвращает ссылку на зарегистрированный префикс запроса, при необходимости регистрируя его.
+     *
+     * @param client клиент Gemini API.
+     * @param prompt запрос.
+     * @return имя ссылки ({@code cachedContents/...}) или {@code null}, если запрос следует отправить целиком.
+     */
+    public String handleFor(Client client, Prompt prompt) {
+        if (!prompt.hasPrefix()) {
+            return null;
+        }
+        String prefix = prompt.getPrefix();
+        String key = ResponseCache.digest(modelName, prefix);
+        Handle handle = handles.get(key);
+        Handle superseded = null;
+        if (handle == null || needsRefresh(handle)) {
+            synchronized (this) {
+                handle = handles.get(key);
+                if (handle == null || needsRefresh(handle)) {
+                    Handle previous = handle;
+                    handle = register(client, prefix, previous);
+                    handles.put(key, handle);
+                    if (handle.name != null && previous != null && previous.name != null
+                            && !previous.name.equals(handle.name)) {
+                        superseded = previous;
+                    }
+                }
+            }
+        }
+        if (superseded != null) {
+            delete(client, superseded.name);
+        }
+        return handle.name;
+    }
+
+    /**
+     * Забывает ссылку на префикс запроса, например, если API сообщил, что она больше не существует.
+     * Следующий запрос с этим префиксом зарегистрирует его заново.
+     *
+     * @param prompt запрос.
+     */
+    public void invalidate(Prompt prompt) {
+        handles.remove(ResponseCache.digest(modelName, prompt.getPrefix()));
+    }
+
+    /**
+     * Удаляет все созданные ссылки на префиксы. Вызывается перед закрытием клиента.
+     *
+     * @param client клиент Gemini API, через который были созданы ссылки.
+     */
+    public synchronized void release(Client client) {
+        List<Handle> current = new ArrayList<>(handles.values());
+        handles.clear();
+        for (Handle handle : current) {
+            if (handle.name != null) {
+                delete(client, handle.name);
+            }
+        }
+    }
+
+    private boolean needsRefresh(Handle handle) {
+        return !clock.instant().isBefore(handle.refreshAt);
+    }
+
+    private static void delete(Client client, String name) {
+        try {
+            client.caches.delete(name, null);
+        } catch (RuntimeException e) {
+            System.err.println("Не удалось удалить кэшированный префикс запроса " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Регистрирует префикс. Если регистрация не удалась, а ссылка {@code previous} ещё не истекла, она
+     * остаётся в работе до следующей попытки.
+     */
+    private Handle register(Client client, String prefix, Handle previous) {
+        Instant now = clock.instant();
+        if (Prompt.estimateTokens(prefix) < minTokens) {
+            return new Handle(null, Instant.MAX, Instant.MAX);
+        }
+        try {
+            CachedContent cached = client.caches.create(modelName, CreateCachedContentConfig.builder()
+                    .displayName("prompt-prefix")
+                    .ttl(ttl)
+                    .contents(List.of(Content.builder().role("user").parts(List.of(Part.fromText(prefix))).build()))
+                    .build());
+            String name = cached.name().orElseThrow(() -> new IllegalStateException("API не вернул имя ссылки"));
+            Instant validUntil = cached.expireTime().orElse(now.plus(ttl));
+            return new Handle(name, validUntil, validUntil.minus(refreshMargin));
+        } catch (RuntimeException e) {
+            Instant retryAt = now.plus(refreshMargin);
+            if (previous != null && previous.name != null && now.isBefore(previous.validUntil)) {
+                System.err.println("Не удалось обновить кэшированный префикс запроса, до " + previous.validUntil
+                        + " используется " + previous.name + ": " + e.getMessage());
+                Instant refreshAt = retryAt.isBefore(previous.validUntil) ? retryAt : previous.validUntil;
+                return new Handle(previous.name, previous.validUntil, refreshAt);
+            }
+            System.err.println("Не удалось кэшировать префикс запроса, запросы будут отправляться целиком: "
+                    + e.getMessage());
+            return new Handle(null, retryAt, retryAt);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Шаблон запроса к LLM с переменными вида {@code {{ИМЯ}}}.
+ * <p>
+ * Шаблон обязан содержать переменную {@value #SOURCE_TEXT} ровно один раз: исходный документ
+ * попадает в итоговый запрос только через неё, поэтому каждый документ отправляется в Gemini API
+ * ровно один раз.
+ * <p>
+ * При создании шаблон разбирается на чередующиеся сегменты — неизменный текст и переменные, — и все
+ * переменные проверяются. Подстановка выполняется за один проход по сегментам: итоговый запрос собирается
+ * в строку заранее вычисленного размера ({@link #render(Map)}) или пишется сразу в поток
+ * ({@link #renderTo(Map, Appendable)}), без промежуточных копий документа. Значения переменных вставляются
+ * как есть и никогда не интерпретируются как шаблон.
+ * <p>
+ * Текст шаблона до строки с первой переменной не зависит от документа и критериев поиска и образует
+ * статический префикс ({@link #getStaticPrefix()}). Поэтому общие инструкции следует располагать в начале
+ * шаблона, а переменные — в конце: тогда префикс можно кэшировать на стороне Gemini API
+ * ({@link PromptPrefixCache}) и не передавать в каждом вызове.
+ * <p>
+ * Экземпляры неизменяемы и потокобезопасны.
+ */
+public final class PromptTemplate {
+
+    /**
+     * Переменная для исходного текста документа.
+     */
+    public static final String SOURCE_TEXT = "ИСХОДНЫЙ_ТЕКСТ";
+    /**
+     * Переменная для вариантов объекта поиска (параметр {@code object}).
+     */
+    public static final String OBJECT_VALUES = "OBJECT_VALUES";
+    /**
+     * Переменная для перечня искомой информации (параметр {@code targets}).
+     */
+    public static final String TARGETS_VALUES = "TARGETS_VALUES";
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    private static final int WRITE_CHUNK_CHARS = 8192;
+
+    private final String template;
+    /**
+     * Неизменный текст между переменными; {@code literals[i]} предшествует {@code names[i]},
+     * последний элемент следует за последней переменной.
+     */
+    private final String[] literals;
+    private final String[] names;
+    private final int literalLength;
+    private final Set<String> variables;
+    private final int prefixLength;
+
+    /**
+     * @param template текст шаблона; не может быть {@code null}.
+     * @throws IllegalArgumentException если шаблон равен {@code null}, содержит незакрытую или некорректную
+     *                                  переменную (имя из букв, цифр и «_») или переменная
+     *                                  {@value #SOURCE_TEXT} встречается в нём не ровно один раз.
+     */
+    public PromptTemplate(String template) {
+        if (template == null) {
+            throw new IllegalArgumentException("Шаблон запроса не может быть null.");
+        }
+        List<String> literalList = new ArrayList<>();
+        List<String> nameList = new ArrayList<>();
+        int from = 0;
+        for (int start = template.indexOf(OPEN); start >= 0; start = template.indexOf(OPEN, from)) {
+            int end = template.indexOf(CLOSE, start + OPEN.length());
+            if (end < 0) {
+                throw new IllegalArgumentException("Незакрытая переменная в шаблоне, позиция " + start);
+            }
+            String name = template.substring(start + OPEN.length(), end);
+            if (!isValidName(name)) {
+                throw new IllegalArgumentException("Некорректное имя переменной " + placeholder(name)
+                        + ", позиция " + start);
+            }
+            literalList.add(template.substring(from, start));
+            nameList.add(name);
+            from = end + CLOSE.length();
+        }
+        literalList.add(template.substring(from));
+
+        int sourceOccurrences = Collections.frequency(nameList, SOURCE_TEXT);
+        if (sourceOccurrences != 1) {
+            throw new IllegalArgumentException("Шаблон должен содержать " + placeholder(SOURCE_TEXT)
+                    + " ровно один раз, найдено: " + sourceOccurrences);
+        }
+        this.template = template;
+        this.literals = literalList.toArray(new String[0]);
+        this.names = nameList.toArray(new String[0]);
+        this.literalLength = literalList.stream().mapToInt(String::length).sum();
+        this.variables = Collections.unmodifiableSet(new LinkedHashSet<>(nameList));
+        this.prefixLength = literals[0].lastIndexOf('\n') + 1;
+    }
+
+    /**
+     * @return исходный текст шаблона.
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return текст шаблона до строки, содержащей первую переменную; пустая строка, если переменная
+     * находится в первой строке.
+     */
+    public String getStaticPrefix() {
+        return template.substring(0, prefixLength);
+    }
+
+    /**
+     * @return имена переменных, встречающихся в шаблоне, в порядке первого появления.
+     */
+    public Set<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * Подставляет значения переменных в шаблон и возвращает итоговый запрос. Сегменты объединяются одним
+     * вызовом {@link String#join}, который вычисляет длину результата заранее и копирует каждый сегмент
+     * ровно один раз.
+     *
+     * @param values значения переменных; лишние значения игнорируются.
+     * @return итоговый запрос, начинающийся со {@linkplain #getStaticPrefix() статического префикса}.
+     * @throws IllegalArgumentException если для какой-либо переменной шаблона не задано значение.
+     */
+    public Prompt render(Map<String, String> values) {
+        renderedLength(values);
+        String[] parts = new String[literals.length + names.length];
+        for (int i = 0; i < names.length; i++) {
+            parts[2 * i] = literals[i];
+            parts[2 * i + 1] = values.get(names[i]);
+        }
+        parts[parts.length - 1] = literals[names.length];
+        return new Prompt(String.join("", parts), prefixLength);
+    }
+
+    /**
+     * Подставляет значения переменных в шаблон и пишет итоговый запрос в приёмник, например
+     * {@link java.io.Writer} файла, не собирая его в памяти.
+     *
+     * @param values значения переменных; лишние значения игнорируются.
+     * @param out    приёмник итогового запроса.
+     * @return число записанных символов.
+     * @throws IllegalArgumentException если для какой-либо переменной шаблона не задано значение.
+     * @throws IOException              если в приёмник не удалось записать.
+     */
+    public long renderTo(Map<String, String> values, Appendable out) throws IOException {
+        int length = renderedLength(values);
+        char[] buffer = out instanceof Writer ? new char[WRITE_CHUNK_CHARS] : null;
+        for (int i = 0; i < names.length; i++) {
+            append(literals[i], out, buffer);
+            append(values.get(names[i]), out, buffer);
+        }
+        append(literals[names.length], out, buffer);
+        return length;
+    }
+
+    /**
+     * Вычисляет длину итогового запроса, проверяя, что для всех переменных заданы значения.
+     *
+     * @param values значения переменных.
+     * @return длина итогового запроса в символах.
+     * @throws IllegalArgumentException если для какой-либо переменной шаблона не задано значение или запрос
+     *                                  длиннее {@link Integer#MAX_VALUE} символов.
+     */
+    public int renderedLength(Map<String, String> values) {
+        long length = literalLength;
+        for (String name : names) {
+            String value = values.get(name);
+            if (value == null) {
+                throw new IllegalArgumentException("Не задано значение переменной " + placeholder(name));
+            }
+            length += value.length();
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Итоговый запрос слишком длинный: " + length + " символов");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Пишет длинный текст в {@link Writer} частями через общий буфер: {@link Writer#write(String)} копирует
+     * строку во временный массив целиком.
+     */
+    private static void append(String text, Appendable out, char[] buffer) throws IOException {
+        if (buffer == null || text.length() <= buffer.length) {
+            out.append(text);
+            return;
+        }
+        Writer writer = (Writer) out;
+        for (int start = 0; start < text.length(); start += buffer.length) {
+            int end = Math.min(text.length(), start + buffer.length);
+            text.getChars(start, end, buffer, 0);
+            writer.write(buffer, 0, end - start);
+        }
+    }
+
+    static String placeholder(String name) {
+        return OPEN + name + CLOSE;
+    }
+
+    private static boolean isValidName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничитель частоты запросов по алгоритму «ведро с токенами» (token bucket).
+ * <p>
+ * Одновременно контролирует две квоты модели: число запросов в минуту и число входных токенов
+ * в минуту. Запрос пропускается, только если в обоих «вёдрах» достаточно запаса; иначе вызывающий
+ * поток ожидает пополнения. Неположительное значение квоты означает отсутствие ограничения.
+ * <p>
+ * Класс потокобезопасен.
+ */
+public class RateLimiter {
+
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final double requestCapacity;
+    private final double tokenCapacity;
+    private final LongSupplier clock;
+
+    private double availableRequests;
+    private double availableTokens;
+    private long lastRefill;
+
+    /**
+     * @param requestsPerMinute допустимое число запросов в минуту.
+     * @param tokensPerMinute   допустимое число входных токенов в минуту.
+     */
+    public RateLimiter(int requestsPerMinute, int tokensPerMinute) {
+        this(requestsPerMinute, tokensPerMinute, System::nanoTime);
+    }
+
+    RateLimiter(int requestsPerMinute, int tokensPerMinute, LongSupplier clock) {
+        this.requestCapacity = requestsPerMinute > 0 ? requestsPerMinute : Double.POSITIVE_INFINITY;
+        this.tokenCapacity = tokensPerMinute > 0 ? tokensPerMinute : Double.POSITIVE_INFINITY;
+        this.clock = clock;
+        this.availableRequests = requestCapacity;
+        this.availableTokens = tokenCapacity;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    /**
+     * Ожидает, пока квоты позволят отправить запрос указанного размера, и списывает его из квот.
+     *
+     * @param tokens оценка числа входных токенов запроса.
+     * @throws InterruptedException если ожидание было прервано.
+     */
+    public void acquire(int tokens) throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryAcquire(tokens)) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Пытается списать запрос из квот без ожидания.
+     *
+     * @param tokens оценка числа входных токенов запроса.
+     * @return 0, если запрос списан, иначе время ожидания в наносекундах до появления нужного запаса.
+     */
+    synchronized long tryAcquire(int tokens) {
+        refill();
+        // запрос крупнее минутной квоты пропускается при полном «ведре», иначе он не пройдёт никогда
+        double neededTokens = Math.min(Math.max(tokens, 0), tokenCapacity);
+        if (availableRequests >= 1 && availableTokens >= neededTokens) {
+            availableRequests -= 1;
+            availableTokens -= neededTokens;
+            return 0;
+        }
+        double requestWait = waitNanos(1 - availableRequests, requestCapacity);
+        double tokenWait = waitNanos(neededTokens - availableTokens, tokenCapacity);
+        return Math.max(1, (long) Math.ceil(Math.max(requestWait, tokenWait)));
+    }
+
+    private static double waitNanos(double deficit, double perMinute) {
+        return deficit > 0 ? deficit / perMinute * NANOS_PER_MINUTE : 0;
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+        double elapsedMinutes = (now - lastRefill) / NANOS_PER_MINUTE;
+        lastRefill = now;
+        availableRequests = refilled(availableRequests, requestCapacity, elapsedMinutes);
+        availableTokens = refilled(availableTokens, tokenCapacity, elapsedMinutes);
+    }
+
+    private static double refilled(double available, double capacity, double elapsedMinutes) {
+        if (Double.isInfinite(capacity)) {
+            return capacity;
+        }
+        return Math.min(capacity, available + elapsedMinutes * capacity);
+    }
+}
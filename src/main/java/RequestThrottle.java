@@ -0,0 +1,106 @@
+import com.google.genai.errors.ApiException;
+
+/**
+ * Клиентское регулирование запросов к Gemini API: ограничение частоты запросов и токенов
+ * ({@link RateLimiter}) и адаптивное ограничение числа одновременных запросов
+ * ({@link AdaptiveConcurrencyLimiter}).
+ * <p>
+ * Параметры читаются из {@code properties.cfg}:
+ * <ul>
+ * <li>{@value #REQUESTS_PER_MINUTE_KEY} — квота запросов в минуту;</li>
+ * <li>{@value #TOKENS_PER_MINUTE_KEY} — квота входных токенов в минуту;</li>
+ * <li>{@value #INITIAL_CONCURRENCY_KEY}, {@value #MAX_CONCURRENCY_KEY} — начальный и максимальный
+ * предел числа одновременных запросов.</li>
+ * </ul>
+ */
+public class RequestThrottle {
+
+    static final String REQUESTS_PER_MINUTE_KEY = "gemini.rateLimit.requestsPerMinute";
+    static final String TOKENS_PER_MINUTE_KEY = "gemini.rateLimit.tokensPerMinute";
+    static final String INITIAL_CONCURRENCY_KEY = "gemini.concurrency.initial";
+    static final String MAX_CONCURRENCY_KEY = "gemini.concurrency.max";
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+
+    private final RateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * @param rateLimiter        ограничитель частоты запросов и токенов.
+     * @param concurrencyLimiter ограничитель числа одновременных запросов.
+     */
+    public RequestThrottle(RateLimiter rateLimiter, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * Создаёт регулятор с параметрами из {@code properties.cfg}.
+     *
+     * @return новый регулятор запросов.
+     */
+    public static RequestThrottle fromConfig() {
+        TaskConfig config = TaskConfig.shared();
+        int maxConcurrency = Math.max(1, config.getInt(MAX_CONCURRENCY_KEY, 32));
+        int initialConcurrency = Math.min(maxConcurrency, Math.max(1, config.getInt(INITIAL_CONCURRENCY_KEY, 4)));
+        return new RequestThrottle(
+                new RateLimiter(config.getInt(REQUESTS_PER_MINUTE_KEY, 0), config.getInt(TOKENS_PER_MINUTE_KEY, 0)),
+                new AdaptiveConcurrencyLimiter(initialConcurrency, 1, maxConcurrency));
+    }
+
+    /**
+     * Ожидает разрешения на отправку запроса.
+     *
+     * @param tokens оценка числа входных токенов запроса.
+     * @return метка запроса, которую необходимо передать в {@link #release(long, Throwable)}.
+     * @throws InterruptedException если ожидание было прервано.
+     */
+    public long acquire(int tokens) throws InterruptedException {
+        long ticket = concurrencyLimiter.acquire();
+        try {
+            rateLimiter.acquire(tokens);
+        } catch (InterruptedException e) {
+            concurrencyLimiter.releaseUnchanged();
+            throw e;
+        }
+        return ticket;
+    }
+
+    /**
+     * Сообщает о завершении запроса.
+     *
+     * @param ticket метка, полученная от {@link #acquire(int)}.
+     * @param error  ошибка, которой завершился запрос, или {@code null} в случае успеха.
+     */
+    public void release(long ticket, Throwable error) {
+        if (error == null) {
+            concurrencyLimiter.release(ticket, false);
+        } else if (isThrottling(error)) {
+            concurrencyLimiter.release(ticket, true);
+        } else {
+            concurrencyLimiter.releaseUnchanged();
+        }
+    }
+
+    /**
+     * @return текущий предел числа одновременных запросов.
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimiter.getLimit();
+    }
+
+    /**
+     * Проверяет, вызвана ли ошибка превышением квоты или перегрузкой сервера (HTTP 429 или 503).
+     *
+     * @param error ошибка вызова API.
+     * @return {@code true}, если запрос отклонён из-за нагрузки.
+     */
+    static boolean isThrottling(Throwable error) {
+        if (error instanceof ApiException) {
+            int code = ((ApiException) error).code();
+            return code == HTTP_TOO_MANY_REQUESTS || code == HTTP_SERVICE_UNAVAILABLE;
+        }
+        return false;
+    }
+}
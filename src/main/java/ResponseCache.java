@@ -0,0 +1,555 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Кэш ответов Gemini API, адресуемый по содержимому запроса.
+ * <p>
+ * Ключом служит хеш SHA-256 от имени модели, параметров генерации и итогового текста запроса, поэтому
+ * повторный анализ той же страницы с теми же критериями возвращает сохранённый ответ без вызова API.
+ * Кэш состоит из двух уровней:
+ * <ol>
+ * <li>LRU-кэш в памяти на {@code maxMemoryEntries} записей;</li>
+ * <li>кэш на диске, который сохраняется между запусками JVM: файл данных {@value #DATA_FILE},
+ * в который записи только дописываются, и индекс {@value #INDEX_FILE}, отображаемый в память.</li>
+ * </ol>
+ * Записи старше {@code ttl} считаются отсутствующими. Когда файл данных превышает {@code maxDiskBytes},
+ * он уплотняется: сохраняются только самые новые записи.
+ * <p>
+ * На время работы кэш блокирует файл индекса. Если каталог уже занят другим процессом или другим экземпляром
+ * кэша, экземпляр работает только в памяти, не читая и не изменяя файлы на диске.
+ * <p>
+ * Класс потокобезопасен.
+ */
+public class ResponseCache implements AutoCloseable {
+
+    static final String ENABLED_KEY = "cache.enabled";
+    static final String DIRECTORY_KEY = "cache.directory";
+    static final String MEMORY_ENTRIES_KEY = "cache.memory.maxEntries";
+    static final String DISK_MEGABYTES_KEY = "cache.disk.maxMegabytes";
+    static final String TTL_HOURS_KEY = "cache.ttlHours";
+
+    static final String DATA_FILE = "responses.dat";
+    static final String INDEX_FILE = "responses.idx";
+
+    private static final int KEY_BYTES = 32;
+    private static final int INDEX_MAGIC = 0x47434958;
+    private static final int INDEX_HEADER_BYTES = 8;
+    /**
+     * Запись индекса: ключ, смещение записи в файле данных, время создания, длина ответа в байтах.
+     */
+    private static final int INDEX_SLOT_BYTES = KEY_BYTES + Long.BYTES + Long.BYTES + Integer.BYTES;
+    /**
+     * Заголовок записи в файле данных: ключ, время создания, длина ответа в байтах.
+     */
+    private static final int DATA_HEADER_BYTES = KEY_BYTES + Long.BYTES + Integer.BYTES;
+    private static final int INDEX_GROWTH_SLOTS = 4096;
+
+    private final Path directory;
+    private final int maxMemoryEntries;
+    private final long maxDiskBytes;
+    private final long ttlMillis;
+
+    private final Map<String, Entry> memory;
+    private final Map<String, Location> diskIndex = new HashMap<>();
+    private final ReentrantReadWriteLock diskLock = new ReentrantReadWriteLock();
+
+    private FileChannel data;
+    private FileChannel indexChannel;
+    private FileLock indexLock;
+    private MappedByteBuffer index;
+    private int indexCount;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param directory        каталог для файлов кэша; создаётся при необходимости.
+     * @param maxMemoryEntries максимальное число записей в памяти.
+     * @param maxDiskBytes     максимальный размер файла данных в байтах.
+     * @param ttlMillis        время жизни записи в миллисекундах.
+     * @throws IntegratorException выбрасывается, если файлы кэша не удалось открыть. Если каталог занят
+     *                             другим процессом, исключение не выбрасывается: кэш работает только в памяти.
+     */
+    public ResponseCache(Path directory, int maxMemoryEntries, long maxDiskBytes, long ttlMillis)
+            throws IntegratorException {
+        if (maxMemoryEntries < 0 || maxDiskBytes <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры кэша");
+        }
+        this.directory = directory;
+        this.maxMemoryEntries = maxMemoryEntries;
+        this.maxDiskBytes = maxDiskBytes;
+        this.ttlMillis = ttlMillis;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ResponseCache.this.maxMemoryEntries;
+            }
+        };
+        try {
+            Files.createDirectories(directory);
+            if (lockIndex()) {
+                openFiles();
+            } else {
+                System.err.println("Кэш ответов в каталоге " + directory
+                        + " используется другим процессом, ответы кэшируются только в памяти.");
+            }
+        } catch (IOException e) {
+            closeQuietly();
+            throw new IntegratorException("Не удалось открыть кэш ответов в каталоге " + directory, e);
+        }
+    }
+
+    /**
+     * Создаёт кэш с параметрами из {@code properties.cfg}.
+     *
+     * @return кэш ответов или {@code null}, если кэширование отключено или кэш не удалось открыть.
+     */
+    public static ResponseCache fromConfig() {
+        TaskConfig config = TaskConfig.shared();
+        if (!config.getBoolean(ENABLED_KEY, false)) {
+            return null;
+        }
+        String directory = config.getString(DIRECTORY_KEY, ".gemini-cache");
+        try {
+            return new ResponseCache(Paths.get(directory),
+                    Math.max(0, config.getInt(MEMORY_ENTRIES_KEY, 1_000)),
+                    Math.max(1, config.getInt(DISK_MEGABYTES_KEY, 512)) * 1024L * 1024L,
+                    TimeUnit.HOURS.toMillis(Math.max(1, config.getInt(TTL_HOURS_KEY, 24 * 7))));
+        } catch (IntegratorException e) {
+            System.err.println(e.getMessage() + ": " + e.getCause().getMessage() + ". Кэширование отключено.");
+            return null;
+        }
+    }
+
+    /**
+     * Вычисляет ключ кэша.
+     *
+     * @param modelName        имя модели.
+     * @param generationConfig строковое представление параметров генерации.
+     * @param prompt           итоговый текст запроса.
+     * @return шестнадцатеричное представление хеша SHA-256.
+     */
+    public static String key(String modelName, String generationConfig, String prompt) {
+        return digest(modelName, generationConfig, prompt);
+    }
+
+    /**
+     * Вычисляет ключ кэша для произвольного набора строк.
+     *
+     * @param parts составные части ключа; разделяются нулевым байтом.
+     * @return шестнадцатеричное представление хеша SHA-256.
+     */
+    public static String digest(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) {
+                    digest.update((byte) 0);
+                }
+                digest.update(parts[i].getBytes(StandardCharsets.UTF_8));
+            }
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 не поддерживается", e);
+        }
+    }
+
+    /**
+     * Возвращает сохранённый ответ.
+     *
+     * @param key ключ, вычисленный методом {@link #key(String, String, String)} или {@link #digest(String...)}.
+     * @return ответ или {@code null}, если его нет в кэше или срок его хранения истёк.
+     */
+    public String get(String key) {
+        long now = System.currentTimeMillis();
+        Entry cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+            if (cached != null && isExpired(cached.createdAt, now)) {
+                memory.remove(key);
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            return cached.value;
+        }
+        Entry stored = readFromDisk(key, now);
+        if (stored == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        diskHits.incrementAndGet();
+        synchronized (memory) {
+            memory.put(key, stored);
+        }
+        return stored.value;
+    }
+
+    /**
+     * Сохраняет ответ в памяти и на диске.
+     *
+     * @param key   ключ, вычисленный методом {@link #key(String, String, String)} или {@link #digest(String...)}.
+     * @param value ответ; {@code null} не сохраняется.
+     */
+    public void put(String key, String value) {
+        if (value == null) {
+            return;
+        }
+        Entry entry = new Entry(value, System.currentTimeMillis());
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        if (!isOnDisk()) {
+            return;
+        }
+        diskLock.writeLock().lock();
+        try {
+            append(fromHex(key), entry);
+            if (data.size() > maxDiskBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            System.err.println("Не удалось сохранить ответ в кэш на диске: " + e.getMessage());
+        } finally {
+            diskLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return {@code false}, если каталог кэша занят другим процессом и кэш работает только в памяти.
+     */
+    public boolean isOnDisk() {
+        return indexLock != null;
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHitCount() {
+        return diskHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCache[попаданий в памяти: " + memoryHits.get() + ", на диске: " + diskHits.get()
+                + ", промахов: " + misses.get() + ", вытеснено: " + evictions.get() + "]";
+    }
+
+    @Override
+    public void close() throws IOException {
+        diskLock.writeLock().lock();
+        try {
+            if (indexLock == null) {
+                return;
+            }
+            index.force();
+            data.force(true);
+            indexLock.release();
+            indexLock = null;
+            indexChannel.close();
+            data.close();
+        } finally {
+            diskLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Открывает файл индекса и блокирует его.
+     *
+     * @return {@code false}, если индекс заблокирован другим процессом или другим экземпляром кэша.
+     */
+    private boolean lockIndex() throws IOException {
+        indexChannel = FileChannel.open(directory.resolve(INDEX_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            indexLock = indexChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            indexLock = null;
+        }
+        if (indexLock == null) {
+            indexChannel.close();
+            indexChannel = null;
+            return false;
+        }
+        return true;
+    }
+
+    private void closeQuietly() {
+        try {
+            if (data != null) {
+                data.close();
+            }
+            if (indexChannel != null) {
+                indexChannel.close();
+            }
+        } catch (IOException ignored) {
+            // исходная ошибка открытия важнее
+        }
+        indexLock = null;
+    }
+
+    private boolean isExpired(long createdAt, long now) {
+        return now - createdAt > ttlMillis;
+    }
+
+    private Entry readFromDisk(String key, long now) {
+        if (!isOnDisk()) {
+            return null;
+        }
+        diskLock.readLock().lock();
+        try {
+            Location location = diskIndex.get(key);
+            if (location == null || isExpired(location.createdAt, now)) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(location.length);
+            long position = location.offset + DATA_HEADER_BYTES;
+            while (buffer.hasRemaining()) {
+                int read = data.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    return null;
+                }
+            }
+            return new Entry(new String(buffer.array(), StandardCharsets.UTF_8), location.createdAt);
+        } catch (IOException e) {
+            System.err.println("Не удалось прочитать ответ из кэша на диске: " + e.getMessage());
+            return null;
+        } finally {
+            diskLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Открывает файл данных и загружает индекс; файл индекса уже открыт и заблокирован.
+     */
+    private void openFiles() throws IOException {
+        data = FileChannel.open(directory.resolve(DATA_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        diskIndex.clear();
+        if (!loadIndex()) {
+            rebuildIndex();
+        }
+    }
+
+    /**
+     * Загружает индекс с диска. Записи, указывающие за пределы файла данных (например, после аварийного
+     * завершения), отбрасываются.
+     *
+     * @return {@code false}, если индекс отсутствует или повреждён и его нужно перестроить.
+     */
+    private boolean loadIndex() throws IOException {
+        long size = indexChannel.size();
+        if (size < INDEX_HEADER_BYTES) {
+            if (data.size() > 0) {
+                return false;
+            }
+            createIndex();
+            return true;
+        }
+        mapIndex((int) ((size - INDEX_HEADER_BYTES) / INDEX_SLOT_BYTES));
+        if (index.getInt(0) != INDEX_MAGIC) {
+            return false;
+        }
+        int count = index.getInt(4);
+        long dataSize = data.size();
+        byte[] key = new byte[KEY_BYTES];
+        int valid = 0;
+        for (int slot = 0; slot < count; slot++) {
+            int base = INDEX_HEADER_BYTES + slot * INDEX_SLOT_BYTES;
+            if (base + INDEX_SLOT_BYTES > index.capacity()) {
+                break;
+            }
+            index.get(base, key);
+            long offset = index.getLong(base + KEY_BYTES);
+            long createdAt = index.getLong(base + KEY_BYTES + Long.BYTES);
+            int length = index.getInt(base + KEY_BYTES + 2 * Long.BYTES);
+            if (offset < 0 || length < 0 || offset + DATA_HEADER_BYTES + length > dataSize) {
+                break;
+            }
+            diskIndex.put(toHex(key), new Location(offset, createdAt, length));
+            valid = slot + 1;
+        }
+        indexCount = valid;
+        index.putInt(4, indexCount);
+        return true;
+    }
+
+    /**
+     * Перестраивает индекс последовательным чтением файла данных.
+     */
+    private void rebuildIndex() throws IOException {
+        createIndex();
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_BYTES);
+        byte[] key = new byte[KEY_BYTES];
+        long position = 0;
+        long dataSize = data.size();
+        while (position + DATA_HEADER_BYTES <= dataSize) {
+            header.clear();
+            data.read(header, position);
+            header.flip();
+            header.get(key);
+            long createdAt = header.getLong();
+            int length = header.getInt();
+            if (length < 0 || position + DATA_HEADER_BYTES + length > dataSize) {
+                break;
+            }
+            addToIndex(key, new Location(position, createdAt, length));
+            position += DATA_HEADER_BYTES + length;
+        }
+        data.truncate(position);
+    }
+
+    private void createIndex() throws IOException {
+        indexChannel.truncate(0);
+        mapIndex(0);
+        index.putInt(0, INDEX_MAGIC);
+        index.putInt(4, 0);
+        indexCount = 0;
+    }
+
+    private void mapIndex(int slots) throws IOException {
+        int capacity = Math.max(slots, INDEX_GROWTH_SLOTS);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                INDEX_HEADER_BYTES + (long) capacity * INDEX_SLOT_BYTES);
+    }
+
+    private void append(byte[] key, Entry entry) throws IOException {
+        byte[] value = entry.value.getBytes(StandardCharsets.UTF_8);
+        long offset = data.size();
+        ByteBuffer record = ByteBuffer.allocate(DATA_HEADER_BYTES + value.length);
+        record.put(key).putLong(entry.createdAt).putInt(value.length).put(value).flip();
+        while (record.hasRemaining()) {
+            data.write(record, offset + record.position());
+        }
+        addToIndex(key, new Location(offset, entry.createdAt, value.length));
+    }
+
+    private void addToIndex(byte[] key, Location location) throws IOException {
+        int base = INDEX_HEADER_BYTES + indexCount * INDEX_SLOT_BYTES;
+        if (base + INDEX_SLOT_BYTES > index.capacity()) {
+            mapIndex(indexCount + INDEX_GROWTH_SLOTS);
+        }
+        index.put(base, key);
+        index.putLong(base + KEY_BYTES, location.offset);
+        index.putLong(base + KEY_BYTES + Long.BYTES, location.createdAt);
+        index.putInt(base + KEY_BYTES + 2 * Long.BYTES, location.length);
+        indexCount++;
+        // счётчик обновляется последним: незавершённая запись слота при сбое будет проигнорирована
+        index.putInt(4, indexCount);
+        diskIndex.put(toHex(key), location);
+    }
+
+    /**
+     * Переписывает файл данных, оставляя самые новые неустаревшие записи общим объёмом не более
+     * трёх четвертей допустимого размера.
+     */
+    private void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Location>> live = new ArrayList<>();
+        for (Map.Entry<String, Location> e : diskIndex.entrySet()) {
+            if (!isExpired(e.getValue().createdAt, now)) {
+                live.add(e);
+            }
+        }
+        live.sort(Comparator.comparingLong((Map.Entry<String, Location> e) -> e.getValue().createdAt).reversed());
+
+        Path compacted = directory.resolve(DATA_FILE + ".compact");
+        long budget = maxDiskBytes * 3 / 4;
+        long written = 0;
+        int kept = 0;
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, Location> e : live) {
+                long recordSize = DATA_HEADER_BYTES + e.getValue().length;
+                if (written + recordSize > budget) {
+                    break;
+                }
+                data.transferTo(e.getValue().offset, recordSize, target);
+                written += recordSize;
+                kept++;
+            }
+            target.force(true);
+        }
+        evictions.addAndGet(diskIndex.size() - kept);
+
+        // файл индекса остаётся открытым, чтобы не снимать блокировку, и перестраивается по новому файлу данных
+        data.close();
+        Files.move(compacted, directory.resolve(DATA_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexChannel.truncate(0);
+        index = null;
+        indexCount = 0;
+        openFiles();
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex, 2 * i, 2 * i + 2, 16);
+        }
+        return bytes;
+    }
+
+    private static final class Entry {
+        final String value;
+        final long createdAt;
+
+        Entry(String value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private static final class Location {
+        final long offset;
+        final long createdAt;
+        final int length;
+
+        Location(long offset, long createdAt, int length) {
+            this.offset = offset;
+            this.createdAt = createdAt;
+            this.length = length;
+        }
+    }
+}
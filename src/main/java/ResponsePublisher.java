@@ -0,0 +1,65 @@
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Издатель фрагментов потокового ответа Gemini API (см. {@link ApiCaller#streamApiCall(Prompt)}).
+ * <p>
+ * Запрос отправляется при подписке. Фрагменты передаются подписчику через {@link SubmissionPublisher},
+ * буфер которого ограничен: если подписчик не успевает обрабатывать фрагменты, чтение ответа
+ * приостанавливается. Если подписчик отменил подписку, чтение ответа прекращается.
+ * Допускается только один подписчик.
+ */
+class ResponsePublisher implements Flow.Publisher<String> {
+
+    private final Prompt prompt;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * @param prompt   запрос для LLM.
+     * @param executor исполнитель, в котором читается ответ и вызываются методы подписчика.
+     */
+    ResponsePublisher(Prompt prompt, Executor executor) {
+        this.prompt = prompt;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super String> subscriber) {
+        Objects.requireNonNull(subscriber, "Подписчик не может быть null");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Потоковый ответ допускает только одного подписчика"));
+            return;
+        }
+        SubmissionPublisher<String> publisher = new SubmissionPublisher<>(executor, Flow.defaultBufferSize());
+        publisher.subscribe(subscriber);
+        executor.execute(() -> publish(publisher));
+    }
+
+    private void publish(SubmissionPublisher<String> publisher) {
+        try {
+            ApiCaller.streamApiCall(prompt, chunk -> {
+                if (publisher.getNumberOfSubscribers() == 0) {
+                    throw new CancellationException("Подписчик отменил получение ответа");
+                }
+                publisher.submit(chunk);
+            });
+            publisher.close();
+        } catch (IntegratorException | RuntimeException e) {
+            publisher.closeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+import com.google.genai.errors.ApiException;
+import com.google.genai.errors.GenAiIOException;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Политика повторных запросов к Gemini API.
+ * <p>
+ * Повторяются только временные ошибки: превышение квоты и перегрузка (HTTP 429, 503), ошибки
+ * сервера (500, 502, 504), тайм-аут запроса (408) и ошибки ввода-вывода. Пауза перед повтором растёт
+ * экспоненциально и выбирается случайно в пределах {@code [0, min(maxDelay, initialDelay * 2^n))}
+ * («full jitter»), чтобы одновременно отказавшие запросы не повторялись синхронно. Число попыток
+ * и общее время выполнения запроса ограничены.
+ * <p>
+ * Политика также задаёт параметры «хеджированных» запросов: если запрос выполняется дольше порога,
+ * отправляется второй такой же запрос и используется ответ, полученный первым. Порог задаётся явно
+ * или, при значении 0, равен 95-му процентилю времени ответа последних запросов.
+ * <p>
+ * Параметры читаются из {@code properties.cfg} (см. {@link #fromConfig()}).
+ */
+public final class RetryPolicy {
+
+    static final String MAX_ATTEMPTS_KEY = "retry.maxAttempts";
+    static final String INITIAL_DELAY_KEY = "retry.initialDelayMs";
+    static final String MAX_DELAY_KEY = "retry.maxDelayMs";
+    static final String DEADLINE_KEY = "retry.deadlineMs";
+    static final String HEDGE_ENABLED_KEY = "hedge.enabled";
+    static final String HEDGE_DELAY_KEY = "hedge.delayMs";
+
+    private final int maxAttempts;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final long deadlineMillis;
+    private final boolean hedgeEnabled;
+    private final long hedgeDelayMillis;
+
+    /**
+     * @param maxAttempts        максимальное число попыток, включая первую.
+     * @param initialDelayMillis базовая пауза перед первым повтором.
+     * @param maxDelayMillis     максимальная пауза между попытками.
+     * @param deadlineMillis     максимальное общее время выполнения запроса со всеми повторами.
+     * @param hedgeEnabled       разрешены ли хеджированные запросы.
+     * @param hedgeDelayMillis   задержка перед хеджированным запросом; 0 — 95-й процентиль времени ответа.
+     * @throws IllegalArgumentException если параметры заданы некорректно.
+     */
+    public RetryPolicy(int maxAttempts, long initialDelayMillis, long maxDelayMillis, long deadlineMillis,
+                       boolean hedgeEnabled, long hedgeDelayMillis) {
+        if (maxAttempts < 1 || initialDelayMillis < 0 || maxDelayMillis < initialDelayMillis
+                || deadlineMillis <= 0 || hedgeDelayMillis < 0) {
+            throw new IllegalArgumentException("Некорректные параметры политики повторов");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.deadlineMillis = deadlineMillis;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeDelayMillis = hedgeDelayMillis;
+    }
+
+    /**
+     * Создаёт политику с параметрами из {@code properties.cfg}.
+     *
+     * @return политика повторных запросов.
+     */
+    public static RetryPolicy fromConfig() {
+        TaskConfig config = TaskConfig.shared();
+        return new RetryPolicy(
+                Math.max(1, config.getInt(MAX_ATTEMPTS_KEY, 4)),
+                Math.max(0, config.getInt(INITIAL_DELAY_KEY, 500)),
+                Math.max(0, config.getInt(MAX_DELAY_KEY, 8_000)),
+                Math.max(1, config.getInt(DEADLINE_KEY, 120_000)),
+                config.getBoolean(HEDGE_ENABLED_KEY, false),
+                Math.max(0, config.getInt(HEDGE_DELAY_KEY, 0)));
+    }
+
+    /**
+     * Определяет, имеет ли смысл повторять запрос, завершившийся указанной ошибкой.
+     *
+     * @param error ошибка вызова API.
+     * @return {@code true} для временных ошибок.
+     */
+    public boolean isRetryable(Throwable error) {
+        if (error instanceof GenAiIOException) {
+            return true;
+        }
+        if (error instanceof ApiException) {
+            int code = ((ApiException) error).code();
+            return code == 408 || code == 429 || code == 500 || code == 502 || code == 503 || code == 504;
+        }
+        return false;
+    }
+
+    /**
+     * Вычисляет случайную паузу перед повтором.
+     *
+     * @param retry номер повтора, начиная с 1.
+     * @return пауза в миллисекундах.
+     */
+    public long backoffMillis(int retry) {
+        long ceiling = initialDelayMillis;
+        for (int i = 1; i < retry && ceiling < maxDelayMillis; i++) {
+            ceiling *= 2;
+        }
+        ceiling = Math.min(ceiling, maxDelayMillis);
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public boolean isHedgeEnabled() {
+        return hedgeEnabled;
+    }
+
+    public long getHedgeDelayMillis() {
+        return hedgeDelayMillis;
+    }
+}
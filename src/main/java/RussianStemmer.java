@@ -0,0 +1,109 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Утилитный класс для приведения слов русского языка к упрощённой основе.
+ * <p>
+ * Слово приводится к нижнему регистру, «ё» заменяется на «е», затем отсекается самое длинное из типичных
+ * окончаний существительных и прилагательных и конечные гласные, «й» и «ь». Так разные падежные формы
+ * одного слова получают одну основу: «Андрей», «Андрея», «Андреем» → «андр»; «князь», «князю» → «княз».
+ * Основа не бывает короче трёх символов. Методы, работающие с буфером символов, не создают объектов.
+ */
+public final class RussianStemmer {
+
+    private static final int MIN_STEM_LENGTH = 3;
+    private static final String STRIPPED_TAIL = "аеиоуыэюяйь";
+
+    private static final char[][] NO_ENDINGS = new char[0][];
+    private static final char FIRST_LETTER = 'а';
+    private static final char LAST_LETTER = 'я';
+
+    /**
+     * Окончания, отсекаемые при выделении основы, сгруппированные по последней букве и упорядоченные
+     * по убыванию длины внутри группы.
+     */
+    private static final char[][][] ENDINGS = byLastLetter(
+            "ями", "ами", "ими", "ыми", "его", "ого", "ему", "ому",
+            "ее", "ие", "ые", "ое", "ей", "ий", "ый", "ой", "ем", "им", "ым", "ом", "их", "ых",
+            "ую", "юю", "ая", "яя", "ою", "ею", "ах", "ях", "ам", "ям", "ов", "ев",
+            "а", "я", "о", "е", "и", "ы", "у", "ю", "ь", "й");
+
+    private RussianStemmer() {
+    }
+
+    /**
+     * Возвращает основу слова.
+     *
+     * @param word слово.
+     * @return основа в нижнем регистре.
+     */
+    public static String stem(String word) {
+        char[] buffer = new char[word.length()];
+        int length = normalize(word, 0, word.length(), buffer);
+        return new String(buffer, 0, stemLength(buffer, length));
+    }
+
+    /**
+     * Копирует слово в буфер в нижнем регистре с заменой «ё» на «е».
+     *
+     * @param text   текст, содержащий слово.
+     * @param start  начало слова.
+     * @param end    конец слова (не включая).
+     * @param buffer буфер длиной не меньше длины слова.
+     * @return длина слова.
+     */
+    static int normalize(CharSequence text, int start, int end, char[] buffer) {
+        for (int i = start; i < end; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            buffer[i - start] = c == 'ё' ? 'е' : c;
+        }
+        return end - start;
+    }
+
+    /**
+     * Вычисляет длину основы нормализованного слова, находящегося в начале буфера.
+     *
+     * @param word   буфер со словом, приведённым {@link #normalize(CharSequence, int, int, char[])}.
+     * @param length длина слова.
+     * @return длина основы.
+     */
+    static int stemLength(char[] word, int length) {
+        int stem = length;
+        char last = length > 0 ? word[length - 1] : 0;
+        char[][] endings = last >= FIRST_LETTER && last <= LAST_LETTER ? ENDINGS[last - FIRST_LETTER] : NO_ENDINGS;
+        for (char[] ending : endings) {
+            if (length - ending.length >= MIN_STEM_LENGTH && endsWith(word, length, ending)) {
+                stem = length - ending.length;
+                break;
+            }
+        }
+        while (stem > MIN_STEM_LENGTH && STRIPPED_TAIL.indexOf(word[stem - 1]) >= 0) {
+            stem--;
+        }
+        return stem;
+    }
+
+    private static boolean endsWith(char[] word, int length, char[] ending) {
+        int offset = length - ending.length;
+        for (int i = 0; i < ending.length; i++) {
+            if (word[offset + i] != ending[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char[][][] byLastLetter(String... endings) {
+        char[][][] result = new char[LAST_LETTER - FIRST_LETTER + 1][][];
+        for (int letter = 0; letter < result.length; letter++) {
+            List<char[]> group = new ArrayList<>();
+            for (String ending : endings) {
+                if (ending.charAt(ending.length() - 1) == FIRST_LETTER + letter) {
+                    group.add(ending.toCharArray());
+                }
+            }
+            result[letter] = group.toArray(NO_ENDINGS);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,35 @@
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Утилитный класс для разбиения текста на предложения по правилам русского языка.
+ */
+public final class SentenceSplitter {
+
+    private static final Locale RUSSIAN = new Locale("ru");
+
+    private SentenceSplitter() {
+    }
+
+    /**
+     * Разбивает текст на предложения.
+     *
+     * @param text текст.
+     * @return непустые предложения без начальных и конечных пробелов в порядке следования в тексте.
+     */
+    public static List<String> split(String text) {
+        List<String> sentences = new ArrayList<>();
+        BreakIterator iterator = BreakIterator.getSentenceInstance(RUSSIAN);
+        iterator.setText(text);
+        int start = iterator.first();
+        for (int end = iterator.next(); end != BreakIterator.DONE; start = end, end = iterator.next()) {
+            String sentence = text.substring(start, end).strip();
+            if (!sentence.isEmpty()) {
+                sentences.add(sentence);
+            }
+        }
+        return sentences;
+    }
+}
@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Поэтапная обработка документа по стадиям {@link Mode}: {@link Mode#ORIGINAL} → {@link Mode#CLEANED} →
+ * {@link Mode#PURIFIED} → {@link Mode#FINAL}.
+ * <p>
+ * Каждая стадия, кроме исходной, получается из предыдущей отдельным шагом. Результат шага кэшируется по
+ * ключу, составленному из номера стадии, отпечатка параметров шага и хеша SHA-256 входного текста, поэтому
+ * повторный анализ того же документа с другим prompt берёт очищенный и отфильтрованный текст из кэша,
+ * не разбирая HTML заново. Стадии вычисляются лениво: запрос стадии выполняет только шаги до неё.
+ * <p>
+ * Хранилищем служит {@link ResponseCache} (в памяти и на диске); без кэша шаги выполняются при каждом
+ * запросе документа, но не чаще одного раза для одного {@link Document}. Экземпляр неизменяем и
+ * потокобезопасен, если потокобезопасны его шаги.
+ */
+public class StagePipeline {
+
+    static final String ENABLED_KEY = "stages.cache.enabled";
+    static final String DIRECTORY_KEY = "stages.cache.directory";
+    static final String MEMORY_ENTRIES_KEY = "stages.cache.memory.maxEntries";
+
+    /**
+     * Шаг обработки: получает текст следующей стадии из текста предыдущей.
+     */
+    @FunctionalInterface
+    public interface Step {
+        String apply(String input) throws IntegratorException;
+    }
+
+    private static final class Stage {
+        final int mode;
+        final Supplier<String> fingerprint;
+        final Step step;
+
+        Stage(int mode, Supplier<String> fingerprint, Step step) {
+            this.mode = mode;
+            this.fingerprint = fingerprint;
+            this.step = step;
+        }
+    }
+
+    private static ResponseCache sharedCache;
+    private static boolean sharedCacheConfigured;
+
+    private final ResponseCache cache;
+    private final List<Stage> stages;
+
+    /**
+     * @param cache хранилище результатов шагов или {@code null}, чтобы не кэшировать.
+     */
+    public StagePipeline(ResponseCache cache) {
+        this(cache, List.of());
+    }
+
+    private StagePipeline(ResponseCache cache, List<Stage> stages) {
+        this.cache = cache;
+        this.stages = stages;
+    }
+
+    /**
+     * Возвращает общее хранилище результатов шагов с параметрами из {@code properties.cfg}, открывая его при
+     * первом обращении. {@link ResponseCache} блокирует каталог, и второй экземпляр над тем же каталогом
+     * работал бы только в памяти, поэтому в одном процессе каталог кэша открывается только здесь; при
+     * завершении JVM хранилище закрывается shutdown hook'ом.
+     *
+     * @return хранилище или {@code null}, если кэширование стадий отключено или хранилище не удалось открыть.
+     */
+    public static synchronized ResponseCache sharedCache() {
+        if (!sharedCacheConfigured) {
+            sharedCache = cacheFromConfig();
+            sharedCacheConfigured = true;
+            if (sharedCache != null) {
+                ResponseCache cache = sharedCache;
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> close(cache), "stage-cache-shutdown"));
+            }
+        }
+        return sharedCache;
+    }
+
+    private static void close(ResponseCache cache) {
+        try {
+            cache.close();
+        } catch (IOException e) {
+            System.err.println("Ошибка при закрытии кэша стадий: " + e.getMessage());
+        }
+    }
+
+    private static ResponseCache cacheFromConfig() {
+        TaskConfig config = TaskConfig.shared();
+        if (!config.getBoolean(ENABLED_KEY, false)) {
+            return null;
+        }
+        String directory = config.getString(DIRECTORY_KEY, ".gemini-cache/stages");
+        try {
+            return new ResponseCache(Paths.get(directory),
+                    Math.max(0, config.getInt(MEMORY_ENTRIES_KEY, 100)),
+                    Math.max(1, config.getInt(ResponseCache.DISK_MEGABYTES_KEY, 512)) * 1024L * 1024L,
+                    TimeUnit.HOURS.toMillis(Math.max(1, config.getInt(ResponseCache.TTL_HOURS_KEY, 24 * 7))));
+        } catch (IntegratorException e) {
+            System.err.println(e.getMessage() + ": " + e.getCause().getMessage() + ". Кэширование стадий отключено.");
+            return null;
+        }
+    }
+
+    /**
+     * Возвращает конвейер, дополненный шагом, который вычисляет стадию {@code mode} из последней стадии
+     * конвейера.
+     *
+     * @param mode        стадия {@link Mode}; должна следовать за последней стадией конвейера.
+     * @param fingerprint отпечаток параметров шага (настроек, шаблона и т.п.); вычисляется при каждом
+     *                    запросе стадии, и смена отпечатка делает прежний результат шага недействительным.
+     * @param step        шаг обработки.
+     * @return новый конвейер.
+     * @throws IllegalArgumentException если стадии добавляются не по возрастанию.
+     */
+    public StagePipeline then(int mode, Supplier<String> fingerprint, Step step) {
+        int previous = stages.isEmpty() ? Mode.ORIGINAL : stages.get(stages.size() - 1).mode;
+        if (mode <= previous) {
+            throw new IllegalArgumentException("Стадия " + mode + " должна следовать за стадией " + previous);
+        }
+        List<Stage> extended = new ArrayList<>(stages);
+        extended.add(new Stage(mode, fingerprint, step));
+        return new StagePipeline(cache, List.copyOf(extended));
+    }
+
+    /**
+     * @param original исходный набор данных ({@link Mode#ORIGINAL}).
+     * @return документ, стадии которого вычисляются по запросу.
+     */
+    public Document document(String original) {
+        return new Document(original);
+    }
+
+    /**
+     * Документ, обрабатываемый конвейером. Вычисленные стадии запоминаются; экземпляр не потокобезопасен.
+     */
+    public final class Document {
+        private final String[] values = new String[stages.size() + 1];
+
+        private Document(String original) {
+            values[0] = original;
+        }
+
+        /**
+         * Возвращает текст стадии, вычисляя при необходимости предыдущие стадии.
+         *
+         * @param mode стадия {@link Mode}.
+         * @return текст стадии.
+         * @throws IllegalArgumentException если конвейер не содержит такой стадии.
+         * @throws IntegratorException      если шаг обработки завершился ошибкой.
+         */
+        public String get(int mode) throws IntegratorException {
+            return compute(indexOf(mode));
+        }
+
+        private String compute(int index) throws IntegratorException {
+            if (values[index] != null) {
+                return values[index];
+            }
+            String input = compute(index - 1);
+            Stage stage = stages.get(index - 1);
+            String key = cache == null ? null
+                    : ResponseCache.digest("stage", Integer.toString(stage.mode), stage.fingerprint.get(), input);
+            String value = key == null ? null : cache.get(key);
+            if (value == null) {
+                value = stage.step.apply(input);
+                if (value == null) {
+                    throw new IntegratorException("Стадия " + stage.mode + " не получила результата");
+                }
+                if (key != null) {
+                    cache.put(key, value);
+                }
+            }
+            values[index] = value;
+            return value;
+        }
+
+        private int indexOf(int mode) {
+            if (mode == Mode.ORIGINAL) {
+                return 0;
+            }
+            for (int i = 0; i < stages.size(); i++) {
+                if (stages.get(i).mode == mode) {
+                    return i + 1;
+                }
+            }
+            throw new IllegalArgumentException("Конвейер не содержит стадию " + mode);
+        }
+    }
+}
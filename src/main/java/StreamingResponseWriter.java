@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+/**
+ * Получатель потокового ответа LLM, который дописывает фрагменты ответа в файл по мере их поступления.
+ * <p>
+ * Если задан {@link Reporter}, каждая завершённая строка ответа (например, {@code target: ...})
+ * передаётся в него сразу после получения, не дожидаясь окончания ответа. В памяти хранится только
+ * незавершённая строка, поэтому расход памяти не зависит от длины ответа. Строки передаются по одной, поэтому
+ * получатель должен помнить текущую группу ответа сам: для {@link TargetReporter} это сеанс
+ * {@link TargetReporter#session()}, создаваемый для каждого ответа.
+ */
+public class StreamingResponseWriter implements Flow.Subscriber<String> {
+
+    private final Path outputFile;
+    private final Reporter<String> reporter;
+    private final String title;
+    private final CompletableFuture<Long> completion = new CompletableFuture<>();
+    private final StringBuilder pendingLine = new StringBuilder();
+
+    private Flow.Subscription subscription;
+    private Writer writer;
+    private long length;
+
+    /**
+     * @param outputFile файл для ответа; существующий файл перезаписывается.
+     */
+    public StreamingResponseWriter(Path outputFile) {
+        this(outputFile, null, null);
+    }
+
+    /**
+     * @param outputFile файл для ответа; существующий файл перезаписывается.
+     * @param reporter   получатель строк ответа или {@code null}; для {@link TargetReporter} — новый
+     *                   {@link TargetReporter#session()} для этого ответа.
+     * @param title      описание наборов данных, передаваемых в {@code reporter}.
+     */
+    public StreamingResponseWriter(Path outputFile, Reporter<String> reporter, String title) {
+        this.outputFile = outputFile;
+        this.reporter = reporter;
+        this.title = title;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        try {
+            writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            subscription.cancel();
+            completion.completeExceptionally(
+                    new IntegratorException("Не удалось открыть файл '" + outputFile + "' для записи", e));
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(String chunk) {
+        if (completion.isDone()) {
+            return;
+        }
+        try {
+            writer.write(chunk);
+            writer.flush();
+            length += chunk.length();
+            reportCompleteLines(chunk);
+        } catch (IOException | IntegratorException e) {
+            subscription.cancel();
+            fail(e instanceof IntegratorException ? (IntegratorException) e
+                    : new IntegratorException("Не удалось записать ответ в файл '" + outputFile + "'", e));
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        fail(error instanceof IntegratorException ? (IntegratorException) error
+                : new IntegratorException("Ошибка при получении ответа: " + error.getMessage(), error));
+    }
+
+    @Override
+    public void onComplete() {
+        if (completion.isDone()) {
+            return;
+        }
+        try {
+            reportLine(pendingLine.toString());
+            pendingLine.setLength(0);
+            writer.close();
+            System.out.println("Успешно записал в файл: " + outputFile);
+            completion.complete(length);
+        } catch (IOException | IntegratorException e) {
+            fail(e instanceof IntegratorException ? (IntegratorException) e
+                    : new IntegratorException("Не удалось записать ответ в файл '" + outputFile + "'", e));
+        }
+    }
+
+    /**
+     * Ожидает окончания ответа.
+     *
+     * @return длина записанного ответа в символах.
+     * @throws IntegratorException выбрасывается, если ответ не удалось получить или записать.
+     */
+    public long await() throws IntegratorException {
+        try {
+            return completion.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (subscription != null) {
+                subscription.cancel();
+            }
+            throw new IntegratorException("Ожидание ответа прервано", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IntegratorException ? (IntegratorException) cause
+                    : new IntegratorException("Ошибка при получении ответа", cause);
+        }
+    }
+
+    private void reportCompleteLines(String chunk) throws IntegratorException {
+        int start = 0;
+        int newline;
+        while ((newline = chunk.indexOf('\n', start)) >= 0) {
+            pendingLine.append(chunk, start, newline);
+            reportLine(pendingLine.toString());
+            pendingLine.setLength(0);
+            start = newline + 1;
+        }
+        pendingLine.append(chunk, start, chunk.length());
+    }
+
+    private void reportLine(String line) throws IntegratorException {
+        if (reporter != null && !line.isBlank()) {
+            reporter.add(new TextData(title, line.strip()));
+        }
+    }
+
+    private void fail(IntegratorException error) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                error.addSuppressed(e);
+            }
+        }
+        completion.completeExceptionally(error);
+    }
+}
@@ -1,6 +1,11 @@
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class StringAnalyzer implements Analyzer<String>{
@@ -10,24 +15,102 @@ public class StringAnalyzer implements Analyzer<String>{
     private static final String geminiBasePromptInputPath = "baseGeminiPrompt.txt";
     private static final String geminiApiOutputPath = "geminiOutput.txt";
     private static final String geminiPromptOutputPath = "geminiPromptOutput.txt";
+    static final String STREAMING_KEY = "gemini.streaming";
+
+    /**
+     * Параметры критериев поиска, которые можно задать для отдельного анализатора вместо {@code properties.cfg}.
+     */
+    static final List<String> CRITERIA_KEYS = List.of("object", "additions", "targets");
+
+    private final boolean stageCacheConfigured;
+    private final ResponseCache stageCache;
+    private final Map<String, String> criteria;
+    private volatile PromptTemplate promptTemplate;
+    private volatile StagePipeline stages;
+
+    /**
+     * Создаёт анализатор, кэширующий стадии обработки документов в хранилище, заданном в {@code properties.cfg}
+     * (см. {@link StagePipeline#sharedCache()}); хранилище открывается при первом анализе и общее для всех
+     * таких анализаторов.
+     */
+    public StringAnalyzer() {
+        this.stageCacheConfigured = false;
+        this.stageCache = null;
+        this.criteria = Map.of();
+    }
+
+    /**
+     * @param stageCache хранилище стадий обработки документов или {@code null}, чтобы не кэшировать стадии.
+     */
+    public StringAnalyzer(ResponseCache stageCache) {
+        this(stageCache, Map.of());
+    }
+
+    /**
+     * Создаёт анализатор с собственными критериями поиска, например, для задания, полученного по сети
+     * ({@link AnalysisServer}). Хранилище стадий можно разделять между анализаторами: критерии входят
+     * в отпечатки стадий, поэтому результаты для разных критериев не смешиваются.
+     *
+     * @param stageCache хранилище стадий обработки документов или {@code null}, чтобы не кэшировать стадии.
+     * @param criteria   значения параметров из {@link #CRITERIA_KEYS}; незаданные параметры читаются из
+     *                   {@code properties.cfg}.
+     */
+    public StringAnalyzer(ResponseCache stageCache, Map<String, String> criteria) {
+        this.stageCacheConfigured = true;
+        this.stageCache = stageCache;
+        Map<String, String> own = new HashMap<>();
+        for (String key : CRITERIA_KEYS) {
+            String value = criteria.get(key);
+            if (value != null) {
+                own.put(key, value);
+            }
+        }
+        this.criteria = Map.copyOf(own);
+    }
 
     /**
      * Выполняет анализ заданного исходного набора данных:
-     * 1. Считывает «сырое» HTML из файла {@value #rawInputPath}.
-     * 2. Удаляет теги {@code <noscript>}, {@code <script>}, {@code <style>}, {@code <iframe>}
+     * 1. Считывает «сырое» HTML из файла {@value #rawInputPath} ({@link Mode#ORIGINAL}).
+     * 2. Удаляет теги {@code <noscript>}, {@code <script>}, {@code <style>}, {@code <iframe>} ({@link Mode#CLEANED}).
      * 3. Пишет очищенный текст в {@value #htmlCleanedOutputPath}.
-     * 4. Считывает конфигурацию из properties «object», «additions», «targets».
-     * 5. Строит prompt по шаблону из {@value #geminiBasePromptInputPath}.
-     * 6. Записывает финальный prompt в {@value #geminiPromptOutputPath}.
-     * 7. Вызывает Gemini API через {@link ApiCaller#makeApiCall(String, String)}.
-     * 8. Пишет ответ LLM в {@value #geminiApiOutputPath}.
+     * 4. Отбирает предложения, содержащие {@code object} ({@link Mode#PURIFIED}).
+     * 5. Считывает конфигурацию из properties «object», «additions», «targets».
+     * 6. Строит prompt по шаблону из {@value #geminiBasePromptInputPath} с помощью {@link PromptTemplate}.
+     * 7. Записывает финальный prompt в {@value #geminiPromptOutputPath}.
+     * 8. Вызывает Gemini API через {@link ApiCaller#makeApiCall(Prompt)} ({@link Mode#FINAL}).
+     * 9. Пишет ответ LLM в {@value #geminiApiOutputPath}.
+     * <p>
+     * Файлы пишутся асинхронно ({@link AsyncFileWriter}); перед возвратом метод дожидается записи ответа.
+     * Промежуточные файлы шагов 3 и 7 не пишутся, если параметр {@value AsyncFileWriter#DEBUG_ARTIFACTS_KEY}
+     * равен {@code false}.
+     * <p>
+     * Стадии {@link Mode#CLEANED} и {@link Mode#PURIFIED} вычисляются конвейером {@link StagePipeline} и
+     * кэшируются по хешу входного текста, поэтому повторный анализ той же страницы с другим prompt или критериями
+     * не разбирает HTML заново. Ответ LLM в кэш стадий не попадает: ответы кэширует {@link ResponseCache}
+     * в {@link ApiCaller} с его параметрами включения и срока хранения.
+     * <p>
+     * Если параметр {@value #STREAMING_KEY} равен {@code true}, шаги 8 и 9 выполняются в потоковом режиме
+     * ({@link ApiCaller#streamApiCall(Prompt)}): фрагменты ответа дописываются в файл по мере получения.
+     * <p>
+     * Если параметр {@value ApiCaller#STRUCTURED_OUTPUT_KEY} равен {@code true}, ответ запрашивается в формате
+     * JSON ({@link ApiCaller#makeStructuredApiCall(Prompt, List)}) и записывается в том же текстовом формате;
+     * при включённом потоковом режиме JSON разбирается по мере получения.
+     * <p>
+     * Если включён локальный фильтр {@link ObjectFilter} (параметр {@value ObjectFilter#ENABLED_KEY}),
+     * в prompt попадают только предложения, содержащие {@code object}, и их ближайший контекст; если
+     * таких предложений нет, Gemini API не вызывается, а для всех {@code targets} записывается {@code Not Found}.
+     * <p>
+     * Если текст не помещается в один запрос (параметр {@value ChunkedExtractor#MAX_TOKENS_KEY}), он
+     * обрабатывается по частям {@link ChunkedExtractor}, а в {@value #geminiApiOutputPath} записывается
+     * объединённый ответ; шаги 6–8 в этом случае выполняются для каждой части, и prompt в файл не пишется.
      *
      * @param data исходный набор данных для анализа. Обязательно ненулевой,
      *             и {@link Data#getContent()} тоже не должен быть null.
-     * @return Пока всегда возвращает null (запись результата производится в файл).
-     *         В будущем здесь должен возвращаться {@code Data<String>}
-     *         с результатом анализа (LLM-ответом).
-     * @throws IntegratorException если {@code data} или его содержимое null.
+     * @return ответ LLM в виде {@link TextData}; описанием служит путь {@value #geminiApiOutputPath}. Ответ
+     *         хранится в памяти, поэтому не меняется, когда следующий вызов перезаписывает файл.
+     * @throws IntegratorException если {@code data} или его содержимое null, не заданы критерии поиска
+     *                             {@link TaskConfig#REQUIRED_KEYS} или Gemini API не вернул ответ после всех
+     *                             повторных попыток.
      * @throws RuntimeException    если падает чтение/запись файлов или сборка prompt.
      */
     @Override
@@ -41,34 +124,47 @@ public class StringAnalyzer implements Analyzer<String>{
         }
 
         String rawHtml = FileHandler.readFromFile(rawInputPath);
+        StagePipeline.Document document = getStages().document(rawHtml);
 
-        // remove HTML tags
-        Document doc = Jsoup.parse(rawHtml);
-        doc.select("noscript, script, style, iframe, link[rel=stylesheet], meta, head title")
-                .remove();
-        String processedHtml = doc.text();
-        FileHandler.writeToFile(htmlCleanedOutputPath, processedHtml);
+        boolean debugArtifacts = AsyncFileWriter.isDebugArtifactsEnabled();
+        String processedHtml = document.get(Mode.CLEANED);
+        if (debugArtifacts) {
+            FileHandler.writeToFile(htmlCleanedOutputPath, processedHtml);
+        }
 
-        // read config
-        Map<String, String> configValues =
-                FileHandler.readSpecificProperties("object", "additions", "targets");
-        String objectValue = configValues.get("object");
-        String targetsValue = configValues.get("targets");
-
-        String promptTemplate = FileHandler.readFromFile(geminiBasePromptInputPath);
-        // assemble final prompt
-        String finalGeminiPrompt = promptTemplate
-                .replace("{{ИСХОДНЫЙ_ТЕКСТ}}", processedHtml)
-                .replace("{{OBJECT_VALUES}}", objectValue)
-                .replace("{{TARGETS_VALUES}}", targetsValue);
-
-        FileHandler.writeToFile(geminiPromptOutputPath,finalGeminiPrompt);
-        String geminiOutput = ApiCaller.makeApiCall(processedHtml, finalGeminiPrompt);
-        FileHandler.writeToFile(geminiApiOutputPath, geminiOutput);
-
-        //возвращаю null, потому что реализации Data у меня нет. Это нестрашно, потому что запись в файл результата
-        //все равно будет
-        return null;
+        String candidates = document.get(Mode.PURIFIED);
+        if (!candidates.isEmpty()) {
+            ChunkedExtractor chunkedExtractor = ChunkedExtractor.fromConfig(this::buildPrompt, targets());
+            if (chunkedExtractor == null || !chunkedExtractor.needsChunking(candidates)) {
+                Prompt finalGeminiPrompt = buildPrompt(candidates);
+                if (debugArtifacts) {
+                    FileHandler.writeToFile(geminiPromptOutputPath, finalGeminiPrompt.getText());
+                }
+                if (isStreamingEnabled() && !isStructuredOutputEnabled()) {
+                    StreamingResponseWriter writer = new StreamingResponseWriter(Paths.get(geminiApiOutputPath));
+                    ApiCaller.streamApiCall(finalGeminiPrompt).subscribe(writer);
+                    writer.await();
+                    return new TextData(geminiApiOutputPath, readStreamedAnswer());
+                }
+            }
+        }
+        String answer = answer(candidates);
+        FileHandler.writeToFile(geminiApiOutputPath, answer);
+        FileHandler.awaitWrites();
+
+        return new TextData(geminiApiOutputPath, answer);
+    }
+
+    /**
+     * Читает ответ, только что записанный {@link StreamingResponseWriter}, пока файл не перезаписан следующим
+     * вызовом.
+     */
+    private static String readStreamedAnswer() throws IntegratorException {
+        try {
+            return Files.readString(Paths.get(geminiApiOutputPath), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IntegratorException("Не удалось прочитать ответ из файла " + geminiApiOutputPath, e);
+        }
     }
 
 
@@ -76,15 +172,117 @@ public class StringAnalyzer implements Analyzer<String>{
 
 
     /**
-     * Метод выполняет анализ источника данных без преобразования исходного типа данных.
+     * Выполняет анализ источника данных: очищает HTML источника, строит prompt и вызывает Gemini API.
+     * В отличие от {@link #analyze(Data)}, промежуточные результаты в файлы не записываются, поэтому
+     * метод можно вызывать одновременно из нескольких потоков (см. {@link AnalysisPipeline}). Стадии
+     * обработки, локальная фильтрация предложений и обработка по частям выполняются так же, как
+     * в {@link #analyze(Data)}.
      *
      * @param source источник данных для анализа.
-     * @return возвращается результат анализа в исходном формате источника данных.
-     * @throws IntegratorException выбрасывается в случае невозможности выполнить анализ данных.
+     * @return ответ LLM; описанием набора данных служит описание источника.
+     * @throws IntegratorException выбрасывается в случае невозможности получить содержание источника
+     *                             или ответ LLM, а также если не заданы критерии поиска.
      */
     @Override
     public Data<String> analyze(Source<String> source) throws IntegratorException {
-        return null;
+        return new TextData(source == null ? null : source.getTitle(),
+                answer(getStages().document(rawHtmlOf(source)).get(Mode.PURIFIED)));
+    }
+
+    /**
+     * Анализирует источники одним пакетным заданием Gemini Batch API ({@link BatchCaller}): для каждого
+     * источника вычисляется стадия {@link Mode#PURIFIED}, все prompt отправляются в одном задании, и ответы
+     * сопоставляются с источниками по ключу. Для источников без упоминаний {@code object} запрос не
+     * отправляется. Режим подходит для больших заданий, которым не важно время ответа.
+     * <p>
+     * Ответы получаются так же, как в {@link #analyze(Source)}: текст, не помещающийся в один запрос, делится
+     * на части {@link ChunkedExtractor}, и ответы частей объединяются, а при включённом параметре
+     * {@value ApiCaller#STRUCTURED_OUTPUT_KEY} запрашивается и разбирается ответ в формате JSON.
+     *
+     * @param sources     источники для анализа.
+     * @param batchCaller исполнитель пакетных заданий.
+     * @return ответы LLM в порядке источников; описанием набора данных служит описание источника.
+     *         Источники, которые не удалось обработать, пропускаются с сообщением в {@code System.err}.
+     * @throws IntegratorException если не заданы критерии поиска или пакетное задание не удалось выполнить.
+     */
+    public List<Data<String>> analyzeBatch(List<? extends Source<String>> sources, BatchCaller batchCaller)
+            throws IntegratorException {
+        requireCriteria();
+        List<String> targets = targets();
+        boolean structured = isStructuredOutputEnabled();
+        ChunkedExtractor chunkedExtractor = ChunkedExtractor.fromConfig(this::buildPrompt, targets);
+        Map<String, Prompt> prompts = new LinkedHashMap<>();
+        String[] answers = new String[sources.size()];
+        int[] parts = new int[sources.size()];
+        boolean[] chunked = new boolean[sources.size()];
+        for (int i = 0; i < sources.size(); i++) {
+            Source<String> source = sources.get(i);
+            try {
+                String candidates = getStages().document(rawHtmlOf(source)).get(Mode.PURIFIED);
+                if (candidates.isEmpty()) {
+                    answers[i] = notFoundAnswer();
+                    continue;
+                }
+                chunked[i] = chunkedExtractor != null && chunkedExtractor.needsChunking(candidates);
+                List<Prompt> sourcePrompts = chunked[i] ? chunkedExtractor.prompts(candidates)
+                        : List.of(buildPrompt(candidates));
+                for (Prompt prompt : sourcePrompts) {
+                    prompts.put(batchKey(i, parts[i]++), prompt);
+                }
+            } catch (IntegratorException | RuntimeException e) {
+                System.err.println("Ошибка подготовки источника '" + source.getTitle() + "': " + e.getMessage());
+            }
+        }
+        Map<String, String> responses = batchCaller.run(prompts,
+                structured ? ApiCaller.structuredConfig(targets) : ApiCaller.GENERATION_CONFIG);
+        List<Data<String>> results = new ArrayList<>();
+        for (int i = 0; i < sources.size(); i++) {
+            String title = sources.get(i).getTitle();
+            if (parts[i] > 0) {
+                List<String> sourceResponses = new ArrayList<>(parts[i]);
+                for (int part = 0; part < parts[i]; part++) {
+                    sourceResponses.add(responses.get(batchKey(i, part)));
+                }
+                try {
+                    answers[i] = chunked[i] ? chunkedExtractor.merge(sourceResponses)
+                            : batchAnswer(sourceResponses.get(0), structured, targets);
+                } catch (IntegratorException e) {
+                    System.err.println("Пакетное задание не вернуло ответ для источника '" + title + "': "
+                            + e.getMessage());
+                }
+            }
+            if (answers[i] != null) {
+                results.add(new TextData(title, answers[i]));
+            }
+        }
+        return results;
+    }
+
+    private static String batchKey(int source, int part) {
+        return "source-" + source + "/part-" + part;
+    }
+
+    /**
+     * Ответ пакетного задания на запрос без деления на части, в том же виде, что и ответ {@link #answer(String)}.
+     */
+    private static String batchAnswer(String response, boolean structured, List<String> targets)
+            throws IntegratorException {
+        if (response == null) {
+            throw new IntegratorException("Gemini API не вернул ответ");
+        }
+        return structured ? JsonExtractionParser.parse(response, targets).toString() : response;
+    }
+
+    private static String rawHtmlOf(Source<String> source) throws IntegratorException {
+        if (source == null) {
+            throw new IntegratorException("Source is null");
+        }
+        Data<String> content = source.getContent();
+        String rawHtml = content == null ? null : content.getContent();
+        if (rawHtml == null) {
+            throw new IntegratorException("Source content is null: " + source.getTitle());
+        }
+        return rawHtml;
     }
 
     /**
@@ -115,4 +313,165 @@ public class StringAnalyzer implements Analyzer<String>{
     public <U> Data<U> analyze(Data<String> data, Converter<String, U> converter) throws IntegratorException {
         return null;
     }
+
+    /**
+     * Удаляет из HTML теги, не содержащие полезного текста, и возвращает видимый текст страницы.
+     * Очистка выполняется потоково ({@link HtmlCleaner}) без построения DOM.
+     *
+     * @param rawHtml исходный HTML.
+     * @return очищенный текст.
+     */
+    static String cleanHtml(String rawHtml) {
+        return HtmlCleaner.clean(rawHtml);
+    }
+
+    /**
+     * Возвращает конвейер стадий обработки документа, создавая его при первом обращении.
+     */
+    private StagePipeline getStages() {
+        StagePipeline pipeline = stages;
+        if (pipeline == null) {
+            ResponseCache cache = stageCacheConfigured ? stageCache : StagePipeline.sharedCache();
+            pipeline = new StagePipeline(cache)
+                    .then(Mode.CLEANED, () -> HtmlCleaner.class.getName(), StringAnalyzer::cleanHtml)
+                    .then(Mode.PURIFIED, this::candidatesFingerprint, this::selectCandidates);
+            stages = pipeline;
+        }
+        return pipeline;
+    }
+
+    /**
+     * Оставляет в очищенном тексте только предложения-кандидаты, если включён фильтр {@link ObjectFilter}.
+     *
+     * @return текст для prompt или пустая строка, если фильтр не нашёл ни одного предложения с {@code object}.
+     */
+    private String selectCandidates(String processedHtml) {
+        ObjectFilter objectFilter = criteria.containsKey("object") ? ObjectFilter.fromConfig(criteria.get("object"))
+                : ObjectFilter.fromConfig();
+        return objectFilter == null ? processedHtml : objectFilter.filter(processedHtml);
+    }
+
+    private String candidatesFingerprint() {
+        TaskConfig config = TaskConfig.shared();
+        return config.getBoolean(ObjectFilter.ENABLED_KEY, false) + "\n"
+                + withCriteria(FileHandler.readSpecificProperties("object")).get("object") + "\n"
+                + config.getInt(ObjectFilter.CONTEXT_KEY, 1);
+    }
+
+    /**
+     * Получает ответ LLM для отобранных предложений: одним запросом или по частям {@link ChunkedExtractor}.
+     * Для пустого текста Gemini API не вызывается.
+     */
+    private String answer(String candidates) throws IntegratorException {
+        requireCriteria();
+        if (candidates.isEmpty()) {
+            return notFoundAnswer();
+        }
+        ChunkedExtractor chunkedExtractor = ChunkedExtractor.fromConfig(this::buildPrompt, targets());
+        if (chunkedExtractor != null && chunkedExtractor.needsChunking(candidates)) {
+            return chunkedExtractor.extract(candidates);
+        }
+        if (isStructuredOutputEnabled()) {
+            List<String> targets = targets();
+            Prompt prompt = buildPrompt(candidates);
+            ExtractionResult result = isStreamingEnabled() ? ApiCaller.streamStructuredApiCall(prompt, targets)
+                    : ApiCaller.makeStructuredApiCall(prompt, targets);
+            return result.toString();
+        }
+        String geminiOutput = ApiCaller.makeApiCall(buildPrompt(candidates));
+        if (geminiOutput == null) {
+            throw new IntegratorException("Gemini API не вернул ответ");
+        }
+        return geminiOutput;
+    }
+
+    /**
+     * Проверяет, что критерии поиска анализатора или из {@code properties.cfg} заданы
+     * ({@link TaskConfig#requireCriteria(Map)}).
+     */
+    private void requireCriteria() throws IntegratorException {
+        TaskConfig.requireCriteria(withCriteria(FileHandler.readSpecificProperties("object", "additions", "targets")));
+    }
+
+    /**
+     * Ответ для документа без упоминаний {@code object}: {@code Not Found} для каждого элемента {@code targets}.
+     */
+    private String notFoundAnswer() {
+        return new ExtractionResult(targets()).toString();
+    }
+
+    /**
+     * Возвращает отпечаток параметров, от которых зависит ответ LLM: модели, критериев {@link #CRITERIA_KEYS}
+     * анализатора или из {@code properties.cfg}, параметров фильтра {@link ObjectFilter}, формата ответа
+     * и шаблона prompt из {@value #geminiBasePromptInputPath}.
+     *
+     * @return шестнадцатеричное представление хеша SHA-256.
+     */
+    @Override
+    public String fingerprint() {
+        Map<String, String> config = withCriteria(FileHandler.readSpecificProperties("object", "additions", "targets"));
+        return ResponseCache.digest(ApiCaller.MODEL_NAME, String.valueOf(config.get("object")),
+                String.valueOf(config.get("additions")), String.valueOf(config.get("targets")),
+                candidatesFingerprint(), Boolean.toString(isStructuredOutputEnabled()),
+                String.valueOf(FileHandler.readFromFile(geminiBasePromptInputPath)));
+    }
+
+    /**
+     * @return элементы {@code targets} анализатора.
+     */
+    List<String> targets() {
+        Map<String, String> config = withCriteria(FileHandler.readSpecificProperties("targets"));
+        return ExtractionResult.parseTargets(config.get("targets"));
+    }
+
+    /**
+     * Заменяет прочитанные из {@code properties.cfg} значения критериями анализатора.
+     */
+    private Map<String, String> withCriteria(Map<String, String> config) {
+        if (criteria.isEmpty()) {
+            return config;
+        }
+        Map<String, String> result = new HashMap<>(config);
+        for (Map.Entry<String, String> entry : criteria.entrySet()) {
+            if (result.containsKey(entry.getKey())) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Строит prompt для очищенного текста по шаблону из {@value #geminiBasePromptInputPath} и параметрам
+     * «object», «targets» анализатора или из properties.
+     */
+    private Prompt buildPrompt(String processedHtml) {
+        Map<String, String> configValues =
+                withCriteria(FileHandler.readSpecificProperties("object", "additions", "targets"));
+
+        Map<String, String> promptValues = new HashMap<>();
+        promptValues.put(PromptTemplate.SOURCE_TEXT, processedHtml);
+        promptValues.put(PromptTemplate.OBJECT_VALUES, configValues.get("object"));
+        promptValues.put(PromptTemplate.TARGETS_VALUES, configValues.get("targets"));
+        return getPromptTemplate().render(promptValues);
+    }
+
+    private static boolean isStructuredOutputEnabled() {
+        return TaskConfig.shared().getBoolean(ApiCaller.STRUCTURED_OUTPUT_KEY, false);
+    }
+
+    private static boolean isStreamingEnabled() {
+        return TaskConfig.shared().getBoolean(STREAMING_KEY, false);
+    }
+
+    /**
+     * Возвращает шаблон prompt, считывая его из файла при первом обращении.
+     */
+    private PromptTemplate getPromptTemplate() {
+        PromptTemplate template = promptTemplate;
+        if (template == null) {
+            template = new PromptTemplate(FileHandler.readFromFile(geminiBasePromptInputPath));
+            promptTemplate = template;
+        }
+        return template;
+    }
 }
@@ -0,0 +1,234 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Отчёт, собирающий ответы LLM для многих источников в один результат по элементам {@code targets}.
+ * <p>
+ * Каждый добавляемый набор данных разбирается построчно в формате ответа LLM (см. {@link ExtractionResult}):
+ * строка {@code target:} начинает группу, следующие строки — найденные предложения. Сам ответ не
+ * сохраняется: в памяти остаются только уникальные предложения каждой группы и описания источников, в
+ * которых они встретились. Каждый вызов {@link #add(Data)} разбирает полный ответ: строки до первого
+ * заголовка группы не относятся ни к одной группе. Чтобы передавать ответ по строкам, как это делает
+ * {@link StreamingResponseWriter}, нужен сеанс {@link #session()}: он запоминает текущую группу между
+ * строками одного ответа.
+ * <p>
+ * {@link #add(Data)} можно вызывать одновременно из многих потоков: группы хранятся в
+ * {@link ConcurrentHashMap} и {@link ConcurrentLinkedQueue}, общей блокировки нет. Отчёт отражает все
+ * добавленные к моменту вызова {@link #getReport()} данные, и его можно запрашивать, не дожидаясь
+ * окончания анализа.
+ */
+public class TargetReporter implements Reporter<String> {
+
+    static final String UNKNOWN_SOURCE = "unknown";
+
+    private final Map<String, Group> groups = new LinkedHashMap<>();
+
+    /**
+     * @param targets элементы {@code targets} в порядке вывода.
+     */
+    public TargetReporter(List<String> targets) {
+        for (String target : targets) {
+            groups.putIfAbsent(ExtractionResult.normalize(target), new Group(target.strip()));
+        }
+    }
+
+    /**
+     * Создаёт отчёт для элементов параметра «targets» из {@code properties.cfg}.
+     *
+     * @return новый отчёт.
+     */
+    public static TargetReporter fromConfig() {
+        return new TargetReporter(ExtractionResult.parseTargets(
+                FileHandler.readSpecificProperties("targets").get("targets")));
+    }
+
+    /**
+     * Добавляет предложения из ответа LLM. Источником предложений считается описание набора данных
+     * ({@link ValueData#getTitle()}, {@link FileData#getTitle()}); набор {@link FileData} читается по частям.
+     *
+     * @return {@code true}, если в наборе данных найден заголовок группы или предложение известной группы.
+     * @throws IntegratorException если набор данных или его содержимое отсутствует.
+     */
+    @Override
+    public boolean add(Data<String> content) throws IntegratorException {
+        return parse(content, null).accepted;
+    }
+
+    /**
+     * Создаёт сеанс для ответа, передаваемого по строкам или фрагментам, например, для
+     * {@link StreamingResponseWriter}. Сеанс запоминает текущую группу между вызовами своего
+     * {@link Reporter#add(Data)}, поэтому строки без заголовка относятся к группе последнего заголовка этого
+     * же ответа. Для каждого ответа нужен отдельный сеанс.
+     *
+     * @return сеанс, добавляющий предложения в этот отчёт; {@link Reporter#getReport()} сеанса возвращает
+     *         отчёт целиком.
+     */
+    public Reporter<String> session() {
+        return new Session();
+    }
+
+    /**
+     * Разбирает ответ и добавляет найденные предложения в группы.
+     *
+     * @param current группа, к которой относятся строки до первого заголовка, или {@code null}.
+     */
+    private Parser parse(Data<String> content, String current) throws IntegratorException {
+        if (content == null) {
+            throw new IntegratorException("Data is null");
+        }
+        String source = titleOf(content);
+        Parser parser = new Parser(source, current);
+        if (content instanceof FileData) {
+            ((FileData) content).convert(fragment -> {
+                parser.parse(fragment);
+                return "";
+            }, Long.MAX_VALUE, new StringBuilder());
+        } else {
+            String text = content.getContent();
+            if (text == null) {
+                throw new IntegratorException("Data is null: " + source);
+            }
+            parser.parse(text);
+        }
+        return parser;
+    }
+
+    /**
+     * Возвращает отчёт в формате ответа LLM: для каждого элемента {@code targets} — найденные во всех
+     * источниках предложения в порядке первого появления или {@code Not Found}.
+     */
+    @Override
+    public Data<String> getReport() {
+        StringBuilder sb = new StringBuilder();
+        for (Group group : groups.values()) {
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(group.name).append(':');
+            if (group.order.isEmpty()) {
+                sb.append('\n').append(ExtractionResult.NOT_FOUND);
+            }
+            for (String sentence : group.order) {
+                sb.append('\n').append(sentence);
+            }
+        }
+        return new TextData("report", sb.toString());
+    }
+
+    /**
+     * @param target элемент {@code targets}.
+     * @return найденные предложения в порядке первого появления.
+     */
+    public List<String> getSentences(String target) {
+        Group group = groups.get(ExtractionResult.normalize(target));
+        return group == null ? Collections.emptyList() : new ArrayList<>(group.order);
+    }
+
+    /**
+     * @param target   элемент {@code targets}.
+     * @param sentence найденное предложение.
+     * @return описания источников, в ответах для которых встретилось предложение.
+     */
+    public Set<String> getSources(String target, String sentence) {
+        Group group = groups.get(ExtractionResult.normalize(target));
+        Set<String> sources = group == null ? null : group.sources.get(sentence.strip());
+        return sources == null ? Collections.emptySet() : Collections.unmodifiableSet(sources);
+    }
+
+    private static String titleOf(Data<String> content) {
+        if (content instanceof ValueData) {
+            String title = ((ValueData<String>) content).getTitle();
+            return title == null ? UNKNOWN_SOURCE : title;
+        }
+        if (content instanceof FileData) {
+            return ((FileData) content).getTitle();
+        }
+        return UNKNOWN_SOURCE;
+    }
+
+    /**
+     * Предложения одной группы: множество предложений с источниками и порядок их первого появления.
+     */
+    private static final class Group {
+        final String name;
+        final Map<String, Set<String>> sources = new ConcurrentHashMap<>();
+        final Queue<String> order = new ConcurrentLinkedQueue<>();
+
+        Group(String name) {
+            this.name = name;
+        }
+
+        void add(String sentence, String source) {
+            Set<String> found = sources.get(sentence);
+            if (found == null) {
+                Set<String> created = ConcurrentHashMap.newKeySet();
+                found = sources.putIfAbsent(sentence, created);
+                if (found == null) {
+                    found = created;
+                    order.add(sentence);
+                }
+            }
+            found.add(source);
+        }
+    }
+
+    /**
+     * Сеанс одного ответа, передаваемого по частям: текущая группа переходит от одного вызова
+     * {@link #add(Data)} к следующему.
+     */
+    private final class Session implements Reporter<String> {
+        private String current;
+
+        @Override
+        public synchronized boolean add(Data<String> content) throws IntegratorException {
+            Parser parser = parse(content, current);
+            current = parser.current;
+            return parser.accepted;
+        }
+
+        @Override
+        public Data<String> getReport() {
+            return TargetReporter.this.getReport();
+        }
+    }
+
+    /**
+     * Построчный разбор ответа одного источника.
+     */
+    private final class Parser {
+        final String source;
+        String current;
+        boolean accepted;
+
+        Parser(String source, String current) {
+            this.source = source;
+            this.current = current;
+        }
+
+        void parse(String text) {
+            for (String line : text.split("\\R")) {
+                String trimmed = line.strip();
+                if (trimmed.isEmpty() || trimmed.startsWith("```")) {
+                    continue;
+                }
+                String header = trimmed.endsWith(":") ? ExtractionResult.headerTarget(trimmed) : null;
+                if (header != null && groups.containsKey(header)) {
+                    current = header;
+                    accepted = true;
+                } else if (current != null) {
+                    if (!trimmed.equalsIgnoreCase(ExtractionResult.NOT_FOUND)) {
+                        groups.get(current).add(trimmed, source);
+                    }
+                    accepted = true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Параметры задачи из файла конфигурации вида «ключ=значение» ({@code properties.cfg}).
+ * <p>
+ * Файл разбирается один раз, результат хранится как неизменяемый снимок, поэтому чтение параметров не
+ * обращается к диску. Снимок принимается, только если в нём заданы все обязательные параметры конфигурации;
+ * иначе {@link #readTask(File)} выбрасывает исключение, а прежний снимок остаётся в силе. Общая конфигурация
+ * ({@link #shared()}) обязательных параметров не имеет: критерии поиска ({@link #REQUIRED_KEYS}) проверяются
+ * там, где они используются ({@link #requireCriteria(Map)}), поскольку в режиме HTTP-сервиса они приходят
+ * с каждым заданием. После вызова
+ * {@link #watch()} файл отслеживается {@link WatchService}: при его изменении новый снимок разбирается
+ * и атомарно подменяет прежний, и долгоживущий процесс получает новые критерии без перезапуска.
+ * Ошибочная правка файла (например, сохранённая наполовину) пропускается с сообщением в журнал.
+ * <p>
+ * Типизированные методы {@link #getString(String, String)}, {@link #getInt(String, int)} и
+ * {@link #getBoolean(String, boolean)} — единственный способ чтения параметров приложения: если параметр не
+ * задан или его значение некорректно, они возвращают значение по умолчанию (во втором случае — с сообщением
+ * в журнал). Если файл не удалось прочитать, сообщение выводится один раз, и до его появления или
+ * исправления используются значения по умолчанию.
+ * <p>
+ * Формат файла: строки, начинающиеся с '#', и пустые строки игнорируются; ключ отделяется от значения
+ * первым знаком '='; пробелы по краям ключа и значения отбрасываются; при повторе ключа действует
+ * последнее значение.
+ * <p>
+ * Класс потокобезопасен.
+ */
+public class TaskConfig implements Task<String, String>, AutoCloseable {
+
+    /**
+     * Файл конфигурации приложения по умолчанию.
+     */
+    public static final String DEFAULT_FILE = "properties.cfg";
+    /**
+     * Критерии поиска, без которых анализ невозможен: объект и перечень искомой информации.
+     */
+    public static final Set<String> REQUIRED_KEYS = Set.of("object", "targets");
+
+    private static TaskConfig shared;
+
+    private final Path file;
+    private final Set<String> requiredKeys;
+    private final AtomicLong version = new AtomicLong();
+    private volatile Map<String, String> snapshot;
+    private WatchService watchService;
+
+    /**
+     * @param file         файл конфигурации.
+     * @param requiredKeys обязательные параметры.
+     */
+    public TaskConfig(Path file, Set<String> requiredKeys) {
+        this.file = file;
+        this.requiredKeys = Set.copyOf(requiredKeys);
+    }
+
+    /**
+     * Возвращает общую конфигурацию приложения из {@value #DEFAULT_FILE} в рабочем каталоге, отслеживающую
+     * изменения файла. Файл читается при первом обращении к параметрам.
+     *
+     * @return общая конфигурация.
+     */
+    public static synchronized TaskConfig shared() {
+        if (shared == null) {
+            TaskConfig config = new TaskConfig(Paths.get(DEFAULT_FILE), Set.of());
+            try {
+                config.watch();
+            } catch (IOException e) {
+                System.err.println("Не удалось отслеживать изменения файла конфигурации '" + DEFAULT_FILE
+                        + "': " + e.getMessage());
+            }
+            shared = config;
+        }
+        return shared;
+    }
+
+    /**
+     * @return путь к файлу конфигурации.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return номер текущего снимка: 0, пока файл не прочитан, и увеличивается при каждом принятом чтении.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Разбирает файл и, если в нём заданы все обязательные параметры, атомарно подменяет текущий снимок.
+     *
+     * @param file файл конфигурации.
+     * @throws IntegratorException если файл не удалось прочитать или в нём нет обязательного параметра;
+     *                             текущий снимок при этом не меняется.
+     */
+    @Override
+    public void readTask(File file) throws IntegratorException {
+        Map<String, String> parsed = parse(file.toPath());
+        for (String key : requiredKeys) {
+            String value = parsed.get(key);
+            if (value == null || value.isEmpty()) {
+                throw new IntegratorException("В файле конфигурации '" + file + "' не задан обязательный параметр '"
+                        + key + "'");
+            }
+        }
+        synchronized (this) {
+            snapshot = Collections.unmodifiableMap(parsed);
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Возвращает текущий снимок параметров, читая файл при первом обращении.
+     *
+     * @return неизменяемая коллекция параметров.
+     * @throws IntegratorException если файл ещё не был прочитан и прочитать его не удалось.
+     */
+    @Override
+    public Map<String, String> getProperties() throws IntegratorException {
+        Map<String, String> current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    readTask(file.toFile());
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @param key имя параметра.
+     * @return значение параметра.
+     * @throws IntegratorException если параметр не задан или файл не удалось прочитать.
+     */
+    @Override
+    public String getProperty(String key) throws IntegratorException {
+        String value = getProperties().get(key);
+        if (value == null) {
+            throw new IntegratorException("Параметр '" + key + "' не задан в файле конфигурации '" + file + "'");
+        }
+        return value;
+    }
+
+    /**
+     * @param key          имя параметра.
+     * @param defaultValue значение, возвращаемое, если параметр не задан или пуст.
+     * @return значение параметра или {@code defaultValue}.
+     */
+    public String getString(String key, String defaultValue) {
+        String value = current().get(key);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    /**
+     * @param key          имя параметра.
+     * @param defaultValue значение, возвращаемое, если параметр не задан или не является целым числом.
+     * @return целочисленное значение параметра или {@code defaultValue}.
+     */
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Некорректное значение параметра '" + key + "': '" + value
+                    + "', используется " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @param key          имя параметра.
+     * @param defaultValue значение, возвращаемое, если параметр не задан или не равен {@code true} или
+     *                     {@code false} (без учёта регистра).
+     * @return логическое значение параметра или {@code defaultValue}.
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return Boolean.parseBoolean(value);
+        }
+        System.err.println("Некорректное значение параметра '" + key + "': '" + value
+                + "', используется " + defaultValue);
+        return defaultValue;
+    }
+
+    /**
+     * Проверяет, что в критериях поиска заданы все параметры {@link #REQUIRED_KEYS}.
+     *
+     * @param criteria критерии поиска: значения параметров «object», «additions», «targets».
+     * @return {@code criteria}.
+     * @throws IntegratorException если обязательный параметр не задан или пуст.
+     */
+    public static Map<String, String> requireCriteria(Map<String, String> criteria) throws IntegratorException {
+        for (String key : REQUIRED_KEYS) {
+            String value = criteria.get(key);
+            if (value == null || value.isBlank()) {
+                throw new IntegratorException("Не задан обязательный параметр поиска '" + key + "'");
+            }
+        }
+        return criteria;
+    }
+
+    /**
+     * Начинает отслеживать изменения файла в фоновом потоке-демоне. Повторный вызов ничего не делает.
+     *
+     * @return эта конфигурация.
+     * @throws IOException если службу отслеживания не удалось запустить.
+     */
+    public synchronized TaskConfig watch() throws IOException {
+        if (watchService != null) {
+            return this;
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        WatchService service = FileSystems.getDefault().newWatchService();
+        directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread watcher = new Thread(() -> watchLoop(service), "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        watchService = service;
+        return this;
+    }
+
+    /**
+     * Прекращает отслеживание изменений файла. Текущий снимок остаётся доступным.
+     */
+    @Override
+    public synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                System.err.println("Ошибка при остановке отслеживания файла конфигурации: " + e.getMessage());
+            }
+            watchService = null;
+        }
+    }
+
+    /**
+     * Возвращает текущий снимок; если файл не удалось прочитать, выводит сообщение один раз и запоминает
+     * пустой снимок, чтобы не обращаться к диску при каждом чтении параметра.
+     */
+    private Map<String, String> current() {
+        Map<String, String> current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                try {
+                    readTask(file.toFile());
+                } catch (IntegratorException e) {
+                    System.err.println(e.getMessage() + ". Используются значения параметров по умолчанию.");
+                    snapshot = Map.of();
+                }
+            }
+            return snapshot;
+        }
+    }
+
+    private void watchLoop(WatchService service) {
+        Path name = file.getFileName();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                List<WatchEvent<?>> events = key.pollEvents();
+                for (WatchEvent<?> event : events) {
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context());
+                }
+                key.reset();
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // отслеживание остановлено close()
+        }
+    }
+
+    private void reload() {
+        try {
+            readTask(file.toFile());
+            System.out.println("Конфигурация перечитана из файла: " + file);
+        } catch (IntegratorException e) {
+            System.err.println(e.getMessage() + ". Используется прежняя конфигурация.");
+        }
+    }
+
+    private static Map<String, String> parse(Path path) throws IntegratorException {
+        Map<String, String> properties = new HashMap<>();
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IntegratorException("Ошибка при чтении файла конфигурации '" + path + "': " + e.getMessage(), e);
+        }
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int separatorIndex = line.indexOf('=');
+            if (separatorIndex > 0) {
+                properties.put(line.substring(0, separatorIndex).trim(), line.substring(separatorIndex + 1).trim());
+            }
+        }
+        return properties;
+    }
+}
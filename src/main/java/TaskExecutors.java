@@ -0,0 +1,54 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Утилитный класс для создания исполнителей задач, ожидающих ввода-вывода (HTTP-запросы,
+ * чтение файлов).
+ */
+public final class TaskExecutors {
+
+    private TaskExecutors() {
+    }
+
+    /**
+     * Создаёт исполнитель, запускающий каждую задачу в отдельном виртуальном потоке. Если среда
+     * выполнения не поддерживает виртуальные потоки (Java ниже 21), используется пул обычных
+     * потоков-демонов, создаваемых по мере необходимости.
+     * <p>
+     * Исполнитель не ограничивает число одновременно выполняемых задач: ограничение должен
+     * обеспечивать вызывающий код.
+     *
+     * @param name префикс имён потоков.
+     * @return новый исполнитель задач.
+     */
+    public static ExecutorService newPerTaskExecutor(String name) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(newDaemonThreadFactory(name));
+        }
+    }
+
+    /**
+     * Создаёт фабрику обычных потоков-демонов с именами вида {@code name-N}, например, для пулов
+     * фиксированного размера.
+     *
+     * @param name префикс имён потоков.
+     * @return новая фабрика потоков.
+     */
+    public static ThreadFactory newDaemonThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
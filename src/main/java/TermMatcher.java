@@ -0,0 +1,648 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Скомпилированный поиск всех вариантов критериев {@code object}, {@code additions} и {@code targets}
+ * за один проход по тексту.
+ * <p>
+ * Варианты разбираются по правилам интерпретации кавычек из {@code baseGeminiPrompt.txt}:
+ * <ul>
+ * <li>значение в двойных кавычках («», "", “”) — слова в точно такой же форме, подряд и без знаков
+ * препинания между ними;</li>
+ * <li>значение в одинарных кавычках (‘’, '') — слова подряд в любой грамматической форме;</li>
+ * <li>значение без кавычек — все слова в одном предложении в любом порядке и в любой форме.</li>
+ * </ul>
+ * Слова всех вариантов компилируются в два автомата Ахо–Корасик над словами текста: по нормализованным
+ * формам (для двойных кавычек) и по основам {@link RussianStemmer} (для остальных правил). Текст
+ * просматривается один раз: слова нормализуются в переиспользуемый буфер и переводятся в номера символов
+ * автомата без создания строк, поэтому время поиска линейно по длине текста и не зависит от числа вариантов.
+ * Совпадения сообщаются на уровне предложений.
+ * <p>
+ * Экземпляр неизменяем и может использоваться одновременно из нескольких потоков.
+ */
+public final class TermMatcher {
+
+    /**
+     * Группы критериев в {@code properties.cfg}.
+     */
+    public static final List<String> CONFIG_GROUPS = List.of("object", "additions", "targets");
+
+    private static final String DOUBLE_QUOTES = "«»\"“”„";
+    private static final String SINGLE_QUOTES = "'‘’‚";
+    private static final String SENTENCE_END = ".!?…";
+    private static final String CLOSING_MARKS = "»”\"')]";
+    private static final int MAX_WORD_LENGTH = 64;
+
+    /**
+     * Правило сопоставления варианта.
+     */
+    public enum Rule {
+        /** Точная форма слов, слова подряд. */
+        EXACT,
+        /** Слова подряд в любой форме. */
+        PHRASE,
+        /** Все слова в одном предложении в любом порядке и форме. */
+        WORDS
+    }
+
+    /**
+     * Вариант критерия поиска.
+     */
+    public static final class Term {
+        private final int index;
+        private final String group;
+        private final String text;
+        private final Rule rule;
+        private final int wordCount;
+
+        private Term(int index, String group, String text, Rule rule, int wordCount) {
+            this.index = index;
+            this.group = group;
+            this.text = text;
+            this.rule = rule;
+            this.wordCount = wordCount;
+        }
+
+        /**
+         * @return название группы критериев, например {@code object}.
+         */
+        public String getGroup() {
+            return group;
+        }
+
+        /**
+         * @return текст варианта без кавычек.
+         */
+        public String getText() {
+            return text;
+        }
+
+        public Rule getRule() {
+            return rule;
+        }
+
+        @Override
+        public String toString() {
+            return group + ":" + text;
+        }
+    }
+
+    /**
+     * Получатель совпадений.
+     */
+    @FunctionalInterface
+    public interface HitListener {
+        /**
+         * Вызывается для каждого варианта, найденного в предложении, один раз на предложение.
+         *
+         * @param term          найденный вариант.
+         * @param sentenceStart индекс начала предложения в тексте.
+         * @param sentenceEnd   индекс конца предложения в тексте (не включая).
+         */
+        void onHit(Term term, int sentenceStart, int sentenceEnd);
+    }
+
+    /**
+     * Совпадение варианта в предложении.
+     */
+    public static final class Hit {
+        private final Term term;
+        private final int sentenceStart;
+        private final int sentenceEnd;
+
+        Hit(Term term, int sentenceStart, int sentenceEnd) {
+            this.term = term;
+            this.sentenceStart = sentenceStart;
+            this.sentenceEnd = sentenceEnd;
+        }
+
+        public Term getTerm() {
+            return term;
+        }
+
+        public int getSentenceStart() {
+            return sentenceStart;
+        }
+
+        public int getSentenceEnd() {
+            return sentenceEnd;
+        }
+    }
+
+    /**
+     * Шаблон автомата: последовательность символов-слов, соответствующая варианту или, для правила
+     * {@link Rule#WORDS}, одному его слову.
+     */
+    private static final class Pattern {
+        final Term term;
+        final int wordBit;
+
+        Pattern(Term term, int wordBit) {
+            this.term = term;
+            this.wordBit = wordBit;
+        }
+    }
+
+    private final List<Term> terms;
+    private final Automaton exact;
+    private final Automaton stemmed;
+
+    private TermMatcher(List<Term> terms, Automaton exact, Automaton stemmed) {
+        this.terms = terms;
+        this.exact = exact;
+        this.stemmed = stemmed;
+    }
+
+    /**
+     * Компилирует варианты критериев.
+     *
+     * @param groups значения критериев по названиям групп; значение — варианты через запятую
+     *               в формате {@code properties.cfg}.
+     * @return скомпилированный поиск.
+     */
+    public static TermMatcher compile(Map<String, String> groups) {
+        List<Term> terms = new ArrayList<>();
+        AutomatonBuilder exact = new AutomatonBuilder();
+        AutomatonBuilder stemmed = new AutomatonBuilder();
+        char[] buffer = new char[MAX_WORD_LENGTH];
+        for (Map.Entry<String, String> group : groups.entrySet()) {
+            if (group.getValue() == null) {
+                continue;
+            }
+            for (Variant variant : parseVariants(group.getValue())) {
+                Rule rule = variant.rule;
+                List<String> words = words(variant.text);
+                if (words.isEmpty() || rule == Rule.WORDS && words.size() > Long.SIZE) {
+                    continue;
+                }
+                Term term = new Term(terms.size(), group.getKey(), variant.text.strip(), rule, words.size());
+                terms.add(term);
+                if (rule == Rule.WORDS) {
+                    for (int i = 0; i < words.size(); i++) {
+                        stemmed.add(List.of(key(words.get(i), buffer, true)), new Pattern(term, i));
+                    }
+                } else {
+                    List<String> keys = new ArrayList<>();
+                    for (String word : words) {
+                        keys.add(key(word, buffer, rule == Rule.PHRASE));
+                    }
+                    (rule == Rule.EXACT ? exact : stemmed).add(keys, new Pattern(term, 0));
+                }
+            }
+        }
+        return new TermMatcher(Collections.unmodifiableList(terms), exact.build(), stemmed.build());
+    }
+
+    /**
+     * Компилирует группы {@link #CONFIG_GROUPS} из {@code properties.cfg}.
+     *
+     * @return скомпилированный поиск.
+     */
+    public static TermMatcher fromConfig() {
+        Map<String, String> config = FileHandler.readSpecificProperties(CONFIG_GROUPS.toArray(new String[0]));
+        Map<String, String> groups = new LinkedHashMap<>();
+        for (String group : CONFIG_GROUPS) {
+            groups.put(group, config.get(group));
+        }
+        return compile(groups);
+    }
+
+    /**
+     * @return все скомпилированные варианты в порядке их следования в критериях.
+     */
+    public List<Term> getTerms() {
+        return terms;
+    }
+
+    /**
+     * Находит варианты в тексте, разбивая его на предложения.
+     *
+     * @param text     текст.
+     * @param listener получатель совпадений; вызывается в порядке следования предложений.
+     */
+    public void scan(CharSequence text, HitListener listener) {
+        new Scanner(text, true, listener).run();
+    }
+
+    /**
+     * Находит варианты в тексте, разбивая его на предложения.
+     *
+     * @param text текст.
+     * @return совпадения в порядке следования предложений.
+     */
+    public List<Hit> findAll(CharSequence text) {
+        List<Hit> hits = new ArrayList<>();
+        scan(text, (term, start, end) -> hits.add(new Hit(term, start, end)));
+        return hits;
+    }
+
+    /**
+     * Проверяет, содержит ли предложение вариант указанной группы. Текст целиком считается одним предложением.
+     *
+     * @param sentence предложение.
+     * @param group    название группы критериев или {@code null} для любой группы.
+     * @return {@code true}, если найден хотя бы один вариант группы.
+     */
+    public boolean matches(CharSequence sentence, String group) {
+        boolean[] found = new boolean[1];
+        new Scanner(sentence, false, (term, start, end) -> {
+            if (group == null || group.equals(term.group)) {
+                found[0] = true;
+            }
+        }).run();
+        return found[0];
+    }
+
+    /**
+     * Однократный просмотр текста. Хранит состояние обоих автоматов и совпадения текущего предложения.
+     */
+    private final class Scanner {
+        private final CharSequence text;
+        private final boolean splitSentences;
+        private final HitListener listener;
+        private final char[] buffer = new char[MAX_WORD_LENGTH];
+        private final long[] wordMasks = new long[terms.size()];
+        private final int[] maskSentence = new int[terms.size()];
+        private final int[] hitSentence = new int[terms.size()];
+        private int[] sentenceHits = new int[8];
+        private int sentenceHitCount;
+        private int sentence = 1;
+        private int sentenceStart;
+
+        Scanner(CharSequence text, boolean splitSentences, HitListener listener) {
+            this.text = text;
+            this.splitSentences = splitSentences;
+            this.listener = listener;
+        }
+
+        void run() {
+            int length = text.length();
+            int exactState = 0;
+            int stemState = 0;
+            boolean separated = false;
+            int i = 0;
+            while (i < length) {
+                char c = text.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    int end = wordEnd(i);
+                    if (separated) {
+                        exactState = 0;
+                        stemState = 0;
+                        separated = false;
+                    }
+                    if (end - i > MAX_WORD_LENGTH) {
+                        exactState = 0;
+                        stemState = 0;
+                    } else {
+                        int wordLength = RussianStemmer.normalize(text, i, end, buffer);
+                        exactState = exact.next(exactState, exact.symbol(buffer, wordLength));
+                        report(exact, exactState);
+                        int stemLength = RussianStemmer.stemLength(buffer, wordLength);
+                        stemState = stemmed.next(stemState, stemmed.symbol(buffer, stemLength));
+                        report(stemmed, stemState);
+                    }
+                    i = end;
+                    continue;
+                }
+                if (!Character.isWhitespace(c)) {
+                    separated = true;
+                    if (splitSentences && SENTENCE_END.indexOf(c) >= 0) {
+                        int end = sentenceEnd(i);
+                        if (end >= 0) {
+                            flushSentence(end);
+                            exactState = 0;
+                            stemState = 0;
+                            i = end;
+                            continue;
+                        }
+                    }
+                }
+                i++;
+            }
+            flushSentence(length);
+        }
+
+        /**
+         * Находит конец слова: буквы и цифры, в том числе соединённые дефисом.
+         */
+        private int wordEnd(int start) {
+            int length = text.length();
+            int end = start + 1;
+            while (end < length) {
+                char c = text.charAt(end);
+                if (Character.isLetterOrDigit(c)) {
+                    end++;
+                } else if (c == '-' && end + 1 < length && Character.isLetterOrDigit(text.charAt(end + 1))) {
+                    end += 2;
+                } else {
+                    break;
+                }
+            }
+            return end;
+        }
+
+        /**
+         * Определяет, заканчивается ли предложение на знаке с индексом {@code index}.
+         *
+         * @return индекс конца предложения или -1.
+         */
+        private int sentenceEnd(int index) {
+            int length = text.length();
+            int end = index + 1;
+            while (end < length && (SENTENCE_END.indexOf(text.charAt(end)) >= 0
+                    || CLOSING_MARKS.indexOf(text.charAt(end)) >= 0)) {
+                end++;
+            }
+            return end == length || Character.isWhitespace(text.charAt(end)) ? end : -1;
+        }
+
+        private void report(Automaton automaton, int state) {
+            for (Pattern pattern : automaton.outputs[state]) {
+                Term term = pattern.term;
+                if (term.wordCount > 1 && term.rule == Rule.WORDS) {
+                    if (maskSentence[term.index] != sentence) {
+                        maskSentence[term.index] = sentence;
+                        wordMasks[term.index] = 0;
+                    }
+                    wordMasks[term.index] |= 1L << pattern.wordBit;
+                    long full = term.wordCount == Long.SIZE ? -1L : (1L << term.wordCount) - 1;
+                    if (wordMasks[term.index] != full) {
+                        continue;
+                    }
+                }
+                if (hitSentence[term.index] != sentence) {
+                    hitSentence[term.index] = sentence;
+                    if (sentenceHitCount == sentenceHits.length) {
+                        sentenceHits = Arrays.copyOf(sentenceHits, sentenceHitCount * 2);
+                    }
+                    sentenceHits[sentenceHitCount++] = term.index;
+                }
+            }
+        }
+
+        private void flushSentence(int end) {
+            for (int k = 0; k < sentenceHitCount; k++) {
+                listener.onHit(terms.get(sentenceHits[k]), sentenceStart, end);
+            }
+            sentenceHitCount = 0;
+            sentence++;
+            sentenceStart = end;
+        }
+    }
+
+    /**
+     * Автомат Ахо–Корасик над номерами слов. Номера слов и переходы хранятся в хеш-таблицах с открытой
+     * адресацией; ключом перехода служит пара (состояние, символ). Переходы по ссылкам неудач не
+     * предвычисляются, а проходятся при поиске, поэтому размер таблиц пропорционален размеру словаря.
+     */
+    private static final class Automaton {
+        private static final Pattern[] NO_OUTPUT = new Pattern[0];
+
+        private final String[] symbolKeys;
+        private final int[] symbolIds;
+        private final long[] edgeKeys;
+        private final int[] edgeTargets;
+        private final int[] fail;
+        private final Pattern[][] outputs;
+
+        Automaton(Map<String, Integer> symbols, Map<Long, Integer> edges, int[] fail, Pattern[][] outputs) {
+            int symbolCapacity = capacity(symbols.size());
+            symbolKeys = new String[symbolCapacity];
+            symbolIds = new int[symbolCapacity];
+            for (Map.Entry<String, Integer> symbol : symbols.entrySet()) {
+                String key = symbol.getKey();
+                int slot = hash(key) & (symbolCapacity - 1);
+                while (symbolKeys[slot] != null) {
+                    slot = (slot + 1) & (symbolCapacity - 1);
+                }
+                symbolKeys[slot] = key;
+                symbolIds[slot] = symbol.getValue();
+            }
+            int edgeCapacity = capacity(edges.size());
+            edgeKeys = new long[edgeCapacity];
+            edgeTargets = new int[edgeCapacity];
+            Arrays.fill(edgeKeys, -1L);
+            for (Map.Entry<Long, Integer> edge : edges.entrySet()) {
+                int slot = mix(edge.getKey()) & (edgeCapacity - 1);
+                while (edgeKeys[slot] != -1L) {
+                    slot = (slot + 1) & (edgeCapacity - 1);
+                }
+                edgeKeys[slot] = edge.getKey();
+                edgeTargets[slot] = edge.getValue();
+            }
+            this.fail = fail;
+            this.outputs = outputs;
+        }
+
+        /**
+         * @return номер символа для слова из буфера или -1, если слово не встречается в вариантах.
+         */
+        int symbol(char[] buffer, int length) {
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + buffer[i];
+            }
+            int mask = symbolKeys.length - 1;
+            for (int slot = spread(hash) & mask; symbolKeys[slot] != null; slot = (slot + 1) & mask) {
+                String key = symbolKeys[slot];
+                if (key.length() == length && equals(key, buffer, length)) {
+                    return symbolIds[slot];
+                }
+            }
+            return -1;
+        }
+
+        int next(int state, int symbol) {
+            if (symbol < 0) {
+                return 0;
+            }
+            while (true) {
+                int target = edge(state, symbol);
+                if (target >= 0) {
+                    return target;
+                }
+                if (state == 0) {
+                    return 0;
+                }
+                state = fail[state];
+            }
+        }
+
+        int edge(int state, int symbol) {
+            long key = ((long) state << 32) | symbol;
+            int mask = edgeKeys.length - 1;
+            for (int slot = mix(key) & mask; edgeKeys[slot] != -1L; slot = (slot + 1) & mask) {
+                if (edgeKeys[slot] == key) {
+                    return edgeTargets[slot];
+                }
+            }
+            return -1;
+        }
+
+        private static boolean equals(String key, char[] buffer, int length) {
+            for (int i = 0; i < length; i++) {
+                if (key.charAt(i) != buffer[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int capacity(int size) {
+            return Integer.highestOneBit(Math.max(4, size * 2 + 1) * 2 - 1);
+        }
+
+        private static int hash(String key) {
+            return spread(key.hashCode());
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /**
+     * Построитель автомата: бор по символам-словам и ссылки неудач, вычисляемые обходом в ширину.
+     */
+    private static final class AutomatonBuilder {
+        private final Map<String, Integer> symbols = new LinkedHashMap<>();
+        private final Map<Long, Integer> edges = new LinkedHashMap<>();
+        private final List<List<Pattern>> outputs = new ArrayList<>();
+        private final List<List<Integer>> children = new ArrayList<>();
+
+        AutomatonBuilder() {
+            newState();
+        }
+
+        void add(List<String> keys, Pattern pattern) {
+            int state = 0;
+            for (String key : keys) {
+                int symbol = symbols.computeIfAbsent(key, k -> symbols.size());
+                long edge = ((long) state << 32) | symbol;
+                Integer next = edges.get(edge);
+                if (next == null) {
+                    next = newState();
+                    edges.put(edge, next);
+                    children.get(state).add(symbol);
+                }
+                state = next;
+            }
+            outputs.get(state).add(pattern);
+        }
+
+        Automaton build() {
+            int states = outputs.size();
+            int[] fail = new int[states];
+            Pattern[][] merged = new Pattern[states][];
+            merged[0] = outputs.get(0).toArray(Automaton.NO_OUTPUT);
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int symbol : children.get(0)) {
+                int child = edges.get((long) symbol);
+                fail[child] = 0;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                List<Pattern> output = new ArrayList<>(outputs.get(state));
+                Collections.addAll(output, merged[fail[state]]);
+                merged[state] = output.isEmpty() ? Automaton.NO_OUTPUT : output.toArray(Automaton.NO_OUTPUT);
+                for (int symbol : children.get(state)) {
+                    int child = edges.get(((long) state << 32) | symbol);
+                    int f = fail[state];
+                    Integer target;
+                    while ((target = edges.get(((long) f << 32) | symbol)) == null && f != 0) {
+                        f = fail[f];
+                    }
+                    fail[child] = target != null && target != child ? target : 0;
+                    queue.add(child);
+                }
+            }
+            return new Automaton(symbols, edges, fail, merged);
+        }
+
+        private int newState() {
+            outputs.add(new ArrayList<>());
+            children.add(new ArrayList<>());
+            return outputs.size() - 1;
+        }
+    }
+
+    private static final class Variant {
+        final Rule rule;
+        final String text;
+
+        Variant(Rule rule, String text) {
+            this.rule = rule;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Разбирает значение критерия на варианты, перечисленные через запятую.
+     */
+    private static List<Variant> parseVariants(String value) {
+        List<Variant> result = new ArrayList<>();
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            if (c == ',' || Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (DOUBLE_QUOTES.indexOf(c) >= 0 || SINGLE_QUOTES.indexOf(c) >= 0) {
+                boolean exactForm = DOUBLE_QUOTES.indexOf(c) >= 0;
+                String quotes = exactForm ? DOUBLE_QUOTES : SINGLE_QUOTES;
+                int end = i + 1;
+                while (end < value.length()
+                        && (quotes.indexOf(value.charAt(end)) < 0 || value.charAt(end) == '«')) {
+                    end++;
+                }
+                result.add(new Variant(exactForm ? Rule.EXACT : Rule.PHRASE,
+                        value.substring(i + 1, Math.min(end, value.length()))));
+                i = end + 1;
+            } else {
+                int end = value.indexOf(',', i);
+                end = end < 0 ? value.length() : end;
+                result.add(new Variant(Rule.WORDS, value.substring(i, end)));
+                i = end;
+            }
+        }
+        return result;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            if (!Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            while (end < text.length() && (Character.isLetterOrDigit(text.charAt(end))
+                    || text.charAt(end) == '-' && end + 1 < text.length()
+                    && Character.isLetterOrDigit(text.charAt(end + 1)))) {
+                end++;
+            }
+            words.add(text.substring(i, end));
+            i = end;
+        }
+        return words;
+    }
+
+    private static String key(String word, char[] buffer, boolean stem) {
+        char[] target = word.length() > buffer.length ? new char[word.length()] : buffer;
+        int length = RussianStemmer.normalize(word, 0, word.length(), target);
+        return new String(target, 0, stem ? RussianStemmer.stemLength(target, length) : length);
+    }
+}
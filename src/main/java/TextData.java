@@ -0,0 +1,49 @@
+/**
+ * Текстовый набор данных, целиком хранящийся в памяти.
+ */
+public class TextData extends ValueData<String> {
+
+    /**
+     * @param title   описание источника текста.
+     * @param content текст; не может быть {@code null}.
+     * @throws IllegalArgumentException если {@code content == null}.
+     */
+    public TextData(String title, String content) {
+        super(title, requireContent(content));
+    }
+
+    /**
+     * Возвращает первые {@code limit} символов текста.
+     */
+    @Override
+    public String getContent(int limit) throws IntegratorException {
+        String content = getContent();
+        if (limit < 0) {
+            throw new IntegratorException("Ограничение не может быть отрицательным: " + limit);
+        }
+        return content.length() <= limit ? content : content.substring(0, limit);
+    }
+
+    /**
+     * Возвращает строковое представление преобразованного текста.
+     */
+    @Override
+    public <U> String getContent(Converter<String, U> converter) throws IntegratorException {
+        return String.valueOf(converter.convert(getContent()));
+    }
+
+    /**
+     * Возвращает строковое представление преобразованных первых {@code limit} символов текста.
+     */
+    @Override
+    public <U> String getContent(Converter<String, U> converter, int limit) throws IntegratorException {
+        return String.valueOf(converter.convert(getContent(limit)));
+    }
+
+    private static String requireContent(String content) {
+        if (content == null) {
+            throw new IllegalArgumentException("Текст не может быть null.");
+        }
+        return content;
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.concurrent.Callable;
+
+/**
+ * Текстовый источник данных. Содержимое загружается только при обращении к нему, поэтому большое
+ * число источников не требует одновременного хранения всех текстов в памяти.
+ */
+public class TextSource implements Source<String> {
+
+    private final String title;
+    private final Callable<String> loader;
+
+    /**
+     * @param title  описание источника.
+     * @param loader функция загрузки содержимого источника.
+     */
+    public TextSource(String title, Callable<String> loader) {
+        this.title = title;
+        this.loader = loader;
+    }
+
+    /**
+     * Создаёт источник с уже известным содержимым.
+     *
+     * @param title   описание источника.
+     * @param content содержимое источника.
+     * @return источник данных.
+     */
+    public static TextSource of(String title, String content) {
+        return new TextSource(title, () -> content);
+    }
+
+    /**
+     * Создаёт источник, содержимое которого читается из файла при обращении.
+     *
+     * @param path путь к файлу.
+     * @return источник данных.
+     */
+    public static TextSource fromFile(String path) {
+        return new TextSource(path, () -> FileHandler.readFromFile(path));
+    }
+
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public Data<String> getContent() throws IntegratorException {
+        return new TextData(title, load());
+    }
+
+    @Override
+    public <U> Data<U> getContent(Converter<String, U> converter) throws IntegratorException {
+        return new ValueData<>(title, converter.convert(load()));
+    }
+
+    private String load() throws IntegratorException {
+        try {
+            String content = loader.call();
+            if (content == null) {
+                throw new IntegratorException("Источник не содержит данных: " + title);
+            }
+            return content;
+        } catch (IntegratorException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IntegratorException("Не удалось получить содержание источника: " + title, e);
+        }
+    }
+}
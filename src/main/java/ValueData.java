@@ -0,0 +1,54 @@
+/**
+ * Простой набор данных, содержащий одно значение и описание источника, из которого оно получено.
+ *
+ * @param <T> тип значения.
+ */
+public class ValueData<T> implements Data<T> {
+
+    private final String title;
+    private final T value;
+
+    /**
+     * @param title описание источника данных, например, адрес страницы или имя файла.
+     * @param value значение набора данных.
+     */
+    public ValueData(String title, T value) {
+        this.title = title;
+        this.value = value;
+    }
+
+    /**
+     * @return описание источника данных.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public T getContent() throws IntegratorException {
+        return value;
+    }
+
+    /**
+     * Значение не делится на части, поэтому параметр {@code limit} игнорируется.
+     */
+    @Override
+    public T getContent(int limit) throws IntegratorException {
+        return value;
+    }
+
+    /**
+     * Возвращает исходное значение: преобразованное значение имеет другой тип и не может быть возвращено
+     * как {@code T}. Преобразование выполняется, чтобы обнаружить ошибки конвертера.
+     */
+    @Override
+    public <U> T getContent(Converter<T, U> converter) throws IntegratorException {
+        converter.convert(value);
+        return value;
+    }
+
+    @Override
+    public <U> T getContent(Converter<T, U> converter, int limit) throws IntegratorException {
+        return getContent(converter);
+    }
+}
@@ -0,0 +1,416 @@
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Поиск источников данных обходом веб-страниц.
+ * <p>
+ * Начиная с исходной страницы ({@code source.initial}), обходчик извлекает ссылки {@code <a href>} и
+ * загружает найденные страницы в ширину, пока не наберёт {@code source.limit} источников. Страницы
+ * загружаются одновременно асинхронным {@link HttpClient}; к одному хосту одновременно выполняется не
+ * больше {@value #MAX_CONNECTIONS_PER_HOST_KEY} запросов, а запросы к нему начинаются не чаще, чем раз
+ * в {@value #DELAY_MILLIS_KEY} миллисекунд. Адреса нормализуются (регистр схемы и хоста, порт по
+ * умолчанию, фрагмент), и каждая страница загружается не больше одного раза.
+ * <p>
+ * Параметры читаются из {@code properties.cfg}:
+ * <ul>
+ * <li>{@value #LIMIT_KEY} — число возвращаемых источников;</li>
+ * <li>{@value #MAX_CONNECTIONS_PER_HOST_KEY} — число одновременных запросов к одному хосту;</li>
+ * <li>{@value #DELAY_MILLIS_KEY} — минимальный интервал между запросами к одному хосту;</li>
+ * <li>{@value #TIMEOUT_SECONDS_KEY} — время ожидания ответа;</li>
+ * <li>{@value #SAME_HOST_KEY} — переходить только по ссылкам на хост исходной страницы.</li>
+ * </ul>
+ */
+public class WebCrawler implements Preprocessor, AutoCloseable {
+
+    static final String INITIAL_KEY = "source.initial";
+    static final String LIMIT_KEY = "source.limit";
+    static final String MAX_CONNECTIONS_PER_HOST_KEY = "crawler.maxConnectionsPerHost";
+    static final String DELAY_MILLIS_KEY = "crawler.delayMillis";
+    static final String TIMEOUT_SECONDS_KEY = "crawler.timeoutSeconds";
+    static final String SAME_HOST_KEY = "crawler.sameHostOnly";
+
+    private static final Pattern LINK = Pattern.compile(
+            "<a\\s[^>]*?\\bhref\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s>]+))",
+            Pattern.CASE_INSENSITIVE);
+
+    private final HttpClient client;
+    private final ExecutorService executor = TaskExecutors.newPerTaskExecutor("crawler");
+    private final Map<String, HostGate> hosts = new ConcurrentHashMap<>();
+    private final int maxConnectionsPerHost;
+    private final long delayMillis;
+    private final Duration timeout;
+    private final boolean sameHostOnly;
+    private volatile int limit;
+
+    /**
+     * @param limit                 число возвращаемых источников.
+     * @param maxConnectionsPerHost число одновременных запросов к одному хосту.
+     * @param delayMillis           минимальный интервал между началом запросов к одному хосту.
+     * @param timeout               время ожидания ответа на запрос.
+     * @param sameHostOnly          переходить только по ссылкам на хост исходной страницы.
+     * @throws IllegalArgumentException если параметры отрицательны или {@code maxConnectionsPerHost < 1}.
+     */
+    public WebCrawler(int limit, int maxConnectionsPerHost, long delayMillis, Duration timeout,
+                      boolean sameHostOnly) {
+        this(limit, maxConnectionsPerHost, delayMillis, timeout, sameHostOnly, true);
+    }
+
+    /**
+     * @param limit                 число возвращаемых источников.
+     * @param maxConnectionsPerHost число одновременных запросов к одному хосту.
+     * @param delayMillis           минимальный интервал между началом запросов к одному хосту.
+     * @param timeout               время ожидания ответа на запрос.
+     * @param sameHostOnly          переходить только по ссылкам на хост исходной страницы.
+     * @param followRedirects       следовать перенаправлениям HTTP; если {@code false}, ответ с кодом 3xx
+     *                              считается ошибкой загрузки страницы.
+     * @throws IllegalArgumentException если параметры отрицательны или {@code maxConnectionsPerHost < 1}.
+     */
+    public WebCrawler(int limit, int maxConnectionsPerHost, long delayMillis, Duration timeout,
+                      boolean sameHostOnly, boolean followRedirects) {
+        if (maxConnectionsPerHost < 1 || delayMillis < 0) {
+            throw new IllegalArgumentException("Некорректные параметры обхода: maxConnectionsPerHost="
+                    + maxConnectionsPerHost + ", delayMillis=" + delayMillis);
+        }
+        setLimit(limit);
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.delayMillis = delayMillis;
+        this.timeout = timeout;
+        this.sameHostOnly = sameHostOnly;
+        this.client = HttpClient.newBuilder()
+                .followRedirects(followRedirects ? HttpClient.Redirect.NORMAL : HttpClient.Redirect.NEVER)
+                .connectTimeout(timeout)
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * Создаёт обходчик с параметрами из {@code properties.cfg}.
+     *
+     * @return новый обходчик.
+     */
+    public static WebCrawler fromConfig() {
+        return fromConfig(true);
+    }
+
+    /**
+     * Создаёт обходчик с параметрами из {@code properties.cfg}.
+     *
+     * @param followRedirects следовать перенаправлениям HTTP.
+     * @return новый обходчик.
+     */
+    public static WebCrawler fromConfig(boolean followRedirects) {
+        TaskConfig config = TaskConfig.shared();
+        return new WebCrawler(
+                Math.max(0, config.getInt(LIMIT_KEY, 10)),
+                Math.max(1, config.getInt(MAX_CONNECTIONS_PER_HOST_KEY, 2)),
+                Math.max(0, config.getInt(DELAY_MILLIS_KEY, 500)),
+                Duration.ofSeconds(Math.max(1, config.getInt(TIMEOUT_SECONDS_KEY, 30))),
+                config.getBoolean(SAME_HOST_KEY, true), followRedirects);
+    }
+
+    /**
+     * Создаёт исходный источник из параметра {@value #INITIAL_KEY}.
+     *
+     * @return источник, содержимое которого загружается при обращении.
+     * @throws IntegratorException если параметр не задан.
+     */
+    public Source<String> initialSource() throws IntegratorException {
+        String url = TaskConfig.shared().getString(INITIAL_KEY, null);
+        if (url == null) {
+            throw new IntegratorException("Не задан параметр " + INITIAL_KEY);
+        }
+        return source(url);
+    }
+
+    /**
+     * Создаёт источник для веб-страницы. Страница загружается при обращении к содержимому с соблюдением
+     * ограничений обходчика для её хоста.
+     *
+     * @param url адрес страницы.
+     * @return источник, описанием которого служит адрес страницы.
+     */
+    public Source<String> source(String url) {
+        return new TextSource(url, () -> {
+            try {
+                return fetch(URI.create(url)).get();
+            } catch (ExecutionException e) {
+                throw unwrap(e.getCause(), url);
+            }
+        });
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @throws IllegalArgumentException если {@code limit < 0}.
+     */
+    @Override
+    public void setLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Ограничение не может быть отрицательным: " + limit);
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Обходит страницы, начиная с исходной. Описанием исходного источника должен быть адрес страницы,
+     * а содержимым — её HTML; первым в списке возвращается сам исходный источник. Страницы, которые
+     * не удалось загрузить или которые не являются HTML, пропускаются.
+     *
+     * @param source исходный источник, например {@link #initialSource()}.
+     * @return не больше {@link #getLimit()} источников с уже загруженным содержимым.
+     * @throws IntegratorException если не удалось получить содержимое исходного источника, оно не является
+     *                             текстом или обход был прерван.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<Source<T>> getSources(Source<T> source) throws IntegratorException {
+        int max = limit;
+        if (max == 0) {
+            return new ArrayList<>();
+        }
+        Object content = source.getContent().getContent();
+        if (!(content instanceof String)) {
+            throw new IntegratorException("Источник не содержит HTML: " + source.getTitle());
+        }
+        URI start = normalize(source.getTitle());
+        if (start == null) {
+            throw new IntegratorException("Некорректный адрес источника: " + source.getTitle());
+        }
+        // содержимое страниц — String, поэтому T здесь совпадает с String
+        Crawl crawl = new Crawl(start, max);
+        crawl.add(TextSource.of(source.getTitle(), (String) content), extractLinks((String) content, start));
+        List<Source<T>> sources = new ArrayList<>();
+        for (Source<String> page : crawl.run()) {
+            sources.add((Source<T>) (Source<?>) page);
+        }
+        return sources;
+    }
+
+    /**
+     * Останавливает потоки обходчика.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Извлекает из HTML абсолютные адреса ссылок {@code http} и {@code https} в порядке появления.
+     *
+     * @param html HTML страницы.
+     * @param base адрес страницы для разрешения относительных ссылок.
+     * @return нормализованные адреса.
+     */
+    static List<URI> extractLinks(String html, URI base) {
+        List<URI> links = new ArrayList<>();
+        Matcher matcher = LINK.matcher(html);
+        while (matcher.find()) {
+            String href = matcher.group(1) != null ? matcher.group(1)
+                    : matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+            href = href.strip().replace("&amp;", "&");
+            if (href.isEmpty() || href.startsWith("#")) {
+                continue;
+            }
+            try {
+                URI link = normalize(base.resolve(href.replace(" ", "%20")).toString());
+                if (link != null) {
+                    links.add(link);
+                }
+            } catch (IllegalArgumentException e) {
+                // некорректная ссылка пропускается
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Приводит адрес к каноническому виду: схема и хост в нижнем регистре, без порта по умолчанию,
+     * фрагмента и с путём «/» вместо пустого.
+     *
+     * @return нормализованный адрес или {@code null}, если адрес некорректен или не является HTTP(S).
+     */
+    static URI normalize(String url) {
+        try {
+            URI uri = new URI(url);
+            String scheme = uri.getScheme() == null ? null : uri.getScheme().toLowerCase(Locale.ROOT);
+            if (!"http".equals(scheme) && !"https".equals(scheme) || uri.getHost() == null) {
+                return null;
+            }
+            int port = uri.getPort();
+            if ("http".equals(scheme) && port == 80 || "https".equals(scheme) && port == 443) {
+                port = -1;
+            }
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            String query = uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery();
+            return new URI(scheme + "://" + uri.getHost().toLowerCase(Locale.ROOT)
+                    + (port == -1 ? "" : ":" + port) + path + query);
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Загружает страницу с соблюдением ограничений для её хоста.
+     *
+     * @return HTML страницы; завершается ошибкой {@link IntegratorException}, если ответ не успешен
+     * или не является HTML.
+     */
+    private CompletableFuture<String> fetch(URI uri) {
+        HostGate gate = hosts.computeIfAbsent(uri.getHost() + ":" + uri.getPort(), host -> new HostGate());
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Accept", "text/html,application/xhtml+xml")
+                .GET()
+                .build();
+        return CompletableFuture.runAsync(gate::enter, executor)
+                .thenCompose(ignored -> client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                        .whenComplete((response, error) -> gate.leave()))
+                .thenApply(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new CompletionException(new IntegratorException(
+                                "Сервер вернул код " + response.statusCode() + ": " + uri));
+                    }
+                    String type = response.headers().firstValue("Content-Type").orElse("text/html");
+                    if (!type.toLowerCase(Locale.ROOT).contains("html")) {
+                        throw new CompletionException(new IntegratorException(
+                                "Страница не является HTML (" + type + "): " + uri));
+                    }
+                    return response.body();
+                });
+    }
+
+    private static Exception unwrap(Throwable error, String url) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error instanceof IntegratorException ? (IntegratorException) error
+                : new IntegratorException("Не удалось загрузить страницу: " + url, error);
+    }
+
+    /**
+     * Ограничения запросов к одному хосту: число одновременных запросов и интервал между их началом.
+     */
+    private final class HostGate {
+        private final Semaphore connections = new Semaphore(maxConnectionsPerHost, true);
+        private long nextStart;
+
+        void enter() {
+            try {
+                connections.acquire();
+                long wait = reserve();
+                if (wait > 0) {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                }
+            } catch (InterruptedException e) {
+                connections.release();
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }
+
+        void leave() {
+            connections.release();
+        }
+
+        private synchronized long reserve() {
+            long now = System.nanoTime();
+            long start = nextStart == 0 ? now : Math.max(now, nextStart);
+            nextStart = start + delayMillis * 1_000_000;
+            return start - now;
+        }
+    }
+
+    /**
+     * Состояние одного обхода: очередь адресов в порядке обнаружения, множество уже встреченных адресов
+     * и загруженные страницы. Одновременно загружается не больше страниц, чем осталось до ограничения.
+     */
+    private final class Crawl {
+        private final String host;
+        private final int max;
+        private final Set<URI> seen = new HashSet<>();
+        private final Deque<URI> frontier = new ArrayDeque<>();
+        private final List<Source<String>> pages = new ArrayList<>();
+        private final List<CompletableFuture<?>> requests = new ArrayList<>();
+        private int inFlight;
+
+        Crawl(URI start, int max) {
+            this.host = start.getHost();
+            this.max = max;
+            seen.add(start);
+        }
+
+        List<Source<String>> run() throws IntegratorException {
+            try {
+                synchronized (this) {
+                    while (true) {
+                        while (pages.size() + inFlight < max && !frontier.isEmpty()) {
+                            URI uri = frontier.poll();
+                            inFlight++;
+                            requests.add(fetch(uri).whenComplete((html, error) -> completed(uri, html, error)));
+                        }
+                        if (inFlight == 0 || pages.size() >= max) {
+                            return new ArrayList<>(pages);
+                        }
+                        wait();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IntegratorException("Обход страниц прерван", e);
+            } finally {
+                synchronized (this) {
+                    requests.forEach(request -> request.cancel(true));
+                }
+            }
+        }
+
+        void completed(URI uri, String html, Throwable error) {
+            List<URI> links = error == null ? extractLinks(html, uri) : List.of();
+            synchronized (this) {
+                inFlight--;
+                if (error == null) {
+                    add(TextSource.of(uri.toString(), html), links);
+                } else {
+                    System.err.println("Страница пропущена: " + unwrap(error, uri.toString()).getMessage());
+                }
+                notifyAll();
+            }
+        }
+
+        synchronized void add(Source<String> page, List<URI> links) {
+            if (pages.size() >= max) {
+                return;
+            }
+            pages.add(page);
+            for (URI link : links) {
+                if ((!sameHostOnly || link.getHost().equals(host)) && seen.add(link)) {
+                    frontier.add(link);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AnalysisPipelineTest {
+
+    private static final int SOURCES = 40;
+    private static final long CALL_MILLIS = 50;
+
+    @Test
+    void process_runsSourcesConcurrentlyWithinInFlightCap() throws Exception {
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        Analyzer<String> analyzer = slowAnalyzer(current, peak);
+        Set<String> reported = ConcurrentHashMap.newKeySet();
+        Reporter<String> reporter = collectingReporter(reported);
+
+        long start = System.nanoTime();
+        try (AnalysisPipeline pipeline = new AnalysisPipeline(analyzer, reporter, 8)) {
+            assertEquals(SOURCES, pipeline.process(sources(SOURCES)));
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(SOURCES, reported.size());
+        assertTrue(peak.get() <= 8, "превышено ограничение: " + peak.get());
+        assertTrue(peak.get() > 1, "источники обрабатывались последовательно");
+        assertTrue(elapsedMillis < SOURCES * CALL_MILLIS, "время обработки: " + elapsedMillis + " мс");
+    }
+
+    @Test
+    void process_failedSourceDoesNotStopOthers() throws Exception {
+        Analyzer<String> analyzer = mock();
+        when(analyzer.analyze(anySource())).thenAnswer(inv -> {
+            Source<String> source = inv.getArgument(0);
+            if (source.getTitle().equals("source-3")) {
+                throw new IntegratorException("API down");
+            }
+            return new TextData(source.getTitle(), "ok");
+        });
+        Set<String> reported = ConcurrentHashMap.newKeySet();
+
+        try (AnalysisPipeline pipeline = new AnalysisPipeline(analyzer, collectingReporter(reported), 4)) {
+            assertEquals(9, pipeline.process(sources(10)));
+        }
+        assertFalse(reported.contains("source-3"));
+    }
+
+    @Test
+    void constructor_nonPositiveCap_throws() {
+        Analyzer<String> analyzer = mock();
+        Reporter<String> reporter = mock();
+        assertThrows(IllegalArgumentException.class, () -> new AnalysisPipeline(analyzer, reporter, 0));
+    }
+
+    private static List<Source<String>> sources(int count) {
+        List<Source<String>> sources = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            sources.add(TextSource.of("source-" + i, "<p>document " + i + "</p>"));
+        }
+        return sources;
+    }
+
+    private static Source<String> anySource() {
+        return any();
+    }
+
+    private static Analyzer<String> slowAnalyzer(AtomicInteger current, AtomicInteger peak) throws Exception {
+        Analyzer<String> analyzer = mock();
+        when(analyzer.analyze(anySource())).thenAnswer(inv -> {
+            int now = current.incrementAndGet();
+            peak.accumulateAndGet(now, Math::max);
+            Thread.sleep(CALL_MILLIS);
+            current.decrementAndGet();
+            Source<String> source = inv.getArgument(0);
+            return new TextData(source.getTitle(), "result");
+        });
+        return analyzer;
+    }
+
+    private static Reporter<String> collectingReporter(Set<String> titles) {
+        return new Reporter<>() {
+            @Override
+            public boolean add(Data<String> content) {
+                return titles.add(((TextData) content).getTitle());
+            }
+
+            @Override
+            public Data<String> getReport() {
+                return new TextData("report", String.join("\n", titles));
+            }
+        };
+    }
+}
@@ -0,0 +1,194 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisServerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private AnalysisServer server;
+    private String base;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void submittedJob_isAnalyzedWithItsCriteriaAndReported() throws Exception {
+        List<Map<String, String>> seenCriteria = new CopyOnWriteArrayList<>();
+        start(1, 10, criteria -> {
+            seenCriteria.add(criteria);
+            return stubAnalyzer(source -> "биография:\nАндрей родился в " + source.getContent().getContent() + ".");
+        });
+
+        HttpResponse<String> submitted = post("{\"html\":\"Лысых Горах\",\"title\":\"page-1\","
+                + "\"object\":\"‘Андрей’\",\"targets\":\"биография, смерть\"}");
+        assertEquals(202, submitted.statusCode());
+        String id = MAPPER.readTree(submitted.body()).get("id").asText();
+        assertEquals("/jobs/" + id, submitted.headers().firstValue("Location").orElse(null));
+
+        JsonNode status = awaitFinished(id);
+        assertEquals("DONE", status.get("status").asText());
+        assertEquals("page-1", status.get("title").asText());
+        assertEquals(Map.of("object", "‘Андрей’", "targets", "биография, смерть"), seenCriteria.get(0));
+
+        HttpResponse<String> report = get("/jobs/" + id + "/report");
+        assertEquals(200, report.statusCode());
+        assertEquals("биография:\nАндрей родился в Лысых Горах.\nсмерть:\nNot Found", report.body());
+    }
+
+    @Test
+    void fullQueue_rejectsJobsUntilWorkersCatchUp() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        start(1, 1, criteria -> stubAnalyzer(source -> {
+            release.await(10, TimeUnit.SECONDS);
+            return "биография:\nОк.";
+        }));
+
+        String running = MAPPER.readTree(post("{\"html\":\"1\",\"targets\":\"биография\"}").body())
+                .get("id").asText();
+        awaitStatus(running, "RUNNING");
+        String queued = MAPPER.readTree(post("{\"html\":\"2\",\"targets\":\"биография\"}").body())
+                .get("id").asText();
+        HttpResponse<String> rejected = post("{\"html\":\"3\",\"targets\":\"биография\"}");
+        assertEquals(503, rejected.statusCode());
+        assertTrue(rejected.headers().firstValue("Retry-After").isPresent());
+        assertEquals(409, get("/jobs/" + queued + "/report").statusCode());
+        JsonNode health = MAPPER.readTree(get("/health").body());
+        assertEquals(1, health.get("queued").asInt());
+
+        release.countDown();
+        assertEquals("DONE", awaitFinished(running).get("status").asText());
+        assertEquals("DONE", awaitFinished(queued).get("status").asText());
+    }
+
+    @Test
+    void failedJobsAndBadRequests_areReported() throws Exception {
+        start(2, 10, criteria -> stubAnalyzer(source -> {
+            throw new IntegratorException("Gemini API не вернул ответ");
+        }));
+
+        String id = MAPPER.readTree(post("{\"html\":\"текст\"}").body()).get("id").asText();
+        JsonNode status = awaitFinished(id);
+        assertEquals("FAILED", status.get("status").asText());
+        assertEquals("Gemini API не вернул ответ", status.get("error").asText());
+        assertEquals(409, get("/jobs/" + id + "/report").statusCode());
+
+        assertEquals(400, post("{не json").statusCode());
+        assertEquals(400, post("{\"title\":\"без источника\"}").statusCode());
+        assertEquals(400, post("{\"html\":\"a\",\"url\":\"http://example.com\"}").statusCode());
+        assertEquals(400, post("{\"url\":\"http://example.com\"}").statusCode());
+        assertEquals(404, get("/jobs/unknown").statusCode());
+        assertEquals(405, get("/jobs").statusCode());
+    }
+
+    @Test
+    void urlJobs_acceptOnlyPublicHttpAddresses() throws Exception {
+        try (WebCrawler crawler = new WebCrawler(1, 1, 0, Duration.ofSeconds(1), true, false)) {
+            server = new AnalysisServer(0, 1, 10, 100, 1024 * 1024, criteria -> stubAnalyzer(source -> "ответ"),
+                    crawler);
+            InetSocketAddress address = server.start();
+            assertTrue(address.getAddress().isLoopbackAddress(), "сервер слушает " + address);
+            base = "http://127.0.0.1:" + address.getPort();
+
+            for (String url : List.of("file:///etc/passwd", "http://127.0.0.1:" + address.getPort() + "/health",
+                    "http://localhost/", "http://10.1.2.3/", "http://192.168.0.1/", "http://169.254.169.254/",
+                    "http://100.64.0.1/", "http://[::1]/", "http://[fd00::1]/", "http:///")) {
+                HttpResponse<String> response = post("{\"url\":\"" + url + "\"}");
+                assertEquals(400, response.statusCode(), url + ": " + response.body());
+            }
+        }
+        AnalysisServer.requirePublicUrl("https://93.184.215.14/page");
+    }
+
+    private void start(int workers, int queueCapacity, Function<Map<String, String>, Analyzer<String>> analyzers)
+            throws Exception {
+        server = new AnalysisServer(0, workers, queueCapacity, 100, 1024 * 1024, analyzers, null);
+        base = "http://127.0.0.1:" + server.start().getPort();
+    }
+
+    private HttpResponse<String> post(String json) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(base + "/jobs"))
+                .POST(HttpRequest.BodyPublishers.ofString(json)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(base + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private JsonNode awaitFinished(String id) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            JsonNode status = MAPPER.readTree(get("/jobs/" + id).body());
+            String value = status.get("status").asText();
+            if (value.equals("DONE") || value.equals("FAILED") || System.nanoTime() > deadline) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitStatus(String id, String expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!expected.equals(MAPPER.readTree(get("/jobs/" + id).body()).get("status").asText())) {
+            assertTrue(System.nanoTime() < deadline, "задание не перешло в состояние " + expected);
+            Thread.sleep(10);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Answer {
+        String apply(Source<String> source) throws Exception;
+    }
+
+    private static Analyzer<String> stubAnalyzer(Answer answer) {
+        return new Analyzer<>() {
+            @Override
+            public Data<String> analyze(Source<String> source) throws IntegratorException {
+                try {
+                    return new TextData(source.getTitle(), answer.apply(source));
+                } catch (IntegratorException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IntegratorException(e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public <U> Data<U> analyze(Source<String> source, Converter<String, U> converter) {
+                return null;
+            }
+
+            @Override
+            public Data<String> analyze(Data<String> data) {
+                return null;
+            }
+
+            @Override
+            public <U> Data<U> analyze(Data<String> data, Converter<String, U> converter) {
+                return null;
+            }
+        };
+    }
+}
@@ -3,10 +3,16 @@ import com.google.genai.Models;
 import com.google.genai.errors.ClientException;
 import com.google.genai.types.GenerateContentConfig;
 import com.google.genai.types.GenerateContentResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedConstruction;
 
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -17,23 +23,44 @@ import static org.mockito.Mockito.mockConstruction;
 
 class ApiCallerTest {
 
+    @BeforeEach
+    void setUp() {
+        // клиент создаётся заново внутри mockConstruction каждого теста
+        GeminiClientHolder.shutdown();
+        ApiCaller.setResponseCache(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        GeminiClientHolder.shutdown();
+        ApiCaller.setRetryPolicy(RetryPolicy.fromConfig());
+        // прерванные по времени запросы уменьшают предел одновременных запросов общего регулятора
+        ApiCaller.setThrottle(RequestThrottle.fromConfig());
+    }
+
+    /**
+     * Попытки вызова выполняются в отдельном потоке, а {@link MockedConstruction} действует только в потоке
+     * теста, поэтому общий клиент создаётся заранее.
+     */
+    private static void createClientInTestThread() {
+        GeminiClientHolder.getClient();
+    }
 
     @Test
-    void whenProcessedHtmlIsNull_thenThrowsIllegalArgumentException() {
+    void whenPromptIsNull_thenThrowsIllegalArgumentException() {
         assertThrows(IllegalArgumentException.class,
-                () -> ApiCaller.makeApiCall(null, "prompt"));
+                () -> ApiCaller.makeApiCall((Prompt) null));
     }
 
     @Test
-    void whenPromptIsNull_thenThrowsIllegalArgumentException() {
+    void whenPromptTextIsNull_thenThrowsIllegalArgumentException() {
         assertThrows(IllegalArgumentException.class,
-                () -> ApiCaller.makeApiCall("<html/>", null));
+                () -> ApiCaller.makeApiCall((String) null));
     }
 
     @Test
     void whenApiReturnsResponse_thenReturnsResponseText() throws Exception {
-        String fakeHtml      = "<p>test</p>";
-        String fakePrompt    = "Tell me about: ";
+        String fakePrompt    = "Tell me about: <p>test</p>";
         String expectedText  = "LLM answer";
 
         try (MockedConstruction<Client> ignored = mockConstruction(Client.class, (mockClient, context) -> {
@@ -48,19 +75,19 @@ class ApiCallerTest {
 
             when(mockModels.generateContent(
                     eq("gemini-2.5-flash-preview-05-20"),
-                    eq(fakePrompt + fakeHtml),
+                    eq(fakePrompt),
                     any(GenerateContentConfig.class)))
                     .thenReturn(fakeResp);
         })) {
-            String actual = ApiCaller.makeApiCall(fakeHtml, fakePrompt);
+            createClientInTestThread();
+            String actual = ApiCaller.makeApiCall(fakePrompt);
             assertEquals(expectedText, actual);
         }
     }
 
     @Test
     void whenClientThrowsClientException_thenReturnsNull() throws Exception {
-        String fakeHtml   = "<p>oops</p>";
-        String fakePrompt = "P:";
+        String fakePrompt = "P: <p>oops</p>";
 
         try (MockedConstruction<Client> ignored = mockConstruction(Client.class, (mockClient, ctx) -> {
 
@@ -72,20 +99,148 @@ class ApiCallerTest {
             when(mockModels.generateContent(anyString(), anyString(), any()))
                     .thenThrow(new ClientException(400, "fail", "API down"));
         })) {
-            String result = ApiCaller.makeApiCall(fakeHtml, fakePrompt);
+            createClientInTestThread();
+            String result = ApiCaller.makeApiCall(fakePrompt);
             assertNull(result);
         }
     }
 
     @Test
     void whenUnexpectedException_thenReturnsNull() throws Exception {
-        String fakeHtml   = "";
         String fakePrompt = "";
 
         try (MockedConstruction<Client> ignored = mockConstruction(Client.class, (mockClient, ctx) -> {
         })) {
-            String result = ApiCaller.makeApiCall(fakeHtml, fakePrompt);
+            createClientInTestThread();
+            String result = ApiCaller.makeApiCall(fakePrompt);
             assertNull(result);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void payloadListener_seesEachDocumentExactlyOnce() throws Exception {
+        String document = "Князь Андрей Болконский вошёл в гостиную.";
+        Prompt prompt = new PromptTemplate("Текст: {{ИСХОДНЫЙ_ТЕКСТ}}\nobject={{OBJECT_VALUES}}")
+                .render(Map.of(PromptTemplate.SOURCE_TEXT, document, PromptTemplate.OBJECT_VALUES, "'Андрей'"));
+        List<Prompt> payloads = new ArrayList<>();
+
+        try (FakeGeminiServer server = new FakeGeminiServer()) {
+            GeminiClientHolder.configure(server::newClient);
+            ApiCaller.setPayloadListener((model, p) -> payloads.add(p));
+
+            assertEquals("ok", ApiCaller.makeApiCall(prompt));
+
+            assertEquals(List.of(prompt), payloads);
+            assertEquals(prompt.getText().getBytes(StandardCharsets.UTF_8).length, payloads.get(0).getByteCount());
+            String body = server.getRequestBodies().get(0);
+            assertEquals(body.indexOf(document), body.lastIndexOf(document));
+            assertTrue(body.contains(document));
+        } finally {
+            ApiCaller.setPayloadListener(null);
+            GeminiClientHolder.configure(Client::new);
+        }
+    }
+
+    @Test
+    void transientErrors_areRetriedUntilSuccess() throws Exception {
+        ApiCaller.setRetryPolicy(new RetryPolicy(4, 10, 50, 10_000, false, 0));
+        try (FakeGeminiServer server = new FakeGeminiServer()) {
+            GeminiClientHolder.configure(server::newClient);
+            server.failNext(2, 503);
+
+            assertEquals("ok", ApiCaller.makeApiCall("prompt"));
+            assertEquals(3, server.getRequestCount());
+        } finally {
+            GeminiClientHolder.configure(Client::new);
+        }
+    }
+
+    @Test
+    void nonRetryableError_isNotRetried() throws Exception {
+        ApiCaller.setRetryPolicy(new RetryPolicy(4, 10, 50, 10_000, false, 0));
+        try (FakeGeminiServer server = new FakeGeminiServer()) {
+            GeminiClientHolder.configure(server::newClient);
+            server.failNext(1, 400);
+
+            assertNull(ApiCaller.makeApiCall("prompt"));
+            assertEquals(1, server.getRequestCount());
+        } finally {
+            GeminiClientHolder.configure(Client::new);
+        }
+    }
+
+    @Test
+    void retries_stopAfterMaxAttempts() throws Exception {
+        ApiCaller.setRetryPolicy(new RetryPolicy(3, 10, 50, 10_000, false, 0));
+        try (FakeGeminiServer server = new FakeGeminiServer()) {
+            GeminiClientHolder.configure(server::newClient);
+            server.failNext(10, 429);
+
+            assertNull(ApiCaller.makeApiCall("prompt"));
+            assertEquals(3, server.getRequestCount());
+        } finally {
+            GeminiClientHolder.configure(Client::new);
+        }
+    }
+
+    @Test
+    void retries_stopWhenDeadlineWouldBeExceeded() throws Exception {
+        ApiCaller.setRetryPolicy(new RetryPolicy(10, 5_000, 5_000, 1_000, false, 0));
+        try (FakeGeminiServer server = new FakeGeminiServer()) {
+            GeminiClientHolder.configure(server::newClient);
+            server.failNext(10, 503);
+
+            long start = System.nanoTime();
+            assertNull(ApiCaller.makeApiCall("prompt"));
+            assertTrue(System.nanoTime() - start < 2_000_000_000L);
+        } finally {
+            GeminiClientHolder.configure(Client::new);
+        }
+    }
+
+    @Test
+    void hungRequest_failsWhenDeadlineExpires() throws Exception {
+        ApiCaller.setRetryPolicy(new RetryPolicy(3, 10, 50, 500, false, 0));
+        try (FakeGeminiServer server = new FakeGeminiServer()) {
+            GeminiClientHolder.configure(server::newClient);
+            server.delayNext(1, 5_000);
+
+            long start = System.nanoTime();
+            assertNull(ApiCaller.makeApiCall("prompt"));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertTrue(elapsedMillis >= 500 && elapsedMillis < 2_000, "время ответа: " + elapsedMillis + " мс");
+            assertEquals(1, server.getRequestCount());
+        } finally {
+            GeminiClientHolder.configure(Client::new);
+        }
+    }
+
+    @Test
+    void slowRequest_isHedgedAndFasterResponseWins() throws Exception {
+        ApiCaller.setRetryPolicy(new RetryPolicy(1, 0, 0, 10_000, true, 100));
+        try (FakeGeminiServer server = new FakeGeminiServer()) {
+            GeminiClientHolder.configure(server::newClient);
+            server.delayNext(1, 3_000);
+
+            long start = System.nanoTime();
+            assertEquals("ok", ApiCaller.makeApiCall("prompt"));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertTrue(elapsedMillis < 2_000, "время ответа: " + elapsedMillis + " мс");
+            assertEquals(2, server.getRequestCount());
+        } finally {
+            GeminiClientHolder.configure(Client::new);
+        }
+    }
+
+    @Test
+    void backoff_growsExponentiallyWithinBounds() {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1_000, 60_000, false, 0);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.backoffMillis(1) <= 100);
+            assertTrue(policy.backoffMillis(3) <= 400);
+            assertTrue(policy.backoffMillis(10) <= 1_000);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncFileWriterTest {
+
+    private static final int PRODUCERS = 16;
+    private static final int LINES_PER_PRODUCER = 2_000;
+    private static final int FILES = 4;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void append_manyProducers_keepsEveryLineIntact() throws Exception {
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+        long start = System.nanoTime();
+        try (AsyncFileWriter writer = new AsyncFileWriter(256, AsyncFileWriter.FlushPolicy.NONE, 0)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                int producer = p;
+                futures.add(producers.submit(() -> {
+                    for (int i = 0; i < LINES_PER_PRODUCER; i++) {
+                        writer.append(dir.resolve("out-" + (i % FILES) + ".txt"),
+                                "producer-" + producer + " line-" + i + " строка данных\n");
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            writer.flush().join();
+        } finally {
+            producers.shutdownNow();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("AsyncFileWriter: " + PRODUCERS * LINES_PER_PRODUCER + " записей от " + PRODUCERS
+                + " потоков за " + elapsedMillis + " мс");
+
+        Set<String> lines = new HashSet<>();
+        for (int f = 0; f < FILES; f++) {
+            for (String line : Files.readAllLines(dir.resolve("out-" + f + ".txt"), StandardCharsets.UTF_8)) {
+                assertTrue(line.matches("producer-\\d+ line-\\d+ строка данных"), line);
+                assertTrue(lines.add(line), "строка записана дважды: " + line);
+            }
+        }
+        assertEquals(PRODUCERS * LINES_PER_PRODUCER, lines.size());
+    }
+
+    @Test
+    void write_replacesContentAndKeepsOrderWithAppends() throws Exception {
+        Path file = dir.resolve("result.txt");
+        Files.writeString(file, "старое содержимое, которое длиннее нового");
+        try (AsyncFileWriter writer = new AsyncFileWriter(16, AsyncFileWriter.FlushPolicy.BATCH, 0)) {
+            writer.write(file, "первый");
+            writer.append(file, " + дописано");
+            writer.write(file, "второй");
+            CompletableFuture<Void> last = writer.append(file, " + хвост");
+            last.join();
+            assertEquals("второй + хвост", Files.readString(file, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void write_failureCompletesOnlyThatFileExceptionally() throws Exception {
+        Path directory = Files.createDirectory(dir.resolve("not-a-file"));
+        Path file = dir.resolve("ok.txt");
+        try (AsyncFileWriter writer = new AsyncFileWriter(16, AsyncFileWriter.FlushPolicy.INTERVAL, 10)) {
+            CompletableFuture<Void> failed = writer.write(directory, "x");
+            CompletableFuture<Void> written = writer.write(file, "ok");
+            assertThrows(CompletionException.class, failed::join);
+            written.join();
+            assertEquals("ok", Files.readString(file));
+        }
+    }
+
+    @Test
+    void close_writesQueuedDataAndRejectsNewWrites() throws Exception {
+        Path file = dir.resolve("closed.txt");
+        AsyncFileWriter writer = new AsyncFileWriter(4, AsyncFileWriter.FlushPolicy.NONE, 0);
+        for (int i = 0; i < 100; i++) {
+            writer.append(file, i + "\n");
+        }
+        writer.close();
+        assertEquals(100, Files.readAllLines(file).size());
+        assertThrows(IllegalStateException.class, () -> writer.append(file, "late"));
+        writer.close();
+    }
+}
@@ -0,0 +1,155 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mockStatic;
+
+class BatchCallerTest {
+
+    private FakeBatchServer server;
+    private BatchCaller caller;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeBatchServer();
+        caller = new BatchCaller(server.baseUrl(), FakeBatchServer.API_KEY, Duration.ofMillis(10),
+                Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void run_submitsJsonlAndMapsResultsByKey() throws Exception {
+        server.setResponder(text -> "ответ на " + text);
+        server.setFailingKeys(Set.of("c"));
+        server.completeAfter(3, "BATCH_STATE_SUCCEEDED");
+        Map<String, Prompt> prompts = new LinkedHashMap<>();
+        prompts.put("a", new Prompt("Найди «банки»\nв тексте"));
+        prompts.put("b", new Prompt("Второй"));
+        prompts.put("c", new Prompt("Третий"));
+
+        Map<String, String> responses = caller.run(prompts);
+
+        assertEquals(List.of("a", "b", "c"), List.copyOf(responses.keySet()));
+        assertEquals("ответ на Найди «банки»\nв тексте", responses.get("a"));
+        assertEquals("ответ на Второй", responses.get("b"));
+        assertNull(responses.get("c"));
+        assertEquals(3, server.getPollCount());
+
+        List<String> lines = server.getUploadedLines();
+        assertEquals(3, lines.size());
+        JsonNode first = new ObjectMapper().readTree(lines.get(0));
+        assertEquals("a", first.path("key").asText());
+        assertEquals("Найди «банки»\nв тексте",
+                first.path("request").path("contents").path(0).path("parts").path(0).path("text").asText());
+        assertEquals(0.95, first.path("request").path("generationConfig").path("topP").asDouble(), 1e-6);
+    }
+
+    @Test
+    void run_failsWhenBatchFailsOrTimesOut() throws Exception {
+        server.completeAfter(1, "BATCH_STATE_FAILED");
+        IntegratorException failed = assertThrows(IntegratorException.class,
+                () -> caller.run(Map.of("a", new Prompt("x"))));
+        assertTrue(failed.getMessage().contains("BATCH_STATE_FAILED"), failed.getMessage());
+
+        server.completeAfter(1_000, "BATCH_STATE_SUCCEEDED");
+        BatchCaller impatient = new BatchCaller(server.baseUrl(), FakeBatchServer.API_KEY,
+                Duration.ofMillis(20), Duration.ofMillis(100));
+        assertThrows(IntegratorException.class, () -> impatient.run(Map.of("a", new Prompt("x"))));
+
+        BatchCaller unauthorized = new BatchCaller(server.baseUrl(), "wrong", Duration.ofMillis(10),
+                Duration.ofSeconds(1));
+        IntegratorException denied = assertThrows(IntegratorException.class,
+                () -> unauthorized.run(Map.of("a", new Prompt("x"))));
+        assertTrue(denied.getMessage().contains("401"), denied.getMessage());
+        assertTrue(caller.run(Map.of()).isEmpty());
+    }
+
+    @Test
+    void analyzeBatch_mapsAnswersBackToSources() throws Exception {
+        server.setResponder(text -> "биография:\nОтвет для " + (text.contains("улыбнулся") ? "третьего" : "первого"));
+        List<TextSource> sources = List.of(
+                TextSource.of("page-1", "<p>Андрей вошёл.</p>"),
+                TextSource.of("page-2", "<p>Пьер молчал.</p>"),
+                TextSource.of("page-3", "<p>Князь Андрей улыбнулся.</p>"),
+                new TextSource("page-4", () -> null));
+
+        List<Data<String>> results = new StringAnalyzer(null).analyzeBatch(sources, caller);
+
+        assertEquals(3, results.size());
+        assertEquals("page-1", ((TextData) results.get(0)).getTitle());
+        assertTrue(results.get(0).getContent().endsWith("Ответ для первого"));
+        assertEquals("page-2", ((TextData) results.get(1)).getTitle());
+        assertTrue(results.get(1).getContent().contains("Not Found"));
+        assertEquals("page-3", ((TextData) results.get(2)).getTitle());
+        assertTrue(results.get(2).getContent().endsWith("Ответ для третьего"));
+        assertEquals(2, server.getUploadedLines().size());
+    }
+
+    @Test
+    void analyzeBatch_splitsOversizedDocumentLikeTheNormalPath() throws Exception {
+        server.setResponder(text -> {
+            Matcher matcher = Pattern.compile("номер (\\d+)").matcher(text);
+            return "биография:\nФрагмент с предложения " + (matcher.find() ? matcher.group(1) : "?");
+        });
+        StringBuilder html = new StringBuilder();
+        for (int i = 0; i < 3_000; i++) {
+            html.append("<p>Князь Андрей прочёл письмо номер ").append(i).append(" и задумался надолго.</p>");
+        }
+
+        List<Data<String>> results = new StringAnalyzer(null)
+                .analyzeBatch(List.of(TextSource.of("big", html.toString())), caller);
+
+        int requests = server.getUploadedLines().size();
+        assertTrue(requests > 1, "документ не разделён на части");
+        assertEquals(1, results.size());
+        String answer = results.get(0).getContent();
+        assertTrue(answer.startsWith("биография:"), answer);
+        assertTrue(answer.contains("Фрагмент с предложения 0"), answer);
+        assertEquals(requests, answer.split("Фрагмент с предложения", -1).length - 1, answer);
+    }
+
+    @Test
+    void analyzeBatch_structuredOutput_requestsAndParsesJson(@TempDir Path dir) throws Exception {
+        server.setResponder(text -> "{\"биография\": [\"Андрей вошёл.\"], \"смерть\": []}");
+        String properties = Files.readString(Paths.get(TaskConfig.DEFAULT_FILE));
+        Path file = Files.writeString(dir.resolve("properties.cfg"),
+                properties + "\n" + ApiCaller.STRUCTURED_OUTPUT_KEY + "=true\n");
+        TaskConfig structured = new TaskConfig(file, Set.of());
+        try (MockedStatic<TaskConfig> config = mockStatic(TaskConfig.class, CALLS_REAL_METHODS)) {
+            config.when(TaskConfig::shared).thenReturn(structured);
+
+            List<Data<String>> results = new StringAnalyzer(null)
+                    .analyzeBatch(List.of(TextSource.of("page-1", "<p>Андрей вошёл.</p>")), caller);
+
+            assertEquals(1, results.size());
+            ExtractionResult parsed = ExtractionResult.parse(results.get(0).getContent(),
+                    List.of("биография", "смерть"));
+            assertEquals(List.of("Андрей вошёл."), parsed.getSentences("биография"));
+        }
+        JsonNode config = new ObjectMapper().readTree(server.getUploadedLines().get(0))
+                .path("request").path("generationConfig");
+        assertEquals("application/json", config.path("responseMimeType").asText());
+        assertTrue(config.path("responseSchema").path("properties").has("биография"));
+    }
+}
@@ -0,0 +1,123 @@
+import com.google.genai.Client;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedExtractorTest {
+
+    private static final List<String> TARGETS = List.of("биография", "смерть");
+
+    @AfterEach
+    void tearDown() {
+        ApiCaller.setResponseCache(null);
+        ApiCaller.setRetryPolicy(RetryPolicy.fromConfig());
+        GeminiClientHolder.configure(Client::new);
+    }
+
+    private static String document(int sentences) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= sentences; i++) {
+            sb.append("Sentence ").append(i).append(" about Andrey and his long journey home. ");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void split_returnsShortTextAsSingleChunk() {
+        DocumentChunker chunker = new DocumentChunker(1_000, 10);
+        assertEquals(List.of("Князь Андрей уехал. Пьер остался."),
+                chunker.split("  Князь Андрей уехал. Пьер остался.  "));
+    }
+
+    @Test
+    void split_keepsSentencesWholeWithinBudgetAndOverlapsChunks() {
+        DocumentChunker chunker = new DocumentChunker(60, 15);
+        String text = document(20);
+
+        List<String> chunks = chunker.split(text);
+
+        assertTrue(chunks.size() > 1);
+        List<String> sentences = chunker.sentences(text);
+        for (String chunk : chunks) {
+            assertTrue(Prompt.estimateTokens(chunk) <= 60, chunk);
+        }
+        for (String sentence : sentences) {
+            assertTrue(chunks.stream().anyMatch(chunk -> chunk.contains(sentence)), sentence);
+        }
+        for (int i = 1; i < chunks.size(); i++) {
+            String previous = chunks.get(i - 1);
+            String lastSentence = previous.substring(previous.lastIndexOf("Sentence "));
+            assertTrue(chunks.get(i).startsWith(lastSentence), "соседние фрагменты должны перекрываться");
+        }
+    }
+
+    @Test
+    void split_breaksSentenceLongerThanBudget() {
+        DocumentChunker chunker = new DocumentChunker(10, 0);
+        List<String> chunks = chunker.split("слово ".repeat(40));
+        assertTrue(chunks.size() > 1);
+        chunks.forEach(chunk -> assertTrue(Prompt.estimateTokens(chunk) <= 10, chunk));
+        assertEquals(40, String.join(" ", chunks).split(" ").length);
+    }
+
+    @Test
+    void extractionResult_mergesWithoutDuplicatesInOriginalOrder() {
+        ExtractionResult merged = new ExtractionResult(TARGETS);
+        merged.merge(ExtractionResult.parse("биография:\nПервое.\nВторое.\nсмерть:\nNot Found", TARGETS));
+        merged.merge(ExtractionResult.parse("```\n[биография]:\nВторое.\nТретье.\n[смерть]:\nПоследнее.\n```",
+                TARGETS));
+
+        assertEquals(List.of("Первое.", "Второе.", "Третье."), merged.getSentences("биография"));
+        assertEquals("биография:\nПервое.\nВторое.\nТретье.\nсмерть:\nПоследнее.", merged.toString());
+        assertEquals("биография:\nNot Found\nсмерть:\nNot Found", new ExtractionResult(TARGETS).toString());
+    }
+
+    @Test
+    void parseTargets_splitsCommaSeparatedList() {
+        assertEquals(List.of("биография", "смерть", "внешность"),
+                ExtractionResult.parseTargets("биография, смерть,внешность , "));
+        assertTrue(ExtractionResult.parseTargets(null).isEmpty());
+    }
+
+    @Test
+    void extract_processesChunksInParallelAndMergesAnswers() throws Exception {
+        Pattern sentence = Pattern.compile("Sentence \\d+ about Andrey and his long journey home\\.");
+        try (FakeGeminiServer server = new FakeGeminiServer()) {
+            server.setResponder(body -> {
+                List<String> found = new ArrayList<>();
+                Matcher matcher = sentence.matcher(body);
+                while (matcher.find()) {
+                    found.add(matcher.group());
+                }
+                return "биография:\n" + String.join("\n", found) + "\nсмерть:\nNot Found";
+            });
+            GeminiClientHolder.configure(server::newClient);
+            ApiCaller.setResponseCache(null);
+            ApiCaller.setRetryPolicy(new RetryPolicy(1, 0, 0, 10_000, false, 0));
+            DocumentChunker chunker = new DocumentChunker(60, 15);
+            String text = document(20);
+            int chunks = chunker.split(text).size();
+            server.delayNext(chunks, 300);
+            ChunkedExtractor extractor = new ChunkedExtractor(chunker, chunk -> new Prompt("Найди: " + chunk), TARGETS);
+
+            long start = System.nanoTime();
+            String result = extractor.extract(text);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(chunks, server.getRequestCount());
+            assertTrue(elapsedMillis < chunks * 300L, "фрагменты должны обрабатываться параллельно: "
+                    + elapsedMillis + " мс");
+            StringBuilder expected = new StringBuilder("биография:");
+            for (String s : chunker.sentences(text)) {
+                expected.append('\n').append(s);
+            }
+            assertEquals(expected + "\nсмерть:\nNot Found", result);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Локальная заглушка пакетного режима Gemini API для тестов: загрузка файла запросов по протоколу
+ * resumable upload, создание задания {@code batchGenerateContent}, опрос его состояния и скачивание
+ * файла результатов. Задание завершается после заданного числа опросов; ответы вычисляются по тексту
+ * запроса и выдаются в обратном порядке, чтобы проверить сопоставление по ключу.
+ */
+class FakeBatchServer implements AutoCloseable {
+
+    static final String API_KEY = "test-key";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+    private final Map<String, String> batchInputs = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> polls = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private volatile Function<String, String> responder = text -> "ok";
+    private volatile Set<String> failingKeys = Set.of();
+    private volatile int pollsUntilDone = 1;
+    private volatile String finalState = "BATCH_STATE_SUCCEEDED";
+
+    FakeBatchServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Текст ответа будет вычисляться по тексту запроса.
+     */
+    void setResponder(Function<String, String> responder) {
+        this.responder = responder;
+    }
+
+    /**
+     * Запросы с указанными ключами завершатся ошибкой.
+     */
+    void setFailingKeys(Set<String> keys) {
+        failingKeys = keys;
+    }
+
+    /**
+     * Задание завершится состоянием {@code state} после {@code polls} опросов.
+     */
+    void completeAfter(int polls, String state) {
+        pollsUntilDone = polls;
+        finalState = state;
+    }
+
+    /**
+     * @return строки загруженных файлов запросов.
+     */
+    List<String> getUploadedLines() {
+        List<String> lines = new ArrayList<>();
+        for (String file : batchInputs.values()) {
+            Collections.addAll(lines, new String(files.get(file), StandardCharsets.UTF_8).split("\n"));
+        }
+        return lines;
+    }
+
+    int getPollCount() {
+        return polls.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readAllBytes();
+        }
+        if (!API_KEY.equals(exchange.getRequestHeaders().getFirst("x-goog-api-key"))) {
+            send(exchange, 401, "{\"error\":{\"code\":401,\"message\":\"API key not valid\"}}");
+            return;
+        }
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        if (path.equals("/upload/v1beta/files") && query == null) {
+            exchange.getResponseHeaders().set("X-Goog-Upload-URL",
+                    baseUrl() + "/upload/v1beta/files?upload_id=" + ids.incrementAndGet());
+            send(exchange, 200, "{}");
+        } else if (path.equals("/upload/v1beta/files")) {
+            String name = "files/input-" + query.substring(query.indexOf('=') + 1);
+            files.put(name, body);
+            send(exchange, 200, "{\"file\":{\"name\":\"" + name + "\"}}");
+        } else if (path.endsWith(":batchGenerateContent")) {
+            JsonNode request = MAPPER.readTree(body);
+            String name = "batches/" + ids.incrementAndGet();
+            batchInputs.put(name, request.path("batch").path("inputConfig").path("fileName").asText());
+            polls.put(name, new AtomicInteger());
+            send(exchange, 200, "{\"name\":\"" + name + "\",\"metadata\":{\"state\":\"BATCH_STATE_PENDING\"}}");
+        } else if (path.startsWith("/v1beta/batches/")) {
+            String name = path.substring("/v1beta/".length());
+            if (polls.get(name).incrementAndGet() < pollsUntilDone) {
+                send(exchange, 200, "{\"name\":\"" + name + "\",\"metadata\":{\"state\":\"BATCH_STATE_RUNNING\"}}");
+            } else if (!finalState.equals("BATCH_STATE_SUCCEEDED")) {
+                send(exchange, 200, "{\"name\":\"" + name + "\",\"done\":true,\"metadata\":{\"state\":\""
+                        + finalState + "\"}}");
+            } else {
+                String output = "files/output-" + name.substring("batches/".length());
+                files.put(output, results(files.get(batchInputs.get(name))));
+                send(exchange, 200, "{\"name\":\"" + name + "\",\"done\":true,\"metadata\":{\"state\":"
+                        + "\"BATCH_STATE_SUCCEEDED\"},\"response\":{\"responsesFile\":\"" + output + "\"}}");
+            }
+        } else if (path.startsWith("/download/v1beta/files/") && path.endsWith(":download")) {
+            byte[] file = files.get(path.substring("/download/v1beta/".length(), path.length() - ":download".length()));
+            send(exchange, file == null ? 404 : 200, file == null ? "{}" : new String(file, StandardCharsets.UTF_8));
+        } else {
+            send(exchange, 404, "{\"error\":{\"code\":404,\"message\":\"not found\"}}");
+        }
+    }
+
+    private byte[] results(byte[] input) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : new String(input, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode request = MAPPER.readTree(line);
+            String key = request.path("key").asText();
+            ObjectNode result = MAPPER.createObjectNode().put("key", key);
+            if (failingKeys.contains(key)) {
+                result.putObject("error").put("code", 500).put("message", "internal error");
+            } else {
+                String text = request.path("request").path("contents").path(0).path("parts").path(0)
+                        .path("text").asText();
+                result.putObject("response").putArray("candidates").addObject().putObject("content")
+                        .putArray("parts").addObject().put("text", responder.apply(text));
+            }
+            lines.add(result.toString());
+        }
+        Collections.reverse(lines);
+        return (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+import com.google.genai.Client;
+import com.google.genai.types.HttpOptions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Локальная заглушка Gemini API для тестов: принимает запросы {@code generateContent}
+ * и отвечает заранее заданным текстом. Запросы {@code streamGenerateContent} получают ответ
+ * в формате server-sent events, разбитый на заданные фрагменты. Запросы к {@code cachedContents}
+ * создают и удаляют ссылки на кэшированное содержимое и учитываются отдельно от запросов генерации.
+ * <p>
+ * Для нагрузочных прогонов ({@link LoadTestHarness}) время ответа на запросы генерации может задаваться
+ * распределением ({@link #setLatency(LongSupplier)}), а доля ответов 429 и 503 — вероятностями
+ * ({@link #setFailureRates(double, double)}).
+ */
+class FakeGeminiServer implements AutoCloseable {
+
+    static {
+        // без TCP_NODELAY встроенный сервер JDK добавляет ~40 мс к каждому запросу на keep-alive соединении
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private volatile int failureStatus = 429;
+    private final AtomicInteger delaysLeft = new AtomicInteger();
+    private volatile long delayMillis;
+    private volatile String responseText = "ok";
+    private volatile Function<String, String> responder;
+    private volatile List<String> streamChunks;
+    private volatile long chunkDelayMillis;
+    private final List<String> createdCaches = new CopyOnWriteArrayList<>();
+    private final List<String> deletedCaches = new CopyOnWriteArrayList<>();
+    private volatile int cacheCreateStatus = 200;
+    private volatile LongSupplier latency;
+    private volatile double rateLimitRate;
+    private volatile double errorRate;
+    private final Random random = new Random(42);
+    private final AtomicInteger rateLimitedCount = new AtomicInteger();
+    private final AtomicInteger errorCount = new AtomicInteger();
+
+    FakeGeminiServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Создаёт клиента, направленного на данную заглушку.
+     */
+    Client newClient() {
+        return Client.builder()
+                .apiKey("test-key")
+                .httpOptions(HttpOptions.builder().baseUrl(baseUrl()).build())
+                .build();
+    }
+
+    void setResponseText(String text) {
+        responseText = text;
+    }
+
+    /**
+     * Текст ответа будет вычисляться по телу запроса.
+     */
+    void setResponder(Function<String, String> responder) {
+        this.responder = responder;
+    }
+
+    /**
+     * Потоковые ответы будут состоять из указанных фрагментов, отправляемых с паузой {@code delayMillis}.
+     */
+    void setStreamChunks(long delayMillis, String... chunks) {
+        chunkDelayMillis = delayMillis;
+        streamChunks = List.of(chunks);
+    }
+
+    /**
+     * Следующие {@code count} запросов завершатся ответом с кодом {@code status}, например, 429 или 503.
+     */
+    void failNext(int count, int status) {
+        failureStatus = status;
+        failuresLeft.set(count);
+    }
+
+    /**
+     * Ответы на следующие {@code count} запросов будут задержаны на {@code millis} миллисекунд.
+     */
+    void delayNext(int count, long millis) {
+        delayMillis = millis;
+        delaysLeft.set(count);
+    }
+
+    /**
+     * Время ответа на каждый запрос генерации будет выбираться из распределения {@code latencyMillis}.
+     *
+     * @param latencyMillis распределение времени ответа в миллисекундах или {@code null}, чтобы отвечать сразу.
+     */
+    void setLatency(LongSupplier latencyMillis) {
+        latency = latencyMillis;
+    }
+
+    /**
+     * Запросы генерации будут случайным образом отклоняться: с вероятностью {@code rateLimitRate} ответом 429
+     * (исчерпана квота), с вероятностью {@code errorRate} ответом 503 (сервер перегружен).
+     */
+    void setFailureRates(double rateLimitRate, double errorRate) {
+        if (rateLimitRate < 0 || errorRate < 0 || rateLimitRate + errorRate > 1) {
+            throw new IllegalArgumentException("Некорректные вероятности ошибок: " + rateLimitRate + ", " + errorRate);
+        }
+        this.rateLimitRate = rateLimitRate;
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Задаёт начальное значение генератора случайных чисел, от которого зависят время ответа и ошибки.
+     */
+    void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /**
+     * @return число запросов, отклонённых ответом 429 по {@link #setFailureRates(double, double)}.
+     */
+    int getRateLimitedCount() {
+        return rateLimitedCount.get();
+    }
+
+    /**
+     * @return число запросов, отклонённых ответом 503 по {@link #setFailureRates(double, double)}.
+     */
+    int getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * @return постоянное время ответа.
+     */
+    LongSupplier fixedLatency(long millis) {
+        return () -> millis;
+    }
+
+    /**
+     * @return время ответа, равномерно распределённое в диапазоне [{@code minMillis}, {@code maxMillis}].
+     */
+    LongSupplier uniformLatency(long minMillis, long maxMillis) {
+        return () -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis + 1));
+    }
+
+    /**
+     * Логнормальное распределение с медианой {@code medianMillis}: большинство ответов близки к медиане,
+     * а отдельные ответы в несколько раз дольше, как у LLM API.
+     *
+     * @param sigma стандартное отклонение логарифма времени ответа; 0.5 даёт 99-й процентиль около
+     *              трёх медиан.
+     */
+    LongSupplier logNormalLatency(long medianMillis, double sigma) {
+        return () -> Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+    }
+
+    /**
+     * Запросы на создание кэшированного содержимого будут завершаться ответом с кодом {@code status}.
+     */
+    void setCacheCreateStatus(int status) {
+        cacheCreateStatus = status;
+    }
+
+    /**
+     * @return тела запросов на создание кэшированного содержимого.
+     */
+    List<String> getCreatedCaches() {
+        return createdCaches;
+    }
+
+    /**
+     * @return имена удалённых ссылок на кэшированное содержимое.
+     */
+    List<String> getDeletedCaches() {
+        return deletedCaches;
+    }
+
+    int getRequestCount() {
+        return requestCount.get();
+    }
+
+    List<String> getRequestBodies() {
+        return requestBodies;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        if (exchange.getRequestURI().getPath().contains("/cachedContents")) {
+            handleCache(exchange, body);
+            return;
+        }
+        requestBodies.add(body);
+        requestCount.incrementAndGet();
+        if (delaysLeft.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            sleep(delayMillis);
+        }
+        LongSupplier currentLatency = latency;
+        if (currentLatency != null) {
+            sleep(Math.max(0, currentLatency.getAsLong()));
+        }
+        if (failuresLeft.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            int status = failureStatus;
+            send(exchange, status, errorJson(status));
+            return;
+        }
+        double roll = rateLimitRate + errorRate > 0 ? random.nextDouble() : 1;
+        if (roll < rateLimitRate) {
+            rateLimitedCount.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 429, errorJson(429));
+            return;
+        }
+        if (roll < rateLimitRate + errorRate) {
+            errorCount.incrementAndGet();
+            send(exchange, 503, errorJson(503));
+            return;
+        }
+        if (exchange.getRequestURI().getPath().endsWith(":streamGenerateContent")) {
+            sendStream(exchange);
+            return;
+        }
+        Function<String, String> currentResponder = responder;
+        send(exchange, 200, responseJson(currentResponder == null ? responseText : currentResponder.apply(body)));
+    }
+
+    private void handleCache(HttpExchange exchange, String body) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if ("DELETE".equals(exchange.getRequestMethod())) {
+            deletedCaches.add(path.substring(path.indexOf("cachedContents/")));
+            send(exchange, 200, "{}");
+        } else if (cacheCreateStatus != 200) {
+            send(exchange, cacheCreateStatus, errorJson(cacheCreateStatus));
+        } else {
+            createdCaches.add(body);
+            send(exchange, 200, "{\"name\":\"cachedContents/" + createdCaches.size() + "\"}");
+        }
+    }
+
+    private void sendStream(HttpExchange exchange) throws IOException {
+        List<String> chunks = streamChunks == null ? List.of(responseText) : streamChunks;
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int i = 0; i < chunks.size(); i++) {
+                if (i > 0) {
+                    sleep(chunkDelayMillis);
+                }
+                out.write(("data: " + responseJson(chunks.get(i)) + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        }
+    }
+
+    static String responseJson(String text) {
+        return "{\"candidates\":[{\"content\":{\"role\":\"model\",\"parts\":[{\"text\":"
+                + jsonString(text) + "}]},\"finishReason\":\"STOP\"}]}";
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static String errorJson(int status) {
+        String reason = status == 429 ? "RESOURCE_EXHAUSTED" : status == 503 ? "UNAVAILABLE" : "INTERNAL";
+        return "{\"error\":{\"code\":" + status + ",\"message\":\"injected failure\",\"status\":\""
+                + reason + "\"}}";
+    }
+
+    static String jsonString(String text) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
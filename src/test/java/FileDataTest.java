@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileDataTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void getContent_readsWholeFileAcrossWindows() throws Exception {
+        String text = multiWindowText();
+        FileData data = new FileData(write("big.txt", text, StandardCharsets.UTF_8));
+        assertEquals(text, data.getContent());
+        assertEquals(text, data.getContent(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void getContent_limitReturnsPrefix() throws Exception {
+        String text = multiWindowText();
+        FileData data = new FileData(write("big.txt", text, StandardCharsets.UTF_8));
+        assertEquals("", data.getContent(0));
+        assertEquals(text.substring(0, 7), data.getContent(7));
+        assertEquals(text.substring(0, FileData.CHUNK_CHARS + 3), data.getContent(FileData.CHUNK_CHARS + 3));
+        assertThrows(IntegratorException.class, () -> data.getContent(-1));
+    }
+
+    @Test
+    void getContent_limitDoesNotReadRestOfFile() throws Exception {
+        Path path = dir.resolve("broken.txt");
+        byte[] head = "Андрей Болконский\n".getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[FileData.WINDOW_BYTES * 2];
+        System.arraycopy(head, 0, bytes, 0, head.length);
+        Files.write(path, bytes);
+        FileData data = new FileData(path);
+        assertEquals("Андрей", data.getContent(6));
+        // обрезанный файл читается без ошибок: декодер видит только байты, лежащие в файле
+        Files.write(path, new byte[]{(byte) 0xD0});
+        assertEquals("\uFFFD", data.getContent());
+    }
+
+    @Test
+    void getContent_handlesEmptyFileAndOtherCharsets() throws Exception {
+        assertEquals("", new FileData(write("empty.txt", "", StandardCharsets.UTF_8)).getContent());
+        Charset cp1251 = Charset.forName("windows-1251");
+        FileData data = new FileData("cp1251", write("cp1251.txt", "Война и мир", cp1251), cp1251);
+        assertEquals("Война и мир", data.getContent());
+        assertEquals("cp1251", data.getTitle());
+        assertThrows(IntegratorException.class, () -> new FileData(dir.resolve("missing.txt")).getContent());
+    }
+
+    @Test
+    void convert_appliesConverterToLineAlignedFragments() throws Exception {
+        String text = multiWindowText();
+        FileData data = new FileData(write("big.txt", text, StandardCharsets.UTF_8));
+        List<String> fragments = new ArrayList<>();
+        Converter<String, String> upper = fragment -> {
+            fragments.add(fragment);
+            return fragment.toUpperCase();
+        };
+        assertEquals(text.toUpperCase(), data.getContent(upper));
+        assertTrue(fragments.size() > 1);
+        for (String fragment : fragments.subList(0, fragments.size() - 1)) {
+            assertTrue(fragment.length() <= 2 * FileData.CHUNK_CHARS);
+            assertTrue(fragment.endsWith("\n"));
+        }
+
+        assertEquals(text.substring(0, 100).toUpperCase(), data.getContent(upper, 100));
+
+        Path converted = dir.resolve("converted.txt");
+        try (Writer writer = Files.newBufferedWriter(converted, StandardCharsets.UTF_8)) {
+            assertEquals(text.length(), data.convert(String::length, Long.MAX_VALUE, writer));
+        }
+        assertTrue(Files.readString(converted).chars().allMatch(Character::isDigit));
+    }
+
+    /**
+     * Текст длиннее нескольких окон отображения, с многобайтовыми символами и суррогатными парами,
+     * попадающими на границы окон.
+     */
+    private static String multiWindowText() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < FileData.WINDOW_BYTES; i++) {
+            text.append(i).append(": Князь Андрей \uD83D\uDE00 ").append("ё".repeat(i % 7)).append('\n');
+        }
+        return text.toString();
+    }
+
+    private Path write(String name, String text, Charset charset) throws Exception {
+        return Files.writeString(dir.resolve(name), text, charset);
+    }
+}
@@ -0,0 +1,81 @@
+import com.google.genai.Client;
+import com.google.genai.types.GenerateContentConfig;
+import com.google.genai.types.HttpOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeminiClientHolderTest {
+
+    private static final String MODEL = "gemini-2.5-flash-preview-05-20";
+
+    private FakeGeminiServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeGeminiServer();
+        GeminiClientHolder.configure(server::newClient);
+        ApiCaller.setResponseCache(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        GeminiClientHolder.configure(Client::new);
+        server.close();
+    }
+
+    @Test
+    void getClient_fromManyThreads_returnsSameInstance() throws Exception {
+        Set<Client> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 64; i++) {
+            pool.submit(() -> seen.add(GeminiClientHolder.getClient()));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(1, seen.size());
+    }
+
+    @Test
+    void shutdown_thenGetClient_createsNewInstance() {
+        Client first = GeminiClientHolder.getClient();
+        GeminiClientHolder.shutdown();
+        Client second = GeminiClientHolder.getClient();
+        assertNotSame(first, second);
+    }
+
+    @Test
+    void makeApiCall_usesSharedClientAgainstStub() {
+        server.setResponseText("stub answer");
+        assertEquals("stub answer", ApiCaller.makeApiCall("prompt"));
+        assertEquals("stub answer", ApiCaller.makeApiCall("prompt"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void installPooledHttpClient_worksWithPinnedSdkVersion() {
+        assertEquals(GeminiClientHolder.SUPPORTED_SDK_VERSION, GeminiClientHolder.sdkVersion());
+        assertTrue(GeminiClientHolder.installPooledHttpClient(server.newClient()));
+    }
+
+    @Test
+    void getClient_stalledResponse_failsAfterClientTimeout() {
+        server.setLatency(() -> 5_000);
+        GeminiClientHolder.configure(() -> Client.builder()
+                .apiKey("test-key")
+                .httpOptions(HttpOptions.builder().baseUrl(server.baseUrl()).timeout(300).build())
+                .build());
+        long start = System.nanoTime();
+        assertThrows(RuntimeException.class, () -> GeminiClientHolder.getClient().models
+                .generateContent(MODEL, "prompt", GenerateContentConfig.builder().build()));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+    }
+}
@@ -0,0 +1,95 @@
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HtmlCleanerTest {
+
+    /**
+     * Прежняя очистка через DOM jsoup, с которой сравнивается потоковая.
+     */
+    private static String jsoupText(String html) {
+        Document doc = Jsoup.parse(html);
+        doc.select("noscript, script, style, iframe, link[rel=stylesheet], meta, head title").remove();
+        return doc.text();
+    }
+
+    @Test
+    void clean_matchesJsoupOnReferencePage() throws Exception {
+        String html = Files.readString(Paths.get("rawHtml.txt"), StandardCharsets.UTF_8);
+        assertEquals(jsoupText(html), HtmlCleaner.clean(html));
+    }
+
+    @Test
+    void clean_matchesJsoupOnMarkupEdgeCases() {
+        List<String> samples = List.of(
+                "<p>Hello</p><script>bad()</script>",
+                "<html><head><title>Заголовок</title><style>p{}</style></head><body><div>Один</div>Два</body></html>",
+                "<div><p>a</div>b <span>c</span><div>d</div><span>e</span>",
+                "<b><div>a</div></b>c<div>d</div><!-- comment -->e<div>f</div><script>x</script>g",
+                "a<br>b<br/>c</br>d</p>e",
+                "<p>один<p>два<li>три<li>четыре",
+                "  &nbsp;A&amp;B &lt;tag&gt; &copy &notit; &#1071;&#x42F;&#150;&#xZZ; &unknown; & x&",
+                "<pre>\n  keep   spaces\n</pre>after <textarea>\n a  &amp; b </textarea> end",
+                "<noscript><img src=x>Включите JavaScript</noscript>Текст<iframe><p>frame</p></iframe>",
+                "<link rel=\"Stylesheet\" href=a.css>a<link rel=icon>b<meta charset=utf-8>c",
+                "<a href='x>y' title=\"a > b\">ссылка</a> <img alt=\"<p>\" src=x />после",
+                "<![CDATA[  сырой   текст ]]><!DOCTYPE html><?xml version='1.0'?>x</ >y",
+                "<svg><g><text>в svg</text></g></svg><custom-tag>свой</custom-tag>тег",
+                "<table><tr><td>a</td><td>b</td></tr><tr><th>c</th></tr></table>d",
+                "слово\u200Bневидимое\u00ADсимволы a\u00A0\u00A0b",
+                "<ul><li>a<ul><li>b</li></ul></li><li>c</li></ul><h1>d</h1><em>e</em><h2>f</h2>g",
+                "<body><title>в теле</title>текст</body>",
+                "<div>a<script>document.write('</div>')</script>b</div>c",
+                "<p>незакрытый тег <b",
+                "<!-->a<!--->b<!-- - -- -->c<!--x--!>d");
+        for (String html : samples) {
+            assertEquals(jsoupText(html), HtmlCleaner.clean(html), html);
+        }
+    }
+
+    @Test
+    void clean_streamsIntoSinkWithSmallReads() throws Exception {
+        String html = Files.readString(Paths.get("rawHtml.txt"), StandardCharsets.UTF_8);
+        StringBuilder sink = new StringBuilder();
+        try (Reader reader = new OneCharReader(html)) {
+            HtmlCleaner.clean(reader, sink);
+        }
+        assertEquals(jsoupText(html), sink.toString());
+    }
+
+    @Test
+    void clean_largeDocumentMatchesJsoup() {
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            parts.add("<div class=\"c" + i + "\"><p>Абзац " + i + " &mdash; текст</p><script>var x=" + i
+                    + ";</script><span>строка</span></div>");
+        }
+        String html = "<html><head><title>t</title></head><body>" + String.join("\n", parts) + "</body></html>";
+        assertEquals(jsoupText(html), HtmlCleaner.clean(html));
+    }
+
+    /**
+     * Источник, отдающий не больше одного символа за чтение: проверяет разбор на границах буфера.
+     */
+    private static final class OneCharReader extends StringReader {
+        OneCharReader(String s) {
+            super(s);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return super.read(cbuf, off, Math.min(1, len));
+        }
+    }
+}
@@ -0,0 +1,259 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JobJournalTest {
+
+    private static final int SOURCES = 40;
+    private static final int REPORTED_BEFORE_KILL = 10;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void process_resumesAfterProcessKilledMidBatch() throws Exception {
+        Path journalFile = dir.resolve("jobs.journal");
+        Process child = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), CrashingBatch.class.getName(),
+                journalFile.toString(), Integer.toString(SOURCES))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        Set<String> reportedByChild = new HashSet<>();
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while (reportedByChild.size() < REPORTED_BEFORE_KILL && (line = out.readLine()) != null) {
+                if (line.startsWith("reported ")) {
+                    reportedByChild.add(line.substring("reported ".length()));
+                }
+            }
+        } finally {
+            child.destroyForcibly();
+        }
+        assertTrue(child.waitFor(30, TimeUnit.SECONDS));
+        assertNotEquals(0, child.exitValue(), "процесс завершился сам, а не был прерван");
+
+        Set<String> analyzed = ConcurrentHashMap.newKeySet();
+        Set<String> reported = ConcurrentHashMap.newKeySet();
+        int doneBefore;
+        try (JobJournal journal = new JobJournal(journalFile, 4, 1_000)) {
+            doneBefore = journal.counts().getOrDefault(JobJournal.State.DONE, 0);
+            assertTrue(doneBefore >= reportedByChild.size() && doneBefore < SOURCES, "завершено: " + doneBefore);
+            for (String title : reportedByChild) {
+                assertEquals("answer " + title, journal.resultOf(title));
+            }
+
+            try (AnalysisPipeline pipeline = new AnalysisPipeline(recordingAnalyzer(analyzed),
+                    collectingReporter(reported), 4, journal)) {
+                assertEquals(SOURCES, pipeline.process(sources(SOURCES)));
+            }
+            assertEquals(SOURCES, journal.counts().get(JobJournal.State.DONE));
+        }
+        assertEquals(SOURCES, reported.size());
+        assertEquals(SOURCES - doneBefore, analyzed.size());
+        for (String title : reportedByChild) {
+            assertFalse(analyzed.contains(title), "повторно проанализирован " + title);
+        }
+    }
+
+    @Test
+    void process_changedFingerprint_doesNotReplayStoredAnswers() throws Exception {
+        Set<String> analyzed = ConcurrentHashMap.newKeySet();
+        try (JobJournal journal = new JobJournal(dir.resolve("jobs.journal"), 4, 1_000)) {
+            for (String fingerprint : List.of("criteria-a", "criteria-b", "criteria-a")) {
+                analyzed.clear();
+                Analyzer<String> analyzer = recordingAnalyzer(analyzed);
+                when(analyzer.fingerprint()).thenReturn(fingerprint);
+                Set<String> reported = ConcurrentHashMap.newKeySet();
+                try (AnalysisPipeline pipeline = new AnalysisPipeline(analyzer, collectingReporter(reported), 2,
+                        journal)) {
+                    assertEquals(3, pipeline.process(sources(3)));
+                }
+                assertEquals(3, reported.size());
+                if (fingerprint.equals("criteria-b")) {
+                    assertEquals(3, analyzed.size(), "ответы прежних критериев использованы повторно");
+                }
+            }
+            assertTrue(analyzed.isEmpty(), "повторно проанализированы " + analyzed);
+        }
+    }
+
+    @Test
+    void fingerprint_dependsOnCriteria() {
+        String fingerprint = new StringAnalyzer(null, Map.of("object", "Печорин")).fingerprint();
+        assertEquals(fingerprint, new StringAnalyzer(null, Map.of("object", "Печорин")).fingerprint());
+        assertNotEquals(fingerprint, new StringAnalyzer(null, Map.of("object", "Грушницкий")).fingerprint());
+        assertNotEquals(fingerprint, new StringAnalyzer(null, Map.of("object", "Печорин", "targets", "смерть"))
+                .fingerprint());
+    }
+
+    @Test
+    void open_dropsTornTailAndKeepsCompleteRecords() throws Exception {
+        Path file = dir.resolve("jobs.journal");
+        try (JobJournal journal = new JobJournal(file, 1, 0)) {
+            journal.started("a");
+            journal.done("a", "ответ a");
+            journal.started("b");
+            journal.failed("b", "quota exceeded");
+            journal.started("c");
+        }
+        long complete = Files.size(file);
+        // запись, оборванная на середине: заголовок обещает 100 байт, записано 5
+        Files.write(file, new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 1, 0, 0, 0, 9}, StandardOpenOption.APPEND);
+
+        try (JobJournal journal = new JobJournal(file, 1, 0)) {
+            assertEquals(complete, Files.size(file));
+            assertEquals(JobJournal.State.DONE, journal.stateOf("a"));
+            assertEquals("ответ a", journal.resultOf("a"));
+            assertEquals(JobJournal.State.FAILED, journal.stateOf("b"));
+            assertNull(journal.resultOf("b"));
+            assertEquals(JobJournal.State.STARTED, journal.stateOf("c"));
+            assertNull(journal.stateOf("d"));
+            journal.done("c", "ответ c");
+        }
+        try (JobJournal journal = new JobJournal(file, 1, 0)) {
+            assertEquals("ответ c", journal.resultOf("c"));
+        }
+    }
+
+    @Test
+    void append_syncsInBatches() throws Exception {
+        try (JobJournal journal = new JobJournal(dir.resolve("jobs.journal"), 10, TimeUnit.HOURS.toMillis(1))) {
+            for (int i = 0; i < 25; i++) {
+                journal.started("source-" + i);
+            }
+            assertEquals(2, journal.getSyncCount());
+            journal.sync();
+            assertEquals(3, journal.getSyncCount());
+            journal.sync();
+            assertEquals(3, journal.getSyncCount());
+        }
+    }
+
+    @Test
+    void open_compactsSupersededRecords() throws Exception {
+        Path file = dir.resolve("jobs.journal");
+        try (JobJournal journal = new JobJournal(file, 100, 0)) {
+            for (int round = 0; round < 200; round++) {
+                for (int i = 0; i < 10; i++) {
+                    journal.started("source-" + i);
+                }
+            }
+            for (int i = 0; i < 10; i++) {
+                journal.done("source-" + i, "ответ " + i);
+            }
+        }
+        long before = Files.size(file);
+        try (JobJournal journal = new JobJournal(file, 100, 0)) {
+            assertTrue(Files.size(file) < before / 100, "размер после уплотнения: " + Files.size(file));
+            for (int i = 0; i < 10; i++) {
+                assertEquals("ответ " + i, journal.resultOf("source-" + i));
+            }
+        }
+    }
+
+    private static List<Source<String>> sources(int count) {
+        List<Source<String>> sources = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            sources.add(TextSource.of("source-" + i, "<p>document " + i + "</p>"));
+        }
+        return sources;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Analyzer<String> recordingAnalyzer(Set<String> analyzed) throws Exception {
+        Analyzer<String> analyzer = mock(Analyzer.class);
+        when(analyzer.analyze(any(Source.class))).thenAnswer(inv -> {
+            Source<String> source = inv.getArgument(0);
+            analyzed.add(source.getTitle());
+            return new TextData(source.getTitle(), "answer " + source.getTitle());
+        });
+        return analyzer;
+    }
+
+    private static Reporter<String> collectingReporter(Set<String> titles) {
+        return new Reporter<>() {
+            @Override
+            public boolean add(Data<String> content) throws IntegratorException {
+                String title = ((TextData) content).getTitle();
+                assertEquals("answer " + title, content.getContent());
+                return titles.add(title);
+            }
+
+            @Override
+            public Data<String> getReport() {
+                return new TextData("report", String.join("\n", titles));
+            }
+        };
+    }
+
+    /**
+     * Пакетный анализ в отдельной JVM, которую тест принудительно завершает: каждый источник
+     * «анализируется» 50 мс, о переданных в {@link Reporter} результатах сообщается в стандартный вывод.
+     */
+    static class CrashingBatch {
+
+        public static void main(String[] args) throws Exception {
+            Analyzer<String> analyzer = new Analyzer<>() {
+                @Override
+                public Data<String> analyze(Source<String> source) throws IntegratorException {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        throw new IntegratorException("interrupted", e);
+                    }
+                    return new TextData(source.getTitle(), "answer " + source.getTitle());
+                }
+
+                @Override
+                public <U> Data<U> analyze(Source<String> source, Converter<String, U> converter) {
+                    return null;
+                }
+
+                @Override
+                public Data<String> analyze(Data<String> data) {
+                    return null;
+                }
+
+                @Override
+                public <U> Data<U> analyze(Data<String> data, Converter<String, U> converter) {
+                    return null;
+                }
+            };
+            Reporter<String> reporter = new Reporter<>() {
+                @Override
+                public synchronized boolean add(Data<String> content) {
+                    System.out.println("reported " + ((TextData) content).getTitle());
+                    System.out.flush();
+                    return true;
+                }
+
+                @Override
+                public Data<String> getReport() {
+                    return null;
+                }
+            };
+            try (JobJournal journal = new JobJournal(Paths.get(args[0]), 4, 1_000);
+                 AnalysisPipeline pipeline = new AnalysisPipeline(analyzer, reporter, 2, journal)) {
+                pipeline.process(sources(Integer.parseInt(args[1])));
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import com.google.genai.Client;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonExtractionParserTest {
+
+    private static final List<String> TARGETS = List.of("биография", "смерть", "характер");
+    private static final String RESPONSE = "{\"биография\": [\"Родился в Москве.\", "
+            + "\"Учился в Париже \uD83C\uDDEB\uD83C\uDDF7.\", "
+            + "\"Родился в Москве.\"], \"смерть\": [], \"Характер\": \"Был горд \\u0438 \\\"замкнут\\\".\", "
+            + "\"лишнее\": [\"пропустить\"], \"служба\": {\"вложенное\": [\"пропустить\"]}}";
+
+    @Test
+    void parse_buildsTypedResultWithoutDuplicates() throws Exception {
+        ExtractionResult result = JsonExtractionParser.parse(RESPONSE, TARGETS);
+        assertEquals(List.of("Родился в Москве.", "Учился в Париже \uD83C\uDDEB\uD83C\uDDF7."),
+                result.getSentences("биография"));
+        assertEquals(List.of(), result.getSentences("смерть"));
+        assertEquals(List.of("Был горд и \"замкнут\"."), result.getSentences("характер"));
+        assertEquals("биография:\nРодился в Москве.\nУчился в Париже \uD83C\uDDEB\uD83C\uDDF7.\n"
+                + "смерть:\nNot Found\nхарактер:\nБыл горд и \"замкнут\".", result.toString());
+        assertEquals(result.toString(), JsonExtractionParser.parse(new StringReader(RESPONSE), TARGETS).toString());
+    }
+
+    @Test
+    void feed_acceptsResponseSplitAnywhere() throws Exception {
+        String expected = JsonExtractionParser.parse(RESPONSE, TARGETS).toString();
+        for (int size = 1; size <= 7; size++) {
+            JsonExtractionParser parser = new JsonExtractionParser(TARGETS);
+            for (int i = 0; i < RESPONSE.length(); i += size) {
+                parser.feed(RESPONSE.substring(i, Math.min(RESPONSE.length(), i + size)));
+            }
+            assertEquals(expected, parser.finish().toString(), "фрагменты по " + size);
+        }
+    }
+
+    @Test
+    void malformedResponses_areRejected() throws Exception {
+        assertThrows(IntegratorException.class, () -> JsonExtractionParser.parse("биография:\nNot Found", TARGETS));
+        assertThrows(IntegratorException.class, () -> JsonExtractionParser.parse("[\"биография\"]", TARGETS));
+        assertThrows(IntegratorException.class, () -> JsonExtractionParser.parse("", TARGETS));
+
+        JsonExtractionParser parser = new JsonExtractionParser(TARGETS);
+        parser.feed("{\"биография\": [\"Родился");
+        assertThrows(IntegratorException.class, parser::finish);
+    }
+
+    @Test
+    void structuredApiCalls_requestJsonSchemaAndParseResponse() throws Exception {
+        try (FakeGeminiServer server = new FakeGeminiServer()) {
+            GeminiClientHolder.configure(server::newClient);
+            ApiCaller.setResponseCache(null);
+            ApiCaller.setRetryPolicy(new RetryPolicy(3, 0, 0, 10_000, false, 0));
+
+            server.setResponseText("{\"биография\": [\"Родился в Москве.\"], \"смерть\": [], \"характер\": []}");
+            ExtractionResult result = ApiCaller.makeStructuredApiCall(new Prompt("Найди"), TARGETS);
+            assertEquals(List.of("Родился в Москве."), result.getSentences("биография"));
+            String request = server.getRequestBodies().get(0);
+            assertTrue(request.contains("\"responseMimeType\":\"application/json\""), request);
+            assertTrue(request.contains("\"responseSchema\""), request);
+
+            server.setStreamChunks(0, "{\"биография\": [\"Родился в Мо", "скве.\"], \"смерть\": [\"Умер",
+                    " в 1812 году.\"], \"характер\": []}");
+            result = ApiCaller.streamStructuredApiCall(new Prompt("Найди"), TARGETS);
+            assertEquals(List.of("Родился в Москве."), result.getSentences("биография"));
+            assertEquals(List.of("Умер в 1812 году."), result.getSentences("смерть"));
+
+            server.setResponseText("биография:\nNot Found");
+            assertThrows(IntegratorException.class, () -> ApiCaller.makeStructuredApiCall(new Prompt("Найди"), TARGETS));
+        } finally {
+            ApiCaller.setRetryPolicy(RetryPolicy.fromConfig());
+            GeminiClientHolder.configure(Client::new);
+        }
+    }
+}
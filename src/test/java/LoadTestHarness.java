@@ -0,0 +1,211 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Нагрузочный прогон полного конвейера {@link StringAnalyzer#analyze(Source)} (очистка HTML, отбор
+ * предложений, сборка prompt, регулирование и повторы {@link ApiCaller}) против локальной заглушки
+ * Gemini API {@link FakeGeminiServer}.
+ * <p>
+ * Источники анализируются {@code concurrency} потоками; для каждого измеряется время анализа, по итогам
+ * выводятся пропускная способность и процентили p50/p95/p99. Результат служит точкой отсчёта для
+ * изменений, влияющих на производительность.
+ * <p>
+ * Запуск: {@code gradle loadTest -PloadTestArgs="concurrency=32 documents=500 latency=lognormal:800:0.5
+ * rateLimitRate=0.05 errorRate=0.01"}. Параметры (значения по умолчанию в {@link #DEFAULTS}):
+ * <ul>
+ * <li>{@code concurrency} — число одновременно анализируемых источников;</li>
+ * <li>{@code documents} — число источников;</li>
+ * <li>{@code documentKb} — размер HTML источника в килобайтах; источники собираются из {@code rawHtml.txt};</li>
+ * <li>{@code latency} — время ответа заглушки: {@code fixed:мс}, {@code uniform:мин:макс} или
+ * {@code lognormal:медиана:sigma};</li>
+ * <li>{@code rateLimitRate}, {@code errorRate} — доли ответов 429 и 503;</li>
+ * <li>{@code throttled} — {@code false}, чтобы не применять ограничения частоты запросов из
+ * {@code properties.cfg} и мерить только сам конвейер.</li>
+ * </ul>
+ * Кэши ответов и стадий в прогоне отключены, остальные параметры читаются из {@code properties.cfg}.
+ */
+class LoadTestHarness {
+
+    static final Map<String, String> DEFAULTS = Map.of(
+            "concurrency", "16",
+            "documents", "200",
+            "documentKb", "64",
+            "latency", "lognormal:800:0.5",
+            "rateLimitRate", "0.02",
+            "errorRate", "0.01",
+            "throttled", "true");
+
+    private final Analyzer<String> analyzer;
+    private final int concurrency;
+
+    /**
+     * Итоги прогона.
+     */
+    static final class Report {
+        final int succeeded;
+        final int failed;
+        final long elapsedMillis;
+        final long p50;
+        final long p95;
+        final long p99;
+        final long max;
+
+        Report(int succeeded, int failed, long elapsedMillis, LatencyTracker latencies) {
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.elapsedMillis = elapsedMillis;
+            this.p50 = latencies.percentile(50);
+            this.p95 = latencies.percentile(95);
+            this.p99 = latencies.percentile(99);
+            this.max = latencies.percentile(100);
+        }
+
+        /**
+         * @return число успешно проанализированных источников в секунду.
+         */
+        double throughput() {
+            return elapsedMillis == 0 ? 0 : succeeded * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "успешно: %d, с ошибкой: %d, время: %d мс, пропускная способность: "
+                            + "%.2f док/с, задержка p50: %d мс, p95: %d мс, p99: %d мс, макс: %d мс",
+                    succeeded, failed, elapsedMillis, throughput(), p50, p95, p99, max);
+        }
+    }
+
+    /**
+     * @param analyzer    анализатор источников.
+     * @param concurrency число одновременно анализируемых источников.
+     */
+    LoadTestHarness(Analyzer<String> analyzer, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Число потоков должно быть положительным: " + concurrency);
+        }
+        this.analyzer = analyzer;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Анализирует источники и измеряет время анализа каждого из них, включая ожидание регулятора запросов
+     * и повторы.
+     *
+     * @param sources источники.
+     * @return итоги прогона.
+     */
+    Report run(List<? extends Source<String>> sources) throws Exception {
+        LatencyTracker latencies = new LatencyTracker(Math.max(1, sources.size()));
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>(sources.size());
+            for (Source<String> source : sources) {
+                futures.add(executor.submit(() -> {
+                    long begin = System.nanoTime();
+                    try {
+                        Data<String> result = analyzer.analyze(source);
+                        if (result != null && result.getContent() != null) {
+                            succeeded.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    } catch (IntegratorException | RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                    latencies.record((System.nanoTime() - begin) / 1_000_000);
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Report(succeeded.get(), failed.get(), (System.nanoTime() - start) / 1_000_000, latencies);
+    }
+
+    /**
+     * Собирает источники из страницы {@code rawHtml.txt}: каждый источник — абзац с упоминанием объекта
+     * поиска, уникальный для источника, чтобы запросы не совпадали, и начало страницы размером
+     * {@code kilobytes}. Абзац стоит первым: обрезанная страница может заканчиваться незакрытым тегом.
+     */
+    static List<Source<String>> documents(int count, int kilobytes) {
+        String page = FileHandler.readFromFile("rawHtml.txt");
+        StringBuilder body = new StringBuilder(kilobytes * 1024);
+        while (body.length() < kilobytes * 1024) {
+            body.append(page);
+        }
+        body.setLength(kilobytes * 1024);
+        String html = body.toString();
+        List<Source<String>> sources = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sources.add(TextSource.of("document-" + i,
+                    "<p>Князь Андрей Болконский прочёл письмо номер " + i + " и задумался.</p>" + html));
+        }
+        return sources;
+    }
+
+    /**
+     * Создаёт распределение времени ответа заглушки по описанию вида {@code fixed:100},
+     * {@code uniform:100:500} или {@code lognormal:800:0.5}.
+     */
+    static LongSupplier latency(FakeGeminiServer server, String spec) {
+        String[] parts = spec.split(":");
+        switch (parts[0]) {
+            case "fixed":
+                return server.fixedLatency(Long.parseLong(parts[1]));
+            case "uniform":
+                return server.uniformLatency(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            case "lognormal":
+                return server.logNormalLatency(Long.parseLong(parts[1]), Double.parseDouble(parts[2]));
+            default:
+                throw new IllegalArgumentException("Неизвестное распределение времени ответа: " + spec);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0 || !DEFAULTS.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Неизвестный параметр: " + arg + ". Допустимые: "
+                        + DEFAULTS.keySet());
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        int concurrency = Integer.parseInt(options.get("concurrency"));
+        try (FakeGeminiServer server = new FakeGeminiServer()) {
+            server.setLatency(latency(server, options.get("latency")));
+            server.setFailureRates(Double.parseDouble(options.get("rateLimitRate")),
+                    Double.parseDouble(options.get("errorRate")));
+            server.setResponseText("биография: Князь Андрей Болконский прочёл письмо.");
+            GeminiClientHolder.configure(server::newClient);
+            ApiCaller.setResponseCache(null);
+            if (!Boolean.parseBoolean(options.get("throttled"))) {
+                ApiCaller.setThrottle(new RequestThrottle(new RateLimiter(0, 0),
+                        new AdaptiveConcurrencyLimiter(concurrency, 1, concurrency)));
+            }
+            List<Source<String>> sources = documents(Integer.parseInt(options.get("documents")),
+                    Integer.parseInt(options.get("documentKb")));
+
+            System.out.println("Параметры прогона: " + options);
+            Report report = new LoadTestHarness(new StringAnalyzer(null), concurrency).run(sources);
+            System.out.println(report);
+            System.out.println("Запросов к заглушке: " + server.getRequestCount() + ", ответов 429: "
+                    + server.getRateLimitedCount() + ", ответов 503: " + server.getErrorCount());
+            // ссылки на кэшированные префиксы удаляются, пока заглушка ещё работает
+            GeminiClientHolder.shutdown();
+        }
+    }
+}
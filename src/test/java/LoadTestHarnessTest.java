@@ -0,0 +1,76 @@
+import com.google.genai.Client;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadTestHarnessTest {
+
+    private FakeGeminiServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeGeminiServer();
+        server.setResponseText("биография: Князь Андрей Болконский прочёл письмо.");
+        GeminiClientHolder.configure(server::newClient);
+        ApiCaller.setResponseCache(null);
+        ApiCaller.setPrefixCache(null);
+        ApiCaller.setRetryPolicy(new RetryPolicy(6, 1, 5, 10_000, false, 0));
+        ApiCaller.setThrottle(new RequestThrottle(new RateLimiter(0, 0), new AdaptiveConcurrencyLimiter(8, 1, 8)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ApiCaller.setThrottle(RequestThrottle.fromConfig());
+        ApiCaller.setRetryPolicy(RetryPolicy.fromConfig());
+        ApiCaller.setPrefixCache(null);
+        GeminiClientHolder.configure(Client::new);
+        server.close();
+    }
+
+    @Test
+    void run_reportsThroughputAndPercentilesDespiteInjected429() throws Exception {
+        server.setLatency(server.fixedLatency(40));
+        server.setFailureRates(0.2, 0);
+        List<Source<String>> sources = LoadTestHarness.documents(32, 8);
+
+        LoadTestHarness.Report report = new LoadTestHarness(new StringAnalyzer(null), 8).run(sources);
+
+        assertEquals(32, report.succeeded, report.toString());
+        assertEquals(0, report.failed);
+        assertTrue(server.getRateLimitedCount() > 0, "ни одного ответа 429");
+        assertEquals(32 + server.getRateLimitedCount(), server.getRequestCount());
+        assertTrue(report.p50 >= 40 && report.p50 <= report.p95 && report.p95 <= report.p99
+                && report.p99 <= report.max, report.toString());
+        // 8 потоков: время прогона заметно меньше последовательного
+        assertTrue(report.elapsedMillis < 32 * 40, report.toString());
+        assertTrue(report.throughput() > 0);
+    }
+
+    @Test
+    void run_countsSourcesFailedAfterRetries() throws Exception {
+        server.setFailureRates(0, 1);
+
+        LoadTestHarness.Report report = new LoadTestHarness(new StringAnalyzer(null), 4)
+                .run(LoadTestHarness.documents(4, 1));
+
+        assertEquals(0, report.succeeded);
+        assertEquals(4, report.failed);
+        assertEquals(4 * 6, server.getErrorCount());
+    }
+
+    @Test
+    void logNormalLatency_hasRequestedMedianAndHeavyTail() {
+        LongSupplier latency = server.logNormalLatency(800, 0.5);
+        LatencyTracker samples = new LatencyTracker(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            samples.record(latency.getAsLong());
+        }
+        assertEquals(800, samples.percentile(50), 40);
+        assertTrue(samples.percentile(99) > 2 * samples.percentile(50));
+    }
+}
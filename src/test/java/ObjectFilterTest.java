@@ -0,0 +1,94 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObjectFilterTest {
+
+    /**
+     * Значение object из properties.cfg, по которому получен result.txt.
+     */
+    private static final String OBJECT = "’князь Болконский’, ‘Андрей’";
+    private static final List<String> TARGETS = List.of("биография", "смерть", "внешность", "характер", "служба");
+
+    @Test
+    void doubleQuotes_requireExactFormWithoutSeparators() {
+        ObjectFilter filter = new ObjectFilter("«князь Андрей»", 0);
+        assertTrue(filter.matches("Вошёл Князь Андрей."));
+        assertFalse(filter.matches("Он увидел князя Андрея."));
+        assertFalse(filter.matches("Это был князь, Андрей стоял рядом."));
+        assertFalse(filter.matches("Андрей, князь, вошёл."));
+    }
+
+    @Test
+    void singleQuotes_requireContiguousPhraseInAnyForm() {
+        ObjectFilter filter = new ObjectFilter("‘князь Болконский’", 0);
+        assertTrue(filter.matches("Князь Болконский был бледен."));
+        assertTrue(filter.matches("Все смотрели на князя Болконского."));
+        assertTrue(filter.matches("Она подошла к князю Болконскому."));
+        assertFalse(filter.matches("Не столько по тому, что молодой князь приехал."));
+        assertFalse(filter.matches("Князь, старый Болконский, молчал."));
+        assertFalse(filter.matches("Болконский князь молчал."));
+    }
+
+    @Test
+    void unquotedWords_mayAppearInAnyOrderAndForm() {
+        ObjectFilter filter = new ObjectFilter("герой романа", 0);
+        assertTrue(filter.matches("Этот роман знаменит своим героем."));
+        assertTrue(filter.matches("Герои нового романа были живыми."));
+        assertFalse(filter.matches("Герой вышел на сцену."));
+    }
+
+    @Test
+    void anyVariantIsEnough() {
+        ObjectFilter filter = new ObjectFilter(OBJECT, 0);
+        assertTrue(filter.matches("Андрею стало грустно."));
+        assertTrue(filter.matches("Он говорил с Андреем."));
+        assertTrue(filter.matches("Мы вспоминали об Андрее."));
+        assertFalse(filter.matches("Пьер улыбнулся."));
+    }
+
+    @Test
+    void filter_keepsMatchingSentencesWithContext() {
+        ObjectFilter filter = new ObjectFilter("‘Андрей’", 1);
+        String text = "Раз. Два. Андрей вошёл. Три. Четыре. Пять. Андрея ждали. Шесть.";
+        assertEquals("Два. Андрей вошёл. Три.\nПять. Андрея ждали. Шесть.", filter.filter(text));
+        assertEquals("", filter.filter("Пьер молчал. Анна Павловна улыбнулась."));
+    }
+
+    @Test
+    void constructor_rejectsEmptyObject() {
+        assertThrows(IllegalArgumentException.class, () -> new ObjectFilter(" , ", 1));
+    }
+
+    /**
+     * Каждое предложение из эталонного ответа result.txt должно пройти фильтр, а объём текста для
+     * prompt должен сократиться в несколько раз (страница — глава романа, где объект упоминается часто).
+     */
+    @Test
+    void filter_keepsEverySentenceFromReferenceResult() throws Exception {
+        String cleaned = StringAnalyzer.cleanHtml(
+                Files.readString(Paths.get("rawHtml.txt"), StandardCharsets.UTF_8));
+        ExtractionResult reference = ExtractionResult.parse(
+                Files.readString(Paths.get("result.txt"), StandardCharsets.UTF_8), TARGETS);
+        List<String> expected = new ArrayList<>();
+        TARGETS.forEach(target -> expected.addAll(reference.getSentences(target)));
+        assertFalse(expected.isEmpty());
+
+        ObjectFilter filter = new ObjectFilter(OBJECT, 0);
+        String candidates = filter.filter(cleaned);
+
+        for (String sentence : expected) {
+            assertTrue(filter.matches(sentence), sentence);
+            assertTrue(candidates.contains(sentence), sentence);
+        }
+        assertTrue(candidates.length() * 5 <= cleaned.length(),
+                "отобрано " + candidates.length() + " из " + cleaned.length() + " символов");
+        assertTrue(new ObjectFilter(OBJECT, 1).filter(cleaned).length() * 2 <= cleaned.length());
+    }
+}
@@ -0,0 +1,152 @@
+import com.google.genai.Client;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptPrefixCacheTest {
+
+    private static final PromptTemplate TEMPLATE = new PromptTemplate(
+            "Правила: возвращай только цитаты.\nФормат: target: предложения.\n"
+                    + "object={{OBJECT_VALUES}}\nТекст: {{ИСХОДНЫЙ_ТЕКСТ}}");
+
+    private FakeGeminiServer server;
+    private MutableClock clock;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeGeminiServer();
+        GeminiClientHolder.configure(server::newClient);
+        ApiCaller.setResponseCache(null);
+        clock = new MutableClock();
+        ApiCaller.setPrefixCache(new PromptPrefixCache(ApiCaller.MODEL_NAME, Duration.ofMinutes(60), 1, clock));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ApiCaller.setPrefixCache(null);
+        GeminiClientHolder.configure(Client::new);
+        server.close();
+    }
+
+    @Test
+    void makeApiCall_registersPrefixOnceAndSendsOnlySuffix() {
+        assertEquals("ok", ApiCaller.makeApiCall(prompt("первый документ")));
+        assertEquals("ok", ApiCaller.makeApiCall(prompt("второй документ")));
+
+        assertEquals(1, server.getCreatedCaches().size());
+        assertTrue(server.getCreatedCaches().get(0).contains("Правила: возвращай только цитаты."));
+        List<String> bodies = server.getRequestBodies();
+        assertEquals(2, bodies.size());
+        for (String body : bodies) {
+            assertTrue(body.contains("cachedContents/1"), body);
+            assertFalse(body.contains("Правила"), body);
+        }
+        assertTrue(bodies.get(1).contains("второй документ"));
+
+        GeminiClientHolder.shutdown();
+        assertEquals(List.of("cachedContents/1"), server.getDeletedCaches());
+    }
+
+    @Test
+    void makeApiCall_refreshesHandleBeforeExpiry() {
+        ApiCaller.makeApiCall(prompt("документ"));
+        clock.advance(Duration.ofMinutes(30));
+        ApiCaller.makeApiCall(prompt("документ"));
+        assertEquals(1, server.getCreatedCaches().size());
+
+        clock.advance(Duration.ofMinutes(20));
+        ApiCaller.makeApiCall(prompt("документ"));
+        assertEquals(2, server.getCreatedCaches().size());
+        assertTrue(server.getRequestBodies().get(2).contains("cachedContents/2"));
+        assertEquals(List.of("cachedContents/1"), server.getDeletedCaches());
+    }
+
+    @Test
+    void makeApiCall_failedRefresh_keepsValidHandle() {
+        ApiCaller.makeApiCall(prompt("документ"));
+        server.setCacheCreateStatus(500);
+        clock.advance(Duration.ofMinutes(50));
+        ApiCaller.makeApiCall(prompt("документ"));
+        ApiCaller.makeApiCall(prompt("документ"));
+
+        assertEquals(1, server.getCreatedCaches().size());
+        assertTrue(server.getRequestBodies().get(1).contains("cachedContents/1"));
+        assertTrue(server.getRequestBodies().get(2).contains("cachedContents/1"));
+        assertTrue(server.getDeletedCaches().isEmpty());
+
+        clock.advance(Duration.ofMinutes(10));
+        ApiCaller.makeApiCall(prompt("документ"));
+        assertTrue(server.getRequestBodies().get(3).contains("Правила"));
+
+        server.setCacheCreateStatus(200);
+        clock.advance(Duration.ofMinutes(12));
+        ApiCaller.makeApiCall(prompt("документ"));
+        assertTrue(server.getRequestBodies().get(4).contains("cachedContents/2"));
+        assertTrue(server.getDeletedCaches().isEmpty());
+    }
+
+    @Test
+    void makeApiCall_rejectedHandle_fallsBackToFullPromptAndReregisters() {
+        ApiCaller.makeApiCall(prompt("документ"));
+        server.failNext(1, 404);
+
+        assertEquals("ok", ApiCaller.makeApiCall(prompt("документ")));
+        assertTrue(server.getRequestBodies().get(2).contains("Правила"));
+
+        ApiCaller.makeApiCall(prompt("документ"));
+        assertEquals(2, server.getCreatedCaches().size());
+    }
+
+    @Test
+    void makeApiCall_withoutCachingSupport_sendsFullPrompt() {
+        server.setCacheCreateStatus(400);
+        assertEquals("ok", ApiCaller.makeApiCall(prompt("документ")));
+        assertEquals("ok", ApiCaller.makeApiCall(new Prompt("без префикса")));
+        ApiCaller.setPrefixCache(new PromptPrefixCache(ApiCaller.MODEL_NAME, Duration.ofMinutes(60), 10_000, clock));
+        server.setCacheCreateStatus(200);
+        assertEquals("ok", ApiCaller.makeApiCall(prompt("документ")));
+
+        assertTrue(server.getCreatedCaches().isEmpty());
+        List<String> bodies = server.getRequestBodies();
+        assertTrue(bodies.get(0).contains("Правила"));
+        assertFalse(bodies.get(1).contains("cachedContent"));
+        assertTrue(bodies.get(2).contains("Правила"));
+    }
+
+    private static Prompt prompt(String document) {
+        return TEMPLATE.render(Map.of(PromptTemplate.SOURCE_TEXT, document, PromptTemplate.OBJECT_VALUES, "'Андрей'"));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
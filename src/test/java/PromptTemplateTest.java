@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptTemplateTest {
+
+    private static final String TEMPLATE =
+            "Текст: {{ИСХОДНЫЙ_ТЕКСТ}}\nobject={{OBJECT_VALUES}}\ntargets={{TARGETS_VALUES}}";
+
+    @Test
+    void render_substitutesAllVariables() {
+        Prompt prompt = new PromptTemplate(TEMPLATE).render(values("документ", "'Андрей'", "биография"));
+        assertEquals("Текст: документ\nobject='Андрей'\ntargets=биография", prompt.getText());
+    }
+
+    @Test
+    void render_documentPlaceholdersAreNotExpanded() {
+        Prompt prompt = new PromptTemplate(TEMPLATE).render(values("{{OBJECT_VALUES}}", "O", "T"));
+        assertTrue(prompt.getText().startsWith("Текст: {{OBJECT_VALUES}}\n"));
+    }
+
+    @Test
+    void render_keepsStaticPrefixOfTemplate() {
+        PromptTemplate template =
+                new PromptTemplate("Правила.\nЕщё правила.\nobject={{OBJECT_VALUES}}\n{{ИСХОДНЫЙ_ТЕКСТ}}");
+        Prompt prompt = template.render(Map.of("OBJECT_VALUES", "O", "ИСХОДНЫЙ_ТЕКСТ", "документ"));
+        assertEquals("Правила.\nЕщё правила.\n", template.getStaticPrefix());
+        assertEquals(template.getStaticPrefix(), prompt.getPrefix());
+        assertEquals("object=O\nдокумент", prompt.getSuffix());
+        assertEquals("", new PromptTemplate(TEMPLATE).getStaticPrefix());
+        assertFalse(new PromptTemplate(TEMPLATE).render(values("д", "o", "t")).hasPrefix());
+    }
+
+    @Test
+    void constructor_withoutSourcePlaceholder_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new PromptTemplate("object={{OBJECT_VALUES}}"));
+    }
+
+    @Test
+    void constructor_withDuplicatedSourcePlaceholder_throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PromptTemplate("{{ИСХОДНЫЙ_ТЕКСТ}} и ещё раз {{ИСХОДНЫЙ_ТЕКСТ}}"));
+    }
+
+    @Test
+    void constructor_withMalformedPlaceholder_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new PromptTemplate("{{ИСХОДНЫЙ_ТЕКСТ}} {{OBJECT_VALUES"));
+        assertThrows(IllegalArgumentException.class, () -> new PromptTemplate("{{ИСХОДНЫЙ_ТЕКСТ}} {{OBJECT VALUES}}"));
+        assertThrows(IllegalArgumentException.class, () -> new PromptTemplate("{{ИСХОДНЫЙ_ТЕКСТ}} {{}}"));
+    }
+
+    @Test
+    void renderTo_matchesRenderAndNeverExpandsValues() throws Exception {
+        PromptTemplate template = new PromptTemplate(TEMPLATE);
+        Map<String, String> values = values("документ", "{{TARGETS_VALUES}}", "биография");
+        StringWriter out = new StringWriter();
+
+        long length = template.renderTo(values, out);
+
+        assertEquals("Текст: документ\nobject={{TARGETS_VALUES}}\ntargets=биография", out.toString());
+        assertEquals(out.toString(), template.render(values).getText());
+        assertEquals(out.toString().length(), length);
+        assertEquals(length, template.renderedLength(values));
+
+        Map<String, String> large = values("документ ".repeat(3_000), "O", "T");
+        StringWriter largeOut = new StringWriter();
+        template.renderTo(large, largeOut);
+        assertEquals(template.render(large).getText(), largeOut.toString());
+    }
+
+    @Test
+    void render_missingValue_throws() {
+        Map<String, String> values = values("документ", null, "T");
+        assertThrows(IllegalArgumentException.class, () -> new PromptTemplate(TEMPLATE).render(values));
+    }
+
+    @Test
+    void prompt_reportsUtf8ByteCount() {
+        Prompt prompt = new Prompt("Андрей 🙂 ok");
+        assertEquals(prompt.getText().getBytes(StandardCharsets.UTF_8).length, prompt.getByteCount());
+        assertTrue(prompt.getEstimatedTokens() > 0);
+    }
+
+    private static Map<String, String> values(String source, String object, String targets) {
+        Map<String, String> values = new HashMap<>();
+        values.put(PromptTemplate.SOURCE_TEXT, source);
+        values.put(PromptTemplate.OBJECT_VALUES, object);
+        values.put(PromptTemplate.TARGETS_VALUES, targets);
+        return values;
+    }
+}
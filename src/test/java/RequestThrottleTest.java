@@ -0,0 +1,99 @@
+import com.google.genai.Client;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestThrottleTest {
+
+    @BeforeEach
+    void setUp() {
+        ApiCaller.setResponseCache(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ApiCaller.setThrottle(RequestThrottle.fromConfig());
+        ApiCaller.setRetryPolicy(RetryPolicy.fromConfig());
+        GeminiClientHolder.configure(Client::new);
+    }
+
+    @Test
+    void rateLimiter_blocksWhenRequestQuotaIsExhausted() {
+        AtomicLong now = new AtomicLong();
+        RateLimiter limiter = new RateLimiter(60, 0, now::get);
+        for (int i = 0; i < 60; i++) {
+            assertEquals(0, limiter.tryAcquire(10));
+        }
+        long wait = limiter.tryAcquire(10);
+        assertEquals(TimeUnit.SECONDS.toNanos(1), wait, TimeUnit.MILLISECONDS.toNanos(1));
+
+        now.addAndGet(wait);
+        assertEquals(0, limiter.tryAcquire(10));
+    }
+
+    @Test
+    void rateLimiter_blocksWhenTokenQuotaIsExhausted() {
+        AtomicLong now = new AtomicLong();
+        RateLimiter limiter = new RateLimiter(0, 6000, now::get);
+        assertEquals(0, limiter.tryAcquire(6000));
+        long wait = limiter.tryAcquire(100);
+        assertEquals(TimeUnit.SECONDS.toNanos(1), wait, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test
+    void rateLimiter_requestLargerThanQuotaPassesWithFullBucket() {
+        RateLimiter limiter = new RateLimiter(0, 100, () -> 0L);
+        assertEquals(0, limiter.tryAcquire(1_000));
+    }
+
+    @Test
+    void concurrencyLimiter_halvesOnThrottleAndGrowsOnSuccess() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 16);
+        long first = limiter.acquire();
+        long second = limiter.acquire();
+        limiter.release(first, true);
+        assertEquals(4, limiter.getLimit());
+        // запрос, начатый до уменьшения, повторно предел не уменьшает
+        limiter.release(second, true);
+        assertEquals(4, limiter.getLimit());
+
+        for (int i = 0; i < 20; i++) {
+            limiter.release(limiter.acquire(), false);
+        }
+        assertTrue(limiter.getLimit() > 4);
+    }
+
+    @Test
+    void fakeServerThrottling_reducesConcurrencyThenRecovers() throws Exception {
+        RequestThrottle throttle = new RequestThrottle(new RateLimiter(0, 0),
+                new AdaptiveConcurrencyLimiter(8, 1, 16));
+        ApiCaller.setThrottle(throttle);
+        ApiCaller.setRetryPolicy(new RetryPolicy(1, 0, 0, 10_000, false, 0));
+
+        try (FakeGeminiServer server = new FakeGeminiServer()) {
+            GeminiClientHolder.configure(server::newClient);
+
+            server.failNext(1, 429);
+            assertNull(ApiCaller.makeApiCall("prompt"));
+            assertEquals(4, throttle.getConcurrencyLimit());
+
+            server.failNext(1, 503);
+            assertNull(ApiCaller.makeApiCall("prompt"));
+            assertEquals(2, throttle.getConcurrencyLimit());
+
+            server.failNext(1, 400);
+            assertNull(ApiCaller.makeApiCall("prompt"));
+            assertEquals(2, throttle.getConcurrencyLimit());
+
+            for (int i = 0; i < 10; i++) {
+                assertEquals("ok", ApiCaller.makeApiCall("prompt"));
+            }
+            assertTrue(throttle.getConcurrencyLimit() > 2);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+import com.google.genai.Client;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mockStatic;
+
+class ResponseCacheTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        ApiCaller.setResponseCache(null);
+        ApiCaller.setRetryPolicy(RetryPolicy.fromConfig());
+        GeminiClientHolder.configure(Client::new);
+    }
+
+    @Test
+    void key_dependsOnModelConfigAndPrompt() {
+        String key = ResponseCache.key("model", "{}", "prompt");
+        assertEquals(64, key.length());
+        assertEquals(key, ResponseCache.key("model", "{}", "prompt"));
+        assertNotEquals(key, ResponseCache.key("model2", "{}", "prompt"));
+        assertNotEquals(key, ResponseCache.key("model", "{\"topP\":1}", "prompt"));
+        assertNotEquals(key, ResponseCache.key("model", "{}", "prompt2"));
+    }
+
+    @Test
+    void get_returnsStoredValueFromMemory() throws Exception {
+        try (ResponseCache cache = new ResponseCache(dir, 10, 1024 * 1024, DAY)) {
+            String key = ResponseCache.key("m", "{}", "страница");
+            assertNull(cache.get(key));
+            cache.put(key, "target: ответ");
+            assertEquals("target: ответ", cache.get(key));
+            assertEquals(1, cache.getMemoryHitCount());
+            assertEquals(1, cache.getMissCount());
+        }
+    }
+
+    @Test
+    void get_survivesRestart() throws Exception {
+        String key = ResponseCache.key("m", "{}", "страница");
+        try (ResponseCache cache = new ResponseCache(dir, 10, 1024 * 1024, DAY)) {
+            cache.put(key, "target: ответ");
+        }
+        try (ResponseCache reopened = new ResponseCache(dir, 10, 1024 * 1024, DAY)) {
+            assertEquals("target: ответ", reopened.get(key));
+            assertEquals(1, reopened.getDiskHitCount());
+            assertEquals("target: ответ", reopened.get(key));
+            assertEquals(1, reopened.getMemoryHitCount());
+        }
+    }
+
+    @Test
+    void get_rebuildsMissingIndexFromDataFile() throws Exception {
+        String key = ResponseCache.key("m", "{}", "страница");
+        try (ResponseCache cache = new ResponseCache(dir, 10, 1024 * 1024, DAY)) {
+            cache.put(key, "target: ответ");
+        }
+        Files.delete(dir.resolve(ResponseCache.INDEX_FILE));
+        try (ResponseCache reopened = new ResponseCache(dir, 0, 1024 * 1024, DAY)) {
+            assertEquals("target: ответ", reopened.get(key));
+        }
+    }
+
+    @Test
+    void get_ignoresExpiredEntries() throws Exception {
+        try (ResponseCache cache = new ResponseCache(dir, 10, 1024 * 1024, 1)) {
+            String key = ResponseCache.key("m", "{}", "страница");
+            cache.put(key, "target: ответ");
+            Thread.sleep(5);
+            assertNull(cache.get(key));
+        }
+    }
+
+    @Test
+    void put_compactsDataFileWhenItExceedsLimit() throws Exception {
+        String value = "x".repeat(1000);
+        try (ResponseCache cache = new ResponseCache(dir, 0, 10_000, DAY)) {
+            for (int i = 0; i < 30; i++) {
+                cache.put(ResponseCache.key("m", "{}", "prompt" + i), value);
+            }
+            assertTrue(Files.size(dir.resolve(ResponseCache.DATA_FILE)) <= 10_000);
+            assertTrue(cache.getEvictionCount() > 0);
+            assertEquals(value, cache.get(ResponseCache.key("m", "{}", "prompt29")));
+            assertNull(cache.get(ResponseCache.key("m", "{}", "prompt0")));
+        }
+    }
+
+    @Test
+    void directoryLockedByAnotherInstance_fallsBackToMemory() throws Exception {
+        String first = ResponseCache.key("m", "{}", "первая");
+        String second = ResponseCache.key("m", "{}", "вторая");
+        try (ResponseCache owner = new ResponseCache(dir, 10, 1024 * 1024, DAY)) {
+            owner.put(first, "target: первый");
+            long dataSize = Files.size(dir.resolve(ResponseCache.DATA_FILE));
+            try (ResponseCache other = new ResponseCache(dir, 10, 1024 * 1024, DAY)) {
+                assertTrue(owner.isOnDisk());
+                assertFalse(other.isOnDisk());
+                assertNull(other.get(first));
+                other.put(second, "target: второй");
+                assertEquals("target: второй", other.get(second));
+            }
+            assertEquals(dataSize, Files.size(dir.resolve(ResponseCache.DATA_FILE)));
+            assertEquals("target: первый", owner.get(first));
+        }
+        try (ResponseCache reopened = new ResponseCache(dir, 10, 1024 * 1024, DAY)) {
+            assertTrue(reopened.isOnDisk());
+            assertEquals("target: первый", reopened.get(first));
+            assertNull(reopened.get(second));
+        }
+    }
+
+    @Test
+    void concurrentPutAndGet_returnConsistentValues() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (ResponseCache cache = new ResponseCache(dir, 16, 1024 * 1024, DAY)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        String key = ResponseCache.key("m", "{}", "prompt" + i);
+                        cache.put(key, "value" + i);
+                        String value = cache.get(key);
+                        assertEquals("value" + i, value);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void makeApiCall_repeatedPromptIsServedFromCache() throws Exception {
+        try (FakeGeminiServer server = new FakeGeminiServer();
+             ResponseCache cache = new ResponseCache(dir, 10, 1024 * 1024, DAY)) {
+            server.setResponseText("target: Газпромбанк");
+            GeminiClientHolder.configure(server::newClient);
+            ApiCaller.setRetryPolicy(new RetryPolicy(1, 0, 0, 10_000, false, 0));
+            ApiCaller.setResponseCache(cache);
+
+            assertEquals("target: Газпромбанк", ApiCaller.makeApiCall(new Prompt("Найди банки")));
+            assertEquals("target: Газпромбанк", ApiCaller.makeApiCall(new Prompt("Найди банки")));
+            assertEquals(1, server.getRequestCount());
+            assertEquals(1, cache.getMemoryHitCount());
+        }
+    }
+
+    @Test
+    void clientShutdown_closesCacheOpenedFromConfig() throws Exception {
+        Path config = Files.writeString(dir.resolve("properties.cfg"),
+                "cache.enabled=true\ncache.directory=" + dir.resolve("cache").toString().replace('\\', '/'));
+        try (FakeGeminiServer server = new FakeGeminiServer();
+             MockedStatic<TaskConfig> mocked = mockStatic(TaskConfig.class, CALLS_REAL_METHODS)) {
+            mocked.when(TaskConfig::shared).thenReturn(new TaskConfig(config, Set.of()));
+            GeminiClientHolder.configure(server::newClient);
+            ApiCaller.setRetryPolicy(new RetryPolicy(1, 0, 0, 10_000, false, 0));
+            ApiCaller.resetResponseCache();
+
+            ApiCaller.makeApiCall(new Prompt("Найди банки"));
+            assertTrue(ApiCaller.getResponseCache().isOnDisk());
+            GeminiClientHolder.shutdown();
+
+            try (ResponseCache reopened = new ResponseCache(dir.resolve("cache"), 10, 1024 * 1024, DAY)) {
+                assertTrue(reopened.isOnDisk());
+            }
+            assertTrue(Files.size(dir.resolve("cache").resolve(ResponseCache.DATA_FILE)) > 0);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StagePipelineTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @TempDir
+    Path dir;
+
+    private final List<String> calls = new ArrayList<>();
+    private final AtomicReference<String> prompt = new AtomicReference<>("prompt-1");
+
+    @Test
+    void get_computesStagesOnlyUpToRequested() throws Exception {
+        StagePipeline.Document document = pipeline(null).document("<p>Андрей</p>");
+        assertEquals("<p>Андрей</p>", document.get(Mode.ORIGINAL));
+        assertEquals(List.of(), calls);
+        assertEquals("clean(<p>Андрей</p>)", document.get(Mode.CLEANED));
+        assertEquals(List.of("clean"), calls);
+        assertEquals("answer[prompt-1](purify(clean(<p>Андрей</p>)))", document.get(Mode.FINAL));
+        assertEquals(List.of("clean", "purify", "answer"), calls);
+    }
+
+    @Test
+    void sharedCache_returnsOneInstancePerProcess() {
+        assertSame(StagePipeline.sharedCache(), StagePipeline.sharedCache());
+    }
+
+    @Test
+    void get_memoizesStagesWithinDocument() throws Exception {
+        StagePipeline.Document document = pipeline(null).document("html");
+        document.get(Mode.PURIFIED);
+        document.get(Mode.FINAL);
+        document.get(Mode.CLEANED);
+        document.get(Mode.FINAL);
+        assertEquals(List.of("clean", "purify", "answer"), calls);
+    }
+
+    @Test
+    void changedFinalFingerprint_reusesCachedEarlierStages() throws Exception {
+        try (ResponseCache cache = new ResponseCache(dir, 10, 1024 * 1024, DAY)) {
+            StagePipeline pipeline = pipeline(cache);
+            assertEquals("answer[prompt-1](purify(clean(html)))", pipeline.document("html").get(Mode.FINAL));
+            assertEquals(List.of("clean", "purify", "answer"), calls);
+
+            calls.clear();
+            assertEquals("answer[prompt-1](purify(clean(html)))", pipeline.document("html").get(Mode.FINAL));
+            assertEquals(List.of(), calls);
+
+            prompt.set("prompt-2");
+            assertEquals("answer[prompt-2](purify(clean(html)))", pipeline.document("html").get(Mode.FINAL));
+            assertEquals(List.of("answer"), calls);
+
+            calls.clear();
+            pipeline.document("other").get(Mode.PURIFIED);
+            assertEquals(List.of("clean", "purify"), calls);
+        }
+    }
+
+    @Test
+    void cachedStages_surviveReopeningStore() throws Exception {
+        try (ResponseCache cache = new ResponseCache(dir, 10, 1024 * 1024, DAY)) {
+            pipeline(cache).document("html").get(Mode.PURIFIED);
+        }
+        calls.clear();
+        try (ResponseCache reopened = new ResponseCache(dir, 10, 1024 * 1024, DAY)) {
+            assertEquals("purify(clean(html))", pipeline(reopened).document("html").get(Mode.PURIFIED));
+        }
+        assertEquals(List.of(), calls);
+    }
+
+    @Test
+    void invalidStages_areRejected() throws Exception {
+        StagePipeline pipeline = new StagePipeline(null).then(Mode.PURIFIED, () -> "", input -> input);
+        assertThrows(IllegalArgumentException.class, () -> pipeline.then(Mode.CLEANED, () -> "", input -> input));
+        assertThrows(IllegalArgumentException.class, () -> pipeline.document("html").get(Mode.FINAL));
+        StagePipeline.Document document = pipeline.then(Mode.FINAL, () -> "", input -> null).document("html");
+        assertEquals("html", document.get(Mode.PURIFIED));
+        assertThrows(IntegratorException.class, () -> document.get(Mode.FINAL));
+    }
+
+    private StagePipeline pipeline(ResponseCache cache) {
+        return new StagePipeline(cache)
+                .then(Mode.CLEANED, () -> "cleaner", input -> step("clean", input))
+                .then(Mode.PURIFIED, () -> "filter", input -> step("purify", input))
+                .then(Mode.FINAL, prompt::get, input -> step("answer[" + prompt.get() + "]", input));
+    }
+
+    private String step(String name, String input) {
+        calls.add(name.startsWith("answer") ? "answer" : name);
+        return name + "(" + input + ")";
+    }
+}
@@ -0,0 +1,143 @@
+import com.google.genai.Client;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingResponseTest {
+
+    @TempDir
+    Path dir;
+
+    private FakeGeminiServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeGeminiServer();
+        GeminiClientHolder.configure(server::newClient);
+        ApiCaller.setResponseCache(null);
+        ApiCaller.setRetryPolicy(new RetryPolicy(3, 0, 0, 10_000, false, 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ApiCaller.setRetryPolicy(RetryPolicy.fromConfig());
+        GeminiClientHolder.configure(Client::new);
+        server.close();
+    }
+
+    @Test
+    void streamApiCall_deliversChunksInOrder() throws Exception {
+        server.setStreamChunks(0, "target: Газ", "промбанк\n", "target: ВТБ");
+        List<String> chunks = new ArrayList<>();
+
+        long length = ApiCaller.streamApiCall(new Prompt("Найди банки"), chunks::add);
+
+        assertEquals(List.of("target: Газ", "промбанк\n", "target: ВТБ"), chunks);
+        assertEquals("target: Газпромбанк\ntarget: ВТБ".length(), length);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void writer_appendsChunksToFileAndReportsCompleteLines() throws Exception {
+        server.setStreamChunks(0, "target: Газ", "промбанк\ntarget: В", "ТБ\n", "target: Сбербанк");
+        Path output = dir.resolve("geminiOutput.txt");
+        List<String> lines = new CopyOnWriteArrayList<>();
+        Reporter<String> reporter = new Reporter<>() {
+            @Override
+            public boolean add(Data<String> content) throws IntegratorException {
+                lines.add(content.getContent());
+                return true;
+            }
+
+            @Override
+            public Data<String> getReport() {
+                return null;
+            }
+        };
+        StreamingResponseWriter writer = new StreamingResponseWriter(output, reporter, "rawHtml.txt");
+
+        ApiCaller.streamApiCall(new Prompt("Найди банки")).subscribe(writer);
+
+        assertEquals("target: Газпромбанк\ntarget: ВТБ\ntarget: Сбербанк".length(), writer.await());
+        assertEquals("target: Газпромбанк\ntarget: ВТБ\ntarget: Сбербанк",
+                Files.readString(output, StandardCharsets.UTF_8));
+        assertEquals(List.of("target: Газпромбанк", "target: ВТБ", "target: Сбербанк"), lines);
+    }
+
+    @Test
+    void writer_groupsStreamedLinesThroughReporterSession() throws Exception {
+        server.setStreamChunks(0, "биография:\nРодился", " в Москве.\nсмерть:\n", "Умер в 1812 году.\n");
+        TargetReporter reporter = new TargetReporter(List.of("биография", "смерть"));
+        StreamingResponseWriter writer = new StreamingResponseWriter(dir.resolve("geminiOutput.txt"),
+                reporter.session(), "rawHtml.txt");
+
+        ApiCaller.streamApiCall(new Prompt("Найди факты")).subscribe(writer);
+        writer.await();
+        reporter.add(new TextData("rawHtml.txt", "Вступление.\nбиография:\nУчился в Петербурге."));
+
+        assertEquals(List.of("Родился в Москве.", "Учился в Петербурге."), reporter.getSentences("биография"));
+        assertEquals(List.of("Умер в 1812 году."), reporter.getSentences("смерть"));
+    }
+
+    @Test
+    void writer_receivesFirstChunkBeforeResponseIsComplete() throws Exception {
+        // итератор SDK читает одно событие наперёд, поэтому фрагмент передаётся с приходом следующего
+        server.setStreamChunks(300, "target: первый\n", "target: второй\n", "target: третий\n");
+        Path output = dir.resolve("geminiOutput.txt");
+        long start = System.nanoTime();
+        List<Long> arrivals = new CopyOnWriteArrayList<>();
+        Reporter<String> reporter = new Reporter<>() {
+            @Override
+            public boolean add(Data<String> content) {
+                arrivals.add(System.nanoTime() - start);
+                return true;
+            }
+
+            @Override
+            public Data<String> getReport() {
+                return null;
+            }
+        };
+        StreamingResponseWriter writer = new StreamingResponseWriter(output, reporter, "rawHtml.txt");
+
+        ApiCaller.streamApiCall(new Prompt("Найди банки")).subscribe(writer);
+        writer.await();
+
+        assertEquals(3, arrivals.size());
+        assertTrue(arrivals.get(2) - arrivals.get(0) >= 200_000_000L,
+                "первая строка должна быть получена до окончания ответа");
+    }
+
+    @Test
+    void streamApiCall_retriesTransientErrorBeforeFirstChunk() throws Exception {
+        server.setStreamChunks(0, "target: ВТБ");
+        server.failNext(1, 503);
+        List<String> chunks = new ArrayList<>();
+
+        ApiCaller.streamApiCall(new Prompt("Найди банки"), chunks::add);
+
+        assertEquals(List.of("target: ВТБ"), chunks);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void writer_failsOnPermanentError() {
+        server.failNext(1, 400);
+        StreamingResponseWriter writer = new StreamingResponseWriter(dir.resolve("geminiOutput.txt"));
+
+        ApiCaller.streamApiCall(new Prompt("Найди банки")).subscribe(writer);
+
+        assertThrows(IntegratorException.class, writer::await);
+        assertEquals(1, server.getRequestCount());
+    }
+}
@@ -2,7 +2,11 @@
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.Set;
 import org.mockito.MockedStatic;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -13,18 +17,24 @@ class StringAnalyzerTest {
     private StringAnalyzer analyzer;
     private MockedStatic<FileHandler> fh;
     private MockedStatic<ApiCaller> api;
+    private MockedStatic<TaskConfig> config;
 
     @BeforeEach
-    void setUp() {
+    void setUp(@TempDir Path configDir) throws Exception {
         analyzer = new StringAnalyzer();
         fh  = mockStatic(FileHandler.class);
         api = mockStatic(ApiCaller.class);
+        // параметры приложения не заданы: фильтр, разбиение на части и кэши отключены
+        TaskConfig emptyConfig = new TaskConfig(Files.createFile(configDir.resolve("properties.cfg")), Set.of());
+        config = mockStatic(TaskConfig.class, CALLS_REAL_METHODS);
+        config.when(TaskConfig::shared).thenReturn(emptyConfig);
     }
 
     @AfterEach
     void tearDown() {
         fh.close();
         api.close();
+        config.close();
     }
 
     @Test
@@ -59,11 +69,13 @@ class StringAnalyzerTest {
                 .thenReturn(template);
 
         String fakeApiResult = "GPT says OK";
-        api.when(() -> ApiCaller.makeApiCall(anyString(), anyString()))
+        api.when(() -> ApiCaller.makeApiCall(any(Prompt.class)))
                 .thenReturn(fakeApiResult);
 
         Data<String> result = analyzer.analyze(input);
-        assertNull(result);
+        assertInstanceOf(TextData.class, result);
+        assertEquals("geminiOutput.txt", ((TextData) result).getTitle());
+        assertEquals(fakeApiResult, result.getContent());
 
         fh.verify(() -> FileHandler.writeToFile(
                 "cleanedHtml.txt", "Hello"
@@ -81,7 +93,25 @@ class StringAnalyzerTest {
                 "geminiOutput.txt", fakeApiResult
         ));
 
-        api.verify(() -> ApiCaller.makeApiCall("Hello", expectedPrompt));
+        api.verify(() -> ApiCaller.makeApiCall(new Prompt(expectedPrompt)));
+    }
+
+    @Test
+    void analyze_twice_earlierResultKeepsItsAnswer() throws Exception {
+        Data<String> input = mock(Data.class);
+        when(input.getContent()).thenReturn("x");
+        fh.when(() -> FileHandler.readFromFile("rawHtml.txt")).thenReturn("<p>Hello</p>");
+        fh.when(() -> FileHandler.readSpecificProperties("object", "additions", "targets"))
+                .thenReturn(Map.of("object", "OBJ", "targets", "TGT"));
+        fh.when(() -> FileHandler.readFromFile("baseGeminiPrompt.txt")).thenReturn("P: {{ИСХОДНЫЙ_ТЕКСТ}}");
+        api.when(() -> ApiCaller.makeApiCall(any(Prompt.class))).thenReturn("first", "second");
+
+        Data<String> first = analyzer.analyze(input);
+        Data<String> second = analyzer.analyze(input);
+
+        // оба вызова пишут ответ в geminiOutput.txt, но результат первого от этого не меняется
+        assertEquals("first", first.getContent());
+        assertEquals("second", second.getContent());
     }
 
     @Test
@@ -141,9 +171,9 @@ class StringAnalyzerTest {
         assertTrue(ex.getMessage().contains("template missing"));
     }
 
-    // 3) Если ApiCaller возвращает null — всё равно должно записаться в файл
+    // 3) Если ApiCaller возвращает null — анализ завершается ошибкой, null в файл не пишется
     @Test
-    void analyze_apiReturnsNull_writesNullOutput() throws Exception {
+    void analyze_apiReturnsNull_throwsWithoutWritingOutput() throws Exception {
         String html = "<div>Alpha</div>";
         Data<String> input = mock(Data.class);
         when(input.getContent()).thenReturn("irrelevant");
@@ -155,14 +185,12 @@ class StringAnalyzerTest {
         fh.when(() -> FileHandler.readFromFile("baseGeminiPrompt.txt"))
                 .thenReturn("P: {{ИСХОДНЫЙ_ТЕКСТ}}");
         // API вернул null
-        api.when(() -> ApiCaller.makeApiCall(anyString(), anyString()))
+        api.when(() -> ApiCaller.makeApiCall(any(Prompt.class)))
                 .thenReturn(null);
 
-        Data<String> result = analyzer.analyze(input);
-        assertNull(result);
+        assertThrows(IntegratorException.class, () -> analyzer.analyze(input));
 
-        // проверяем, что в файл geminiOutput.txt записали именно null
-        fh.verify(() -> FileHandler.writeToFile("geminiOutput.txt", null));
+        fh.verify(() -> FileHandler.writeToFile(eq("geminiOutput.txt"), any()), never());
     }
 
     // 4) Сбой при записи одного из файлов
@@ -177,7 +205,7 @@ class StringAnalyzerTest {
                 .thenReturn(Map.of("object","O","targets","T"));
         fh.when(() -> FileHandler.readFromFile("baseGeminiPrompt.txt"))
                 .thenReturn("T: {{ИСХОДНЫЙ_ТЕКСТ}}");
-        api.when(() -> ApiCaller.makeApiCall(anyString(), anyString()))
+        api.when(() -> ApiCaller.makeApiCall(any(Prompt.class)))
                 .thenReturn("out");
 
         // первый writeToFile пройдёт нормально
@@ -208,7 +236,7 @@ class StringAnalyzerTest {
                 .thenReturn(Map.of("object","O","targets","T"));
         fh.when(() -> FileHandler.readFromFile("baseGeminiPrompt.txt"))
                 .thenReturn("P: {{ИСХОДНЫЙ_ТЕКСТ}}");
-        api.when(() -> ApiCaller.makeApiCall(anyString(), anyString()))
+        api.when(() -> ApiCaller.makeApiCall(any(Prompt.class)))
                 .thenReturn("ok");
 
         analyzer.analyze(input);
@@ -217,6 +245,63 @@ class StringAnalyzerTest {
         fh.verify(() -> FileHandler.writeToFile("cleanedHtml.txt", "Good"));
     }
 
+    @Test
+    void analyzeSource_returnsResponseWithoutWritingFiles() throws Exception {
+        fh.when(() -> FileHandler.readSpecificProperties("object", "additions", "targets"))
+                .thenReturn(Map.of("object", "OBJ", "targets", "TGT"));
+        fh.when(() -> FileHandler.readFromFile("baseGeminiPrompt.txt"))
+                .thenReturn("P: {{ИСХОДНЫЙ_ТЕКСТ}} / {{OBJECT_VALUES}}");
+        api.when(() -> ApiCaller.makeApiCall(any(Prompt.class)))
+                .thenReturn("answer");
+
+        Data<String> result = analyzer.analyze(TextSource.of("page-1", "<p>Hello</p><script>x()</script>"));
 
+        assertEquals("answer", result.getContent());
+        assertEquals("page-1", ((TextData) result).getTitle());
+        api.verify(() -> ApiCaller.makeApiCall(new Prompt("P: Hello / OBJ")));
+        fh.verify(() -> FileHandler.writeToFile(anyString(), anyString()), never());
+    }
 
-}
\ No newline at end of file
+    @Test
+    void analyzeSource_withOwnCriteria_overridesConfig() throws Exception {
+        fh.when(() -> FileHandler.readSpecificProperties("object", "additions", "targets"))
+                .thenReturn(Map.of("object", "OBJ", "targets", "TGT"));
+        fh.when(() -> FileHandler.readFromFile("baseGeminiPrompt.txt"))
+                .thenReturn("P: {{ИСХОДНЫЙ_ТЕКСТ}} / {{OBJECT_VALUES}} / {{TARGETS_VALUES}}");
+        api.when(() -> ApiCaller.makeApiCall(any(Prompt.class)))
+                .thenReturn("answer");
+
+        new StringAnalyzer(null, Map.of("object", "JOB")).analyze(TextSource.of("page-1", "<p>Hello</p>"));
+
+        api.verify(() -> ApiCaller.makeApiCall(new Prompt("P: Hello / JOB / TGT")));
+    }
+
+    @Test
+    void analyzeSource_twice_reusesCleanedTextButNotAnswer(@TempDir Path dir) throws Exception {
+        fh.when(() -> FileHandler.readSpecificProperties("object", "additions", "targets"))
+                .thenReturn(Map.of("object", "OBJ", "targets", "TGT"));
+        fh.when(() -> FileHandler.readFromFile("baseGeminiPrompt.txt"))
+                .thenReturn("P: {{ИСХОДНЫЙ_ТЕКСТ}}");
+        api.when(() -> ApiCaller.makeApiCall(any(Prompt.class)))
+                .thenReturn("first", "second");
+
+        try (ResponseCache stageCache = new ResponseCache(dir, 16, 1 << 20, 60_000)) {
+            Source<String> source = TextSource.of("page-1", "<p>Hello</p>");
+            assertEquals("first", new StringAnalyzer(stageCache).analyze(source).getContent());
+            // ответ LLM кэшируется только ResponseCache в ApiCaller, а не кэшем стадий
+            assertEquals("second", new StringAnalyzer(stageCache).analyze(source).getContent());
+        }
+        api.verify(() -> ApiCaller.makeApiCall(new Prompt("P: Hello")), times(2));
+    }
+
+    @Test
+    void analyzeSource_apiReturnsNull_throws() {
+        fh.when(() -> FileHandler.readSpecificProperties("object", "additions", "targets"))
+                .thenReturn(Map.of("object", "OBJ", "targets", "TGT"));
+        fh.when(() -> FileHandler.readFromFile("baseGeminiPrompt.txt"))
+                .thenReturn("P: {{ИСХОДНЫЙ_ТЕКСТ}}");
+
+        assertThrows(IntegratorException.class,
+                () -> analyzer.analyze(TextSource.of("page-1", "<p>Hello</p>")));
+    }
+}
@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TargetReporterTest {
+
+    private static final List<String> TARGETS = List.of("биография", "смерть", "внешность", "характер", "служба");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void add_mergesResponsesAndTracksSources() throws Exception {
+        TargetReporter reporter = new TargetReporter(List.of("биография", "смерть"));
+        assertTrue(reporter.add(new TextData("page-1", "биография:\nРодился в Москве.\nУчился в Париже.\nсмерть:\nNot Found")));
+        assertTrue(reporter.add(new TextData("page-2", "```\n[Биография]:\n  Учился в Париже.  \nСлужил в армии.\n```")));
+
+        assertEquals("биография:\nРодился в Москве.\nУчился в Париже.\nСлужил в армии.\nсмерть:\nNot Found",
+                reporter.getReport().getContent());
+        assertEquals(Set.of("page-1", "page-2"), reporter.getSources("биография", "Учился в Париже."));
+        assertEquals(Set.of("page-2"), reporter.getSources("Биография", "Служил в армии."));
+        assertEquals(Set.of(), reporter.getSources("смерть", "Служил в армии."));
+    }
+
+    @Test
+    void add_startsEachResponseWithoutCurrentGroup() throws Exception {
+        TargetReporter reporter = new TargetReporter(List.of("биография", "смерть"));
+        assertTrue(reporter.add(new TextData("page-1", "смерть:\nУмер в 1812 году.")));
+        assertTrue(reporter.add(new TextData("page-1", "Вступление.\nбиография:\nРодился в Москве.")));
+
+        assertEquals(List.of("Родился в Москве."), reporter.getSentences("биография"));
+        assertEquals(List.of("Умер в 1812 году."), reporter.getSentences("смерть"));
+        assertFalse(reporter.add(new TextData("page-1", "Строка без заголовка.")));
+        assertFalse(reporter.add(new TextData("page-3", "оглавление:")));
+        assertThrows(IntegratorException.class, () -> reporter.add(null));
+    }
+
+    @Test
+    void session_continuesGroupBetweenLinesOfOneResponse() throws Exception {
+        TargetReporter reporter = new TargetReporter(List.of("биография", "смерть"));
+        Reporter<String> first = reporter.session();
+        Reporter<String> second = reporter.session();
+        assertTrue(first.add(new TextData("page-1", "смерть:")));
+        assertTrue(second.add(new TextData("page-1", "биография:")));
+        assertTrue(first.add(new TextData("page-1", "Умер в 1812 году.")));
+        assertTrue(second.add(new TextData("page-1", "Родился в Москве.")));
+
+        assertEquals(List.of("Родился в Москве."), reporter.getSentences("биография"));
+        assertEquals(List.of("Умер в 1812 году."), reporter.getSentences("смерть"));
+        assertFalse(reporter.add(new TextData("page-1", "Вступление без заголовка.")));
+        assertEquals(reporter.getReport().getContent(), first.getReport().getContent());
+    }
+
+    @Test
+    void add_readsFileDataByFragments() throws Exception {
+        String response = Files.readString(Paths.get("result.txt"), StandardCharsets.UTF_8);
+        Path file = Files.writeString(dir.resolve("geminiOutput.txt"), response, StandardCharsets.UTF_8);
+        TargetReporter reporter = new TargetReporter(TARGETS);
+
+        assertTrue(reporter.add(new FileData(file)));
+
+        assertEquals(ExtractionResult.parse(response, TARGETS).toString(), reporter.getReport().getContent());
+        assertEquals(Set.of(file.toString()),
+                reporter.getSources("внешность", reporter.getSentences("внешность").get(0)));
+    }
+
+    @Test
+    void add_isSafeFromManyThreads() throws Exception {
+        TargetReporter reporter = new TargetReporter(List.of("биография", "характер"));
+        int sources = 400;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < sources; i++) {
+                String title = "page-" + i;
+                String response = "биография:\nОбщее предложение.\nПредложение " + (i % 50) + ".\n"
+                        + "характер:\nСвоё предложение " + i + ".";
+                futures.add(executor.submit(() -> reporter.add(new TextData(title, response))));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(51, reporter.getSentences("биография").size());
+        assertEquals(sources, reporter.getSentences("характер").size());
+        assertEquals(sources, reporter.getSources("биография", "Общее предложение.").size());
+        assertEquals(sources / 50, reporter.getSources("биография", "Предложение 7.").size());
+    }
+}
@@ -0,0 +1,105 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskConfigTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void getProperties_parsesFileOnceIntoImmutableSnapshot() throws Exception {
+        Path file = write("properties.cfg", "# комментарий\nobject = ‘Андрей’\n\ntargets=биография\nlimit=5\n"
+                + "flag=TRUE\nbroken=x\nobject=‘князь Болконский’\n");
+        TaskConfig config = new TaskConfig(file, Set.of("object"));
+
+        Map<String, String> properties = config.getProperties();
+        Files.delete(file);
+
+        assertEquals("‘князь Болконский’", config.getProperty("object"));
+        assertSame(properties, config.getProperties());
+        assertThrows(UnsupportedOperationException.class, () -> properties.put("object", "x"));
+        assertEquals(5, config.getInt("limit", 1));
+        assertEquals(7, config.getInt("missing", 7));
+        assertEquals(3, config.getInt("broken", 3));
+        assertTrue(config.getBoolean("flag", false));
+        assertTrue(config.getBoolean("broken", true));
+        assertEquals("по умолчанию", config.getString("missing", "по умолчанию"));
+        assertThrows(IntegratorException.class, () -> config.getProperty("missing"));
+        assertEquals(1, config.getVersion());
+    }
+
+    @Test
+    void readTask_withoutRequiredKey_keepsPreviousSnapshot() throws Exception {
+        Path file = write("properties.cfg", "object=A\ntargets=T\n");
+        TaskConfig config = new TaskConfig(file, TaskConfig.REQUIRED_KEYS);
+        assertEquals("A", config.getProperty("object"));
+
+        write("properties.cfg", "object=B\ntargets=\n");
+        assertThrows(IntegratorException.class, () -> config.readTask(file.toFile()));
+        assertEquals("A", config.getProperty("object"));
+
+        TaskConfig missing = new TaskConfig(dir.resolve("absent.cfg"), Set.of());
+        assertThrows(IntegratorException.class, missing::getProperties);
+    }
+
+    @Test
+    void typedAccessors_withoutCriteria_readOperationalKeysFromOneSnapshot() throws Exception {
+        Path file = write("properties.cfg", "server.port=9090\njournal.enabled=true\n");
+        TaskConfig config = new TaskConfig(file, Set.of());
+
+        assertEquals(9090, config.getInt("server.port", 8080));
+        assertTrue(config.getBoolean("journal.enabled", false));
+        assertEquals(1, config.getVersion());
+        assertThrows(IntegratorException.class, () -> TaskConfig.requireCriteria(config.getProperties()));
+        IntegratorException e = assertThrows(IntegratorException.class,
+                () -> TaskConfig.requireCriteria(Map.of("object", "A", "targets", " ")));
+        assertTrue(e.getMessage().contains("targets"), e.getMessage());
+        assertEquals(Map.of("object", "A", "targets", "T"),
+                TaskConfig.requireCriteria(Map.of("object", "A", "targets", "T")));
+
+        Files.delete(file);
+        TaskConfig missing = new TaskConfig(file, Set.of());
+        assertEquals(8080, missing.getInt("server.port", 8080));
+        write("properties.cfg", "server.port=9090\n");
+        // снимок пустой конфигурации запомнен: файл не перечитывается при каждом обращении
+        assertEquals(8080, missing.getInt("server.port", 8080));
+        assertEquals(0, missing.getVersion());
+    }
+
+    @Test
+    void watch_swapsSnapshotWhenFileChanges() throws Exception {
+        Path file = write("properties.cfg", "object=A\ntargets=T\n");
+        try (TaskConfig config = new TaskConfig(file, TaskConfig.REQUIRED_KEYS).watch()) {
+            assertEquals("A", config.getProperty("object"));
+
+            write("properties.cfg", "object=\n");
+            write("properties.cfg", "object=B\ntargets=T\n");
+            awaitValue(config, "B");
+
+            Path next = write("next.tmp", "object=C\ntargets=T\n");
+            Files.move(next, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            awaitValue(config, "C");
+        }
+    }
+
+    private static void awaitValue(TaskConfig config, String expected) throws Exception {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!expected.equals(config.getProperty("object")) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, config.getProperty("object"));
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+}
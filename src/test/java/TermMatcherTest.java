@@ -0,0 +1,105 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TermMatcherTest {
+
+    private static final String OBJECT = "’князь Болконский’, ‘Андрей’";
+    private static final String ADDITIONS = "«Война и мир», ‘Лев Толстой’, ‘один из главных героев романа’";
+    private static final String TARGETS = "биография, смерть, внешность, характер, служба";
+
+    @Test
+    void stemmer_mapsCaseFormsToOneStem() {
+        assertEquals("андр", RussianStemmer.stem("Андрей"));
+        assertEquals("андр", RussianStemmer.stem("Андреем"));
+        assertEquals("андр", RussianStemmer.stem("АНДРЕЕ"));
+        assertEquals(RussianStemmer.stem("князь"), RussianStemmer.stem("князю"));
+        assertEquals(RussianStemmer.stem("Болконский"), RussianStemmer.stem("Болконского"));
+        assertEquals(RussianStemmer.stem("ёлка"), RussianStemmer.stem("елки"));
+    }
+
+    @Test
+    void compile_parsesAllGroupsAndRules() {
+        TermMatcher matcher = configMatcher();
+        List<String> terms = new ArrayList<>();
+        matcher.getTerms().forEach(term -> terms.add(term.getRule() + " " + term));
+        assertEquals(List.of(
+                "PHRASE object:князь Болконский", "PHRASE object:Андрей",
+                "EXACT additions:Война и мир", "PHRASE additions:Лев Толстой",
+                "PHRASE additions:один из главных героев романа",
+                "WORDS targets:биография", "WORDS targets:смерть", "WORDS targets:внешность",
+                "WORDS targets:характер", "WORDS targets:служба"), terms);
+    }
+
+    @Test
+    void findAll_reportsEachVariantOncePerSentence() {
+        String text = "Князь Андрей вошёл. Андрея ждали, Андрея любили! Пьер молчал… "
+                + "Роман «Война и мир» написал Лев Толстой.";
+        List<String> hits = new ArrayList<>();
+        for (TermMatcher.Hit hit : configMatcher().findAll(text)) {
+            String sentence = text.substring(hit.getSentenceStart(), hit.getSentenceEnd()).strip();
+            hits.add(hit.getTerm().getText() + " @ " + sentence);
+        }
+        assertEquals(List.of(
+                "Андрей @ Князь Андрей вошёл.",
+                "Андрей @ Андрея ждали, Андрея любили!",
+                "Война и мир @ Роман «Война и мир» написал Лев Толстой.",
+                "Лев Толстой @ Роман «Война и мир» написал Лев Толстой."), hits);
+    }
+
+    @Test
+    void exactRule_requiresSameFormWithoutPunctuation() {
+        TermMatcher matcher = TermMatcher.compile(Map.of("additions", "«Война и мир»"));
+        assertTrue(matcher.matches("Роман «Война и мир» вышел.", null));
+        assertFalse(matcher.matches("О войне и мире.", null));
+        assertFalse(matcher.matches("Война, и мир.", null));
+    }
+
+    @Test
+    void wordsRule_requiresAllWordsInSameSentence() {
+        TermMatcher matcher = TermMatcher.compile(Map.of("targets", "герой романа"));
+        assertTrue(matcher.matches("Этот роман знаменит своим героем.", "targets"));
+        assertFalse(matcher.matches("Этот роман знаменит своим героем.", "object"));
+        assertEquals(0, matcher.findAll("Вот роман. А вот герой.").size());
+        assertEquals(1, matcher.findAll("Вот роман и герой. А вот герой.").size());
+    }
+
+    @Test
+    void phraseRule_matchesOverlappingPrefixes() {
+        TermMatcher matcher = TermMatcher.compile(Map.of("object", "‘князь князь Болконский’"));
+        assertTrue(matcher.matches("Князь князь князя Болконского звали.", null));
+        assertFalse(matcher.matches("Князь князь, князь Болконский.", null));
+    }
+
+    /**
+     * Каждое предложение эталонного ответа result.txt содержит вариант object.
+     */
+    @Test
+    void matches_everySentenceFromReferenceResult() throws Exception {
+        ExtractionResult reference = ExtractionResult.parse(
+                Files.readString(Paths.get("result.txt"), StandardCharsets.UTF_8),
+                ExtractionResult.parseTargets(TARGETS));
+        TermMatcher matcher = configMatcher();
+        for (String target : ExtractionResult.parseTargets(TARGETS)) {
+            for (String sentence : reference.getSentences(target)) {
+                assertTrue(matcher.matches(sentence, "object"), sentence);
+            }
+        }
+    }
+
+    private static TermMatcher configMatcher() {
+        Map<String, String> groups = new LinkedHashMap<>();
+        groups.put("object", OBJECT);
+        groups.put("additions", ADDITIONS);
+        groups.put("targets", TARGETS);
+        return TermMatcher.compile(groups);
+    }
+}
@@ -0,0 +1,195 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebCrawlerTest {
+
+    /**
+     * Страницы локального сервера: путь → HTML. Страницы ссылаются друг на друга по кругу, в том числе
+     * через разные записи одного адреса.
+     */
+    private static final Map<String, String> PAGES = Map.of(
+            "/", "<html><body><a href=\"/a\">A</a> <A HREF='b'>B</A> <a href=/a#top>A</a>"
+                    + "<a href=\"https://example.com/x\">внешняя</a><a href=\"#local\">якорь</a></body></html>",
+            "/a", "<p>Андрей</p><a href=\"/\">главная</a><a href=\"/c?x=1&amp;y=2\">C</a><a href=\"/missing\">нет</a>",
+            "/b", "<p>Болконский</p><a href=\"/data.json\">данные</a><a href=\"/d\">D</a>",
+            "/c?x=1&y=2", "<p>C</p><a href=\"/e\">E</a>",
+            "/d", "<p>D</p><a href=\"/e\">E</a>",
+            "/e", "<p>E</p>");
+
+    private HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<Long> requestStarts = new CopyOnWriteArrayList<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final Map<String, String> pages = new ConcurrentHashMap<>(PAGES);
+    private volatile long responseDelayMillis;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void getSources_crawlsBreadthFirstWithoutDuplicates() throws Exception {
+        try (WebCrawler crawler = new WebCrawler(10, 4, 0, Duration.ofSeconds(5), true)) {
+            List<Source<String>> sources = crawler.getSources(crawler.source(url("/")));
+            List<String> titles = titles(sources);
+            assertEquals(url("/"), titles.get(0));
+            assertEquals(6, titles.size());
+            assertEquals(Set.of(url("/"), url("/a"), url("/b"), url("/c?x=1&y=2"), url("/d"), url("/e")),
+                    new HashSet<>(titles));
+            assertEquals("<p>E</p>", sources.get(titles.indexOf(url("/e"))).getContent().getContent());
+            for (String path : List.of("/", "/a", "/b", "/c?x=1&y=2", "/d", "/e", "/missing", "/data.json")) {
+                assertEquals(1, requests.stream().filter(path::equals).count(), path);
+            }
+            assertEquals(8, requests.size());
+        }
+    }
+
+    @Test
+    void getSources_stopsAtLimit() throws Exception {
+        try (WebCrawler crawler = new WebCrawler(3, 4, 0, Duration.ofSeconds(5), true)) {
+            List<Source<String>> sources = crawler.getSources(crawler.source(url("/")));
+            assertEquals(List.of(url("/"), url("/a"), url("/b")), sortedTitles(sources));
+            assertTrue(requests.size() <= 3, requests.toString());
+
+            crawler.setLimit(0);
+            assertEquals(List.of(), crawler.getSources(crawler.source(url("/"))));
+            assertThrows(IllegalArgumentException.class, () -> crawler.setLimit(-1));
+        }
+    }
+
+    @Test
+    void getSources_respectsPerHostConnectionLimit() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            pages.put("/p" + i, "<p>" + i + "</p>");
+        }
+        StringBuilder index = new StringBuilder();
+        pages.keySet().stream().filter(path -> path.startsWith("/p"))
+                .forEach(path -> index.append("<a href=\"").append(path).append("\">x</a>"));
+        pages.put("/", index.toString());
+        responseDelayMillis = 50;
+        try (WebCrawler crawler = new WebCrawler(21, 3, 0, Duration.ofSeconds(5), true)) {
+            assertEquals(21, crawler.getSources(crawler.source(url("/"))).size());
+        }
+        assertTrue(maxActive.get() <= 3, "одновременных запросов: " + maxActive.get());
+        assertTrue(maxActive.get() >= 2, "запросы выполнялись последовательно");
+    }
+
+    @Test
+    void getSources_waitsBetweenRequestsToSameHost() throws Exception {
+        try (WebCrawler crawler = new WebCrawler(4, 4, 100, Duration.ofSeconds(5), true)) {
+            crawler.getSources(crawler.source(url("/")));
+        }
+        assertTrue(requestStarts.size() >= 4);
+        for (int i = 1; i < requestStarts.size(); i++) {
+            long interval = requestStarts.get(i) - requestStarts.get(i - 1);
+            assertTrue(interval >= 90_000_000L, "интервал " + interval / 1_000_000 + " мс");
+        }
+    }
+
+    @Test
+    void source_failsForMissingPage() {
+        try (WebCrawler crawler = new WebCrawler(1, 1, 0, Duration.ofSeconds(5), true)) {
+            IntegratorException e = assertThrows(IntegratorException.class,
+                    () -> crawler.source(url("/missing")).getContent());
+            assertTrue(e.getMessage().contains("404"), e.getMessage());
+        }
+    }
+
+    @Test
+    void extractLinks_resolvesAndNormalizesUrls() {
+        URI base = URI.create("HTTP://Example.COM:80/dir/page.html");
+        assertEquals(List.of(
+                        URI.create("http://example.com/dir/a"),
+                        URI.create("http://example.com/b?q=1&r=2"),
+                        URI.create("https://other.org/"),
+                        URI.create("http://example.com/dir/c%20d")),
+                WebCrawler.extractLinks("<a class=x href=\"a#frag\">1</a><a href='/b?q=1&amp;r=2'>2</a>"
+                        + "<a href=https://OTHER.org:443>3</a><a href=\"mailto:x@y.z\">4</a>"
+                        + "<a href=\"#top\">5</a><a href=\" c d \">6</a><link href=\"/style.css\">", base));
+    }
+
+    private String url(String path) {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path;
+    }
+
+    private static List<String> sortedTitles(List<Source<String>> sources) {
+        List<String> titles = titles(sources);
+        titles.sort(null);
+        return titles;
+    }
+
+    private static List<String> titles(List<Source<String>> sources) {
+        List<String> titles = new ArrayList<>();
+        sources.forEach(source -> titles.add(source.getTitle()));
+        return titles;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestStarts.add(System.nanoTime());
+        String path = exchange.getRequestURI().toString();
+        requests.add(path);
+        int current = active.incrementAndGet();
+        maxActive.accumulateAndGet(current, Math::max);
+        try {
+            if (responseDelayMillis > 0) {
+                Thread.sleep(responseDelayMillis);
+            }
+            String page = pages.get(path);
+            String type = "text/html; charset=utf-8";
+            int status = 200;
+            if (path.equals("/data.json")) {
+                page = "{}";
+                type = "application/json";
+            } else if (page == null) {
+                page = "not found";
+                status = 404;
+            }
+            byte[] body = page.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", type);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            active.decrementAndGet();
+            exchange.close();
+        }
+    }
+}